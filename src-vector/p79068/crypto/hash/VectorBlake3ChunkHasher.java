@@ -0,0 +1,96 @@
+package p79068.crypto.hash;
+
+import static jdk.incubator.vector.VectorOperators.ROR;
+import static jdk.incubator.vector.VectorOperators.XOR;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Hashes {@link Blake3} chunks with the incubating Vector API, interleaving the compressions of one chunk per 32-bit element of the preferred vector species (e.g. 8 chunks with AVX2, 16 chunks with AVX-512).
+ * <p>This class needs the {@code jdk.incubator.vector} module, so it must be compiled and run with {@code --add-modules jdk.incubator.vector}. Only {@link Blake3ChunkHasher} refers to it, reflectively, and falls back to the scalar compression function when the module is absent.</p>
+ */
+final class VectorBlake3ChunkHasher extends Blake3ChunkHasher {
+	
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	
+	
+	/**
+	 * Returns the number of lanes that instances of this class use.
+	 * @return the number of 32-bit elements in the preferred vector species
+	 */
+	static int preferredLanes() {
+		return SPECIES.length();
+	}
+	
+	
+	
+	public VectorBlake3ChunkHasher(int[] key, int keyFlags) {
+		super(SPECIES.length(), key, keyFlags);
+	}
+	
+	
+	
+	// Same steps as Blake3Hasher.compress(), on one chunk per vector lane
+	@Override
+	protected void compressLanes(int flags) {
+		IntVector v0 = load(cvs, 0);  IntVector v1 = load(cvs, 1);  IntVector v2 = load(cvs, 2);  IntVector v3 = load(cvs, 3);
+		IntVector v4 = load(cvs, 4);  IntVector v5 = load(cvs, 5);  IntVector v6 = load(cvs, 6);  IntVector v7 = load(cvs, 7);
+		IntVector v8  = IntVector.broadcast(SPECIES, Blake2sCore.IV[0]);
+		IntVector v9  = IntVector.broadcast(SPECIES, Blake2sCore.IV[1]);
+		IntVector v10 = IntVector.broadcast(SPECIES, Blake2sCore.IV[2]);
+		IntVector v11 = IntVector.broadcast(SPECIES, Blake2sCore.IV[3]);
+		IntVector v12 = IntVector.fromArray(SPECIES, counterLow, 0);
+		IntVector v13 = IntVector.fromArray(SPECIES, counterHigh, 0);
+		IntVector v14 = IntVector.broadcast(SPECIES, 64);
+		IntVector v15 = IntVector.broadcast(SPECIES, flags);
+		
+		IntVector m00 = load(message,  0);  IntVector m01 = load(message,  1);  IntVector m02 = load(message,  2);  IntVector m03 = load(message,  3);
+		IntVector m04 = load(message,  4);  IntVector m05 = load(message,  5);  IntVector m06 = load(message,  6);  IntVector m07 = load(message,  7);
+		IntVector m08 = load(message,  8);  IntVector m09 = load(message,  9);  IntVector m10 = load(message, 10);  IntVector m11 = load(message, 11);
+		IntVector m12 = load(message, 12);  IntVector m13 = load(message, 13);  IntVector m14 = load(message, 14);  IntVector m15 = load(message, 15);
+		
+		for (int r = 0; r < 7; r++) {
+			v0 = v0.add(v4).add(m00);  v12 = v12.lanewise(XOR, v0).lanewise(ROR, 16);  v8 = v8.add(v12);  v4 = v4.lanewise(XOR, v8).lanewise(ROR, 12);
+			v0 = v0.add(v4).add(m01);  v12 = v12.lanewise(XOR, v0).lanewise(ROR,  8);  v8 = v8.add(v12);  v4 = v4.lanewise(XOR, v8).lanewise(ROR,  7);
+			v1 = v1.add(v5).add(m02);  v13 = v13.lanewise(XOR, v1).lanewise(ROR, 16);  v9 = v9.add(v13);  v5 = v5.lanewise(XOR, v9).lanewise(ROR, 12);
+			v1 = v1.add(v5).add(m03);  v13 = v13.lanewise(XOR, v1).lanewise(ROR,  8);  v9 = v9.add(v13);  v5 = v5.lanewise(XOR, v9).lanewise(ROR,  7);
+			v2 = v2.add(v6).add(m04);  v14 = v14.lanewise(XOR, v2).lanewise(ROR, 16);  v10 = v10.add(v14);  v6 = v6.lanewise(XOR, v10).lanewise(ROR, 12);
+			v2 = v2.add(v6).add(m05);  v14 = v14.lanewise(XOR, v2).lanewise(ROR,  8);  v10 = v10.add(v14);  v6 = v6.lanewise(XOR, v10).lanewise(ROR,  7);
+			v3 = v3.add(v7).add(m06);  v15 = v15.lanewise(XOR, v3).lanewise(ROR, 16);  v11 = v11.add(v15);  v7 = v7.lanewise(XOR, v11).lanewise(ROR, 12);
+			v3 = v3.add(v7).add(m07);  v15 = v15.lanewise(XOR, v3).lanewise(ROR,  8);  v11 = v11.add(v15);  v7 = v7.lanewise(XOR, v11).lanewise(ROR,  7);
+			v0 = v0.add(v5).add(m08);  v15 = v15.lanewise(XOR, v0).lanewise(ROR, 16);  v10 = v10.add(v15);  v5 = v5.lanewise(XOR, v10).lanewise(ROR, 12);
+			v0 = v0.add(v5).add(m09);  v15 = v15.lanewise(XOR, v0).lanewise(ROR,  8);  v10 = v10.add(v15);  v5 = v5.lanewise(XOR, v10).lanewise(ROR,  7);
+			v1 = v1.add(v6).add(m10);  v12 = v12.lanewise(XOR, v1).lanewise(ROR, 16);  v11 = v11.add(v12);  v6 = v6.lanewise(XOR, v11).lanewise(ROR, 12);
+			v1 = v1.add(v6).add(m11);  v12 = v12.lanewise(XOR, v1).lanewise(ROR,  8);  v11 = v11.add(v12);  v6 = v6.lanewise(XOR, v11).lanewise(ROR,  7);
+			v2 = v2.add(v7).add(m12);  v13 = v13.lanewise(XOR, v2).lanewise(ROR, 16);  v8 = v8.add(v13);  v7 = v7.lanewise(XOR, v8).lanewise(ROR, 12);
+			v2 = v2.add(v7).add(m13);  v13 = v13.lanewise(XOR, v2).lanewise(ROR,  8);  v8 = v8.add(v13);  v7 = v7.lanewise(XOR, v8).lanewise(ROR,  7);
+			v3 = v3.add(v4).add(m14);  v14 = v14.lanewise(XOR, v3).lanewise(ROR, 16);  v9 = v9.add(v14);  v4 = v4.lanewise(XOR, v9).lanewise(ROR, 12);
+			v3 = v3.add(v4).add(m15);  v14 = v14.lanewise(XOR, v3).lanewise(ROR,  8);  v9 = v9.add(v14);  v4 = v4.lanewise(XOR, v9).lanewise(ROR,  7);
+			
+			// Permute the message words for the next round
+			IntVector p00 = m02;  IntVector p01 = m06;  IntVector p02 = m03;  IntVector p03 = m10;
+			IntVector p04 = m07;  IntVector p05 = m00;  IntVector p06 = m04;  IntVector p07 = m13;
+			IntVector p08 = m01;  IntVector p09 = m11;  IntVector p10 = m12;  IntVector p11 = m05;
+			IntVector p12 = m09;  IntVector p13 = m14;  IntVector p14 = m15;  IntVector p15 = m08;
+			m00 = p00;  m01 = p01;  m02 = p02;  m03 = p03;
+			m04 = p04;  m05 = p05;  m06 = p06;  m07 = p07;
+			m08 = p08;  m09 = p09;  m10 = p10;  m11 = p11;
+			m12 = p12;  m13 = p13;  m14 = p14;  m15 = p15;
+		}
+		
+		store(0, v0.lanewise(XOR, v8 ));  store(1, v1.lanewise(XOR, v9 ));  store(2, v2.lanewise(XOR, v10));  store(3, v3.lanewise(XOR, v11));
+		store(4, v4.lanewise(XOR, v12));  store(5, v5.lanewise(XOR, v13));  store(6, v6.lanewise(XOR, v14));  store(7, v7.lanewise(XOR, v15));
+	}
+	
+	
+	private IntVector load(int[] words, int word) {
+		return IntVector.fromArray(SPECIES, words, word * lanes);
+	}
+	
+	
+	private void store(int word, IntVector v) {
+		v.intoArray(cvs, word * lanes);
+	}
+	
+}
@@ -0,0 +1,134 @@
+package p79068.crypto.hash;
+
+import static jdk.incubator.vector.VectorOperators.AND_NOT;
+import static jdk.incubator.vector.VectorOperators.ROL;
+import static jdk.incubator.vector.VectorOperators.XOR;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Hashes the leaves of a Keccak tree hash mode with the incubating Vector API, interleaving the permutations of one leaf per 64-bit element of the preferred vector species (e.g. 4 leaves with AVX2, 8 leaves with AVX-512).
+ * <p>This class needs the {@code jdk.incubator.vector} module, so it must be compiled and run with {@code --add-modules jdk.incubator.vector}. Only {@link KeccakLeafHasher} refers to it, reflectively, and falls back to the scalar permutation when the module is absent.</p>
+ */
+final class VectorKeccakLeafHasher extends KeccakLeafHasher {
+	
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+	
+	
+	/**
+	 * Returns the number of lanes that instances of this class use.
+	 * @return the number of 64-bit elements in the preferred vector species
+	 */
+	static int preferredLanes() {
+		return SPECIES.length();
+	}
+	
+	
+	
+	public VectorKeccakLeafHasher(int rate, byte padding, int rounds, int leafLength, int outputLength) {
+		super(SPECIES.length(), rate, padding, rounds, leafLength, outputLength);
+	}
+	
+	
+	
+	// Same steps as KeccakHasher.permute(), on one state per vector lane. In chi, b2.lanewise(AND_NOT, b1) computes ~b1 & b2.
+	@Override
+	protected void permuteLanes() {
+		LongVector a00 = load( 0);  LongVector a01 = load( 1);  LongVector a02 = load( 2);  LongVector a03 = load( 3);  LongVector a04 = load( 4);
+		LongVector a05 = load( 5);  LongVector a06 = load( 6);  LongVector a07 = load( 7);  LongVector a08 = load( 8);  LongVector a09 = load( 9);
+		LongVector a10 = load(10);  LongVector a11 = load(11);  LongVector a12 = load(12);  LongVector a13 = load(13);  LongVector a14 = load(14);
+		LongVector a15 = load(15);  LongVector a16 = load(16);  LongVector a17 = load(17);  LongVector a18 = load(18);  LongVector a19 = load(19);
+		LongVector a20 = load(20);  LongVector a21 = load(21);  LongVector a22 = load(22);  LongVector a23 = load(23);  LongVector a24 = load(24);
+		
+		for (int r = KeccakHasher.RC.length - rounds; r < KeccakHasher.RC.length; r++) {
+			// Theta step
+			LongVector c0 = a00.lanewise(XOR, a05).lanewise(XOR, a10).lanewise(XOR, a15).lanewise(XOR, a20);
+			LongVector c1 = a01.lanewise(XOR, a06).lanewise(XOR, a11).lanewise(XOR, a16).lanewise(XOR, a21);
+			LongVector c2 = a02.lanewise(XOR, a07).lanewise(XOR, a12).lanewise(XOR, a17).lanewise(XOR, a22);
+			LongVector c3 = a03.lanewise(XOR, a08).lanewise(XOR, a13).lanewise(XOR, a18).lanewise(XOR, a23);
+			LongVector c4 = a04.lanewise(XOR, a09).lanewise(XOR, a14).lanewise(XOR, a19).lanewise(XOR, a24);
+			LongVector d0 = c4.lanewise(XOR, c1.lanewise(ROL, 1));
+			LongVector d1 = c0.lanewise(XOR, c2.lanewise(ROL, 1));
+			LongVector d2 = c1.lanewise(XOR, c3.lanewise(ROL, 1));
+			LongVector d3 = c2.lanewise(XOR, c4.lanewise(ROL, 1));
+			LongVector d4 = c3.lanewise(XOR, c0.lanewise(ROL, 1));
+			a00 = a00.lanewise(XOR, d0);  a05 = a05.lanewise(XOR, d0);  a10 = a10.lanewise(XOR, d0);  a15 = a15.lanewise(XOR, d0);  a20 = a20.lanewise(XOR, d0);
+			a01 = a01.lanewise(XOR, d1);  a06 = a06.lanewise(XOR, d1);  a11 = a11.lanewise(XOR, d1);  a16 = a16.lanewise(XOR, d1);  a21 = a21.lanewise(XOR, d1);
+			a02 = a02.lanewise(XOR, d2);  a07 = a07.lanewise(XOR, d2);  a12 = a12.lanewise(XOR, d2);  a17 = a17.lanewise(XOR, d2);  a22 = a22.lanewise(XOR, d2);
+			a03 = a03.lanewise(XOR, d3);  a08 = a08.lanewise(XOR, d3);  a13 = a13.lanewise(XOR, d3);  a18 = a18.lanewise(XOR, d3);  a23 = a23.lanewise(XOR, d3);
+			a04 = a04.lanewise(XOR, d4);  a09 = a09.lanewise(XOR, d4);  a14 = a14.lanewise(XOR, d4);  a19 = a19.lanewise(XOR, d4);  a24 = a24.lanewise(XOR, d4);
+			
+			// Rho and pi steps
+			LongVector b00 = a00;
+			LongVector b16 = a05.lanewise(ROL, 36);
+			LongVector b07 = a10.lanewise(ROL, 3);
+			LongVector b23 = a15.lanewise(ROL, 41);
+			LongVector b14 = a20.lanewise(ROL, 18);
+			LongVector b10 = a01.lanewise(ROL, 1);
+			LongVector b01 = a06.lanewise(ROL, 44);
+			LongVector b17 = a11.lanewise(ROL, 10);
+			LongVector b08 = a16.lanewise(ROL, 45);
+			LongVector b24 = a21.lanewise(ROL, 2);
+			LongVector b20 = a02.lanewise(ROL, 62);
+			LongVector b11 = a07.lanewise(ROL, 6);
+			LongVector b02 = a12.lanewise(ROL, 43);
+			LongVector b18 = a17.lanewise(ROL, 15);
+			LongVector b09 = a22.lanewise(ROL, 61);
+			LongVector b05 = a03.lanewise(ROL, 28);
+			LongVector b21 = a08.lanewise(ROL, 55);
+			LongVector b12 = a13.lanewise(ROL, 25);
+			LongVector b03 = a18.lanewise(ROL, 21);
+			LongVector b19 = a23.lanewise(ROL, 56);
+			LongVector b15 = a04.lanewise(ROL, 27);
+			LongVector b06 = a09.lanewise(ROL, 20);
+			LongVector b22 = a14.lanewise(ROL, 39);
+			LongVector b13 = a19.lanewise(ROL, 8);
+			LongVector b04 = a24.lanewise(ROL, 14);
+			
+			// Chi and iota steps
+			a00 = b00.lanewise(XOR, b02.lanewise(AND_NOT, b01)).lanewise(XOR, KeccakHasher.RC[r]);
+			a05 = b05.lanewise(XOR, b07.lanewise(AND_NOT, b06));
+			a10 = b10.lanewise(XOR, b12.lanewise(AND_NOT, b11));
+			a15 = b15.lanewise(XOR, b17.lanewise(AND_NOT, b16));
+			a20 = b20.lanewise(XOR, b22.lanewise(AND_NOT, b21));
+			a01 = b01.lanewise(XOR, b03.lanewise(AND_NOT, b02));
+			a06 = b06.lanewise(XOR, b08.lanewise(AND_NOT, b07));
+			a11 = b11.lanewise(XOR, b13.lanewise(AND_NOT, b12));
+			a16 = b16.lanewise(XOR, b18.lanewise(AND_NOT, b17));
+			a21 = b21.lanewise(XOR, b23.lanewise(AND_NOT, b22));
+			a02 = b02.lanewise(XOR, b04.lanewise(AND_NOT, b03));
+			a07 = b07.lanewise(XOR, b09.lanewise(AND_NOT, b08));
+			a12 = b12.lanewise(XOR, b14.lanewise(AND_NOT, b13));
+			a17 = b17.lanewise(XOR, b19.lanewise(AND_NOT, b18));
+			a22 = b22.lanewise(XOR, b24.lanewise(AND_NOT, b23));
+			a03 = b03.lanewise(XOR, b00.lanewise(AND_NOT, b04));
+			a08 = b08.lanewise(XOR, b05.lanewise(AND_NOT, b09));
+			a13 = b13.lanewise(XOR, b10.lanewise(AND_NOT, b14));
+			a18 = b18.lanewise(XOR, b15.lanewise(AND_NOT, b19));
+			a23 = b23.lanewise(XOR, b20.lanewise(AND_NOT, b24));
+			a04 = b04.lanewise(XOR, b01.lanewise(AND_NOT, b00));
+			a09 = b09.lanewise(XOR, b06.lanewise(AND_NOT, b05));
+			a14 = b14.lanewise(XOR, b11.lanewise(AND_NOT, b10));
+			a19 = b19.lanewise(XOR, b16.lanewise(AND_NOT, b15));
+			a24 = b24.lanewise(XOR, b21.lanewise(AND_NOT, b20));
+		}
+		
+		store( 0, a00);  store( 1, a01);  store( 2, a02);  store( 3, a03);  store( 4, a04);
+		store( 5, a05);  store( 6, a06);  store( 7, a07);  store( 8, a08);  store( 9, a09);
+		store(10, a10);  store(11, a11);  store(12, a12);  store(13, a13);  store(14, a14);
+		store(15, a15);  store(16, a16);  store(17, a17);  store(18, a18);  store(19, a19);
+		store(20, a20);  store(21, a21);  store(22, a22);  store(23, a23);  store(24, a24);
+	}
+	
+	
+	private LongVector load(int word) {
+		return LongVector.fromArray(SPECIES, states, word * lanes);
+	}
+	
+	
+	private void store(int word, LongVector v) {
+		v.intoArray(states, word * lanes);
+	}
+	
+}
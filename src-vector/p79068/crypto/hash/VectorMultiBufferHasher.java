@@ -0,0 +1,238 @@
+package p79068.crypto.hash;
+
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.ROL;
+import static jdk.incubator.vector.VectorOperators.ROR;
+import static jdk.incubator.vector.VectorOperators.XOR;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Computes SHA-1, SHA-256 or MD5 hashes of several messages at a time with the incubating Vector API, with one lane per 32-bit element of the preferred vector species (e.g. 8 lanes with AVX2, 16 lanes with AVX-512).
+ * <p>This class needs the {@code jdk.incubator.vector} module, so it must be compiled and run with {@code --add-modules jdk.incubator.vector}. Only {@link MultiBufferHasher} refers to it, reflectively, and falls back to the scalar implementations when the module is absent.</p>
+ */
+final class VectorMultiBufferHasher extends MultiBufferHasher {
+	
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	
+	private static final VarHandle INT32_ARRAY_BIG = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle INT32_ARRAY_LITTLE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	/**
+	 * Returns the number of lanes that instances of this class use.
+	 * @return the number of 32-bit elements in the preferred vector species
+	 */
+	static int preferredLanes() {
+		return SPECIES.length();
+	}
+	
+	
+	
+	private final BlockHashFunction hashFunction;
+	
+	// The message schedules, word-major: word j of lane i is at index j * lanes + i.
+	private final int[] schedule;
+	
+	
+	
+	public VectorMultiBufferHasher(BlockHashFunction hashFunc) {
+		super(SPECIES.length(), initialState(hashFunc), hashFunc.getHashLength(), hashFunc != Md.MD5_FUNCTION);
+		hashFunction = hashFunc;
+		schedule = new int[(hashFunc == Sha.SHA1_FUNCTION ? 80 : 64) * lanes];
+	}
+	
+	
+	private static int[] initialState(BlockHashFunction hashFunc) {
+		if      (hashFunc == Sha.SHA1_FUNCTION  ) return MultiBufferSha1.INITIAL_STATE;
+		else if (hashFunc == Sha.SHA256_FUNCTION) return MultiBufferSha256.INITIAL_STATE;
+		else if (hashFunc == Md.MD5_FUNCTION    ) return MultiBufferMd5.INITIAL_STATE;
+		else throw new IllegalArgumentException("Unsupported hash function");
+	}
+	
+	
+	
+	@Override
+	protected void compressLanes() {
+		if      (hashFunction == Sha.SHA1_FUNCTION  ) compressSha1();
+		else if (hashFunction == Sha.SHA256_FUNCTION) compressSha256();
+		else if (hashFunction == Md.MD5_FUNCTION    ) compressMd5();
+		else throw new AssertionError();
+	}
+	
+	
+	// Transposes the 16 message words of each lane's block into the first 16 rows of the schedule.
+	private void loadBlocks(VarHandle int32Array) {
+		for (int i = 0; i < lanes; i++) {
+			byte[] b = blocks[i];
+			int off = blockOffsets[i];
+			for (int j = 0; j < 16; j++)
+				schedule[j * lanes + i] = (int)int32Array.get(b, off + j * 4);
+		}
+	}
+	
+	
+	private IntVector load(int[] array, int row) {
+		return IntVector.fromArray(SPECIES, array, row * lanes);
+	}
+	
+	
+	private void compressSha1() {
+		loadBlocks(INT32_ARRAY_BIG);
+		for (int j = 16; j < 80; j++) {
+			IntVector t = load(schedule, j - 3).lanewise(XOR, load(schedule, j - 8)).lanewise(XOR, load(schedule, j - 14)).lanewise(XOR, load(schedule, j - 16));
+			t.lanewise(ROL, 1).intoArray(schedule, j * lanes);
+		}
+		
+		IntVector a = load(states, 0);
+		IntVector b = load(states, 1);
+		IntVector c = load(states, 2);
+		IntVector d = load(states, 3);
+		IntVector e = load(states, 4);
+		for (int j = 0; j < 20; j++) {
+			IntVector t = a.lanewise(ROL, 5).add(d.lanewise(XOR, b.and(c.lanewise(XOR, d)))).add(e).add(load(schedule, j)).add(0x5A827999);
+			e = d;
+			d = c;
+			c = b.lanewise(ROL, 30);
+			b = a;
+			a = t;
+		}
+		
+		for (int j = 20; j < 40; j++) {
+			IntVector t = a.lanewise(ROL, 5).add(b.lanewise(XOR, c).lanewise(XOR, d)).add(e).add(load(schedule, j)).add(0x6ED9EBA1);
+			e = d;
+			d = c;
+			c = b.lanewise(ROL, 30);
+			b = a;
+			a = t;
+		}
+		
+		for (int j = 40; j < 60; j++) {
+			IntVector t = a.lanewise(ROL, 5).add(b.and(c.or(d)).or(c.and(d))).add(e).add(load(schedule, j)).add(0x8F1BBCDC);
+			e = d;
+			d = c;
+			c = b.lanewise(ROL, 30);
+			b = a;
+			a = t;
+		}
+		
+		for (int j = 60; j < 80; j++) {
+			IntVector t = a.lanewise(ROL, 5).add(b.lanewise(XOR, c).lanewise(XOR, d)).add(e).add(load(schedule, j)).add(0xCA62C1D6);
+			e = d;
+			d = c;
+			c = b.lanewise(ROL, 30);
+			b = a;
+			a = t;
+		}
+		
+		a.add(load(states, 0)).intoArray(states, 0 * lanes);
+		b.add(load(states, 1)).intoArray(states, 1 * lanes);
+		c.add(load(states, 2)).intoArray(states, 2 * lanes);
+		d.add(load(states, 3)).intoArray(states, 3 * lanes);
+		e.add(load(states, 4)).intoArray(states, 4 * lanes);
+	}
+	
+	
+	private void compressSha256() {
+		loadBlocks(INT32_ARRAY_BIG);
+		// Within one message, each schedule word depends on the word two positions earlier, so the expansion is vectorized across lanes rather than within a message
+		for (int j = 16; j < 64; j++) {
+			IntVector x = load(schedule, j - 15);
+			IntVector y = load(schedule, j - 2);
+			load(schedule, j - 16).add(load(schedule, j - 7))
+				.add(x.lanewise(ROR, 7).lanewise(XOR, x.lanewise(ROR, 18)).lanewise(XOR, x.lanewise(LSHR, 3)))
+				.add(y.lanewise(ROR, 17).lanewise(XOR, y.lanewise(ROR, 19)).lanewise(XOR, y.lanewise(LSHR, 10)))
+				.intoArray(schedule, j * lanes);
+		}
+		
+		IntVector a = load(states, 0);
+		IntVector b = load(states, 1);
+		IntVector c = load(states, 2);
+		IntVector d = load(states, 3);
+		IntVector e = load(states, 4);
+		IntVector f = load(states, 5);
+		IntVector g = load(states, 6);
+		IntVector h = load(states, 7);
+		for (int j = 0; j < 64; j++) {
+			IntVector t1 = h.add(e.lanewise(ROR, 6).lanewise(XOR, e.lanewise(ROR, 11)).lanewise(XOR, e.lanewise(ROR, 25)))
+				.add(g.lanewise(XOR, e.and(f.lanewise(XOR, g)))).add(load(schedule, j)).add(Sha256Core.K[j]);
+			IntVector t2 = a.lanewise(ROR, 2).lanewise(XOR, a.lanewise(ROR, 13)).lanewise(XOR, a.lanewise(ROR, 22))
+				.add(a.and(b.or(c)).or(b.and(c)));
+			h = g;
+			g = f;
+			f = e;
+			e = d.add(t1);
+			d = c;
+			c = b;
+			b = a;
+			a = t1.add(t2);
+		}
+		
+		a.add(load(states, 0)).intoArray(states, 0 * lanes);
+		b.add(load(states, 1)).intoArray(states, 1 * lanes);
+		c.add(load(states, 2)).intoArray(states, 2 * lanes);
+		d.add(load(states, 3)).intoArray(states, 3 * lanes);
+		e.add(load(states, 4)).intoArray(states, 4 * lanes);
+		f.add(load(states, 5)).intoArray(states, 5 * lanes);
+		g.add(load(states, 6)).intoArray(states, 6 * lanes);
+		h.add(load(states, 7)).intoArray(states, 7 * lanes);
+	}
+	
+	
+	private void compressMd5() {
+		loadBlocks(INT32_ARRAY_LITTLE);
+		IntVector a = load(states, 0);
+		IntVector b = load(states, 1);
+		IntVector c = load(states, 2);
+		IntVector d = load(states, 3);
+		for (int j = 0; j < 16; j++) {
+			IntVector t = a.add(d.lanewise(XOR, b.and(c.lanewise(XOR, d)))).add(load(schedule, MultiBufferMd5.MESSAGE_OFFSETS[j] >>> 2)).add(MultiBufferMd5.T[j]);
+			a = d;
+			d = c;
+			c = b;
+			b = b.add(t.lanewise(ROL, MD5_SHIFTS[j]));
+		}
+		
+		for (int j = 16; j < 32; j++) {
+			IntVector t = a.add(c.lanewise(XOR, d.and(b.lanewise(XOR, c)))).add(load(schedule, MultiBufferMd5.MESSAGE_OFFSETS[j] >>> 2)).add(MultiBufferMd5.T[j]);
+			a = d;
+			d = c;
+			c = b;
+			b = b.add(t.lanewise(ROL, MD5_SHIFTS[j]));
+		}
+		
+		for (int j = 32; j < 48; j++) {
+			IntVector t = a.add(b.lanewise(XOR, c).lanewise(XOR, d)).add(load(schedule, MultiBufferMd5.MESSAGE_OFFSETS[j] >>> 2)).add(MultiBufferMd5.T[j]);
+			a = d;
+			d = c;
+			c = b;
+			b = b.add(t.lanewise(ROL, MD5_SHIFTS[j]));
+		}
+		
+		for (int j = 48; j < 64; j++) {
+			IntVector t = a.add(c.lanewise(XOR, b.or(d.not()))).add(load(schedule, MultiBufferMd5.MESSAGE_OFFSETS[j] >>> 2)).add(MultiBufferMd5.T[j]);
+			a = d;
+			d = c;
+			c = b;
+			b = b.add(t.lanewise(ROL, MD5_SHIFTS[j]));
+		}
+		
+		a.add(load(states, 0)).intoArray(states, 0 * lanes);
+		b.add(load(states, 1)).intoArray(states, 1 * lanes);
+		c.add(load(states, 2)).intoArray(states, 2 * lanes);
+		d.add(load(states, 3)).intoArray(states, 3 * lanes);
+	}
+	
+	
+	private static final int[] MD5_SHIFTS = {
+		7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22,
+		5,  9, 14, 20, 5,  9, 14, 20, 5,  9, 14, 20, 5,  9, 14, 20,
+		4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23,
+		6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21,
+	};
+	
+}
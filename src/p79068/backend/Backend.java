@@ -0,0 +1,40 @@
+package p79068.backend;
+
+
+/**
+ * An implementation source for an algorithm of this library.
+ * @see Backends
+ */
+public enum Backend {
+	
+	/**
+	 * The library's own pure Java implementation, e.g. {@code FastSha256Core} or {@code FastAesCipherer}.
+	 */
+	LIBRARY("library"),
+	
+	/**
+	 * The implementation of the Java platform, e.g. {@link java.security.MessageDigest}, {@link javax.crypto.Cipher} or {@link java.util.zip.CRC32C}, which the JVM may run with intrinsics that use CPU instructions like SHA-NI, AES-NI and CRC32.
+	 */
+	JDK("jdk");
+	
+	
+	
+	private final String name;
+	
+	
+	
+	private Backend(String name) {
+		this.name = name;
+	}
+	
+	
+	
+	/**
+	 * Returns the name of this backend as used in the system properties, i.e. {@code "library"} or {@code "jdk"}.
+	 * @return the name of this backend
+	 */
+	public String getName() {
+		return name;
+	}
+	
+}
@@ -0,0 +1,283 @@
+package p79068.backend;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import p79068.Assert;
+
+
+/**
+ * Selects, for each algorithm family, whether the library's own implementation or the Java platform's implementation is used, and reports the selections.
+ * <p>The JDK's {@link java.security.MessageDigest}, {@link javax.crypto.Cipher} and {@link java.util.zip.Checksum} implementations can be compiled by the JVM into CPU instructions like SHA-NI, AES-NI, CLMUL and CRC32, which the library's code cannot reach. Which one is faster depends on the machine, so the selection for a family is made the first time one of its hashers or cipherers is created, and kept for the lifetime of the JVM:</p>
+ * <ol>
+ *   <li>If the system property {@code p79068.backend.}<var>family</var> (e.g. {@code p79068.backend.SHA-256}), or else {@code p79068.backend}, is set to {@code library}, the library's implementation is used.</li>
+ *   <li>If the JDK's implementation is unavailable (e.g. no security provider offers the algorithm), the library's implementation is used.</li>
+ *   <li>If the property is set to {@code jdk}, the JDK's implementation is used.</li>
+ *   <li>If the JVM is HotSpot and reports that its intrinsics for the algorithm are enabled (the options {@code UseSHA} for SHA-1 and SHA-2, and {@code UseAES} for AES), the JDK's implementation is used, because the intrinsics only take effect once the JIT compiler has compiled the JDK's code, which takes longer than the calibration.</li>
+ *   <li>Otherwise (the property is unset or {@code auto}), a short calibration processes a {@value #CALIBRATION_LENGTH}-byte buffer with both implementations for about {@value #CALIBRATION_MILLIS} ms in total, and the one with the higher throughput is used.</li>
+ * </ol>
+ * <p>A family is one hash function or one AES key length, named {@code MD2}, {@code MD4}, {@code MD5}, {@code SHA-1}, {@code SHA-224}, {@code SHA-256}, {@code SHA-384}, {@code SHA-512}, {@code SHA-512/224}, {@code SHA-512/256}, {@code AES-128}, {@code AES-192}, {@code AES-256} (Rijndael with 128-bit blocks), {@code CRC-32}, {@code CRC-32C} and {@code Adler-32}. The standard security providers have no MD4, so it always uses the library's implementation, as do all other algorithms.</p>
+ * <p>Both backends compute the same values, and their hashers and cipherers support cloning and zeroization. However, zeroizing a JDK-backed object only drops the references to the JDK's objects and cannot clear the key schedules or states inside them; set the property to {@code library} if that matters.</p>
+ * <p>The calibration is short and runs while the JIT compiler is still warming up, which favours implementations that are intrinsics or native code. If a longer benchmark disagrees with a selection, override it with the system property.</p>
+ */
+public final class Backends {
+	
+	/**
+	 * The name of the system property that sets the backend of all families, and the prefix of the per-family properties.
+	 */
+	public static final String PROPERTY = "p79068.backend";
+	
+	/**
+	 * The length of the buffer that each calibration run processes, in bytes.
+	 */
+	public static final int CALIBRATION_LENGTH = 16 << 10;
+	
+	/**
+	 * The approximate total time that the calibration of one family takes, in milliseconds.
+	 */
+	public static final int CALIBRATION_MILLIS = 20;
+	
+	// The calibration alternates between the two implementations, so that neither one is measured only while the other is being compiled
+	private static final int CALIBRATION_ROUNDS = 5;
+	
+	
+	// The selections made so far, in order. Replaced by a new unmodifiable map on each selection, so that lookups need no lock.
+	private static volatile Map<String,Selection> selections = Collections.emptyMap();
+	
+	
+	
+	/**
+	 * Returns the backend selected for the specified family, making the selection on the first call for the family. This is called by the algorithm classes of this library.
+	 * @param family the name of the algorithm family, e.g. {@code "SHA-256"}
+	 * @param vmOption the name of the boolean HotSpot option that enables the JVM's intrinsics for the JDK's implementation (e.g. {@code "UseSHA"}), or {@code null} to always calibrate
+	 * @param library processes a byte array with the library's implementation
+	 * @param jdk processes a byte array with the JDK's implementation, and throws an exception if it is unavailable
+	 * @return the selected backend for the family
+	 * @throws NullPointerException if {@code family}, {@code library} or {@code jdk} is {@code null}
+	 * @throws IllegalArgumentException if a system property for the family has an invalid value
+	 */
+	public static Backend select(String family, String vmOption, Workload library, Workload jdk) {
+		Selection result = selections.get(family);
+		if (result == null)
+			result = makeSelection(family, vmOption, library, jdk);
+		return result.getBackend();
+	}
+	
+	
+	/**
+	 * Returns the selection for the specified family, or {@code null} if no hasher or cipherer of the family has been created yet.
+	 * @param family the name of the algorithm family, e.g. {@code "SHA-256"}
+	 * @return the selection for the family, or {@code null}
+	 * @throws NullPointerException if {@code family} is {@code null}
+	 */
+	public static Selection getSelection(String family) {
+		Assert.assertNotNull(family);
+		return selections.get(family);
+	}
+	
+	
+	/**
+	 * Returns all selections made so far, in the order they were made.
+	 * @return a new list of the selections
+	 */
+	public static List<Selection> getSelections() {
+		return new ArrayList<>(selections.values());
+	}
+	
+	
+	
+	private static synchronized Selection makeSelection(String family, String vmOption, Workload library, Workload jdk) {
+		Assert.assertNotNull(family, library, jdk);
+		Selection result = selections.get(family);
+		if (result != null)  // Another thread made the selection while this one waited for the lock
+			return result;
+		
+		result = decide(family, vmOption, library, jdk);
+		Map<String,Selection> temp = new LinkedHashMap<>(selections);
+		temp.put(family, result);
+		selections = Collections.unmodifiableMap(temp);
+		return result;
+	}
+	
+	
+	private static Selection decide(String family, String vmOption, Workload library, Workload jdk) {
+		String key = PROPERTY + "." + family;
+		String value = System.getProperty(key);
+		if (value == null) {
+			key = PROPERTY;
+			value = System.getProperty(key, "auto");
+		}
+		
+		Backend requested;
+		if      (value.equals("auto"                  )) requested = null;
+		else if (value.equals(Backend.LIBRARY.getName())) requested = Backend.LIBRARY;
+		else if (value.equals(Backend.JDK    .getName())) requested = Backend.JDK;
+		else throw new IllegalArgumentException("Invalid value for system property " + key + ": " + value);
+		
+		if (requested == Backend.LIBRARY)
+			return new Selection(family, Backend.LIBRARY, "set by system property " + key, Double.NaN, Double.NaN);
+		
+		byte[] data = new byte[CALIBRATION_LENGTH];
+		try {
+			jdk.run(data);
+		} catch (Exception | LinkageError e) {
+			return new Selection(family, Backend.LIBRARY, "JDK implementation unavailable: " + e, Double.NaN, Double.NaN);
+		}
+		if (requested == Backend.JDK)
+			return new Selection(family, Backend.JDK, "set by system property " + key, Double.NaN, Double.NaN);
+		if (vmOption != null && isVmOptionEnabled(vmOption))
+			return new Selection(family, Backend.JDK, "JVM option " + vmOption + " is enabled", Double.NaN, Double.NaN);
+		
+		double libraryRate = 0;
+		double jdkRate = 0;
+		long roundNanos = CALIBRATION_MILLIS * 1000000L / (CALIBRATION_ROUNDS * 2);
+		for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+			libraryRate = Math.max(measure(library, data, roundNanos), libraryRate);
+			jdkRate     = Math.max(measure(jdk    , data, roundNanos), jdkRate    );
+		}
+		return new Selection(family, jdkRate > libraryRate ? Backend.JDK : Backend.LIBRARY, "calibrated", libraryRate, jdkRate);
+	}
+	
+	
+	// Returns false if the option is disabled, or if this is not HotSpot or the option does not exist.
+	private static boolean isVmOptionEnabled(String name) {
+		try {
+			HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			return bean != null && bean.getVMOption(name).getValue().equals("true");
+		} catch (RuntimeException | LinkageError e) {  // E.g. the jdk.management module is absent
+			return false;
+		}
+	}
+	
+	
+	// Returns the throughput of the workload in bytes per second, running it repeatedly for at least the specified time.
+	private static double measure(Workload work, byte[] data, long nanos) {
+		long start = System.nanoTime();
+		long elapsed;
+		long runs = 0;
+		try {
+			do {
+				work.run(data);
+				runs++;
+				elapsed = System.nanoTime() - start;
+			} while (elapsed < nanos);
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+		return (double)runs * data.length * 1e9 / elapsed;
+	}
+	
+	
+	
+	private Backends() {}  // Not instantiable
+	
+	
+	
+	/**
+	 * A unit of work for the calibration.
+	 */
+	public interface Workload {
+		
+		/**
+		 * Processes the whole specified byte array once, e.g. by hashing it with a new hasher, or by encrypting it in place with a new cipherer.
+		 * @param data the byte array to process
+		 * @throws Exception if the implementation is unavailable
+		 */
+		public void run(byte[] data) throws Exception;
+		
+	}
+	
+	
+	
+	/**
+	 * The backend selected for an algorithm family, and why. Immutable.
+	 */
+	public static final class Selection {
+		
+		private final String family;
+		
+		private final Backend backend;
+		
+		private final String reason;
+		
+		private final double libraryThroughput;
+		
+		private final double jdkThroughput;
+		
+		
+		
+		private Selection(String family, Backend backend, String reason, double libraryThroughput, double jdkThroughput) {
+			this.family = family;
+			this.backend = backend;
+			this.reason = reason;
+			this.libraryThroughput = libraryThroughput;
+			this.jdkThroughput = jdkThroughput;
+		}
+		
+		
+		
+		/**
+		 * Returns the name of the algorithm family, e.g. {@code "SHA-256"}.
+		 * @return the name of the algorithm family
+		 */
+		public String getFamily() {
+			return family;
+		}
+		
+		
+		/**
+		 * Returns the selected backend.
+		 * @return the selected backend
+		 */
+		public Backend getBackend() {
+			return backend;
+		}
+		
+		
+		/**
+		 * Returns a human-readable reason for the selection, e.g. {@code "calibrated"}, {@code "JVM option UseSHA is enabled"} or {@code "set by system property p79068.backend"}.
+		 * @return the reason for the selection
+		 */
+		public String getReason() {
+			return reason;
+		}
+		
+		
+		/**
+		 * Returns the throughput of the library's implementation measured by the calibration, in bytes per second, or NaN if there was no calibration.
+		 * @return the calibrated throughput of the library's implementation, or NaN
+		 */
+		public double getLibraryThroughput() {
+			return libraryThroughput;
+		}
+		
+		
+		/**
+		 * Returns the throughput of the JDK's implementation measured by the calibration, in bytes per second, or NaN if there was no calibration.
+		 * @return the calibrated throughput of the JDK's implementation, or NaN
+		 */
+		public double getJdkThroughput() {
+			return jdkThroughput;
+		}
+		
+		
+		/**
+		 * Returns a string representation of this selection, e.g. {@code "SHA-256: jdk (calibrated; library 210.3 MiB/s, jdk 1500.7 MiB/s)"}. The format is subject to change.
+		 * @return a string representation of this selection
+		 */
+		@Override
+		public String toString() {
+			String result = String.format("%s: %s (%s", family, backend.getName(), reason);
+			if (!Double.isNaN(libraryThroughput))
+				result += String.format(Locale.ROOT, "; library %.1f MiB/s, jdk %.1f MiB/s", libraryThroughput / 1048576, jdkThroughput / 1048576);
+			return result + ")";
+		}
+		
+	}
+	
+}
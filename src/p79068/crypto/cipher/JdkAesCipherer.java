@@ -0,0 +1,97 @@
+package p79068.crypto.cipher;
+
+import java.security.GeneralSecurityException;
+import javax.crypto.spec.SecretKeySpec;
+import p79068.Assert;
+
+
+/**
+ * A cipherer backed by the Java platform's AES in ECB mode without padding, which is the JDK backend of {@link Rijndael} with 128-bit blocks and 128, 192 or 256-bit keys.
+ * <p>Zeroization drops the references to the JDK's cipher objects, but cannot clear the key schedules inside them.</p>
+ * @see p79068.backend.Backends
+ */
+final class JdkAesCipherer extends AbstractCipherer {
+	
+	private javax.crypto.Cipher encrypter;
+	
+	// Created on the first decryption, because many users only encrypt (e.g. in CFB, OFB and CTR modes)
+	private javax.crypto.Cipher decrypter;
+	
+	
+	
+	JdkAesCipherer(Rijndael cipher, byte[] key) throws GeneralSecurityException {
+		super(cipher, key);
+		encrypter = newJdkCipher(javax.crypto.Cipher.ENCRYPT_MODE);
+	}
+	
+	
+	
+	@Override
+	public void encrypt(byte[] b, int off, int len) {
+		if (cipher == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		if (len % 16 != 0)
+			throw new IllegalArgumentException("Invalid block length");
+		crypt(encrypter, b, off, len);
+	}
+	
+	
+	@Override
+	public void decrypt(byte[] b, int off, int len) {
+		if (cipher == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		if (len % 16 != 0)
+			throw new IllegalArgumentException("Invalid block length");
+		if (decrypter == null) {
+			try {
+				decrypter = newJdkCipher(javax.crypto.Cipher.DECRYPT_MODE);
+			} catch (GeneralSecurityException e) {
+				throw new AssertionError(e);  // The encrypter was created the same way
+			}
+		}
+		crypt(decrypter, b, off, len);
+	}
+	
+	
+	@Override
+	public JdkAesCipherer clone() {
+		if (cipher == null)
+			throw new IllegalStateException("Already zeroized");
+		JdkAesCipherer result = (JdkAesCipherer)super.clone();
+		try {
+			result.encrypter = result.newJdkCipher(javax.crypto.Cipher.ENCRYPT_MODE);
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+		result.decrypter = null;
+		return result;
+	}
+	
+	
+	@Override
+	public void zeroize() {
+		super.zeroize();
+		encrypter = null;
+		decrypter = null;
+	}
+	
+	
+	private javax.crypto.Cipher newJdkCipher(int mode) throws GeneralSecurityException {
+		javax.crypto.Cipher result = javax.crypto.Cipher.getInstance("AES/ECB/NoPadding");
+		result.init(mode, new SecretKeySpec(key, "AES"));
+		return result;
+	}
+	
+	
+	// ECB keeps no state between calls, so each call is a complete operation. The JDK handles the input and output being the same range.
+	private static void crypt(javax.crypto.Cipher c, byte[] b, int off, int len) {
+		try {
+			c.doFinal(b, off, len, b, off);
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+}
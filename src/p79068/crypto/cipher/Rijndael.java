@@ -1,5 +1,8 @@
 package p79068.crypto.cipher;
 
+import java.security.GeneralSecurityException;
+import p79068.backend.Backend;
+import p79068.backend.Backends;
 import p79068.util.HashCoder;
 
 
@@ -7,6 +10,7 @@ import p79068.util.HashCoder;
  * The Rijndael/AES (Advanced Encryption Standard) block cipher.
  * <p>Key lengths: Any positive multiple of 32 bits (4 bytes)</p>
  * <p>Block lengths: 128, 160, 192, 224, and 256 bits. While Rijndael can use all of these, AES is limited to 128 bits (16 bytes).</p>
+ * <p>For AES (128-bit blocks with 128, 192 or 256-bit keys), the cipherers may be backed by the Java platform's {@link javax.crypto.Cipher} instead of this library's code, if that is faster on this machine. See {@link Backends}.</p>
  */
 public final class Rijndael extends AbstractCipher implements BlockCipher {
 	
@@ -37,6 +41,9 @@ public final class Rijndael extends AbstractCipher implements BlockCipher {
 	 */
 	private int keyLength;
 	
+	// Selected when the first cipherer is made
+	private Backend backend;
+	
 	
 	
 	public Rijndael(int blockLength, int keyLength) {
@@ -53,10 +60,31 @@ public final class Rijndael extends AbstractCipher implements BlockCipher {
 	
 	@Override
 	protected Cipherer newCiphererUnchecked(byte[] key) {
-		if (blockLength == 16)
-			return new FastAesCipherer(this, key);
-		else
+		if (blockLength != 16)
 			return new RijndaelCipherer(this, key);
+		else if (getBackend() == Backend.JDK) {
+			try {
+				return new JdkAesCipherer(this, key);
+			} catch (GeneralSecurityException e) {
+				throw new AssertionError(e);  // The backend selection checked that AES is available
+			}
+		} else
+			return new FastAesCipherer(this, key);
+	}
+	
+	
+	// The JDK only implements the AES subset of Rijndael. Each AES key length is a separate family, e.g. "AES-128".
+	private Backend getBackend() {
+		if (backend == null) {
+			if (blockLength == 16 && (keyLength == 16 || keyLength == 24 || keyLength == 32)) {
+				byte[] key = new byte[keyLength];
+				backend = Backends.select("AES-" + keyLength * 8, "UseAES",
+					data -> new FastAesCipherer(this, key).encrypt(data),
+					data -> new JdkAesCipherer(this, key).encrypt(data));
+			} else
+				backend = Backend.LIBRARY;
+		}
+		return backend;
 	}
 	
 	
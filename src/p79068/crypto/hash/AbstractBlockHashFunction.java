@@ -30,4 +30,10 @@ public abstract class AbstractBlockHashFunction extends AbstractHashFunction imp
 		return blockLength;
 	}
 	
+	
+	// Returns a new core of this library's implementation, or null if this hash function's hashers are not built on a single BlockHasherCore. HMAC uses it to hash one-shot messages from precomputed key states.
+	BlockHasherCore newCore() {
+		return null;
+	}
+	
 }
@@ -0,0 +1,158 @@
+package p79068.crypto.hash;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import p79068.Assert;
+import p79068.crypto.Zeroizable;
+import p79068.hash.AbstractHasher;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+
+
+/**
+ * The hasher of the BLAKE2 parallel modes ({@link Blake2bp}, {@link Blake2sp}). The message is dealt out in blocks to the leaves in turn, so leaf {@code i} hashes blocks {@code i}, {@code i + fanout}, {@code i + 2 fanout}, and so on. The root hashes the concatenated leaf hashes.
+ */
+final class Blake2ParallelHasher extends AbstractHasher implements Zeroizable {
+	
+	private Hasher[] leaves;
+	
+	private final HashFunction root;
+	
+	private final int blockLength;
+	
+	// The number of bytes in the current stripe of one block per leaf, in the range [0, fanout * blockLength)
+	private int stripeFilled;
+	
+	
+	
+	public Blake2ParallelHasher(HashFunction hashFunc, BlockHashFunction[] leafFuncs, HashFunction root) {
+		super(hashFunc);
+		leaves = new Hasher[leafFuncs.length];
+		for (int i = 0; i < leaves.length; i++)
+			leaves[i] = leafFuncs[i].newHasher();
+		this.root = root;
+		blockLength = leafFuncs[0].getBlockLength();
+		stripeFilled = 0;
+	}
+	
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		if (leaves == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		while (len > 0) {
+			int n = Math.min(blockLength - stripeFilled % blockLength, len);
+			leaves[stripeFilled / blockLength].update(b, off, n);
+			stripeFilled = (stripeFilled + n) % (leaves.length * blockLength);
+			off += n;
+			len -= n;
+		}
+	}
+	
+	
+	/**
+	 * Updates the current state with the specified byte array range, with the leaves absorbing their blocks concurrently on the specified pool.
+	 * @param b the byte array to update the state with
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the leaves on
+	 */
+	void update(byte[] b, int off, int len, ForkJoinPool pool) {
+		if (leaves == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		
+		// Complete the current stripe, so that the rest starts at leaf 0
+		int stripeLen = leaves.length * blockLength;
+		int n = Math.min((stripeLen - stripeFilled) % stripeLen, len);
+		update(b, off, n);
+		off += n;
+		len -= n;
+		
+		if (len > 0) {
+			pool.invoke(new LeafTask(b, off, len, 0, leaves.length));
+			stripeFilled = len % stripeLen;
+		}
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		if (leaves == null)
+			throw new IllegalStateException("Already zeroized");
+		int leafHashLen = leaves[0].getHashFunction().getHashLength();
+		byte[] leafHashes = new byte[leaves.length * leafHashLen];
+		for (int i = 0; i < leaves.length; i++)
+			leaves[i].getHash(leafHashes, i * leafHashLen);
+		return root.getHash(leafHashes);
+	}
+	
+	
+	@Override
+	public Blake2ParallelHasher clone() {
+		if (leaves == null)
+			throw new IllegalStateException("Already zeroized");
+		Blake2ParallelHasher result = (Blake2ParallelHasher)super.clone();
+		result.leaves = leaves.clone();
+		for (int i = 0; i < leaves.length; i++)
+			result.leaves[i] = leaves[i].clone();
+		return result;
+	}
+	
+	
+	public void zeroize() {
+		if (leaves == null)
+			throw new IllegalStateException("Already zeroized");
+		for (Hasher leaf : leaves)
+			((Zeroizable)leaf).zeroize();
+		leaves = null;
+		stripeFilled = 0;
+	}
+	
+	
+	
+	// Feeds each leaf in the range [start, end) its blocks of data[offset : offset + length], which starts at a stripe boundary, by splitting the range in half until one leaf remains.
+	@SuppressWarnings("serial")
+	private final class LeafTask extends RecursiveAction {
+		
+		private final byte[] data;
+		
+		private final int offset;
+		
+		private final int length;
+		
+		private final int start;
+		
+		private final int end;
+		
+		
+		
+		public LeafTask(byte[] data, int offset, int length, int start, int end) {
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+			this.start = start;
+			this.end = end;
+		}
+		
+		
+		
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new LeafTask(data, offset, length, start, mid), new LeafTask(data, offset, length, mid, end));
+			} else {
+				Hasher leaf = leaves[start];
+				int stripeLen = leaves.length * blockLength;
+				for (int pos = start * blockLength; pos < length; pos += stripeLen)
+					leaf.update(data, offset + pos, Math.min(blockLength, length - pos));
+			}
+		}
+		
+	}
+	
+}
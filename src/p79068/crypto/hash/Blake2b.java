@@ -0,0 +1,142 @@
+package p79068.crypto.hash;
+
+import java.util.Arrays;
+import p79068.Assert;
+import p79068.hash.Hasher;
+
+
+/**
+ * The BLAKE2b hash function, described in RFC 7693, with a configurable hash length, key, salt and personalization.
+ * <p>The compression of the final block is flagged, so a full block is only compressed when more message bytes arrive or the hash is computed (see {@link BlockHasherCore#isFinalBlockDeferred()}). A keyed instance is a message authentication code: the key, padded to a block, is hashed before the message.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ * @see Blake2bp
+ */
+public final class Blake2b extends AbstractBlockHashFunction {
+	
+	/**
+	 * The BLAKE2b-256 hash function. {@code name = "BLAKE2b-256"}, {@code hashLength = 32}, {@code blockLength = 128}.
+	 */
+	public final static Blake2b BLAKE2B_256_FUNCTION = new Blake2b(32);
+	
+	
+	/**
+	 * The BLAKE2b-512 hash function. {@code name = "BLAKE2b-512"}, {@code hashLength = 64}, {@code blockLength = 128}.
+	 */
+	public final static Blake2b BLAKE2B_512_FUNCTION = new Blake2b(64);
+	
+	
+	
+	// The initial chaining value: the IV XORed with the parameter block
+	private final long[] initialState;
+	
+	// The key padded to a block, or null if there is no key
+	private final byte[] keyBlock;
+	
+	// Whether this is the last node of its level in a tree, which flags the final compression
+	private final boolean lastNode;
+	
+	
+	
+	/**
+	 * Constructs an unkeyed BLAKE2b hash function with the specified hash length.
+	 * @param hashLen the length of the hash value in bytes, in the range [1, 64]
+	 * @throws IllegalArgumentException if the hash length is out of range
+	 */
+	public Blake2b(int hashLen) {
+		this(hashLen, new byte[0]);
+	}
+	
+	
+	/**
+	 * Constructs a keyed BLAKE2b hash function with the specified hash length. An empty key means no key.
+	 * @param hashLen the length of the hash value in bytes, in the range [1, 64]
+	 * @param key the secret key, at most 64 bytes long
+	 * @throws NullPointerException if the key is {@code null}
+	 * @throws IllegalArgumentException if the hash length or key length is out of range
+	 */
+	public Blake2b(int hashLen, byte[] key) {
+		this(hashLen, key, new byte[0], new byte[0]);
+	}
+	
+	
+	/**
+	 * Constructs a BLAKE2b hash function with the specified hash length, key, salt and personalization. An empty key means no key. The salt and personalization are padded with zeros to 16 bytes.
+	 * @param hashLen the length of the hash value in bytes, in the range [1, 64]
+	 * @param key the secret key, at most 64 bytes long
+	 * @param salt the salt, at most 16 bytes long
+	 * @param personalization the personalization string, at most 16 bytes long
+	 * @throws NullPointerException if any array is {@code null}
+	 * @throws IllegalArgumentException if the hash length or any array length is out of range
+	 */
+	public Blake2b(int hashLen, byte[] key, byte[] salt, byte[] personalization) {
+		this(hashLen, key, initialState(hashLen, key.length, 1, 1, 0, 0, 0, salt, personalization), false);
+	}
+	
+	
+	// Constructs a node of a tree mode, whose hash length may differ from the digest length in its parameter block. The key may be null.
+	Blake2b(int hashLen, byte[] key, long[] initState, boolean lastNode) {
+		super("BLAKE2b-" + hashLen * 8, hashLen, 128);
+		if (hashLen < 1 || hashLen > 64)
+			throw new IllegalArgumentException("Invalid hash length");
+		initialState = initState;
+		keyBlock = key == null || key.length == 0 ? null : Arrays.copyOf(key, 128);
+		this.lastNode = lastNode;
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		BlockHasher result = new BlockHasher(this, new Blake2bCore(initialState, getHashLength(), lastNode));
+		if (keyBlock != null)
+			result.update(keyBlock);
+		return result;
+	}
+	
+	
+	
+	/**
+	 * Returns the initial chaining value for the specified parameters, with a leaf length of zero (unlimited).
+	 * @param digestLen the digest length in the parameter block, in the range [1, 64]
+	 * @param keyLen the key length in bytes, at most 64
+	 * @param fanout the fanout of the tree, or 1 for sequential hashing
+	 * @param depth the maximum depth of the tree, or 1 for sequential hashing
+	 * @param nodeOffset the offset of the node in its level
+	 * @param nodeDepth the depth of the node, 0 for leaves
+	 * @param innerLength the length of the chaining values hashed by the parent node, or 0 for sequential hashing
+	 * @param salt the salt, at most 16 bytes long
+	 * @param personalization the personalization string, at most 16 bytes long
+	 * @return the IV XORed with the parameter block
+	 */
+	static long[] initialState(int digestLen, int keyLen, int fanout, int depth, long nodeOffset, int nodeDepth, int innerLength, byte[] salt, byte[] personalization) {
+		Assert.assertNotNull(salt, personalization);
+		if (digestLen < 1 || digestLen > 64)
+			throw new IllegalArgumentException("Invalid hash length");
+		if (keyLen > 64)
+			throw new IllegalArgumentException("Key too long");
+		if (salt.length > 16)
+			throw new IllegalArgumentException("Salt too long");
+		if (personalization.length > 16)
+			throw new IllegalArgumentException("Personalization too long");
+		
+		// The parameter block in little endian words
+		long[] result = {
+			digestLen | keyLen << 8 | fanout << 16 | (long)depth << 24,
+			nodeOffset,
+			nodeDepth | innerLength << 8,
+			0, 0, 0, 0, 0,
+		};
+		for (int i = 0; i < salt.length; i++)
+			result[4 + (i >>> 3)] |= (salt[i] & 0xFFL) << ((i & 7) << 3);
+		for (int i = 0; i < personalization.length; i++)
+			result[6 + (i >>> 3)] |= (personalization[i] & 0xFFL) << ((i & 7) << 3);
+		for (int i = 0; i < result.length; i++)
+			result[i] ^= Blake2bCore.IV[i];
+		return result;
+	}
+	
+}
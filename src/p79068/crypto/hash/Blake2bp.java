@@ -0,0 +1,80 @@
+package p79068.crypto.hash;
+
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+import p79068.hash.AbstractHashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+
+
+/**
+ * The BLAKE2bp hash function: 4 BLAKE2b leaves hash the message's 128-byte blocks in turn, and a BLAKE2b root hashes their 64-byte hash values. The leaves are independent, so the {@code getHash(..., ForkJoinPool)} method hashes them concurrently.
+ * <p>Mutability: <em>Immutable</em></p>
+ * @see Blake2b
+ */
+public final class Blake2bp extends AbstractHashFunction {
+	
+	/**
+	 * The unkeyed BLAKE2bp-512 hash function. {@code name = "BLAKE2bp-512"}, {@code hashLength = 64}.
+	 */
+	public final static Blake2bp BLAKE2BP_512_FUNCTION = new Blake2bp(64, new byte[0]);
+	
+	
+	private static final int FANOUT = 4;
+	
+	private static final int INNER_LENGTH = 64;
+	
+	
+	
+	private final Blake2b[] leaves;
+	
+	private final Blake2b root;
+	
+	
+	
+	/**
+	 * Constructs a BLAKE2bp hash function with the specified hash length and key. An empty key means no key.
+	 * @param hashLen the length of the hash value in bytes, in the range [1, 64]
+	 * @param key the secret key, at most 64 bytes long
+	 * @throws NullPointerException if the key is {@code null}
+	 * @throws IllegalArgumentException if the hash length or key length is out of range
+	 */
+	public Blake2bp(int hashLen, byte[] key) {
+		super("BLAKE2bp-" + hashLen * 8, hashLen);
+		byte[] empty = {};
+		leaves = new Blake2b[FANOUT];
+		for (int i = 0; i < FANOUT; i++)  // Each leaf hashes the key block before its blocks of the message
+			leaves[i] = new Blake2b(INNER_LENGTH, key, Blake2b.initialState(hashLen, key.length, FANOUT, 2, i, 0, INNER_LENGTH, empty, empty), i == FANOUT - 1);
+		root = new Blake2b(hashLen, null, Blake2b.initialState(hashLen, key.length, FANOUT, 2, 0, 1, INNER_LENGTH, empty, empty), true);
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		return new Blake2ParallelHasher(this, leaves, root);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, hashing the leaves concurrently on the specified pool. The result equals {@code getHash(b, off, len)}.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the leaves on
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public HashValue getHash(byte[] b, int off, int len, ForkJoinPool pool) {
+		Assert.assertNotNull(b, pool);
+		Blake2ParallelHasher hasher = new Blake2ParallelHasher(this, leaves, root);
+		hasher.update(b, off, len, pool);
+		return hasher.getHash();
+	}
+	
+}
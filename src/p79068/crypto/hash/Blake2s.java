@@ -0,0 +1,143 @@
+package p79068.crypto.hash;
+
+import java.util.Arrays;
+import p79068.Assert;
+import p79068.hash.Hasher;
+
+
+/**
+ * The BLAKE2s hash function, described in RFC 7693, which is optimized for 32-bit platforms, with a configurable hash length, key, salt and personalization.
+ * <p>The compression of the final block is flagged, so a full block is only compressed when more message bytes arrive or the hash is computed (see {@link BlockHasherCore#isFinalBlockDeferred()}). A keyed instance is a message authentication code: the key, padded to a block, is hashed before the message.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ * @see Blake2sp
+ */
+public final class Blake2s extends AbstractBlockHashFunction {
+	
+	/**
+	 * The BLAKE2s-128 hash function. {@code name = "BLAKE2s-128"}, {@code hashLength = 16}, {@code blockLength = 64}.
+	 */
+	public final static Blake2s BLAKE2S_128_FUNCTION = new Blake2s(16);
+	
+	
+	/**
+	 * The BLAKE2s-256 hash function. {@code name = "BLAKE2s-256"}, {@code hashLength = 32}, {@code blockLength = 64}.
+	 */
+	public final static Blake2s BLAKE2S_256_FUNCTION = new Blake2s(32);
+	
+	
+	
+	// The initial chaining value: the IV XORed with the parameter block
+	private final int[] initialState;
+	
+	// The key padded to a block, or null if there is no key
+	private final byte[] keyBlock;
+	
+	// Whether this is the last node of its level in a tree, which flags the final compression
+	private final boolean lastNode;
+	
+	
+	
+	/**
+	 * Constructs an unkeyed BLAKE2s hash function with the specified hash length.
+	 * @param hashLen the length of the hash value in bytes, in the range [1, 32]
+	 * @throws IllegalArgumentException if the hash length is out of range
+	 */
+	public Blake2s(int hashLen) {
+		this(hashLen, new byte[0]);
+	}
+	
+	
+	/**
+	 * Constructs a keyed BLAKE2s hash function with the specified hash length. An empty key means no key.
+	 * @param hashLen the length of the hash value in bytes, in the range [1, 32]
+	 * @param key the secret key, at most 32 bytes long
+	 * @throws NullPointerException if the key is {@code null}
+	 * @throws IllegalArgumentException if the hash length or key length is out of range
+	 */
+	public Blake2s(int hashLen, byte[] key) {
+		this(hashLen, key, new byte[0], new byte[0]);
+	}
+	
+	
+	/**
+	 * Constructs a BLAKE2s hash function with the specified hash length, key, salt and personalization. An empty key means no key. The salt and personalization are padded with zeros to 8 bytes.
+	 * @param hashLen the length of the hash value in bytes, in the range [1, 32]
+	 * @param key the secret key, at most 32 bytes long
+	 * @param salt the salt, at most 8 bytes long
+	 * @param personalization the personalization string, at most 8 bytes long
+	 * @throws NullPointerException if any array is {@code null}
+	 * @throws IllegalArgumentException if the hash length or any array length is out of range
+	 */
+	public Blake2s(int hashLen, byte[] key, byte[] salt, byte[] personalization) {
+		this(hashLen, key, initialState(hashLen, key.length, 1, 1, 0, 0, 0, salt, personalization), false);
+	}
+	
+	
+	// Constructs a node of a tree mode, whose hash length may differ from the digest length in its parameter block. The key may be null.
+	Blake2s(int hashLen, byte[] key, int[] initState, boolean lastNode) {
+		super("BLAKE2s-" + hashLen * 8, hashLen, 64);
+		if (hashLen < 1 || hashLen > 32)
+			throw new IllegalArgumentException("Invalid hash length");
+		initialState = initState;
+		keyBlock = key == null || key.length == 0 ? null : Arrays.copyOf(key, 64);
+		this.lastNode = lastNode;
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		BlockHasher result = new BlockHasher(this, new Blake2sCore(initialState, getHashLength(), lastNode));
+		if (keyBlock != null)
+			result.update(keyBlock);
+		return result;
+	}
+	
+	
+	
+	/**
+	 * Returns the initial chaining value for the specified parameters, with a leaf length of zero (unlimited).
+	 * @param digestLen the digest length in the parameter block, in the range [1, 32]
+	 * @param keyLen the key length in bytes, at most 32
+	 * @param fanout the fanout of the tree, or 1 for sequential hashing
+	 * @param depth the maximum depth of the tree, or 1 for sequential hashing
+	 * @param nodeOffset the offset of the node in its level, less than 2<sup>48</sup>
+	 * @param nodeDepth the depth of the node, 0 for leaves
+	 * @param innerLength the length of the chaining values hashed by the parent node, or 0 for sequential hashing
+	 * @param salt the salt, at most 8 bytes long
+	 * @param personalization the personalization string, at most 8 bytes long
+	 * @return the IV XORed with the parameter block
+	 */
+	static int[] initialState(int digestLen, int keyLen, int fanout, int depth, long nodeOffset, int nodeDepth, int innerLength, byte[] salt, byte[] personalization) {
+		Assert.assertNotNull(salt, personalization);
+		if (digestLen < 1 || digestLen > 32)
+			throw new IllegalArgumentException("Invalid hash length");
+		if (keyLen > 32)
+			throw new IllegalArgumentException("Key too long");
+		if (salt.length > 8)
+			throw new IllegalArgumentException("Salt too long");
+		if (personalization.length > 8)
+			throw new IllegalArgumentException("Personalization too long");
+		
+		// The parameter block in little endian words
+		int[] result = {
+			digestLen | keyLen << 8 | fanout << 16 | depth << 24,
+			0,
+			(int)nodeOffset,
+			(int)(nodeOffset >>> 32) & 0xFFFF | nodeDepth << 16 | innerLength << 24,
+			0, 0, 0, 0,
+		};
+		for (int i = 0; i < salt.length; i++)
+			result[4 + (i >>> 2)] |= (salt[i] & 0xFF) << ((i & 3) << 3);
+		for (int i = 0; i < personalization.length; i++)
+			result[6 + (i >>> 2)] |= (personalization[i] & 0xFF) << ((i & 3) << 3);
+		for (int i = 0; i < result.length; i++)
+			result[i] ^= Blake2sCore.IV[i];
+		return result;
+	}
+	
+}
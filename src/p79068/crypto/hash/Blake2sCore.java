@@ -0,0 +1,164 @@
+package p79068.crypto.hash;
+
+import static java.lang.Integer.rotateRight;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import p79068.Assert;
+import p79068.crypto.Zeroizer;
+
+
+final class Blake2sCore extends BlockHasherCore {
+	
+	private final int hashLength;  // In bytes
+	
+	private final boolean lastNode;
+	
+	private int[] state;
+	
+	// The number of bytes compressed so far, as an unsigned 64-bit integer
+	private long count;
+	
+	private int[] savedState;  // Scratch space for getHash()
+	
+	private int[] message;  // Scratch space for compress()
+	
+	
+	
+	public Blake2sCore(int[] initState, int hashLen, boolean lastNode) {
+		hashLength = hashLen;
+		this.lastNode = lastNode;
+		state = initState.clone();
+		count = 0;
+		savedState = new int[8];
+		message = new int[16];
+	}
+	
+	
+	
+	@Override
+	public Blake2sCore clone() {
+		if (state == null)
+			throw new IllegalStateException("Already zeroized");
+		Blake2sCore result = (Blake2sCore)super.clone();
+		result.state = result.state.clone();
+		result.savedState = new int[8];
+		result.message = new int[16];
+		return result;
+	}
+	
+	
+	@Override
+	public void zeroize() {
+		if (state == null)
+			throw new IllegalStateException("Already zeroized");
+		count = 0;
+		state = Zeroizer.clear(state);
+		savedState = Zeroizer.clear(savedState);
+		message = Zeroizer.clear(message);
+	}
+	
+	
+	
+	@Override
+	public void compress(byte[] msg, int off, int len) {
+		Assert.assertRangeInBounds(msg.length, off, len);
+		if (len % 64 != 0)
+			throw new AssertionError();
+		
+		for (int end = off + len; off < end; off += 64) {
+			count += 64;
+			compress(state, msg, off, count, false);
+		}
+	}
+	
+	
+	@Override
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		if (lengthHigh != 0)  // BLAKE2s only supports messages less than 2^64 bytes long
+			throw new IllegalStateException("Message too long");
+		
+		Arrays.fill(block, blockFilled, block.length, (byte)0);
+		System.arraycopy(state, 0, savedState, 0, state.length);
+		compress(savedState, block, 0, length, true);
+		for (int i = 0; i < hashLength; i++)  // Serialize in little endian and truncate
+			out[off + i] = (byte)(savedState[i >>> 2] >>> ((i & 3) << 3));
+	}
+	
+	
+	@Override
+	public boolean isFinalBlockDeferred() {
+		return true;
+	}
+	
+	
+	// Compresses the block at msg[off : off + 64] into the state h, with the byte counter t (which includes this block) and the final block flag.
+	private void compress(int[] h, byte[] msg, int off, long t, boolean isFinal) {
+		int[] m = message;
+		for (int i = 0; i < 16; i++)
+			m[i] = (int)INT32_ARRAY.get(msg, off + i * 4);
+		
+		int v0 = h[0], v1 = h[1], v2 = h[2], v3 = h[3];
+		int v4 = h[4], v5 = h[5], v6 = h[6], v7 = h[7];
+		int v8  = IV[0], v9  = IV[1], v10 = IV[2], v11 = IV[3];
+		int v12 = IV[4] ^ (int)t, v13 = IV[5] ^ (int)(t >>> 32);
+		int v14 = isFinal ? ~IV[6] : IV[6];
+		int v15 = isFinal && lastNode ? ~IV[7] : IV[7];
+		
+		for (int s = 0; s < SIGMA.length; s += 16) {
+			// Columns
+			v0 += v4 + m[SIGMA[s + 0]];  v12 = rotateRight(v12 ^ v0, 16);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 12);
+			v0 += v4 + m[SIGMA[s + 1]];  v12 = rotateRight(v12 ^ v0, 8);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 7);
+			v1 += v5 + m[SIGMA[s + 2]];  v13 = rotateRight(v13 ^ v1, 16);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 12);
+			v1 += v5 + m[SIGMA[s + 3]];  v13 = rotateRight(v13 ^ v1, 8);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 7);
+			v2 += v6 + m[SIGMA[s + 4]];  v14 = rotateRight(v14 ^ v2, 16);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 12);
+			v2 += v6 + m[SIGMA[s + 5]];  v14 = rotateRight(v14 ^ v2, 8);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 7);
+			v3 += v7 + m[SIGMA[s + 6]];  v15 = rotateRight(v15 ^ v3, 16);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 12);
+			v3 += v7 + m[SIGMA[s + 7]];  v15 = rotateRight(v15 ^ v3, 8);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 7);
+			// Diagonals
+			v0 += v5 + m[SIGMA[s + 8]];  v15 = rotateRight(v15 ^ v0, 16);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 12);
+			v0 += v5 + m[SIGMA[s + 9]];  v15 = rotateRight(v15 ^ v0, 8);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 7);
+			v1 += v6 + m[SIGMA[s + 10]];  v12 = rotateRight(v12 ^ v1, 16);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 12);
+			v1 += v6 + m[SIGMA[s + 11]];  v12 = rotateRight(v12 ^ v1, 8);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 7);
+			v2 += v7 + m[SIGMA[s + 12]];  v13 = rotateRight(v13 ^ v2, 16);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 12);
+			v2 += v7 + m[SIGMA[s + 13]];  v13 = rotateRight(v13 ^ v2, 8);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 7);
+			v3 += v4 + m[SIGMA[s + 14]];  v14 = rotateRight(v14 ^ v3, 16);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 12);
+			v3 += v4 + m[SIGMA[s + 15]];  v14 = rotateRight(v14 ^ v3, 8);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 7);
+		}
+		
+		h[0] ^= v0 ^ v8;
+		h[1] ^= v1 ^ v9;
+		h[2] ^= v2 ^ v10;
+		h[3] ^= v3 ^ v11;
+		h[4] ^= v4 ^ v12;
+		h[5] ^= v5 ^ v13;
+		h[6] ^= v6 ^ v14;
+		h[7] ^= v7 ^ v15;
+	}
+	
+	
+	
+	// The initial hash values of SHA-256
+	static final int[] IV = {
+		0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A,
+		0x510E527F, 0x9B05688C, 0x1F83D9AB, 0x5BE0CD19,
+	};
+	
+	// The message word permutation of each of the 10 rounds
+	private static final byte[] SIGMA = {
+		 0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, 13, 14, 15,
+		14, 10,  4,  8,  9, 15, 13,  6,  1, 12,  0,  2, 11,  7,  5,  3,
+		11,  8, 12,  0,  5,  2, 15, 13, 10, 14,  3,  6,  7,  1,  9,  4,
+		 7,  9,  3,  1, 13, 12, 11, 14,  2,  6,  5, 10,  4,  0, 15,  8,
+		 9,  0,  5,  7,  2,  4, 10, 15, 14,  1, 11, 12,  6,  8,  3, 13,
+		 2, 12,  6, 10,  0, 11,  8,  3,  4, 13,  7,  5, 15, 14,  1,  9,
+		12,  5,  1, 15, 14, 13,  4, 10,  0,  7,  6,  3,  9,  2,  8, 11,
+		13, 11,  7, 14, 12,  1,  3,  9,  5,  0, 15,  4,  8,  6,  2, 10,
+		 6, 15, 14,  9, 11,  3,  0,  8, 12,  2, 13,  7,  1,  4, 10,  5,
+		10,  2,  8,  4,  7,  6,  1,  5, 15, 11,  9, 14,  3, 12, 13,  0,
+	};
+	
+	private static final VarHandle INT32_ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	
+}
@@ -0,0 +1,80 @@
+package p79068.crypto.hash;
+
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+import p79068.hash.AbstractHashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+
+
+/**
+ * The BLAKE2sp hash function: 8 BLAKE2s leaves hash the message's 64-byte blocks in turn, and a BLAKE2s root hashes their 32-byte hash values. The leaves are independent, so the {@code getHash(..., ForkJoinPool)} method hashes them concurrently.
+ * <p>Mutability: <em>Immutable</em></p>
+ * @see Blake2s
+ */
+public final class Blake2sp extends AbstractHashFunction {
+	
+	/**
+	 * The unkeyed BLAKE2sp-256 hash function. {@code name = "BLAKE2sp-256"}, {@code hashLength = 32}.
+	 */
+	public final static Blake2sp BLAKE2SP_256_FUNCTION = new Blake2sp(32, new byte[0]);
+	
+	
+	private static final int FANOUT = 8;
+	
+	private static final int INNER_LENGTH = 32;
+	
+	
+	
+	private final Blake2s[] leaves;
+	
+	private final Blake2s root;
+	
+	
+	
+	/**
+	 * Constructs a BLAKE2sp hash function with the specified hash length and key. An empty key means no key.
+	 * @param hashLen the length of the hash value in bytes, in the range [1, 32]
+	 * @param key the secret key, at most 32 bytes long
+	 * @throws NullPointerException if the key is {@code null}
+	 * @throws IllegalArgumentException if the hash length or key length is out of range
+	 */
+	public Blake2sp(int hashLen, byte[] key) {
+		super("BLAKE2sp-" + hashLen * 8, hashLen);
+		byte[] empty = {};
+		leaves = new Blake2s[FANOUT];
+		for (int i = 0; i < FANOUT; i++)  // Each leaf hashes the key block before its blocks of the message
+			leaves[i] = new Blake2s(INNER_LENGTH, key, Blake2s.initialState(hashLen, key.length, FANOUT, 2, i, 0, INNER_LENGTH, empty, empty), i == FANOUT - 1);
+		root = new Blake2s(hashLen, null, Blake2s.initialState(hashLen, key.length, FANOUT, 2, 0, 1, INNER_LENGTH, empty, empty), true);
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		return new Blake2ParallelHasher(this, leaves, root);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, hashing the leaves concurrently on the specified pool. The result equals {@code getHash(b, off, len)}.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the leaves on
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public HashValue getHash(byte[] b, int off, int len, ForkJoinPool pool) {
+		Assert.assertNotNull(b, pool);
+		Blake2ParallelHasher hasher = new Blake2ParallelHasher(this, leaves, root);
+		hasher.update(b, off, len, pool);
+		return hasher.getHash();
+	}
+	
+}
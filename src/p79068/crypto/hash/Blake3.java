@@ -0,0 +1,156 @@
+package p79068.crypto.hash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+import p79068.hash.AbstractHashFunction;
+import p79068.hash.HashValue;
+
+
+/**
+ * The BLAKE3 hash function, in its hash, keyed hash and key derivation modes. It can produce output of any length with {@link XofHasher#squeeze(byte[], int, int)}.
+ * <p>The message is split into 1024-byte chunks, which are hashed independently and combined by a binary tree of parent nodes. Runs of whole chunks are hashed several at a time (see {@link Blake3ChunkHasher}), and the {@code getHash(..., ForkJoinPool)} methods hash whole subtrees concurrently, so only the few parent nodes above the subtrees are sequential.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class Blake3 extends AbstractHashFunction {
+	
+	/**
+	 * The BLAKE3 hash function in hash mode. {@code name = "BLAKE3"}, {@code hashLength = 32}.
+	 */
+	public final static Blake3 FUNCTION = new Blake3(32);
+	
+	
+	static final int CHUNK_LENGTH = 1024;
+	
+	// The length of each file region that is mapped and hashed at once, a multiple of CHUNK_LENGTH
+	private static final int MAP_LENGTH = 64 << 20;
+	
+	
+	
+	// The key words, which are the IV in hash mode
+	private final int[] key;
+	
+	// KEYED_HASH, DERIVE_KEY_MATERIAL, or 0 in hash mode
+	private final int flags;
+	
+	
+	
+	/**
+	 * Constructs a BLAKE3 hash function in hash mode with the specified hash length.
+	 * @param hashLen the length of the hash value in bytes
+	 * @throws IllegalArgumentException if the hash length is not positive
+	 */
+	public Blake3(int hashLen) {
+		this(hashLen, Blake2sCore.IV.clone(), 0);
+	}
+	
+	
+	/**
+	 * Constructs a BLAKE3 hash function in keyed hash mode with the specified hash length and key.
+	 * @param hashLen the length of the hash value in bytes
+	 * @param key the secret key, which is 32 bytes long
+	 * @throws NullPointerException if the key is {@code null}
+	 * @throws IllegalArgumentException if the hash length is not positive or the key is not 32 bytes long
+	 */
+	public Blake3(int hashLen, byte[] key) {
+		this(hashLen, keyWords(key), Blake3Hasher.KEYED_HASH);
+	}
+	
+	
+	/**
+	 * Constructs a BLAKE3 hash function in key derivation mode with the specified output length and context string. The message is the input key material, and the hash value is the derived key. The context string should be hardcoded, globally unique and application-specific.
+	 * @param hashLen the length of the derived key in bytes
+	 * @param context the context string, which is encoded in UTF-8
+	 * @throws NullPointerException if the context string is {@code null}
+	 * @throws IllegalArgumentException if the hash length is not positive
+	 */
+	public Blake3(int hashLen, String context) {
+		this(hashLen, contextKey(context), Blake3Hasher.DERIVE_KEY_MATERIAL);
+	}
+	
+	
+	private Blake3(int hashLen, int[] key, int flags) {
+		super("BLAKE3", hashLen);
+		if (hashLen <= 0)
+			throw new IllegalArgumentException("Hash length must be positive");
+		this.key = key;
+		this.flags = flags;
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this function, whose output can be squeezed to any length.
+	 * @return a new hasher of this function
+	 */
+	@Override
+	public XofHasher newHasher() {
+		return new Blake3Hasher(this, key, flags);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, hashing the subtrees concurrently on the specified pool. The result equals {@code getHash(b, off, len)}.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the subtrees on
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public HashValue getHash(byte[] b, int off, int len, ForkJoinPool pool) {
+		Assert.assertNotNull(b, pool);
+		Blake3Hasher hasher = new Blake3Hasher(this, key, flags);
+		hasher.update(b, off, len, pool);
+		return hasher.getHash();
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified file, hashing the subtrees concurrently on the specified pool. The file is memory-mapped in regions of {@value #MAP_LENGTH} bytes, which are hashed without copying. The result equals {@code getHash(path)}.
+	 * @param path the file to hash
+	 * @param pool the pool to hash the subtrees on
+	 * @return the hash value of the file
+	 * @throws NullPointerException if {@code path} or {@code pool} is {@code null}
+	 * @throws IOException if an I/O exception occurred
+	 */
+	public HashValue getHash(Path path, ForkJoinPool pool) throws IOException {
+		Assert.assertNotNull(path, pool);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			Blake3Hasher hasher = new Blake3Hasher(this, key, flags);
+			long size = channel.size();
+			for (long pos = 0; pos < size; pos += MAP_LENGTH) {
+				ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(size - pos, MAP_LENGTH));
+				hasher.update(region, pool);
+			}
+			return hasher.getHash();
+		}
+	}
+	
+	
+	
+	private static int[] keyWords(byte[] key) {
+		Assert.assertNotNull(key);
+		if (key.length != 32)
+			throw new IllegalArgumentException("Key must be 32 bytes long");
+		int[] result = new int[8];
+		for (int i = 0; i < key.length; i++)
+			result[i >>> 2] |= (key[i] & 0xFF) << ((i & 3) << 3);
+		return result;
+	}
+	
+	
+	// Hashes the context string in its own mode, giving the key of the key material hashing.
+	private static int[] contextKey(String context) {
+		Assert.assertNotNull(context);
+		Blake3 contextHash = new Blake3(32, Blake2sCore.IV.clone(), Blake3Hasher.DERIVE_KEY_CONTEXT);
+		return keyWords(contextHash.getHash(context.getBytes(StandardCharsets.UTF_8)).toBytes());
+	}
+	
+}
@@ -0,0 +1,270 @@
+package p79068.crypto.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Hashes runs of whole {@link Blake3} chunks into chaining values, and reduces aligned runs of a power of 2 chunks to the chaining value of their subtree.
+ * <p>The chunks are hashed in groups of {@link #lanes} that are compressed in lock step, with their states stored word-major. This class compresses one chunk at a time with the scalar compression function. {@code VectorBlake3ChunkHasher} compresses one chunk per 32-bit element of the preferred vector species with the incubating Vector API, and is selected by {@link #newInstance} when it is available. Instances are not thread-safe; the parallel method gives each task its own instance.</p>
+ */
+class Blake3ChunkHasher {
+	
+	/**
+	 * The number of chunks compressed in lock step.
+	 */
+	protected final int lanes;
+	
+	/**
+	 * The chaining values of all lanes, word-major: word {@code j} of lane {@code i} is at index {@code j * lanes + i}. Updated by {@link #compressLanes(int)}.
+	 */
+	protected final int[] cvs;
+	
+	/**
+	 * The message blocks of all lanes, word-major.
+	 */
+	protected final int[] message;
+	
+	/**
+	 * The low and high words of each lane's chunk counter.
+	 */
+	protected final int[] counterLow;
+	protected final int[] counterHigh;
+	
+	private final int[] key;
+	
+	private final int keyFlags;
+	
+	private final int[] laneOffsets;
+	
+	
+	
+	/**
+	 * Constructs a scalar chunk hasher with the specified key.
+	 * @param key the 8 key words
+	 * @param keyFlags the mode flags of the key
+	 */
+	Blake3ChunkHasher(int[] key, int keyFlags) {
+		this(1, key, keyFlags);
+	}
+	
+	
+	protected Blake3ChunkHasher(int lanes, int[] key, int keyFlags) {
+		this.lanes = lanes;
+		this.key = key.clone();
+		this.keyFlags = keyFlags;
+		cvs = new int[8 * lanes];
+		message = new int[16 * lanes];
+		counterLow = new int[lanes];
+		counterHigh = new int[lanes];
+		laneOffsets = new int[lanes];
+	}
+	
+	
+	
+	/**
+	 * Returns a new chunk hasher with the specified key, using the Vector API if available.
+	 * @param key the 8 key words
+	 * @param keyFlags the mode flags of the key
+	 * @return a new chunk hasher
+	 */
+	static Blake3ChunkHasher newInstance(int[] key, int keyFlags) {
+		if (VECTOR_CONSTRUCTOR != null) {
+			try {
+				return VECTOR_CONSTRUCTOR.newInstance(key, keyFlags);
+			} catch (ReflectiveOperationException e) {
+				throw new AssertionError(e);
+			}
+		}
+		return new Blake3ChunkHasher(key, keyFlags);
+	}
+	
+	
+	/**
+	 * Tests whether the Vector API implementation is used by {@link #newInstance}.
+	 * @return whether the Vector API implementation is available
+	 */
+	static boolean isVectorAvailable() {
+		return VECTOR_CONSTRUCTOR != null;
+	}
+	
+	
+	// The constructor of VectorBlake3ChunkHasher, or null if the jdk.incubator.vector module is absent, the preferred species has fewer than 4 lanes of 32 bits, or the system property p79068.crypto.hash.vector is "false".
+	// The class is only reached reflectively, so that this class still links when the module is absent.
+	private static final Constructor<? extends Blake3ChunkHasher> VECTOR_CONSTRUCTOR;
+	
+	static {
+		Constructor<? extends Blake3ChunkHasher> con = null;
+		if (!"false".equals(System.getProperty("p79068.crypto.hash.vector"))) {
+			try {
+				Class<? extends Blake3ChunkHasher> cls = Class.forName("p79068.crypto.hash.VectorBlake3ChunkHasher").asSubclass(Blake3ChunkHasher.class);
+				if ((Integer)cls.getDeclaredMethod("preferredLanes").invoke(null) >= 4)
+					con = cls.getDeclaredConstructor(int[].class, int.class);
+			} catch (ReflectiveOperationException | LinkageError e) {}  // Fall back to the scalar implementation
+		}
+		VECTOR_CONSTRUCTOR = con;
+	}
+	
+	
+	
+	/**
+	 * Hashes the specified number of consecutive whole chunks, where chunk {@code i} starts at absolute index {@code off + i * 1024} of the buffer and has the chunk counter {@code counter + i}, and writes the 8 chaining value words of chunk {@code i} at {@code out[outOff + i * 8]}.
+	 * @param b the buffer containing the chunks
+	 * @param off the absolute index of the first chunk in {@code b}
+	 * @param count the number of chunks
+	 * @param counter the chunk counter of the first chunk
+	 * @param out the array to write the chaining values into
+	 * @param outOff the offset of the first chaining value in {@code out}
+	 */
+	void hashChunks(ByteBuffer b, int off, int count, long counter, int[] out, int outOff) {
+		for (int first = 0; first < count; first += lanes) {
+			// Idle lanes hash the group's last chunk again, and their output is discarded
+			int n = Math.min(count - first, lanes);
+			for (int i = 0; i < lanes; i++) {
+				int chunk = first + Math.min(i, n - 1);
+				laneOffsets[i] = off + chunk * Blake3.CHUNK_LENGTH;
+				counterLow[i] = (int)(counter + chunk);
+				counterHigh[i] = (int)((counter + chunk) >>> 32);
+			}
+			for (int j = 0; j < 8; j++)
+				Arrays.fill(cvs, j * lanes, (j + 1) * lanes, key[j]);
+			
+			for (int blk = 0; blk < Blake3.CHUNK_LENGTH / 64; blk++) {
+				for (int i = 0; i < lanes; i++) {
+					int o = laneOffsets[i] + blk * 64;
+					for (int j = 0; j < 16; j++)
+						message[j * lanes + i] = (int)INT32_BUFFER.get(b, o + j * 4);
+				}
+				int flags = keyFlags;
+				if (blk == 0)
+					flags |= Blake3Hasher.CHUNK_START;
+				if (blk == Blake3.CHUNK_LENGTH / 64 - 1)
+					flags |= Blake3Hasher.CHUNK_END;
+				compressLanes(flags);
+			}
+			
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < 8; j++)
+					out[outOff + (first + i) * 8 + j] = cvs[j * lanes + i];
+			}
+		}
+	}
+	
+	
+	/**
+	 * Computes the chaining value of the subtree of the specified number of consecutive whole chunks, concurrently on the specified pool, or sequentially on this instance if the pool is {@code null}. Each task uses a new instance with the same key.
+	 * @param b the buffer containing the chunks
+	 * @param off the absolute index of the first chunk in {@code b}
+	 * @param count the number of chunks, a power of 2 that divides {@code counter} unless it is zero
+	 * @param counter the chunk counter of the first chunk
+	 * @param out the array to write the 8 chaining value words into
+	 * @param outOff the offset into {@code out}
+	 * @param pool the pool to hash the chunks on, or {@code null}
+	 */
+	void hashSubtree(ByteBuffer b, int off, int count, long counter, int[] out, int outOff, ForkJoinPool pool) {
+		if (pool != null)
+			pool.invoke(new SubtreeTask(b, off, count, counter, out, outOff));
+		else
+			hashSubtree(this, b, off, count, counter, out, outOff);
+	}
+	
+	
+	/**
+	 * Compresses the current message block of all lanes into their chaining values, with a block length of 64 bytes. The scalar implementation has exactly one lane.
+	 * @param flags the domain separation flags, which are the same for all lanes
+	 */
+	protected void compressLanes(int flags) {
+		long counter = (counterLow[0] & 0xFFFFFFFFL) | (long)counterHigh[0] << 32;
+		Blake3Hasher.compress(cvs, 0, message, 0, counter, 64, flags, cvs, 0, 8);
+	}
+	
+	
+	/**
+	 * Overwrites the chaining values and message blocks of all lanes with zeros.
+	 */
+	void clear() {
+		Arrays.fill(cvs, 0);
+		Arrays.fill(message, 0);
+	}
+	
+	
+	
+	// Hashes the chunks in groups of at most TASK_CHUNKS with the specified instance, and the parents above them.
+	private void hashSubtree(Blake3ChunkHasher hasher, ByteBuffer b, int off, int count, long counter, int[] out, int outOff) {
+		if (count <= TASK_CHUNKS) {
+			int[] temp = new int[count * 8];
+			hasher.hashChunks(b, off, count, counter, temp, 0);
+			for (int n = count; n > 1; n /= 2) {
+				for (int i = 0; i < n / 2; i++)  // The parent of the chaining values at 16i and 16i+8 goes to 8i
+					Blake3Hasher.compress(key, 0, temp, i * 16, 0, 64, keyFlags | Blake3Hasher.PARENT, temp, i * 8, 8);
+			}
+			System.arraycopy(temp, 0, out, outOff, 8);
+		} else {
+			int half = count / 2;
+			int[] children = new int[16];
+			hashSubtree(hasher, b, off, half, counter, children, 0);
+			hashSubtree(hasher, b, off + half * Blake3.CHUNK_LENGTH, half, counter + half, children, 8);
+			Blake3Hasher.compress(key, 0, children, 0, 0, 64, keyFlags | Blake3Hasher.PARENT, out, outOff, 8);
+		}
+	}
+	
+	
+	
+	// Each task hashes at most this many chunks (256 KiB)
+	private static final int TASK_CHUNKS = 256;
+	
+	private static final VarHandle INT32_BUFFER = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	
+	// Computes the chaining value of a subtree, by splitting it in half until at most TASK_CHUNKS chunks remain.
+	@SuppressWarnings("serial")
+	private final class SubtreeTask extends RecursiveAction {
+		
+		private final ByteBuffer data;
+		
+		private final int offset;
+		
+		private final int count;
+		
+		private final long counter;
+		
+		private final int[] output;
+		
+		private final int outputOffset;
+		
+		
+		
+		public SubtreeTask(ByteBuffer data, int offset, int count, long counter, int[] output, int outputOffset) {
+			this.data = data;
+			this.offset = offset;
+			this.count = count;
+			this.counter = counter;
+			this.output = output;
+			this.outputOffset = outputOffset;
+		}
+		
+		
+		
+		@Override
+		protected void compute() {
+			if (count > TASK_CHUNKS) {
+				int half = count / 2;
+				int[] children = new int[16];
+				invokeAll(
+					new SubtreeTask(data, offset, half, counter, children, 0),
+					new SubtreeTask(data, offset + half * Blake3.CHUNK_LENGTH, half, counter + half, children, 8));
+				Blake3Hasher.compress(key, 0, children, 0, 0, 64, keyFlags | Blake3Hasher.PARENT, output, outputOffset, 8);
+			} else
+				hashSubtree(newInstance(key, keyFlags), data, offset, count, counter, output, outputOffset);
+		}
+		
+	}
+	
+}
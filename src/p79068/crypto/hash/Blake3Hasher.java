@@ -0,0 +1,528 @@
+package p79068.crypto.hash;
+
+import static java.lang.Integer.rotateRight;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+import p79068.crypto.Zeroizable;
+import p79068.crypto.Zeroizer;
+import p79068.hash.AbstractHasher;
+import p79068.hash.HashValue;
+
+
+/**
+ * The hasher of {@link Blake3}. The current chunk is absorbed block by block, and the chaining values of the completed subtrees are kept on a stack, which has one entry per 1 bit in the number of completed chunks. A chunk or subtree is only completed when more input arrives, because the last node is the root, which is compressed differently.
+ */
+final class Blake3Hasher extends AbstractHasher implements XofHasher, Zeroizable {
+	
+	// The domain separation flags of the compression function
+	static final int CHUNK_START = 1 << 0;
+	static final int CHUNK_END = 1 << 1;
+	static final int PARENT = 1 << 2;
+	static final int ROOT = 1 << 3;
+	static final int KEYED_HASH = 1 << 4;
+	static final int DERIVE_KEY_CONTEXT = 1 << 5;
+	static final int DERIVE_KEY_MATERIAL = 1 << 6;
+	
+	private static final int BLOCK_LENGTH = 64;
+	
+	// Enough for 2^64 bytes of input
+	private static final int MAX_DEPTH = 54;
+	
+	
+	
+	private int[] key;
+	
+	private final int keyFlags;
+	
+	// The state of the current chunk
+	private int[] chunkCv;
+	private byte[] block;
+	private int blockFilled;
+	private int blocksCompressed;
+	
+	// The index of the current chunk, which is the number of completed chunks
+	private long chunkCounter;
+	
+	// The chaining values of the completed subtrees, 8 words each, largest first
+	private int[] stack;
+	private int stackSize;
+	
+	// The last node, with all flags except ROOT: set by computeOutput()
+	private int[] outputCv;
+	private int[] outputBlock;
+	private int outputBlockLength;
+	private int outputFlags;
+	
+	private int[] rootWords;
+	
+	// Squeezing state
+	private boolean squeezing;
+	private long outputCounter;
+	private byte[] outputBuffer;
+	private int outputPosition;
+	
+	// Created on the first bulk update, because short messages never need it
+	private Blake3ChunkHasher chunks;
+	
+	private int[] subtreeCv;
+	
+	
+	
+	public Blake3Hasher(Blake3 hashFunc, int[] key, int keyFlags) {
+		super(hashFunc);
+		this.key = key.clone();
+		this.keyFlags = keyFlags;
+		chunkCv = key.clone();
+		block = new byte[BLOCK_LENGTH];
+		blockFilled = 0;
+		blocksCompressed = 0;
+		chunkCounter = 0;
+		stack = new int[MAX_DEPTH * 8];
+		stackSize = 0;
+		outputCv = new int[8];
+		outputBlock = new int[16];
+		rootWords = new int[16];
+		squeezing = false;
+		subtreeCv = new int[8];
+	}
+	
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		update(b, off, len, null);
+	}
+	
+	
+	@Override
+	public void update(ByteBuffer b) {
+		update(b, null);
+	}
+	
+	
+	/**
+	 * Updates the current state with the specified byte array range, hashing the whole subtrees in it concurrently on the specified pool, or sequentially if the pool is {@code null}.
+	 * @param b the byte array to update the state with
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the subtrees on, or {@code null}
+	 */
+	void update(byte[] b, int off, int len, ForkJoinPool pool) {
+		checkAbsorbing();
+		Assert.assertRangeInBounds(b.length, off, len);
+		update(ByteBuffer.wrap(b, off, len), pool);
+	}
+	
+	
+	/**
+	 * Updates the current state with the remaining bytes of the specified buffer, and advances the buffer's position to its limit. Whole subtrees are hashed straight from the buffer, concurrently on the specified pool, or sequentially if the pool is {@code null}.
+	 * @param b the buffer to update the state with
+	 * @param pool the pool to hash the subtrees on, or {@code null}
+	 */
+	void update(ByteBuffer b, ForkJoinPool pool) {
+		checkAbsorbing();
+		int off = b.position();
+		int len = b.remaining();
+		b.position(b.limit());
+		
+		while (len > 0) {
+			if (chunkLength() == Blake3.CHUNK_LENGTH)  // More input has arrived, so the chunk is not the root
+				endChunk();
+			
+			// Hash whole subtrees directly from the buffer, keeping at least one byte for the last chunk
+			if (chunkLength() == 0 && len > Blake3.CHUNK_LENGTH) {
+				int n = hashSubtrees(b, off, (len - 1) / Blake3.CHUNK_LENGTH, pool) * Blake3.CHUNK_LENGTH;
+				if (n > 0) {
+					off += n;
+					len -= n;
+					continue;
+				}
+			}
+			
+			// Absorb into the current chunk, compressing a full block only when more input arrives
+			int end = off + Math.min(Blake3.CHUNK_LENGTH - chunkLength(), len);
+			while (off < end) {
+				if (blockFilled == BLOCK_LENGTH) {
+					wordsFromBytes(block, outputBlock);
+					compress(chunkCv, 0, outputBlock, 0, chunkCounter, BLOCK_LENGTH, keyFlags | (blocksCompressed == 0 ? CHUNK_START : 0), chunkCv, 0, 8);
+					blocksCompressed++;
+					blockFilled = 0;
+				}
+				int n = Math.min(BLOCK_LENGTH - blockFilled, end - off);
+				b.get(off, block, blockFilled, n);
+				blockFilled += n;
+				off += n;
+				len -= n;
+			}
+		}
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		byte[] result = new byte[hashFunction.getHashLength()];
+		getHash(result, 0);
+		return new HashValue(result);
+	}
+	
+	
+	/**
+	 * Writes the hash value into the specified array. This method does not alter this hasher's state.
+	 * @param b the array to write the hash value into
+	 * @param off the offset into {@code b}
+	 * @throws IllegalStateException if this hasher has been zeroized or its output has been squeezed
+	 */
+	@Override
+	public void getHash(byte[] b, int off) {
+		checkAbsorbing();
+		int len = hashFunction.getHashLength();
+		Assert.assertRangeInBounds(b.length, off, len);
+		computeOutput();
+		for (long t = 0; len > 0; t++) {
+			compressRoot(t);
+			int n = Math.min(BLOCK_LENGTH, len);
+			for (int i = 0; i < n; i++, off++)
+				b[off] = (byte)(rootWords[i >>> 2] >>> ((i & 3) << 3));
+			len -= n;
+		}
+	}
+	
+	
+	public void squeeze(byte[] b, int off, int len) {
+		if (key == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		if (!squeezing) {
+			computeOutput();
+			squeezing = true;
+			outputCounter = 0;
+			outputBuffer = new byte[BLOCK_LENGTH];
+			outputPosition = BLOCK_LENGTH;
+		}
+		while (len > 0) {
+			if (outputPosition == BLOCK_LENGTH) {
+				compressRoot(outputCounter);
+				outputCounter++;
+				for (int i = 0; i < BLOCK_LENGTH; i++)
+					outputBuffer[i] = (byte)(rootWords[i >>> 2] >>> ((i & 3) << 3));
+				outputPosition = 0;
+			}
+			int n = Math.min(BLOCK_LENGTH - outputPosition, len);
+			System.arraycopy(outputBuffer, outputPosition, b, off, n);
+			outputPosition += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	
+	@Override
+	public Blake3Hasher clone() {
+		if (key == null)
+			throw new IllegalStateException("Already zeroized");
+		Blake3Hasher result = (Blake3Hasher)super.clone();
+		result.chunkCv = chunkCv.clone();
+		result.block = block.clone();
+		result.stack = stack.clone();
+		result.outputCv = outputCv.clone();
+		result.outputBlock = outputBlock.clone();
+		result.rootWords = new int[16];
+		if (outputBuffer != null)
+			result.outputBuffer = outputBuffer.clone();
+		result.chunks = null;
+		result.subtreeCv = new int[8];
+		return result;
+	}
+	
+	
+	public void zeroize() {
+		if (key == null)
+			throw new IllegalStateException("Already zeroized");
+		key = Zeroizer.clear(key);
+		chunkCv = Zeroizer.clear(chunkCv);
+		block = Zeroizer.clear(block);
+		stack = Zeroizer.clear(stack);
+		outputCv = Zeroizer.clear(outputCv);
+		outputBlock = Zeroizer.clear(outputBlock);
+		rootWords = Zeroizer.clear(rootWords);
+		if (outputBuffer != null)
+			outputBuffer = Zeroizer.clear(outputBuffer);
+		if (chunks != null) {
+			chunks.clear();
+			chunks = null;
+		}
+		subtreeCv = Zeroizer.clear(subtreeCv);
+		blockFilled = 0;
+		blocksCompressed = 0;
+		chunkCounter = 0;
+		stackSize = 0;
+	}
+	
+	
+	
+	private int chunkLength() {
+		return blocksCompressed * BLOCK_LENGTH + blockFilled;
+	}
+	
+	
+	private void checkAbsorbing() {
+		if (key == null)
+			throw new IllegalStateException("Already zeroized");
+		if (squeezing)
+			throw new IllegalStateException("Already squeezing");
+	}
+	
+	
+	// Pushes the chaining value of the full current chunk and starts the next chunk.
+	private void endChunk() {
+		wordsFromBytes(block, outputBlock);
+		compress(chunkCv, 0, outputBlock, 0, chunkCounter, BLOCK_LENGTH, keyFlags | (blocksCompressed == 0 ? CHUNK_START : 0) | CHUNK_END, subtreeCv, 0, 8);
+		pushSubtree(1);
+		System.arraycopy(key, 0, chunkCv, 0, 8);
+		blockFilled = 0;
+		blocksCompressed = 0;
+	}
+	
+	
+	// Hashes the largest subtrees of whole chunks that are aligned to the chunk counter, as long as they fill the chunk hasher's lanes. Returns the number of chunks hashed, at most count.
+	private int hashSubtrees(ByteBuffer b, int off, int count, ForkJoinPool pool) {
+		if (chunks == null)
+			chunks = Blake3ChunkHasher.newInstance(key, keyFlags);
+		int done = 0;
+		while (done < count) {
+			int size = Integer.highestOneBit(count - done);
+			if (chunkCounter != 0)
+				size = (int)Math.min(size, Long.lowestOneBit(chunkCounter));
+			if (size < chunks.lanes && pool == null)  // Fewer chunks would leave lanes idle, so they go through the current chunk
+				break;
+			chunks.hashSubtree(b, off + done * Blake3.CHUNK_LENGTH, size, chunkCounter, subtreeCv, 0, pool);
+			pushSubtree(size);
+			done += size;
+		}
+		return done;
+	}
+	
+	
+	// Pushes subtreeCv, the chaining value of the specified number of chunks (a power of 2 that divides the chunk counter), and merges the completed subtrees of equal size.
+	private void pushSubtree(long numChunks) {
+		System.arraycopy(subtreeCv, 0, stack, stackSize * 8, 8);
+		stackSize++;
+		chunkCounter += numChunks;
+		for (long t = chunkCounter / numChunks; (t & 1) == 0; t >>>= 1) {
+			stackSize--;
+			int i = (stackSize - 1) * 8;
+			compress(key, 0, stack, i, 0, BLOCK_LENGTH, keyFlags | PARENT, stack, i, 8);
+		}
+	}
+	
+	
+	// Sets the output fields to the last node: the current chunk if the stack is empty, otherwise the parent of the bottom stack entry.
+	private void computeOutput() {
+		Arrays.fill(block, blockFilled, BLOCK_LENGTH, (byte)0);
+		wordsFromBytes(block, outputBlock);
+		System.arraycopy(chunkCv, 0, outputCv, 0, 8);
+		long counter = chunkCounter;
+		outputBlockLength = blockFilled;
+		outputFlags = keyFlags | (blocksCompressed == 0 ? CHUNK_START : 0) | CHUNK_END;
+		for (int i = stackSize - 1; i >= 0; i--) {
+			// The current node's chaining value becomes the right child of a parent
+			compress(outputCv, 0, outputBlock, 0, counter, outputBlockLength, outputFlags, outputBlock, 8, 8);
+			System.arraycopy(stack, i * 8, outputBlock, 0, 8);
+			System.arraycopy(key, 0, outputCv, 0, 8);
+			counter = 0;
+			outputBlockLength = BLOCK_LENGTH;
+			outputFlags = keyFlags | PARENT;
+		}
+	}
+	
+	
+	// Computes the specified 64-byte block of the root output into rootWords.
+	private void compressRoot(long t) {
+		compress(outputCv, 0, outputBlock, 0, t, outputBlockLength, outputFlags | ROOT, rootWords, 0, 16);
+	}
+	
+	
+	private static void wordsFromBytes(byte[] b, int[] words) {
+		for (int i = 0; i < 16; i++)
+			words[i] = (b[i * 4] & 0xFF) | (b[i * 4 + 1] & 0xFF) << 8 | (b[i * 4 + 2] & 0xFF) << 16 | b[i * 4 + 3] << 24;
+	}
+	
+	
+	
+	/**
+	 * Applies the BLAKE3 compression function. The output may overlap the inputs.
+	 * @param cv the array containing the input chaining value
+	 * @param cvOff the offset of the 8 chaining value words in {@code cv}
+	 * @param m the array containing the message block
+	 * @param mOff the offset of the 16 message words in {@code m}
+	 * @param counter the chunk counter, or the output block counter of the root
+	 * @param blockLen the number of message bytes in the block
+	 * @param flags the domain separation flags
+	 * @param out the array to write the output into
+	 * @param outOff the offset into {@code out}
+	 * @param outWords 8 for a chaining value, or 16 for the extended output of the root
+	 */
+	static void compress(int[] cv, int cvOff, int[] m, int mOff, long counter, int blockLen, int flags, int[] out, int outOff, int outWords) {
+		int h0 = cv[cvOff + 0], h1 = cv[cvOff + 1], h2 = cv[cvOff + 2], h3 = cv[cvOff + 3];
+		int h4 = cv[cvOff + 4], h5 = cv[cvOff + 5], h6 = cv[cvOff + 6], h7 = cv[cvOff + 7];
+		int v0 = h0, v1 = h1, v2 = h2, v3 = h3;
+		int v4 = h4, v5 = h5, v6 = h6, v7 = h7;
+		int v8 = IV0, v9 = IV1, v10 = IV2, v11 = IV3;
+		int v12 = (int)counter, v13 = (int)(counter >>> 32), v14 = blockLen, v15 = flags;
+		
+		// Round 0
+		v0 += v4 + m[mOff +  0];  v12 = rotateRight(v12 ^ v0, 16);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 12);
+		v0 += v4 + m[mOff +  1];  v12 = rotateRight(v12 ^ v0,  8);  v8 += v12;  v4 = rotateRight(v4 ^ v8,  7);
+		v1 += v5 + m[mOff +  2];  v13 = rotateRight(v13 ^ v1, 16);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 12);
+		v1 += v5 + m[mOff +  3];  v13 = rotateRight(v13 ^ v1,  8);  v9 += v13;  v5 = rotateRight(v5 ^ v9,  7);
+		v2 += v6 + m[mOff +  4];  v14 = rotateRight(v14 ^ v2, 16);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 12);
+		v2 += v6 + m[mOff +  5];  v14 = rotateRight(v14 ^ v2,  8);  v10 += v14;  v6 = rotateRight(v6 ^ v10,  7);
+		v3 += v7 + m[mOff +  6];  v15 = rotateRight(v15 ^ v3, 16);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 12);
+		v3 += v7 + m[mOff +  7];  v15 = rotateRight(v15 ^ v3,  8);  v11 += v15;  v7 = rotateRight(v7 ^ v11,  7);
+		v0 += v5 + m[mOff +  8];  v15 = rotateRight(v15 ^ v0, 16);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 12);
+		v0 += v5 + m[mOff +  9];  v15 = rotateRight(v15 ^ v0,  8);  v10 += v15;  v5 = rotateRight(v5 ^ v10,  7);
+		v1 += v6 + m[mOff + 10];  v12 = rotateRight(v12 ^ v1, 16);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 12);
+		v1 += v6 + m[mOff + 11];  v12 = rotateRight(v12 ^ v1,  8);  v11 += v12;  v6 = rotateRight(v6 ^ v11,  7);
+		v2 += v7 + m[mOff + 12];  v13 = rotateRight(v13 ^ v2, 16);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 12);
+		v2 += v7 + m[mOff + 13];  v13 = rotateRight(v13 ^ v2,  8);  v8 += v13;  v7 = rotateRight(v7 ^ v8,  7);
+		v3 += v4 + m[mOff + 14];  v14 = rotateRight(v14 ^ v3, 16);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 12);
+		v3 += v4 + m[mOff + 15];  v14 = rotateRight(v14 ^ v3,  8);  v9 += v14;  v4 = rotateRight(v4 ^ v9,  7);
+		
+		// Round 1
+		v0 += v4 + m[mOff +  2];  v12 = rotateRight(v12 ^ v0, 16);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 12);
+		v0 += v4 + m[mOff +  6];  v12 = rotateRight(v12 ^ v0,  8);  v8 += v12;  v4 = rotateRight(v4 ^ v8,  7);
+		v1 += v5 + m[mOff +  3];  v13 = rotateRight(v13 ^ v1, 16);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 12);
+		v1 += v5 + m[mOff + 10];  v13 = rotateRight(v13 ^ v1,  8);  v9 += v13;  v5 = rotateRight(v5 ^ v9,  7);
+		v2 += v6 + m[mOff +  7];  v14 = rotateRight(v14 ^ v2, 16);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 12);
+		v2 += v6 + m[mOff +  0];  v14 = rotateRight(v14 ^ v2,  8);  v10 += v14;  v6 = rotateRight(v6 ^ v10,  7);
+		v3 += v7 + m[mOff +  4];  v15 = rotateRight(v15 ^ v3, 16);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 12);
+		v3 += v7 + m[mOff + 13];  v15 = rotateRight(v15 ^ v3,  8);  v11 += v15;  v7 = rotateRight(v7 ^ v11,  7);
+		v0 += v5 + m[mOff +  1];  v15 = rotateRight(v15 ^ v0, 16);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 12);
+		v0 += v5 + m[mOff + 11];  v15 = rotateRight(v15 ^ v0,  8);  v10 += v15;  v5 = rotateRight(v5 ^ v10,  7);
+		v1 += v6 + m[mOff + 12];  v12 = rotateRight(v12 ^ v1, 16);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 12);
+		v1 += v6 + m[mOff +  5];  v12 = rotateRight(v12 ^ v1,  8);  v11 += v12;  v6 = rotateRight(v6 ^ v11,  7);
+		v2 += v7 + m[mOff +  9];  v13 = rotateRight(v13 ^ v2, 16);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 12);
+		v2 += v7 + m[mOff + 14];  v13 = rotateRight(v13 ^ v2,  8);  v8 += v13;  v7 = rotateRight(v7 ^ v8,  7);
+		v3 += v4 + m[mOff + 15];  v14 = rotateRight(v14 ^ v3, 16);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 12);
+		v3 += v4 + m[mOff +  8];  v14 = rotateRight(v14 ^ v3,  8);  v9 += v14;  v4 = rotateRight(v4 ^ v9,  7);
+		
+		// Round 2
+		v0 += v4 + m[mOff +  3];  v12 = rotateRight(v12 ^ v0, 16);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 12);
+		v0 += v4 + m[mOff +  4];  v12 = rotateRight(v12 ^ v0,  8);  v8 += v12;  v4 = rotateRight(v4 ^ v8,  7);
+		v1 += v5 + m[mOff + 10];  v13 = rotateRight(v13 ^ v1, 16);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 12);
+		v1 += v5 + m[mOff + 12];  v13 = rotateRight(v13 ^ v1,  8);  v9 += v13;  v5 = rotateRight(v5 ^ v9,  7);
+		v2 += v6 + m[mOff + 13];  v14 = rotateRight(v14 ^ v2, 16);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 12);
+		v2 += v6 + m[mOff +  2];  v14 = rotateRight(v14 ^ v2,  8);  v10 += v14;  v6 = rotateRight(v6 ^ v10,  7);
+		v3 += v7 + m[mOff +  7];  v15 = rotateRight(v15 ^ v3, 16);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 12);
+		v3 += v7 + m[mOff + 14];  v15 = rotateRight(v15 ^ v3,  8);  v11 += v15;  v7 = rotateRight(v7 ^ v11,  7);
+		v0 += v5 + m[mOff +  6];  v15 = rotateRight(v15 ^ v0, 16);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 12);
+		v0 += v5 + m[mOff +  5];  v15 = rotateRight(v15 ^ v0,  8);  v10 += v15;  v5 = rotateRight(v5 ^ v10,  7);
+		v1 += v6 + m[mOff +  9];  v12 = rotateRight(v12 ^ v1, 16);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 12);
+		v1 += v6 + m[mOff +  0];  v12 = rotateRight(v12 ^ v1,  8);  v11 += v12;  v6 = rotateRight(v6 ^ v11,  7);
+		v2 += v7 + m[mOff + 11];  v13 = rotateRight(v13 ^ v2, 16);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 12);
+		v2 += v7 + m[mOff + 15];  v13 = rotateRight(v13 ^ v2,  8);  v8 += v13;  v7 = rotateRight(v7 ^ v8,  7);
+		v3 += v4 + m[mOff +  8];  v14 = rotateRight(v14 ^ v3, 16);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 12);
+		v3 += v4 + m[mOff +  1];  v14 = rotateRight(v14 ^ v3,  8);  v9 += v14;  v4 = rotateRight(v4 ^ v9,  7);
+		
+		// Round 3
+		v0 += v4 + m[mOff + 10];  v12 = rotateRight(v12 ^ v0, 16);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 12);
+		v0 += v4 + m[mOff +  7];  v12 = rotateRight(v12 ^ v0,  8);  v8 += v12;  v4 = rotateRight(v4 ^ v8,  7);
+		v1 += v5 + m[mOff + 12];  v13 = rotateRight(v13 ^ v1, 16);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 12);
+		v1 += v5 + m[mOff +  9];  v13 = rotateRight(v13 ^ v1,  8);  v9 += v13;  v5 = rotateRight(v5 ^ v9,  7);
+		v2 += v6 + m[mOff + 14];  v14 = rotateRight(v14 ^ v2, 16);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 12);
+		v2 += v6 + m[mOff +  3];  v14 = rotateRight(v14 ^ v2,  8);  v10 += v14;  v6 = rotateRight(v6 ^ v10,  7);
+		v3 += v7 + m[mOff + 13];  v15 = rotateRight(v15 ^ v3, 16);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 12);
+		v3 += v7 + m[mOff + 15];  v15 = rotateRight(v15 ^ v3,  8);  v11 += v15;  v7 = rotateRight(v7 ^ v11,  7);
+		v0 += v5 + m[mOff +  4];  v15 = rotateRight(v15 ^ v0, 16);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 12);
+		v0 += v5 + m[mOff +  0];  v15 = rotateRight(v15 ^ v0,  8);  v10 += v15;  v5 = rotateRight(v5 ^ v10,  7);
+		v1 += v6 + m[mOff + 11];  v12 = rotateRight(v12 ^ v1, 16);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 12);
+		v1 += v6 + m[mOff +  2];  v12 = rotateRight(v12 ^ v1,  8);  v11 += v12;  v6 = rotateRight(v6 ^ v11,  7);
+		v2 += v7 + m[mOff +  5];  v13 = rotateRight(v13 ^ v2, 16);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 12);
+		v2 += v7 + m[mOff +  8];  v13 = rotateRight(v13 ^ v2,  8);  v8 += v13;  v7 = rotateRight(v7 ^ v8,  7);
+		v3 += v4 + m[mOff +  1];  v14 = rotateRight(v14 ^ v3, 16);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 12);
+		v3 += v4 + m[mOff +  6];  v14 = rotateRight(v14 ^ v3,  8);  v9 += v14;  v4 = rotateRight(v4 ^ v9,  7);
+		
+		// Round 4
+		v0 += v4 + m[mOff + 12];  v12 = rotateRight(v12 ^ v0, 16);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 12);
+		v0 += v4 + m[mOff + 13];  v12 = rotateRight(v12 ^ v0,  8);  v8 += v12;  v4 = rotateRight(v4 ^ v8,  7);
+		v1 += v5 + m[mOff +  9];  v13 = rotateRight(v13 ^ v1, 16);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 12);
+		v1 += v5 + m[mOff + 11];  v13 = rotateRight(v13 ^ v1,  8);  v9 += v13;  v5 = rotateRight(v5 ^ v9,  7);
+		v2 += v6 + m[mOff + 15];  v14 = rotateRight(v14 ^ v2, 16);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 12);
+		v2 += v6 + m[mOff + 10];  v14 = rotateRight(v14 ^ v2,  8);  v10 += v14;  v6 = rotateRight(v6 ^ v10,  7);
+		v3 += v7 + m[mOff + 14];  v15 = rotateRight(v15 ^ v3, 16);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 12);
+		v3 += v7 + m[mOff +  8];  v15 = rotateRight(v15 ^ v3,  8);  v11 += v15;  v7 = rotateRight(v7 ^ v11,  7);
+		v0 += v5 + m[mOff +  7];  v15 = rotateRight(v15 ^ v0, 16);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 12);
+		v0 += v5 + m[mOff +  2];  v15 = rotateRight(v15 ^ v0,  8);  v10 += v15;  v5 = rotateRight(v5 ^ v10,  7);
+		v1 += v6 + m[mOff +  5];  v12 = rotateRight(v12 ^ v1, 16);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 12);
+		v1 += v6 + m[mOff +  3];  v12 = rotateRight(v12 ^ v1,  8);  v11 += v12;  v6 = rotateRight(v6 ^ v11,  7);
+		v2 += v7 + m[mOff +  0];  v13 = rotateRight(v13 ^ v2, 16);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 12);
+		v2 += v7 + m[mOff +  1];  v13 = rotateRight(v13 ^ v2,  8);  v8 += v13;  v7 = rotateRight(v7 ^ v8,  7);
+		v3 += v4 + m[mOff +  6];  v14 = rotateRight(v14 ^ v3, 16);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 12);
+		v3 += v4 + m[mOff +  4];  v14 = rotateRight(v14 ^ v3,  8);  v9 += v14;  v4 = rotateRight(v4 ^ v9,  7);
+		
+		// Round 5
+		v0 += v4 + m[mOff +  9];  v12 = rotateRight(v12 ^ v0, 16);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 12);
+		v0 += v4 + m[mOff + 14];  v12 = rotateRight(v12 ^ v0,  8);  v8 += v12;  v4 = rotateRight(v4 ^ v8,  7);
+		v1 += v5 + m[mOff + 11];  v13 = rotateRight(v13 ^ v1, 16);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 12);
+		v1 += v5 + m[mOff +  5];  v13 = rotateRight(v13 ^ v1,  8);  v9 += v13;  v5 = rotateRight(v5 ^ v9,  7);
+		v2 += v6 + m[mOff +  8];  v14 = rotateRight(v14 ^ v2, 16);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 12);
+		v2 += v6 + m[mOff + 12];  v14 = rotateRight(v14 ^ v2,  8);  v10 += v14;  v6 = rotateRight(v6 ^ v10,  7);
+		v3 += v7 + m[mOff + 15];  v15 = rotateRight(v15 ^ v3, 16);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 12);
+		v3 += v7 + m[mOff +  1];  v15 = rotateRight(v15 ^ v3,  8);  v11 += v15;  v7 = rotateRight(v7 ^ v11,  7);
+		v0 += v5 + m[mOff + 13];  v15 = rotateRight(v15 ^ v0, 16);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 12);
+		v0 += v5 + m[mOff +  3];  v15 = rotateRight(v15 ^ v0,  8);  v10 += v15;  v5 = rotateRight(v5 ^ v10,  7);
+		v1 += v6 + m[mOff +  0];  v12 = rotateRight(v12 ^ v1, 16);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 12);
+		v1 += v6 + m[mOff + 10];  v12 = rotateRight(v12 ^ v1,  8);  v11 += v12;  v6 = rotateRight(v6 ^ v11,  7);
+		v2 += v7 + m[mOff +  2];  v13 = rotateRight(v13 ^ v2, 16);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 12);
+		v2 += v7 + m[mOff +  6];  v13 = rotateRight(v13 ^ v2,  8);  v8 += v13;  v7 = rotateRight(v7 ^ v8,  7);
+		v3 += v4 + m[mOff +  4];  v14 = rotateRight(v14 ^ v3, 16);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 12);
+		v3 += v4 + m[mOff +  7];  v14 = rotateRight(v14 ^ v3,  8);  v9 += v14;  v4 = rotateRight(v4 ^ v9,  7);
+		
+		// Round 6
+		v0 += v4 + m[mOff + 11];  v12 = rotateRight(v12 ^ v0, 16);  v8 += v12;  v4 = rotateRight(v4 ^ v8, 12);
+		v0 += v4 + m[mOff + 15];  v12 = rotateRight(v12 ^ v0,  8);  v8 += v12;  v4 = rotateRight(v4 ^ v8,  7);
+		v1 += v5 + m[mOff +  5];  v13 = rotateRight(v13 ^ v1, 16);  v9 += v13;  v5 = rotateRight(v5 ^ v9, 12);
+		v1 += v5 + m[mOff +  0];  v13 = rotateRight(v13 ^ v1,  8);  v9 += v13;  v5 = rotateRight(v5 ^ v9,  7);
+		v2 += v6 + m[mOff +  1];  v14 = rotateRight(v14 ^ v2, 16);  v10 += v14;  v6 = rotateRight(v6 ^ v10, 12);
+		v2 += v6 + m[mOff +  9];  v14 = rotateRight(v14 ^ v2,  8);  v10 += v14;  v6 = rotateRight(v6 ^ v10,  7);
+		v3 += v7 + m[mOff +  8];  v15 = rotateRight(v15 ^ v3, 16);  v11 += v15;  v7 = rotateRight(v7 ^ v11, 12);
+		v3 += v7 + m[mOff +  6];  v15 = rotateRight(v15 ^ v3,  8);  v11 += v15;  v7 = rotateRight(v7 ^ v11,  7);
+		v0 += v5 + m[mOff + 14];  v15 = rotateRight(v15 ^ v0, 16);  v10 += v15;  v5 = rotateRight(v5 ^ v10, 12);
+		v0 += v5 + m[mOff + 10];  v15 = rotateRight(v15 ^ v0,  8);  v10 += v15;  v5 = rotateRight(v5 ^ v10,  7);
+		v1 += v6 + m[mOff +  2];  v12 = rotateRight(v12 ^ v1, 16);  v11 += v12;  v6 = rotateRight(v6 ^ v11, 12);
+		v1 += v6 + m[mOff + 12];  v12 = rotateRight(v12 ^ v1,  8);  v11 += v12;  v6 = rotateRight(v6 ^ v11,  7);
+		v2 += v7 + m[mOff +  3];  v13 = rotateRight(v13 ^ v2, 16);  v8 += v13;  v7 = rotateRight(v7 ^ v8, 12);
+		v2 += v7 + m[mOff +  4];  v13 = rotateRight(v13 ^ v2,  8);  v8 += v13;  v7 = rotateRight(v7 ^ v8,  7);
+		v3 += v4 + m[mOff +  7];  v14 = rotateRight(v14 ^ v3, 16);  v9 += v14;  v4 = rotateRight(v4 ^ v9, 12);
+		v3 += v4 + m[mOff + 13];  v14 = rotateRight(v14 ^ v3,  8);  v9 += v14;  v4 = rotateRight(v4 ^ v9,  7);
+		
+		out[outOff + 0] = v0 ^ v8;
+		out[outOff + 1] = v1 ^ v9;
+		out[outOff + 2] = v2 ^ v10;
+		out[outOff + 3] = v3 ^ v11;
+		out[outOff + 4] = v4 ^ v12;
+		out[outOff + 5] = v5 ^ v13;
+		out[outOff + 6] = v6 ^ v14;
+		out[outOff + 7] = v7 ^ v15;
+		if (outWords == 16) {
+			out[outOff +  8] = v8  ^ h0;
+			out[outOff +  9] = v9  ^ h1;
+			out[outOff + 10] = v10 ^ h2;
+			out[outOff + 11] = v11 ^ h3;
+			out[outOff + 12] = v12 ^ h4;
+			out[outOff + 13] = v13 ^ h5;
+			out[outOff + 14] = v14 ^ h6;
+			out[outOff + 15] = v15 ^ h7;
+		}
+	}
+	
+	
+	// The first words of the IV, which is that of SHA-256 and BLAKE2s
+	static final int IV0 = 0x6A09E667;
+	static final int IV1 = 0xBB67AE85;
+	static final int IV2 = 0x3C6EF372;
+	static final int IV3 = 0xA54FF53A;
+	
+}
@@ -1,6 +1,6 @@
 package p79068.crypto.hash;
 
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import p79068.Assert;
 import p79068.crypto.Zeroizable;
 import p79068.crypto.Zeroizer;
@@ -11,6 +11,7 @@ import p79068.hash.HashValue;
 /**
  * A hasher that only applies the compression function after each block.
  * <p>The instance returned by a BlockHashFunction is not necessarily a BlockHasher.</p>
+ * <p>After construction, neither {@code update()} nor {@link #getHash(byte[], int)} allocates any objects.</p>
  * @see BlockHasherCore
  */
 public final class BlockHasher extends AbstractHasher implements Zeroizable {
@@ -21,14 +22,29 @@ public final class BlockHasher extends AbstractHasher implements Zeroizable {
 	private byte[] block;
 	
 	/**
-	 * The number of bytes filled in the current block. It is in the range [{@code 0}, {@code block.length}) initially and after each {@code update()} operation.
+	 * The number of bytes filled in the current block. It is in the range [{@code 0}, {@code block.length}) initially and after each {@code update()} operation, or [{@code 0}, {@code block.length}] if the core defers the final block.
 	 */
 	private int blockFilled;
 	
 	/**
-	 * The total length of the message, in bytes.
+	 * Whether a full block is only compressed when more bytes arrive. See {@link BlockHasherCore#isFinalBlockDeferred()}.
 	 */
-	private BigInteger length;
+	private final boolean deferFinalBlock;
+	
+	/**
+	 * A scratch copy of the current block, which the core is allowed to overwrite with padding when computing the hash.
+	 */
+	private byte[] finalBlock;
+	
+	/**
+	 * The low 64 bits of the total length of the message, in bytes, as an unsigned number.
+	 */
+	private long length;
+	
+	/**
+	 * The high 64 bits of the total length of the message, in bytes. This is incremented each time {@code length} wraps around.
+	 */
+	private long lengthHigh;
 	
 	
 	private BlockHasherCore core;
@@ -42,9 +58,12 @@ public final class BlockHasher extends AbstractHasher implements Zeroizable {
 		super(func);
 		Assert.assertNotNull(core);
 		block = new byte[func.getBlockLength()];
+		finalBlock = new byte[block.length];
 		blockFilled = 0;
-		length = BigInteger.ZERO;
+		length = 0;
+		lengthHigh = 0;
 		this.core = core;
+		deferFinalBlock = core.isFinalBlockDeferred();
 	}
 	
 	
@@ -57,13 +76,19 @@ public final class BlockHasher extends AbstractHasher implements Zeroizable {
 	public void update(byte b) {
 		if (hashFunction == null)
 			throw new IllegalStateException("Already zeroized");
+		if (blockFilled == block.length) {  // A deferred block is not the final one
+			core.compress(block);
+			blockFilled = 0;
+		}
 		block[blockFilled] = b;
 		blockFilled++;
-		if (blockFilled == block.length) {
+		if (blockFilled == block.length && !deferFinalBlock) {
 			core.compress(block);
 			blockFilled = 0;
 		}
-		length = length.add(BigInteger.ONE);
+		length++;
+		if (length == 0)
+			lengthHigh++;
 	}
 	
 	
@@ -80,35 +105,84 @@ public final class BlockHasher extends AbstractHasher implements Zeroizable {
 		Assert.assertRangeInBounds(b.length, off, len);
 		
 		int blockLen = block.length;
-		length = length.add(BigInteger.valueOf(len));  // Update length now, before len changes
+		// Update length now, before len changes
+		long newLength = length + len;
+		if (Long.compareUnsigned(newLength, length) < 0)
+			lengthHigh++;
+		length = newLength;
 		
 		// Try to fill up current block
 		if (blockFilled > 0) {
 			int n = Math.min(blockLen - blockFilled, len);
 			System.arraycopy(b, off, block, blockFilled, n);
 			blockFilled += n;
-			if (blockFilled == blockLen) {
-				core.compress(block);
-				off += n;
-				len -= n;
-			} else
+			off += n;
+			len -= n;
+			if (blockFilled < blockLen || deferFinalBlock && len == 0)
 				return;
+			core.compress(block);
 		}
 		
-		// Process whole blocks
-		if (len >= blockLen) {
-			int n = len / blockLen * blockLen;
+		// Process whole blocks, except the last byte's block if the core defers it
+		int n = (deferFinalBlock ? len - 1 : len) / blockLen * blockLen;
+		if (n > 0) {
 			core.compress(b, off, n);
 			off += n;
 			len -= n;
 		}
 		
-		// Process remaining bytes (0 <= len < block.length)
+		// Process remaining bytes (0 <= len < block.length, or len <= block.length if deferred)
 		System.arraycopy(b, off, block, 0, len);
 		blockFilled = len;
 	}
 	
 	
+	/**
+	 * Updates the current hash with the remaining bytes of the specified buffer, and advances the buffer's position to its limit. Whole blocks are compressed straight from the buffer without copying, if the core supports it.
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public void update(ByteBuffer b) {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		int off = b.position();
+		int len = b.remaining();
+		
+		int blockLen = block.length;
+		// Update length now, before len changes
+		long newLength = length + len;
+		if (Long.compareUnsigned(newLength, length) < 0)
+			lengthHigh++;
+		length = newLength;
+		b.position(b.limit());
+		
+		// Try to fill up current block
+		if (blockFilled > 0) {
+			int n = Math.min(blockLen - blockFilled, len);
+			b.get(off, block, blockFilled, n);
+			blockFilled += n;
+			off += n;
+			len -= n;
+			if (blockFilled < blockLen || deferFinalBlock && len == 0)
+				return;
+			core.compress(block);
+		}
+		
+		// Process whole blocks, using finalBlock as scratch space
+		int n = (deferFinalBlock ? len - 1 : len) / blockLen * blockLen;
+		if (n > 0) {
+			core.compress(b, off, n, finalBlock);
+			off += n;
+			len -= n;
+		}
+		
+		// Process remaining bytes (0 <= len < block.length, or len <= block.length if deferred)
+		b.get(off, block, 0, len);
+		blockFilled = len;
+	}
+	
+	
 	/**
 	 * Returns the hash value.
 	 * @throws IllegalStateException if this object has been zeroized
@@ -117,7 +191,27 @@ public final class BlockHasher extends AbstractHasher implements Zeroizable {
 	public HashValue getHash() {
 		if (hashFunction == null)
 			throw new IllegalStateException("Already zeroized");
-		return core.clone().getHashDestructively(block.clone(), blockFilled, length);
+		byte[] result = new byte[hashFunction.getHashLength()];
+		getHash(result, 0);
+		return new HashValue(result);
+	}
+	
+	
+	/**
+	 * Writes the hash value into the specified array. This method does not alter this hasher's state, and does not allocate any objects.
+	 * @param b the array to write the hash value into
+	 * @param off the offset into {@code b}
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if the hash value does not fit into {@code b} at offset {@code off}
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public void getHash(byte[] b, int off) {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, hashFunction.getHashLength());
+		System.arraycopy(block, 0, finalBlock, 0, blockFilled);
+		core.getHash(finalBlock, blockFilled, length, lengthHigh, b, off);
 	}
 	
 	
@@ -132,6 +226,7 @@ public final class BlockHasher extends AbstractHasher implements Zeroizable {
 			throw new IllegalStateException("Already zeroized");
 		BlockHasher result = (BlockHasher)super.clone();
 		result.block = result.block.clone();
+		result.finalBlock = new byte[result.block.length];
 		result.core = result.core.clone();
 		return result;
 	}
@@ -140,9 +235,11 @@ public final class BlockHasher extends AbstractHasher implements Zeroizable {
 	public void zeroize() {
 		if (hashFunction == null)
 			throw new IllegalStateException("Already zeroized");
-		length = null;
+		length = 0;
+		lengthHigh = 0;
 		blockFilled = 0;
 		block = Zeroizer.clear(block);
+		finalBlock = Zeroizer.clear(finalBlock);
 		hashFunction = null;
 		core.zeroize();
 		core = null;
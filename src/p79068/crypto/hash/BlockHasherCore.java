@@ -1,13 +1,14 @@
 package p79068.crypto.hash;
 
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizable;
-import p79068.hash.HashValue;
 
 
 /**
  * Provides a compression function and holds the hash state for a {@link BlockHasher}. This abstract superclass is stateless, but subclasses will have state.
+ * <p>Subclasses are expected to allocate all of their working arrays at construction (or cloning) time, so that {@link #compress(byte[], int, int)} and {@link #getHash(byte[], int, long, long, byte[], int)} allocate no objects.</p>
  */
 public abstract class BlockHasherCore implements Cloneable, Zeroizable {
 	
@@ -31,18 +32,72 @@ public abstract class BlockHasherCore implements Cloneable, Zeroizable {
 	
 	
 	/**
-	 * Given the contents of the final message block, this computes and returns the hash value. This hasher's internal state can change as a result of calling this method.
-	 * <p>The suffix bytes in {@code block} starting at index {@code blockFilled} are garbage and the computation must not depend on them.</p>
-	 * @param block the final message block (which is not completely filled)
-	 * @param blockFilled the number of bytes in the block, in the range [0, block.length)
-	 * @param length the length of the entire message, in bytes
-	 * @return the hash value
+	 * Applies the compression function to combine the specified message blocks, read from the specified buffer at absolute indexes, into the hasher's internal state. The buffer's position, limit, and mark are not changed.
+	 * <p>The provided implementation passes a heap buffer's backing array straight to {@link #compress(byte[], int, int)}, and otherwise copies the data into {@code temp} one block at a time. Subclasses may override this to read words directly from the buffer.</p>
+	 * @param msg the buffer to compress
+	 * @param off the absolute index into buffer {@code msg}
+	 * @param len the number of bytes to process, which is always a multiple of the block size
+	 * @param temp a scratch array whose length is the block size, whose contents are meaningless after the call
+	 */
+	public void compress(ByteBuffer msg, int off, int len, byte[] temp) {
+		if (msg.hasArray())
+			compress(msg.array(), msg.arrayOffset() + off, len);
+		else {
+			for (int i = off, end = off + len; i < end; i += temp.length) {
+				msg.get(i, temp);
+				compress(temp);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Given the contents of the final message block, this computes the hash value and writes it into the specified array. This core's hash state is the same before and after the call.
+	 * <p>The suffix bytes in {@code block} starting at index {@code blockFilled} are garbage and the computation must not depend on them. The entire array {@code block} may be overwritten (for example with padding), so the caller must pass a scratch copy.</p>
+	 * <p>The message length is an unsigned 128-bit integer split into two words, because some hash functions (such as SHA-512) encode lengths of up to 2<sup>128</sup> bits.</p>
+	 * @param block the final message block (which is not completely filled, unless {@link #isFinalBlockDeferred()} is {@code true}), which may be overwritten
+	 * @param blockFilled the number of bytes in the block, in the range [0, block.length), or [0, block.length] if {@link #isFinalBlockDeferred()} is {@code true}
+	 * @param length the low 64 bits of the length of the entire message, in bytes, as an unsigned number
+	 * @param lengthHigh the high 64 bits of the length of the entire message, in bytes
+	 * @param out the array to write the hash value into
+	 * @param off the offset into array {@code out}
+	 * @throws IllegalStateException if the message is too long for this hash function
+	 */
+	public abstract void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off);
+	
+	
+	/**
+	 * Tests whether a full block is held back until more message bytes arrive, so that the final block always reaches {@link #getHash(byte[], int, long, long, byte[], int)} even when it is full. Hash functions that flag the last compression (such as BLAKE2) need this, because a full block cannot be known to be the last one when it is filled. The default implementation returns {@code false}, which suits Merkle-Damg&aring;rd hash functions.
+	 * @return whether the final block is always passed to {@code getHash()}
+	 */
+	public boolean isFinalBlockDeferred() {
+		return false;
+	}
+	
+	
+	/**
+	 * Tests whether {@link #copyStateFrom(BlockHasherCore)} is supported. The default implementation returns {@code false}.
+	 * @return whether this core's hash state can be copied
+	 */
+	public boolean isStateCopyable() {
+		return false;
+	}
+	
+	
+	/**
+	 * Overwrites this core's hash state with the hash state of the specified core, which has the same class and parameters. This does not allocate any objects, so a precomputed state (such as an HMAC key's inner state) can be restored into a working core before each message.
+	 * <p>The provided implementation throws {@code UnsupportedOperationException}.</p>
+	 * @param source the core whose hash state to copy
+	 * @throws UnsupportedOperationException if {@link #isStateCopyable()} is {@code false}
+	 * @throws IllegalStateException if either core has been zeroized
 	 */
-	public abstract HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length);
+	public void copyStateFrom(BlockHasherCore source) {
+		throw new UnsupportedOperationException();
+	}
 	
 	
 	/**
-	 * Returns a clone of this object. {@link BlockHasher} uses this in conjunction with {@link #getHashDestructively()}.
+	 * Returns a clone of this object. The clone shares no mutable arrays with this object.
 	 * @return a clone of this object
 	 */
 	@Override
@@ -60,4 +115,40 @@ public abstract class BlockHasherCore implements Cloneable, Zeroizable {
 	 */
 	public void zeroize() {}
 	
+	
+	
+	/**
+	 * Applies Merkle-Damg&aring;rd strengthening to the final block and compresses the result: one padding byte is appended, followed by zeros, followed by the message length in bits. This compresses one or two blocks, and does not allocate any objects.
+	 * @param block the final message block, which will be overwritten
+	 * @param blockFilled the number of message bytes in the block, in the range [0, block.length)
+	 * @param length the low 64 bits of the message length in bytes
+	 * @param lengthHigh the high 64 bits of the message length in bytes
+	 * @param padByte the byte value appended immediately after the message (usually {@code 0x80})
+	 * @param lengthBytes the width of the encoded bit length field, in bytes (e.g. 8, 16, 32)
+	 * @param bigEndian whether the bit length is encoded in big endian rather than little endian
+	 */
+	protected final void padAndCompress(byte[] block, int blockFilled, long length, long lengthHigh, byte padByte, int lengthBytes, boolean bigEndian) {
+		block[blockFilled] = padByte;
+		blockFilled++;
+		Arrays.fill(block, blockFilled, block.length, (byte)0);
+		if (blockFilled + lengthBytes > block.length) {
+			compress(block);
+			Arrays.fill(block, (byte)0);
+		}
+		
+		// Convert the length from bytes to bits, which is a 131-bit unsigned number
+		long bitsLow  = length << 3;
+		long bitsMid  = lengthHigh << 3 | length >>> 61;
+		long bitsHigh = lengthHigh >>> 61;
+		for (int i = 0; i < lengthBytes; i++) {
+			long word = i < 8 ? bitsLow : i < 16 ? bitsMid : i < 24 ? bitsHigh : 0;
+			byte b = (byte)(word >>> ((i & 7) << 3));
+			if (bigEndian)
+				block[block.length - 1 - i] = b;
+			else
+				block[block.length - lengthBytes + i] = b;
+		}
+		compress(block);
+	}
+	
 }
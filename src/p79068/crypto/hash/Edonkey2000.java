@@ -1,6 +1,16 @@
 package p79068.crypto.hash;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import p79068.Assert;
 import p79068.hash.AbstractHashFunction;
+import p79068.hash.HashValue;
 import p79068.hash.Hasher;
 
 
@@ -13,6 +23,7 @@ import p79068.hash.Hasher;
  *   <li>New ed2k: If the message is less than <em>or equal</em> one block long, the hash of the first block is returned.
  *     Otherwise, the hashes of these blocks are concatenated together and hashed again with MD4 to yield the final hash value.</li>
  * </ul>
+ * <p>Because the MD4 hashes of the blocks are independent, the {@code getHash(..., ForkJoinPool)} methods hash the blocks concurrently, and only the final MD4 over the block hashes is sequential. The file channel variant memory-maps each block separately, so no data is copied and each worker reads its own region of the file.</p>
  * <p>Mutability: <em>Immutable</em><br>
  *  Instantiability: <em>Singleton</em></p>
  */
@@ -50,4 +61,143 @@ public final class Edonkey2000 extends AbstractHashFunction {
 			throw new AssertionError();
 	}
 	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, hashing the blocks concurrently on the specified pool. The result equals {@code getHash(b, off, len)}.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the blocks on
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public HashValue getHash(byte[] b, int off, int len, ForkJoinPool pool) {
+		Assert.assertNotNull(b, pool);
+		Assert.assertRangeInBounds(b.length, off, len);
+		try {
+			return getHash(len, pool, (hasher, pos, n) -> hasher.update(b, off + (int)pos, n));
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified file, hashing the blocks concurrently on the specified pool. The result equals {@code getHash(path)}.
+	 * @param path the file to hash
+	 * @param pool the pool to hash the blocks on
+	 * @return the hash value of the specified file
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code path} or {@code pool} is {@code null}
+	 */
+	public HashValue getHash(Path path, ForkJoinPool pool) throws IOException {
+		Assert.assertNotNull(path, pool);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return getHash(channel, 0, channel.size(), pool);
+		}
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified range of the specified file channel, hashing the blocks concurrently on the specified pool. Each block is memory-mapped separately. The channel's position is not changed. The result equals {@code getHash(channel, pos, len)}.
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to hash
+	 * @param pool the pool to hash the blocks on
+	 * @return the hash value of the specified file range
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code channel} or {@code pool} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 */
+	public HashValue getHash(FileChannel channel, long pos, long len, ForkJoinPool pool) throws IOException {
+		Assert.assertNotNull(channel, pool);
+		if (pos < 0 || len < 0)
+			throw new IllegalArgumentException("Negative position or length");
+		if (pos + len < 0 || pos + len > channel.size())
+			throw new EOFException();
+		return getHash(len, pool, (hasher, off, n) -> hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, pos + off, n)));
+	}
+	
+	
+	
+	private HashValue getHash(long len, ForkJoinPool pool, BlockReader reader) throws IOException {
+		long numBlocks;
+		if (this == ED2K_FUNCTION)  // A final partial block is always hashed, even if it is empty
+			numBlocks = len / Edonkey2000Hasher.BLOCK_LENGTH + 1;
+		else if (this == NEW_ED2K_FUNCTION)  // Only non-empty blocks are hashed, except for the empty message
+			numBlocks = Math.max((len + Edonkey2000Hasher.BLOCK_LENGTH - 1) / Edonkey2000Hasher.BLOCK_LENGTH, 1);
+		else
+			throw new AssertionError();
+		if (numBlocks > Integer.MAX_VALUE / 16)
+			throw new IllegalArgumentException("Length too large");
+		
+		byte[] blockHashes = new byte[(int)numBlocks * 16];
+		try {
+			pool.invoke(new BlockTask(reader, len, blockHashes, 0, (int)numBlocks));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (numBlocks == 1)
+			return new HashValue(blockHashes);
+		else
+			return Md.MD4_FUNCTION.getHash(blockHashes);
+	}
+	
+	
+	
+	// Feeds a range of the message, which lies within one block, to a hasher.
+	private interface BlockReader {
+		
+		public void update(Hasher hasher, long off, int len) throws IOException;
+		
+	}
+	
+	
+	
+	// Hashes blocks [start, end) of the message, by splitting the range in half until single blocks remain.
+	@SuppressWarnings("serial")
+	private static final class BlockTask extends RecursiveAction {
+		
+		private final BlockReader reader;
+		
+		private final long length;
+		
+		private final byte[] blockHashes;
+		
+		private final int start;
+		
+		private final int end;
+		
+		
+		
+		public BlockTask(BlockReader reader, long length, byte[] blockHashes, int start, int end) {
+			this.reader = reader;
+			this.length = length;
+			this.blockHashes = blockHashes;
+			this.start = start;
+			this.end = end;
+		}
+		
+		
+		
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new BlockTask(reader, length, blockHashes, start, mid), new BlockTask(reader, length, blockHashes, mid, end));
+			} else {
+				long off = (long)start * Edonkey2000Hasher.BLOCK_LENGTH;
+				Hasher hasher = Md.MD4_FUNCTION.newHasher();
+				try {
+					reader.update(hasher, off, (int)Math.min(length - off, Edonkey2000Hasher.BLOCK_LENGTH));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				hasher.getHash(blockHashes, start * 16);
+			}
+		}
+		
+	}
+	
 }
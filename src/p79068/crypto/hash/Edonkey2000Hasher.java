@@ -12,7 +12,7 @@ final class Edonkey2000Hasher extends AbstractHasher implements Zeroizable {
 	/**
 	 * The block length. After each block of this many bytes, the hash of the inner hasher is added to the outer hasher.
 	 */
-	private static final int BLOCK_LENGTH = 9728000;
+	static final int BLOCK_LENGTH = 9728000;
 	
 	
 	private final boolean newEd2kMode;
@@ -16,13 +16,13 @@ final class FastWhirlpoolCipherer extends AbstractCipherer {
 	
 	private long[] key;
 	
-	private FastWhirlpoolCore hasher;
+	private final FastWhirlpoolTables tables;
 	
 	
 	
-	public FastWhirlpoolCipherer(BlockCipher cipher, byte[] key, int rounds, int[] sbox, int[] c, int[] cInv) {
+	public FastWhirlpoolCipherer(BlockCipher cipher, byte[] key, FastWhirlpoolTables tables) {
 		super(cipher, key);
-		hasher = new FastWhirlpoolCore(rounds, sbox, c, cInv);
+		this.tables = tables;
 		setKey(key);
 	}
 	
@@ -49,14 +49,16 @@ final class FastWhirlpoolCipherer extends AbstractCipherer {
 		
 		long[] tempmsg = new long[8];
 		long[] tempkey = new long[8];
+		long[] roundKey = new long[8];
+		long[][] keySchedule = encrypt ? null : new long[tables.rcon.length + 1][8];
 		long[] temp = new long[8];
 		for (int i = off, end = off + len; i < end; i += 64) {
 			System.arraycopy(key, 0, tempkey, 0, 8);
 			toInt64sBigEndian(b, i, tempmsg);
 			if (encrypt)
-				hasher.encrypt(tempmsg, tempkey);
+				tables.encrypt(tempmsg, tempkey, roundKey);
 			else
-				hasher.decrypt(tempmsg, tempkey, temp);
+				tables.decrypt(tempmsg, tempkey, roundKey, keySchedule, temp);
 			toBytesBigEndian(tempmsg, b, i);
 		}
 	}
@@ -0,0 +1,89 @@
+package p79068.crypto.hash;
+
+import java.util.Arrays;
+import p79068.Assert;
+
+
+/**
+ * The HKDF extract-and-expand key derivation function with HMAC (RFC 5869).
+ * <p>Extraction is one HMAC of the input keying material keyed by the salt. Expansion chains HMACs keyed by the pseudorandom key, each of the previous output, the info string and a counter byte; it uses {@link Hmac#mac(byte[], int, int, byte[], int)} on a single message buffer, so it creates no hashers or hash values.</p>
+ */
+public final class Hkdf {
+	
+	/**
+	 * Derives and returns a key of the specified length, by extracting a pseudorandom key from the input keying material and expanding it.
+	 * @param hashFunc the underlying block hash function of the HMAC
+	 * @param salt the salt, which may be empty (equivalent to the RFC's default of a hash value length of zeros)
+	 * @param ikm the input keying material
+	 * @param info the context and application specific information, which may be empty
+	 * @param keyLen the length of the derived key in bytes, at most 255 times the hash value length
+	 * @return the derived key
+	 * @throws NullPointerException if any argument is {@code null}
+	 * @throws IllegalArgumentException if the key length is negative or too large
+	 */
+	public static byte[] deriveKey(BlockHashFunction hashFunc, byte[] salt, byte[] ikm, byte[] info, int keyLen) {
+		byte[] prk = extract(hashFunc, salt, ikm);
+		byte[] result = expand(hashFunc, prk, info, keyLen);
+		Arrays.fill(prk, (byte)0);
+		return result;
+	}
+	
+	
+	/**
+	 * Extracts and returns a pseudorandom key of the hash value length from the specified input keying material.
+	 * @param hashFunc the underlying block hash function of the HMAC
+	 * @param salt the salt, which may be empty (equivalent to the RFC's default of a hash value length of zeros)
+	 * @param ikm the input keying material
+	 * @return the pseudorandom key
+	 * @throws NullPointerException if any argument is {@code null}
+	 */
+	public static byte[] extract(BlockHashFunction hashFunc, byte[] salt, byte[] ikm) {
+		Assert.assertNotNull(hashFunc, salt, ikm);
+		Hmac mac = new Hmac(hashFunc, salt);  // Zero padding makes an empty salt equal to a salt of zeros
+		byte[] result = new byte[mac.getHashLength()];
+		mac.mac(ikm, 0, ikm.length, result, 0);
+		mac.zeroize();
+		return result;
+	}
+	
+	
+	/**
+	 * Expands the specified pseudorandom key into a key of the specified length.
+	 * @param hashFunc the underlying block hash function of the HMAC
+	 * @param prk the pseudorandom key, usually from {@link #extract(BlockHashFunction, byte[], byte[])}
+	 * @param info the context and application specific information, which may be empty
+	 * @param keyLen the length of the derived key in bytes, at most 255 times the hash value length
+	 * @return the derived key
+	 * @throws NullPointerException if any argument is {@code null}
+	 * @throws IllegalArgumentException if the key length is negative or too large
+	 */
+	public static byte[] expand(BlockHashFunction hashFunc, byte[] prk, byte[] info, int keyLen) {
+		Assert.assertNotNull(hashFunc, prk, info);
+		int hashLen = hashFunc.getHashLength();
+		if (keyLen < 0 || keyLen > 255 * hashLen)
+			throw new IllegalArgumentException("Invalid key length");
+		
+		// The message buffer holds T(i-1) || info || i, where T(0) is empty
+		Hmac mac = new Hmac(hashFunc, prk);
+		byte[] msg = new byte[hashLen + info.length + 1];
+		System.arraycopy(info, 0, msg, hashLen, info.length);
+		byte[] result = new byte[keyLen];
+		for (int i = 1, off = 0; off < keyLen; i++, off += hashLen) {
+			msg[msg.length - 1] = (byte)i;
+			int start = i == 1 ? hashLen : 0;
+			mac.mac(msg, start, msg.length - start, msg, 0);
+			System.arraycopy(msg, 0, result, off, Math.min(hashLen, keyLen - off));
+		}
+		Arrays.fill(msg, (byte)0);
+		mac.zeroize();
+		return result;
+	}
+	
+	
+	
+	/**
+	 * Not instantiable.
+	 */
+	private Hkdf() {}
+	
+}
@@ -1,9 +1,17 @@
 package p79068.crypto.hash;
 
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
 import p79068.Assert;
 import p79068.crypto.Zeroizable;
+import p79068.crypto.Zeroizer;
 import p79068.hash.AbstractHashFunction;
+import p79068.hash.HashValue;
 import p79068.hash.Hasher;
 
 
@@ -11,13 +19,32 @@ import p79068.hash.Hasher;
  * An HMAC (keyed hash message authentication code) hash function.
  * <p>The HMAC specification requires a block hash function because the initial state of an HMAC instance need not retain incomplete message bytes.</p>
  * <p>The underlying hash function's block length must not be smaller than its output hash value length.</p>
+ * <p>The one-shot methods {@link #mac(byte[], int, int, byte[], int)} and {@link #verify(byte[], int, int, byte[], int)} can be called by many threads concurrently, and for MD4, MD5 and the SHA family they neither clone hashers nor create hash values. If the library's implementation of the underlying hash function is selected (see {@link p79068.backend.Backends}), the inner and outer states after the padded key are kept as compression cores, which are restored into a working core before compressing the message straight from the caller's array, so no objects are allocated in the steady state. If the JDK's implementation is selected, a keyed {@link Mac} of the Java platform is used instead, which resets to its keyed state after each message. See {@link HmacKeyCache} for reusing the precomputed states of many keys.</p>
  * <p>Mutability: <em>Mutable</em></p>
  */
 public final class Hmac extends AbstractHashFunction implements Zeroizable {
 	
+	// A power of 2, so that threads with consecutive IDs use distinct slots
+	private static final int WORKSPACE_SLOTS = Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 2;
+	
+	
+	
+	private final int blockLength;
+	
 	private Hasher inner;
 	private Hasher outer;
 	
+	// The states after compressing the inner and outer padded keys, or null if the one-shot methods do not use library cores
+	private BlockHasherCore innerCore;
+	private BlockHasherCore outerCore;
+	
+	// The JDK's algorithm name and the padded key, or null if the one-shot methods do not use JDK Macs
+	private String jdkAlgorithm;
+	private byte[] jdkKey;
+	
+	// Working cores and buffers for the one-shot methods, which threads borrow from the slot chosen by their ID
+	private final AtomicReferenceArray<Workspace> workspaces;
+	
 	
 	
 	/**
@@ -30,6 +57,7 @@ public final class Hmac extends AbstractHashFunction implements Zeroizable {
 	public Hmac(BlockHashFunction hashFunc, byte[] key) {
 		super("HMAC-" + hashFunc.getName(), hashFunc.getHashLength());
 		int blockLen = hashFunc.getBlockLength();
+		blockLength = blockLen;
 		if (blockLen < hashFunc.getHashLength())
 			throw new IllegalArgumentException("Block length smaller than hash value length");
 		
@@ -40,6 +68,7 @@ public final class Hmac extends AbstractHashFunction implements Zeroizable {
 		key = Arrays.copyOf(key, blockLen);
 		
 		// Set initial state of hashers
+		byte[] paddedKey = key.clone();
 		inner = hashFunc.newHasher();
 		for (int i = 0; i < key.length; i++)
 			key[i] ^= 0x36;
@@ -48,6 +77,28 @@ public final class Hmac extends AbstractHashFunction implements Zeroizable {
 		for (int i = 0; i < key.length; i++)
 			key[i] ^= 0x36 ^ 0x5C;
 		outer.update(key);
+		
+		// Prepare the one-shot methods. A JDK-backed hasher means that the JDK's implementation is faster.
+		if (inner instanceof JdkDigestHasher) {
+			String alg = "Hmac" + hashFunc.getName().replace("-", "");
+			try {
+				Mac.getInstance(alg);
+				jdkAlgorithm = alg;
+				jdkKey = paddedKey.clone();  // Padding with zeros does not change the HMAC, and makes a key of length 0 acceptable
+			} catch (NoSuchAlgorithmException e) {}  // Use cores or hashers
+		}
+		BlockHasherCore core = jdkKey == null && hashFunc instanceof AbstractBlockHashFunction ? ((AbstractBlockHashFunction)hashFunc).newCore() : null;
+		if (core != null && !core.isFinalBlockDeferred() && core.isStateCopyable()) {
+			outerCore = core;
+			outerCore.compress(key);
+			innerCore = ((AbstractBlockHashFunction)hashFunc).newCore();
+			for (int i = 0; i < key.length; i++)
+				key[i] ^= 0x5C ^ 0x36;
+			innerCore.compress(key);
+		}
+		Arrays.fill(key, (byte)0);
+		Arrays.fill(paddedKey, (byte)0);
+		workspaces = new AtomicReferenceArray<>(WORKSPACE_SLOTS);
 	}
 	
 	
@@ -65,7 +116,131 @@ public final class Hmac extends AbstractHashFunction implements Zeroizable {
 	
 	
 	/**
-	 * Clears the state of this object for privacy.
+	 * Computes and returns the HMAC of the specified byte array range, without a hasher if the underlying hash function supports it.
+	 * @param b the byte array to authenticate
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the HMAC of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public HashValue getHash(byte[] b, int off, int len) {
+		byte[] result = new byte[getHashLength()];
+		mac(b, off, len, result, 0);
+		return new HashValue(result);
+	}
+	
+	
+	/**
+	 * Computes the HMAC of the specified message range and writes it into the specified array. If the library's implementation of the underlying hash function is selected and supports it, this method does not allocate any objects in the steady state.
+	 * @param msg the message to authenticate
+	 * @param off the offset into {@code msg}
+	 * @param len the length of the message
+	 * @param out the array to write the HMAC into
+	 * @param outOff the offset into {@code out}
+	 * @throws NullPointerException if {@code msg} or {@code out} is {@code null}
+	 * @throws IndexOutOfBoundsException if the message range lies outside of {@code msg}, or the HMAC does not fit into {@code out} at offset {@code outOff}
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	public void mac(byte[] msg, int off, int len, byte[] out, int outOff) {
+		Assert.assertNotNull(msg, out);
+		Assert.assertRangeInBounds(msg.length, off, len);
+		Assert.assertRangeInBounds(out.length, outOff, getHashLength());
+		if (outer == null)
+			throw new IllegalStateException("Already zeroized");
+		if (innerCore == null && jdkKey == null) {
+			Hasher hasher = newHasher();
+			hasher.update(msg, off, len);
+			hasher.getHash(out, outOff);
+			return;
+		}
+		
+		int slot = slot();
+		Workspace ws = borrow(slot);
+		compute(ws, msg, off, len, out, outOff);
+		giveBack(slot, ws);
+	}
+	
+	
+	/**
+	 * Tests whether the specified tag is the HMAC of the specified message range. The comparison takes time independent of the tag's contents. If the library's implementation of the underlying hash function is selected and supports it, this method does not allocate any objects in the steady state.
+	 * @param msg the message to authenticate
+	 * @param off the offset into {@code msg}
+	 * @param len the length of the message
+	 * @param tag the array containing the expected HMAC, which is {@link #getHashLength()} bytes long
+	 * @param tagOff the offset into {@code tag}
+	 * @return whether the tag matches the HMAC of the message
+	 * @throws NullPointerException if {@code msg} or {@code tag} is {@code null}
+	 * @throws IndexOutOfBoundsException if the message range lies outside of {@code msg}, or the tag range lies outside of {@code tag}
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	public boolean verify(byte[] msg, int off, int len, byte[] tag, int tagOff) {
+		Assert.assertNotNull(msg, tag);
+		Assert.assertRangeInBounds(msg.length, off, len);
+		Assert.assertRangeInBounds(tag.length, tagOff, getHashLength());
+		if (outer == null)
+			throw new IllegalStateException("Already zeroized");
+		
+		int slot = -1;
+		Workspace ws = null;
+		byte[] actual;
+		if (innerCore != null || jdkKey != null) {
+			slot = slot();
+			ws = borrow(slot);
+			actual = ws.tag;
+			compute(ws, msg, off, len, actual, 0);
+		} else {
+			Hasher hasher = newHasher();
+			hasher.update(msg, off, len);
+			actual = hasher.getHash().toBytes();
+		}
+		
+		int diff = 0;
+		for (int i = 0; i < actual.length; i++)
+			diff |= actual[i] ^ tag[tagOff + i];
+		if (ws != null) {
+			Arrays.fill(actual, (byte)0);
+			giveBack(slot, ws);
+		}
+		return diff == 0;
+	}
+	
+	
+	/**
+	 * Replaces the specified array by its own HMAC the specified number of times, and XORs each of those HMACs into the accumulator. This is the inner loop of PBKDF2. Each iteration costs two compressions from the precomputed inner and outer states (or one message on a JDK {@link Mac}), and allocates no objects in the steady state if the one-shot methods avoid hashers.
+	 * @param u the array of {@link #getHashLength()} bytes to replace by its HMAC
+	 * @param iterations the number of times to apply the HMAC, which may be 0
+	 * @param acc the array of {@link #getHashLength()} bytes to XOR the HMACs into
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	void iterate(byte[] u, int iterations, byte[] acc) {
+		if (outer == null)
+			throw new IllegalStateException("Already zeroized");
+		int hashLen = getHashLength();
+		if (innerCore == null && jdkKey == null) {
+			for (int i = 0; i < iterations; i++) {
+				mac(u, 0, hashLen, u, 0);
+				for (int j = 0; j < hashLen; j++)
+					acc[j] ^= u[j];
+			}
+			return;
+		}
+		
+		int slot = slot();
+		Workspace ws = borrow(slot);
+		for (int i = 0; i < iterations; i++) {
+			compute(ws, u, 0, hashLen, u, 0);  // The message is consumed before the output is written
+			for (int j = 0; j < hashLen; j++)
+				acc[j] ^= u[j];
+		}
+		giveBack(slot, ws);
+	}
+	
+	
+	/**
+	 * Clears the state of this object for privacy. This must not run concurrently with other methods of this object.
 	 * @throws IllegalStateException if this object has been zeroized
 	 */
 	public void zeroize() {
@@ -77,6 +252,116 @@ public final class Hmac extends AbstractHashFunction implements Zeroizable {
 			((Zeroizable)outer).zeroize();
 		inner = null;
 		outer = null;
+		if (innerCore != null) {
+			innerCore.zeroize();
+			outerCore.zeroize();
+			innerCore = null;
+			outerCore = null;
+		}
+		if (jdkKey != null)
+			jdkKey = Zeroizer.clear(jdkKey);
+		for (int i = 0; i < workspaces.length(); i++) {
+			Workspace ws = workspaces.getAndSet(i, null);
+			if (ws != null)
+				ws.zeroize();
+		}
+	}
+	
+	
+	
+	// Hashes the inner padded key and message from the inner state, then the outer padded key and inner hash from the outer state.
+	private void compute(Workspace ws, byte[] msg, int off, int len, byte[] out, int outOff) {
+		if (ws.jdkMac != null) {
+			ws.jdkMac.update(msg, off, len);
+			try {
+				ws.jdkMac.doFinal(out, outOff);
+			} catch (ShortBufferException e) {
+				throw new AssertionError(e);  // The caller checked the output range
+			}
+			return;
+		}
+		
+		int blockLen = ws.block.length;
+		int hashLen = getHashLength();
+		BlockHasherCore core = ws.core;
+		
+		core.copyStateFrom(innerCore);
+		int n = len / blockLen * blockLen;
+		if (n > 0)
+			core.compress(msg, off, n);
+		System.arraycopy(msg, off + n, ws.block, 0, len - n);
+		core.getHash(ws.block, len - n, blockLen + (long)len, 0, ws.innerHash, 0);
+		
+		core.copyStateFrom(outerCore);
+		int blockFilled = hashLen;
+		if (hashLen == blockLen) {  // Only when the hash fills the block
+			core.compress(ws.innerHash);
+			blockFilled = 0;
+		} else
+			System.arraycopy(ws.innerHash, 0, ws.block, 0, hashLen);
+		core.getHash(ws.block, blockFilled, blockLen + (long)hashLen, 0, out, outOff);
+	}
+	
+	
+	private int slot() {
+		return (int)Thread.currentThread().getId() & (WORKSPACE_SLOTS - 1);
+	}
+	
+	
+	// Takes the workspace from the specified slot, or makes a new one if another thread is using it.
+	private Workspace borrow(int slot) {
+		Workspace ws = workspaces.getAndSet(slot, null);
+		if (ws != null)
+			return ws;
+		if (innerCore != null)
+			return new Workspace(innerCore.clone(), null, blockLength, getHashLength());
+		try {
+			Mac mac = Mac.getInstance(jdkAlgorithm);
+			mac.init(new SecretKeySpec(jdkKey, jdkAlgorithm));
+			return new Workspace(null, mac, blockLength, getHashLength());
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);  // The constructor checked that the algorithm is available
+		}
+	}
+	
+	
+	private void giveBack(int slot, Workspace ws) {
+		workspaces.set(slot, ws);
+	}
+	
+	
+	
+	private static final class Workspace {
+		
+		public BlockHasherCore core;  // Either this
+		public Mac jdkMac;  // Or this
+		public byte[] block;
+		public byte[] innerHash;
+		public byte[] tag;
+		
+		
+		public Workspace(BlockHasherCore core, Mac jdkMac, int blockLen, int hashLen) {
+			this.core = core;
+			this.jdkMac = jdkMac;
+			block = new byte[blockLen];
+			innerHash = new byte[hashLen];
+			tag = new byte[hashLen];
+		}
+		
+		
+		// A JDK Mac can only be reset, which does not clear its key
+		public void zeroize() {
+			if (core != null)
+				core.zeroize();
+			else
+				jdkMac.reset();
+			core = null;
+			jdkMac = null;
+			block = Zeroizer.clear(block);
+			innerHash = Zeroizer.clear(innerHash);
+			tag = Zeroizer.clear(tag);
+		}
+		
 	}
 	
 }
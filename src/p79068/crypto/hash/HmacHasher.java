@@ -35,8 +35,10 @@ final class HmacHasher extends AbstractHasher implements Zeroizable {
 	public HashValue getHash() {
 		if (hashFunction == null)
 			throw new IllegalStateException("Already zeroized");
+		byte[] innerHash = new byte[hashFunction.getHashLength()];
+		inner.getHash(innerHash, 0);
 		Hasher temp = outer.clone();
-		temp.update(inner.getHash().toBytes());
+		temp.update(innerHash);
 		return temp.getHash();
 	}
 	
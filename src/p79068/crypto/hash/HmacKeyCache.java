@@ -0,0 +1,190 @@
+package p79068.crypto.hash;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import p79068.Assert;
+
+
+/**
+ * A bounded cache of {@link Hmac} instances for one underlying hash function, keyed by the secret key. It saves the key preprocessing and the two compressions of the padded key for each message, when many messages are authenticated under a set of rotating keys.
+ * <p>The cache is set-associative: a key's hash selects a set of {@value #WAYS} entries, and the least recently used entry of the set is replaced on a miss. Keys are hashed with SipHash under a random key, so that chosen keys cannot crowd one set. A lookup that hits does not allocate any objects.</p>
+ * <p>Evicted instances are not zeroized, because other threads may still be using them.</p>
+ * <p>Mutability: <em>Mutable</em>, thread-safe</p>
+ */
+public final class HmacKeyCache {
+	
+	private static final int WAYS = 4;
+	
+	// The number of locks, a power of 2; each guards the sets whose index is congruent modulo this number
+	private static final int LOCKS = 64;
+	
+	
+	
+	private final BlockHashFunction hashFunction;
+	
+	private final long hashKey0;
+	private final long hashKey1;
+	
+	private final int setMask;
+	
+	// Entry i of set s is at index s * WAYS + i
+	private final byte[][] keys;
+	private final long[] keyHashes;
+	private final Hmac[] macs;
+	private final long[] lastUses;
+	
+	// Incremented on every access, for choosing the least recently used entry
+	private final long[] setClocks;
+	
+	private final Object[] locks;
+	
+	
+	
+	/**
+	 * Constructs an empty cache for the specified hash function, holding at least the specified number of keys.
+	 * @param hashFunc the underlying block hash function
+	 * @param capacity the minimum number of keys to hold, which is rounded up to a power of 2
+	 * @throws NullPointerException if the hash function is {@code null}
+	 * @throws IllegalArgumentException if the capacity is not positive or exceeds 2<sup>28</sup>
+	 */
+	public HmacKeyCache(BlockHashFunction hashFunc, int capacity) {
+		Assert.assertNotNull(hashFunc);
+		if (capacity <= 0 || capacity > 1 << 28)
+			throw new IllegalArgumentException("Invalid capacity");
+		hashFunction = hashFunc;
+		SecureRandom random = new SecureRandom();
+		hashKey0 = random.nextLong();
+		hashKey1 = random.nextLong();
+		
+		int sets = Integer.highestOneBit(Math.max((capacity + WAYS - 1) / WAYS * 2 - 1, 1));
+		setMask = sets - 1;
+		keys = new byte[sets * WAYS][];
+		keyHashes = new long[sets * WAYS];
+		macs = new Hmac[sets * WAYS];
+		lastUses = new long[sets * WAYS];
+		setClocks = new long[sets];
+		locks = new Object[Math.min(sets, LOCKS)];
+		for (int i = 0; i < locks.length; i++)
+			locks[i] = new Object();
+	}
+	
+	
+	
+	/**
+	 * Returns the HMAC instance for the specified key, constructing and caching it if it is not cached. The key array is not retained.
+	 * @param key the secret key
+	 * @return the HMAC instance for the key
+	 * @throws NullPointerException if the key is {@code null}
+	 */
+	public Hmac get(byte[] key) {
+		Assert.assertNotNull(key);
+		long hash = SipHash.sipHash13(hashKey0, hashKey1, key, 0, key.length);
+		int set = (int)(hash >>> 32) & setMask;
+		Object lock = locks[set & (locks.length - 1)];
+		synchronized (lock) {
+			Hmac result = find(set, hash, key);
+			if (result != null)
+				return result;
+		}
+		
+		// Construct outside of the lock, because that compresses the padded key twice
+		Hmac mac = new Hmac(hashFunction, key);
+		synchronized (lock) {
+			Hmac result = find(set, hash, key);  // Another thread may have inserted it meanwhile
+			if (result != null)
+				return result;
+			int victim = set * WAYS;
+			for (int i = set * WAYS, end = i + WAYS; i < end; i++) {
+				if (macs[i] == null) {
+					victim = i;
+					break;
+				} else if (lastUses[i] < lastUses[victim])
+					victim = i;
+			}
+			keys[victim] = key.clone();
+			keyHashes[victim] = hash;
+			macs[victim] = mac;
+			lastUses[victim] = ++setClocks[set];
+			return mac;
+		}
+	}
+	
+	
+	/**
+	 * Computes the HMAC of the specified message range under the specified key, and writes it into the specified array. If the key is cached, this does not allocate any objects in the steady state.
+	 * @param key the secret key
+	 * @param msg the message to authenticate
+	 * @param off the offset into {@code msg}
+	 * @param len the length of the message
+	 * @param out the array to write the HMAC into
+	 * @param outOff the offset into {@code out}
+	 * @throws NullPointerException if any array is {@code null}
+	 * @throws IndexOutOfBoundsException if the message range lies outside of {@code msg}, or the HMAC does not fit into {@code out} at offset {@code outOff}
+	 * @see Hmac#mac(byte[], int, int, byte[], int)
+	 */
+	public void mac(byte[] key, byte[] msg, int off, int len, byte[] out, int outOff) {
+		get(key).mac(msg, off, len, out, outOff);
+	}
+	
+	
+	/**
+	 * Tests whether the specified tag is the HMAC of the specified message range under the specified key, in time independent of the tag's contents. If the key is cached, this does not allocate any objects in the steady state.
+	 * @param key the secret key
+	 * @param msg the message to authenticate
+	 * @param off the offset into {@code msg}
+	 * @param len the length of the message
+	 * @param tag the array containing the expected HMAC
+	 * @param tagOff the offset into {@code tag}
+	 * @return whether the tag matches the HMAC of the message
+	 * @throws NullPointerException if any array is {@code null}
+	 * @throws IndexOutOfBoundsException if the message range lies outside of {@code msg}, or the tag range lies outside of {@code tag}
+	 * @see Hmac#verify(byte[], int, int, byte[], int)
+	 */
+	public boolean verify(byte[] key, byte[] msg, int off, int len, byte[] tag, int tagOff) {
+		return get(key).verify(msg, off, len, tag, tagOff);
+	}
+	
+	
+	/**
+	 * Removes all keys from this cache, and clears the cached key bytes.
+	 */
+	public void clear() {
+		for (int set = 0; set <= setMask; set++) {
+			synchronized (locks[set & (locks.length - 1)]) {
+				for (int i = set * WAYS, end = i + WAYS; i < end; i++) {
+					if (keys[i] != null)
+						Arrays.fill(keys[i], (byte)0);
+					keys[i] = null;
+					keyHashes[i] = 0;
+					macs[i] = null;
+					lastUses[i] = 0;
+				}
+			}
+		}
+	}
+	
+	
+	
+	// Returns the cached instance for the key and marks it as used, or null if absent. The caller holds the set's lock.
+	private Hmac find(int set, long hash, byte[] key) {
+		for (int i = set * WAYS, end = i + WAYS; i < end; i++) {
+			if (macs[i] != null && keyHashes[i] == hash && keysEqual(keys[i], key)) {
+				lastUses[i] = ++setClocks[set];
+				return macs[i];
+			}
+		}
+		return null;
+	}
+	
+	
+	// Compares two secret keys in time that depends only on their lengths.
+	private static boolean keysEqual(byte[] a, byte[] b) {
+		if (a.length != b.length)
+			return false;
+		int diff = 0;
+		for (int i = 0; i < a.length; i++)
+			diff |= a[i] ^ b[i];
+		return diff == 0;
+	}
+	
+}
@@ -0,0 +1,184 @@
+package p79068.crypto.hash;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Supplier;
+import p79068.Assert;
+import p79068.backend.Backend;
+import p79068.backend.Backends;
+import p79068.crypto.Zeroizable;
+import p79068.hash.AbstractHasher;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+
+
+/**
+ * A hasher backed by a {@link MessageDigest} of the Java platform, which is the JDK backend of {@link Md} and {@link Sha}. The hash function's name must be a standard {@code MessageDigest} algorithm name.
+ * <p>Getting the hash value clones the digest and finishes the clone, so that this hasher's state is not altered.</p>
+ * @see Backends
+ */
+final class JdkDigestHasher extends AbstractHasher implements Zeroizable {
+	
+	/**
+	 * Returns the backend selected for the specified hash function.
+	 * @param hashFunc the hash function, whose name is a standard {@code MessageDigest} algorithm name
+	 * @param vmOption the HotSpot option that enables the intrinsics for {@code hashFunc}, or {@code null}
+	 * @param library creates hashers of the library's implementation of {@code hashFunc}
+	 * @return the backend selected for {@code hashFunc}
+	 */
+	static Backend selectBackend(BlockHashFunction hashFunc, String vmOption, Supplier<Hasher> library) {
+		String name = hashFunc.getName();
+		return Backends.select(name, vmOption,
+			data -> {
+				Hasher h = library.get();
+				h.update(data);
+				h.getHash();
+			},
+			data -> {
+				MessageDigest md = MessageDigest.getInstance(name);
+				md.update(data);
+				((MessageDigest)md.clone()).digest();  // Fails if the digest is not cloneable
+			});
+	}
+	
+	
+	/**
+	 * Returns a new JDK-backed hasher of the specified hash function, for which {@link #selectBackend(BlockHashFunction, String, Supplier)} has selected the JDK backend.
+	 * @param hashFunc the hash function
+	 * @return a new hasher of the hash function
+	 */
+	static JdkDigestHasher newInstance(BlockHashFunction hashFunc) {
+		try {
+			return new JdkDigestHasher(hashFunc, MessageDigest.getInstance(hashFunc.getName()));
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);  // The backend selection checked that the algorithm is available
+		}
+	}
+	
+	
+	
+	private MessageDigest digest;
+	
+	
+	
+	private JdkDigestHasher(BlockHashFunction hashFunc, MessageDigest digest) {
+		super(hashFunc);
+		this.digest = digest;
+	}
+	
+	
+	
+	/**
+	 * Updates the current hash with the specified byte.
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public void update(byte b) {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		digest.update(b);
+	}
+	
+	
+	/**
+	 * Updates the current hash with the specified byte array.
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify that indices out of array {@code b}'s range to be accessed
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public void update(byte[] b, int off, int len) {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		digest.update(b, off, len);
+	}
+	
+	
+	/**
+	 * Updates the current hash with the remaining bytes of the specified buffer, and advances the buffer's position to its limit.
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public void update(ByteBuffer b) {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertNotNull(b);
+		digest.update(b);
+	}
+	
+	
+	/**
+	 * Returns the hash value.
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public HashValue getHash() {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		return new HashValue(cloneDigest().digest());
+	}
+	
+	
+	/**
+	 * Writes the hash value into the specified array. This method does not alter this hasher's state.
+	 * @param b the array to write the hash value into
+	 * @param off the offset into {@code b}
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if the hash value does not fit into {@code b} at offset {@code off}
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public void getHash(byte[] b, int off) {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		int len = hashFunction.getHashLength();
+		Assert.assertRangeInBounds(b.length, off, len);
+		try {
+			cloneDigest().digest(b, off, len);
+		} catch (DigestException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	
+	/**
+	 * Returns a new hasher with the same internal state as this one's.
+	 * @return a clone of this object
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	@Override
+	public JdkDigestHasher clone() {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		JdkDigestHasher result = (JdkDigestHasher)super.clone();
+		result.digest = cloneDigest();
+		return result;
+	}
+	
+	
+	/**
+	 * Resets the digest and drops the reference to it. The JDK gives no way to clear its internal buffer.
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	public void zeroize() {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		digest.reset();
+		digest = null;
+		hashFunction = null;
+	}
+	
+	
+	private MessageDigest cloneDigest() {
+		try {
+			return (MessageDigest)digest.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);  // The backend selection checked that the digest is cloneable
+		}
+	}
+	
+}
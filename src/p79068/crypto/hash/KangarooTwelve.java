@@ -0,0 +1,94 @@
+package p79068.crypto.hash;
+
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+import p79068.hash.AbstractHashFunction;
+import p79068.hash.HashValue;
+
+
+/**
+ * The KangarooTwelve extendable-output function (RFC 9861), a tree hash mode over the Keccak permutation reduced to 12 rounds.
+ * <p>The message and the customization string are split into chunks of 8192 bytes. A message of at most one chunk is hashed directly. Otherwise the chunks after the first are hashed independently, and their 32-byte chaining values are absorbed after the first chunk by the final node. The chunks are hashed several at a time (see {@link KeccakLeafHasher}), and the {@code getHash(..., ForkJoinPool)} method hashes them concurrently, so only the final node is sequential.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class KangarooTwelve extends AbstractHashFunction {
+	
+	/**
+	 * The KangarooTwelve function with an empty customization string. {@code name = "KangarooTwelve"}, {@code hashLength = 32}.
+	 */
+	public final static KangarooTwelve FUNCTION = new KangarooTwelve(32, new byte[0]);
+	
+	
+	static final int CHUNK_LENGTH = 8192;
+	
+	static final int RATE = 168;
+	
+	static final int ROUNDS = 12;
+	
+	
+	
+	// The customization string followed by its length_encode()
+	private final byte[] suffix;
+	
+	
+	
+	/**
+	 * Constructs a KangarooTwelve function with the specified output length and customization string.
+	 * @param hashLen the length of the hash value in bytes
+	 * @param customization the customization string, which is copied
+	 * @throws NullPointerException if {@code customization} is {@code null}
+	 * @throws IllegalArgumentException if {@code hashLen} is not positive
+	 */
+	public KangarooTwelve(int hashLen, byte[] customization) {
+		super("KangarooTwelve", hashLen);
+		if (hashLen == 0)
+			throw new IllegalArgumentException("Hash length must be positive");
+		Assert.assertNotNull(customization);
+		byte[] len = lengthEncode(customization.length);
+		suffix = new byte[customization.length + len.length];
+		System.arraycopy(customization, 0, suffix, 0, customization.length);
+		System.arraycopy(len, 0, suffix, customization.length, len.length);
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this function, whose output can be squeezed to any length.
+	 * @return a new hasher of this function
+	 */
+	@Override
+	public XofHasher newHasher() {
+		return new KangarooTwelveHasher(this, suffix);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, hashing the chunks concurrently on the specified pool. The result equals {@code getHash(b, off, len)}.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the chunks on
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public HashValue getHash(byte[] b, int off, int len, ForkJoinPool pool) {
+		Assert.assertNotNull(b, pool);
+		KangarooTwelveHasher hasher = new KangarooTwelveHasher(this, suffix);
+		hasher.update(b, off, len, pool);
+		return hasher.getHash();
+	}
+	
+	
+	
+	// Returns the bytes of x in big endian without leading zeros, followed by their number.
+	static byte[] lengthEncode(long x) {
+		int n = (64 - Long.numberOfLeadingZeros(x) + 7) / 8;
+		byte[] result = new byte[n + 1];
+		for (int i = 0; i < n; i++)
+			result[i] = (byte)(x >>> ((n - 1 - i) * 8));
+		result[n] = (byte)n;
+		return result;
+	}
+	
+}
@@ -0,0 +1,82 @@
+package p79068.crypto.hash;
+
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+
+
+final class KangarooTwelveHasher extends KeccakTreeHasher implements XofHasher {
+	
+	// The domain separation bytes of the single node, the leaves and the final node
+	private static final byte SINGLE_PADDING = 0x07;
+	private static final byte LEAF_PADDING = 0x0B;
+	private static final byte FINAL_PADDING = 0x06;
+	
+	// Appended to the first chunk in the final node when there are more chunks
+	private static final byte[] FIRST_CHUNK_SUFFIX = {0x03, 0, 0, 0, 0, 0, 0, 0};
+	
+	private static final byte[] FINAL_NODE_SUFFIX = {(byte)0xFF, (byte)0xFF};
+	
+	
+	
+	private final byte[] suffix;
+	
+	// The number of bytes of the first chunk absorbed by the final node
+	private int firstChunkFilled;
+	
+	private boolean treeMode;
+	
+	
+	
+	public KangarooTwelveHasher(KangarooTwelve hashFunc, byte[] suffix) {
+		super(hashFunc, new KeccakHasher(hashFunc, KangarooTwelve.RATE, SINGLE_PADDING, KangarooTwelve.ROUNDS),
+			KangarooTwelve.RATE, LEAF_PADDING, KangarooTwelve.ROUNDS, KangarooTwelve.CHUNK_LENGTH, 32);
+		this.suffix = suffix;
+		firstChunkFilled = 0;
+		treeMode = false;
+	}
+	
+	
+	
+	@Override
+	void update(byte[] b, int off, int len, ForkJoinPool pool) {
+		if (!treeMode) {
+			checkAbsorbing();
+			Assert.assertRangeInBounds(b.length, off, len);
+			int n = Math.min(KangarooTwelve.CHUNK_LENGTH - firstChunkFilled, len);
+			node.update(b, off, n);
+			firstChunkFilled += n;
+			off += n;
+			len -= n;
+			if (len == 0)
+				return;
+			node.update(FIRST_CHUNK_SUFFIX);
+			treeMode = true;
+		}
+		super.update(b, off, len, pool);
+	}
+	
+	
+	public void squeeze(byte[] b, int off, int len) {
+		output(b, off, len);
+	}
+	
+	
+	@Override
+	public KangarooTwelveHasher clone() {
+		return (KangarooTwelveHasher)super.clone();
+	}
+	
+	
+	@Override
+	protected void finish() {
+		update(suffix);
+		if (treeMode) {
+			endPartialLeaf();
+			node.update(KangarooTwelve.lengthEncode(numLeaves));
+			node.update(FINAL_NODE_SUFFIX);
+			node.finish(FINAL_PADDING);
+		} else
+			node.finish(SINGLE_PADDING);
+	}
+	
+}
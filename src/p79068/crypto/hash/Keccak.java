@@ -5,34 +5,66 @@ import p79068.hash.Hasher;
 
 
 /**
- * The Keccak hash function, soon to be standardized by NIST as SHA-3.
+ * The Keccak hash function family, including the SHA-3 hash functions of FIPS Publication 202.
+ * <p>The original Keccak submission and SHA-3 use the same permutation and rates, and differ only in the padding: SHA-3 appends the domain separation bits 01 to the message. For the extendable-output functions SHAKE128 and SHAKE256, see {@link Shake}.</p>
  */
 public final class Keccak extends AbstractHashFunction {
 	
+	// The first byte of padding, in the little-endian bit order of Keccak: the pad10*1 rule alone, or preceded by the domain separation bits 01
+	private static final byte KECCAK_PADDING = 0x01;
+	private static final byte SHA3_PADDING = 0x06;
+	
+	
 	/**
 	 * The Keccak-224 hash function. {@code name = "Keccak-224"}, {@code hashLength = 28}.
 	 */
-	public final static Keccak KECCAK_224_FUNCTION = new Keccak("Keccak-224", 28);
+	public final static Keccak KECCAK_224_FUNCTION = new Keccak("Keccak-224", 28, KECCAK_PADDING);
 	
 	/**
 	 * The Keccak-256 hash function. {@code name = "Keccak-256"}, {@code hashLength = 32}.
 	 */
-	public final static Keccak KECCAK_256_FUNCTION = new Keccak("Keccak-256", 32);
+	public final static Keccak KECCAK_256_FUNCTION = new Keccak("Keccak-256", 32, KECCAK_PADDING);
 	
 	/**
 	 * The Keccak-384 hash function. {@code name = "Keccak-384"}, {@code hashLength = 48}.
 	 */
-	public final static Keccak KECCAK_384_FUNCTION = new Keccak("Keccak-384", 48);
+	public final static Keccak KECCAK_384_FUNCTION = new Keccak("Keccak-384", 48, KECCAK_PADDING);
 	
 	/**
 	 * The Keccak-512 hash function. {@code name = "Keccak-512"}, {@code hashLength = 64}.
 	 */
-	public final static Keccak KECCAK_512_FUNCTION = new Keccak("Keccak-512", 64);
+	public final static Keccak KECCAK_512_FUNCTION = new Keccak("Keccak-512", 64, KECCAK_PADDING);
+	
+	
+	/**
+	 * The SHA3-224 hash function. {@code name = "SHA3-224"}, {@code hashLength = 28}.
+	 */
+	public final static Keccak SHA3_224_FUNCTION = new Keccak("SHA3-224", 28, SHA3_PADDING);
+	
+	/**
+	 * The SHA3-256 hash function. {@code name = "SHA3-256"}, {@code hashLength = 32}.
+	 */
+	public final static Keccak SHA3_256_FUNCTION = new Keccak("SHA3-256", 32, SHA3_PADDING);
+	
+	/**
+	 * The SHA3-384 hash function. {@code name = "SHA3-384"}, {@code hashLength = 48}.
+	 */
+	public final static Keccak SHA3_384_FUNCTION = new Keccak("SHA3-384", 48, SHA3_PADDING);
+	
+	/**
+	 * The SHA3-512 hash function. {@code name = "SHA3-512"}, {@code hashLength = 64}.
+	 */
+	public final static Keccak SHA3_512_FUNCTION = new Keccak("SHA3-512", 64, SHA3_PADDING);
+	
+	
+	
+	private final byte padding;
 	
 	
 	
-	private Keccak(String name, int hashLen) {
+	private Keccak(String name, int hashLen, byte padding) {
 		super(name, hashLen);
+		this.padding = padding;
 	}
 	
 	
@@ -43,7 +75,7 @@ public final class Keccak extends AbstractHashFunction {
 	 */
 	@Override
 	public Hasher newHasher() {
-		return new KeccakHasher(this);
+		return new KeccakHasher(this, 200 - getHashLength() * 2, padding);
 	}
 	
 }
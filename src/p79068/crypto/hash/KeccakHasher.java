@@ -1,80 +1,145 @@
 package p79068.crypto.hash;
 
 import static java.lang.Long.rotateLeft;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizable;
 import p79068.crypto.Zeroizer;
 import p79068.hash.AbstractHasher;
+import p79068.hash.HashFunction;
 import p79068.hash.HashValue;
 
 
-final class KeccakHasher extends AbstractHasher implements Zeroizable {
+/**
+ * A sponge over the Keccak-p[1600] permutation, which is the hasher of {@link Keccak} (including SHA-3) and {@link Shake}, and the node hasher of {@link KangarooTwelve} and {@link ParallelHash}.
+ * <p>The functions differ only in the rate, the first padding byte, which carries the domain separation bits, and the number of rounds (24 except for KangarooTwelve). The sponge absorbs the message until the first call to {@link #squeeze(byte[], int, int)}, and then squeezes the output stream. {@link #getHash()} pads and permutes a scratch copy of the state, so it can be called at any time while absorbing.</p>
+ */
+final class KeccakHasher extends AbstractHasher implements XofHasher, Zeroizable {
 	
 	private long[] state;
 	
+	// The state of getHash(), kept to avoid allocating it on each call
+	private long[] finalState;
+	
 	private final int blockSize;
 	
+	private final byte padding;
+	
+	private final int rounds;
+	
+	// While absorbing, the number of message bytes in the current block. While squeezing, the number of output bytes already taken from the current block.
 	private int blockFilled;
 	
+	private boolean squeezing;
+	
+	
+	
+	/**
+	 * Constructs a hasher of the specified function with the specified rate and first padding byte, using the full 24-round permutation.
+	 * @param hashFunc the hash function
+	 * @param rate the number of bytes absorbed or squeezed per permutation, a multiple of 8 from 8 to 192
+	 * @param padding the domain separation bits followed by the first bit of the pad10*1 rule, in the little-endian bit order of Keccak
+	 */
+	KeccakHasher(HashFunction hashFunc, int rate, byte padding) {
+		this(hashFunc, rate, padding, 24);
+	}
 	
 	
-	public KeccakHasher(Keccak hashFunc) {
+	/**
+	 * Constructs a hasher of the specified function with the specified rate, first padding byte and number of rounds.
+	 * @param hashFunc the hash function
+	 * @param rate the number of bytes absorbed or squeezed per permutation, a multiple of 8 from 8 to 192
+	 * @param padding the domain separation bits followed by the first bit of the pad10*1 rule, in the little-endian bit order of Keccak
+	 * @param rounds the number of rounds of the permutation, which are the last rounds of Keccak-f[1600]
+	 */
+	KeccakHasher(HashFunction hashFunc, int rate, byte padding, int rounds) {
 		super(hashFunc);
-		state = new long[25];
-		blockSize = 200 - hashFunc.getHashLength() * 2;
-		if (blockSize <= 0)
+		if (rate <= 0 || rate >= 200 || rate % 8 != 0 || rounds < 1 || rounds > RC.length)
 			throw new IllegalArgumentException();
+		state = new long[25];
+		finalState = new long[25];
+		blockSize = rate;
+		this.padding = padding;
+		this.rounds = rounds;
 		blockFilled = 0;
+		squeezing = false;
 	}
 	
 	
 	
 	@Override
 	public void update(byte[] b, int off, int len) {
+		checkAbsorbing();
 		Assert.assertRangeInBounds(b.length, off, len);
 		int j = blockFilled;
 		if (j < 0 || j >= blockSize)
 			throw new AssertionError();
 		
-		if ((blockSize & 7) != 0) {
-			// Slow generic code
-			for (int i = off, end = off + len; i < end; i++) {
-				state[j >>> 3] ^= (b[i] & 0xFFL) << ((j & 7) << 3);
-				j++;
-				if (j == blockSize) {
-					absorb();
-					j = 0;
-				}
-			}
+		int i = off;
+		int end = off + len;
+		
+		// Absorb up to 7 input bytes until we align to the next int64 element of state
+		for (; (j & 7) != 0 && i < end; i++, j++)
+			state[j >>> 3] ^= (b[i] & 0xFFL) << ((j & 7) << 3);
+		if (j == blockSize) {
+			permute(state, rounds);
+			j = 0;
 		}
-		else {
-			int i = off;
-			int end = off + len;
-			
-			// Absorb up to 7 input bytes until we align to the next int64 element of state
-			for (; (j & 7) != 0 && i < end; i++, j++)
-				state[j >>> 3] ^= (b[i] & 0xFFL) << ((j & 7) << 3);
+		
+		// Absorb 8 bytes at a time
+		for (; i + 8 <= end; i += 8) {
+			state[j >>> 3] ^= (long)INT64_ARRAY.get(b, i);
+			j += 8;
 			if (j == blockSize) {
-				absorb();
+				permute(state, rounds);
 				j = 0;
 			}
-			
-			// Absorb 8 bytes at a time
-			for (; i + 8 <= end; i += 8) {
-				state[j >>> 3] ^=
-					     (((b[i    ] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | b[i + 3] << 24) & 0xFFFFFFFFL) |
-					(long)((b[i + 4] & 0xFF) | (b[i + 5] & 0xFF) << 8 | (b[i + 6] & 0xFF) << 16 | b[i + 7] << 24) << 32;
-				j += 8;
-				if (j == blockSize) {
-					absorb();
-					j = 0;
-				}
+		}
+		
+		// Absorb the remaining bytes, at most 7
+		for (; i < end; i++, j++)
+			state[j >>> 3] ^= (b[i] & 0xFFL) << ((j & 7) << 3);
+		
+		blockFilled = j;
+	}
+	
+	
+	@Override
+	public void update(ByteBuffer b) {
+		if (b.hasArray()) {
+			super.update(b);
+			return;
+		}
+		checkAbsorbing();
+		int j = blockFilled;
+		if (j < 0 || j >= blockSize)
+			throw new AssertionError();
+		
+		int i = b.position();
+		int end = b.limit();
+		b.position(end);
+		
+		// Same as update(byte[], int, int), but reading directly from the buffer
+		for (; (j & 7) != 0 && i < end; i++, j++)
+			state[j >>> 3] ^= (b.get(i) & 0xFFL) << ((j & 7) << 3);
+		if (j == blockSize) {
+			permute(state, rounds);
+			j = 0;
+		}
+		for (; i + 8 <= end; i += 8) {
+			state[j >>> 3] ^= (long)INT64_BUFFER.get(b, i);
+			j += 8;
+			if (j == blockSize) {
+				permute(state, rounds);
+				j = 0;
 			}
-			
-			// Absorb the remaining bytes, at most 7
-			for (; i < end; i++, j++)
-				state[j >>> 3] ^= (b[i] & 0xFFL) << ((j & 7) << 3);
 		}
+		for (; i < end; i++, j++)
+			state[j >>> 3] ^= (b.get(i) & 0xFFL) << ((j & 7) << 3);
 		
 		blockFilled = j;
 	}
@@ -82,19 +147,52 @@ final class KeccakHasher extends AbstractHasher implements Zeroizable {
 	
 	@Override
 	public HashValue getHash() {
-		KeccakHasher hasher = clone();
-		byte[] temp = new byte[hasher.blockSize - hasher.blockFilled];
-		temp[0] = 0x01;
-		temp[temp.length - 1] ^= 0x80;
-		hasher.update(temp);
-		
-		byte[] result = new byte[hasher.hashFunction.getHashLength()];
-		for (int i = 0; i < result.length; i++)
-			result[i] = (byte)(hasher.state[i / 8] >>> (i % 8 * 8));
+		byte[] result = new byte[hashFunction.getHashLength()];
+		getHash(result, 0);
 		return new HashValue(result);
 	}
 	
 	
+	@Override
+	public void getHash(byte[] b, int off) {
+		checkAbsorbing();
+		int hashLen = hashFunction.getHashLength();
+		Assert.assertRangeInBounds(b.length, off, hashLen);
+		if (hashLen > blockSize) {  // Needs more than one block of output
+			clone().squeeze(b, off, hashLen);
+			return;
+		}
+		System.arraycopy(state, 0, finalState, 0, state.length);
+		pad(finalState, blockFilled, padding);
+		permute(finalState, rounds);
+		extract(finalState, 0, b, off, hashLen);
+	}
+	
+	
+	@Override
+	public void squeeze(byte[] b, int off, int len) {
+		if (state == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		if (!squeezing)
+			finish(padding);
+		
+		// The state is only permuted when more output is needed, so that squeezing in pieces gives the same stream as squeezing at once
+		int j = blockFilled;
+		while (len > 0) {
+			if (j == blockSize) {
+				permute(state, rounds);
+				j = 0;
+			}
+			int n = Math.min(blockSize - j, len);
+			extract(state, j, b, off, n);
+			j += n;
+			off += n;
+			len -= n;
+		}
+		blockFilled = j;
+	}
+	
 	
 	@Override
 	public KeccakHasher clone() {
@@ -102,6 +200,7 @@ final class KeccakHasher extends AbstractHasher implements Zeroizable {
 			throw new IllegalStateException("Already zeroized");
 		KeccakHasher result = (KeccakHasher)super.clone();
 		result.state = result.state.clone();
+		result.finalState = new long[finalState.length];
 		return result;
 	}
 	
@@ -110,11 +209,72 @@ final class KeccakHasher extends AbstractHasher implements Zeroizable {
 		if (state == null)
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
+		finalState = Zeroizer.clear(finalState);
+	}
+	
+	
+	/**
+	 * Ends the input with the specified padding byte instead of this hasher's own, so that {@link #squeeze(byte[], int, int)} continues with the output. Used by tree hash modes whose final node's padding depends on the message length.
+	 * @param padding the domain separation bits followed by the first bit of the pad10*1 rule
+	 * @throws IllegalStateException if this object has been zeroized or is already squeezing
+	 */
+	void finish(byte padding) {
+		checkAbsorbing();
+		pad(state, blockFilled, padding);
+		permute(state, rounds);
+		blockFilled = 0;
+		squeezing = true;
+	}
+	
+	
+	/**
+	 * Returns this hasher to the initial state, so that it can hash another message without allocating. Used by the tree hash modes for their leaves.
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	void reset() {
+		if (state == null)
+			throw new IllegalStateException("Already zeroized");
+		Arrays.fill(state, 0);
+		blockFilled = 0;
+		squeezing = false;
+	}
+	
+	
+	private void checkAbsorbing() {
+		if (state == null)
+			throw new IllegalStateException("Already zeroized");
+		if (squeezing)
+			throw new IllegalStateException("Already squeezing");
 	}
 	
 	
+	// Appends the padding to a message that fills 'filled' bytes of the current block.
+	private void pad(long[] st, int filled, byte padding) {
+		st[filled >>> 3] ^= (padding & 0xFFL) << ((filled & 7) << 3);
+		st[(blockSize - 1) >>> 3] ^= 0x80L << 56;
+	}
 	
-	private static final long[] RC = {
+	
+	// Copies 'len' bytes of the state starting at byte 'pos' into the array, 8 bytes at a time where aligned.
+	private static void extract(long[] st, int pos, byte[] b, int off, int len) {
+		int end = pos + len;
+		for (; (pos & 7) != 0 && pos < end; pos++, off++)
+			b[off] = (byte)(st[pos >>> 3] >>> ((pos & 7) << 3));
+		for (; pos + 8 <= end; pos += 8, off += 8)
+			INT64_ARRAY.set(b, off, st[pos >>> 3]);
+		for (; pos < end; pos++, off++)
+			b[off] = (byte)(st[pos >>> 3] >>> ((pos & 7) << 3));
+	}
+	
+	
+	
+	private static final VarHandle INT64_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	private static final VarHandle INT64_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	// The round constants of Keccak-f[1600]. Also used by VectorKeccakLeafHasher.
+	static final long[] RC = {
 		0x0000000000000001L, 0x0000000000008082L, 0x800000000000808AL, 0x8000000080008000L,
 		0x000000000000808BL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
 		0x000000000000008AL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000AL,
@@ -124,14 +284,18 @@ final class KeccakHasher extends AbstractHasher implements Zeroizable {
 	};
 	
 	
-	private void absorb() {
+	// Applies the last 'rounds' rounds of Keccak-f[1600] to the specified state. Also used by other functions based on the Keccak permutation.
+	static void permute(long[] state, int rounds) {
+		if (rounds < 0 || rounds > RC.length)
+			throw new IllegalArgumentException();
 		long a00 = state[ 0], a01 = state[ 1], a02 = state[ 2], a03 = state[ 3], a04 = state[ 4];
 		long a05 = state[ 5], a06 = state[ 6], a07 = state[ 7], a08 = state[ 8], a09 = state[ 9];
 		long a10 = state[10], a11 = state[11], a12 = state[12], a13 = state[13], a14 = state[14];
 		long a15 = state[15], a16 = state[16], a17 = state[17], a18 = state[18], a19 = state[19];
 		long a20 = state[20], a21 = state[21], a22 = state[22], a23 = state[23], a24 = state[24];
 		
-		for (long rc : RC) {
+		for (int r = RC.length - rounds; r < RC.length; r++) {
+			long rc = RC[r];
 			// Theta step
 			long c0 = a00 ^ a05 ^ a10 ^ a15 ^ a20;
 			long c1 = a01 ^ a06 ^ a11 ^ a16 ^ a21;
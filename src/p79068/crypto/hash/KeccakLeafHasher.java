@@ -0,0 +1,247 @@
+package p79068.crypto.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Constructor;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Hashes the equal-length leaves of a Keccak tree hash mode ({@link KangarooTwelve}, {@link ParallelHash}), where each leaf is a separate sponge whose output (chaining value) is absorbed by the final node.
+ * <p>The leaves are hashed in groups of {@link #lanes} sponges that run in lock step, with their states stored word-major. This class hashes one leaf at a time with the scalar permutation. {@code VectorKeccakLeafHasher} interleaves the permutations of several leaves with the incubating Vector API, one leaf per 64-bit element of the preferred vector species, and is selected by {@link #newInstance} when it is available. Instances are not thread-safe; the parallel method gives each task its own instance.</p>
+ */
+class KeccakLeafHasher {
+	
+	/**
+	 * The number of leaves hashed in lock step.
+	 */
+	protected final int lanes;
+	
+	/**
+	 * The number of rounds of the permutation.
+	 */
+	protected final int rounds;
+	
+	/**
+	 * The states of all lanes, word-major: word {@code j} of lane {@code i} is at index {@code j * lanes + i}. Permuted by {@link #permuteLanes()}.
+	 */
+	protected final long[] states;
+	
+	private final int rate;
+	
+	private final byte padding;
+	
+	private final int leafLength;
+	
+	private final int outputLength;
+	
+	private final int[] laneOffsets;
+	
+	
+	
+	/**
+	 * Constructs a scalar leaf hasher with the specified parameters.
+	 * @param rate the rate of the sponge in bytes, a multiple of 8
+	 * @param padding the first padding byte of each leaf
+	 * @param rounds the number of rounds of the permutation
+	 * @param leafLength the length of each leaf in bytes
+	 * @param outputLength the length of each leaf's output in bytes, at most {@code rate}
+	 */
+	KeccakLeafHasher(int rate, byte padding, int rounds, int leafLength, int outputLength) {
+		this(1, rate, padding, rounds, leafLength, outputLength);
+	}
+	
+	
+	protected KeccakLeafHasher(int lanes, int rate, byte padding, int rounds, int leafLength, int outputLength) {
+		if (rate <= 0 || rate >= 200 || rate % 8 != 0 || leafLength <= 0 || outputLength <= 0 || outputLength > rate)
+			throw new IllegalArgumentException();
+		this.lanes = lanes;
+		this.rounds = rounds;
+		this.rate = rate;
+		this.padding = padding;
+		this.leafLength = leafLength;
+		this.outputLength = outputLength;
+		states = new long[25 * lanes];
+		laneOffsets = new int[lanes];
+	}
+	
+	
+	
+	/**
+	 * Returns a new leaf hasher with the specified parameters, using the Vector API if available.
+	 * @param rate the rate of the sponge in bytes, a multiple of 8
+	 * @param padding the first padding byte of each leaf
+	 * @param rounds the number of rounds of the permutation
+	 * @param leafLength the length of each leaf in bytes
+	 * @param outputLength the length of each leaf's output in bytes, at most {@code rate}
+	 * @return a new leaf hasher
+	 */
+	static KeccakLeafHasher newInstance(int rate, byte padding, int rounds, int leafLength, int outputLength) {
+		if (VECTOR_CONSTRUCTOR != null) {
+			try {
+				return VECTOR_CONSTRUCTOR.newInstance(rate, padding, rounds, leafLength, outputLength);
+			} catch (ReflectiveOperationException e) {
+				throw new AssertionError(e);
+			}
+		}
+		return new KeccakLeafHasher(rate, padding, rounds, leafLength, outputLength);
+	}
+	
+	
+	/**
+	 * Tests whether the Vector API implementation is used by {@link #newInstance}.
+	 * @return whether the Vector API implementation is available
+	 */
+	static boolean isVectorAvailable() {
+		return VECTOR_CONSTRUCTOR != null;
+	}
+	
+	
+	// The constructor of VectorKeccakLeafHasher, or null if the jdk.incubator.vector module is absent, the preferred species has fewer than 4 lanes of 64 bits, or the system property p79068.crypto.hash.vector is "false".
+	// The class is only reached reflectively, so that this class still links when the module is absent.
+	private static final Constructor<? extends KeccakLeafHasher> VECTOR_CONSTRUCTOR;
+	
+	static {
+		Constructor<? extends KeccakLeafHasher> con = null;
+		if (!"false".equals(System.getProperty("p79068.crypto.hash.vector"))) {
+			try {
+				Class<? extends KeccakLeafHasher> cls = Class.forName("p79068.crypto.hash.VectorKeccakLeafHasher").asSubclass(KeccakLeafHasher.class);
+				if ((Integer)cls.getDeclaredMethod("preferredLanes").invoke(null) >= 4)
+					con = cls.getDeclaredConstructor(int.class, byte.class, int.class, int.class, int.class);
+			} catch (ReflectiveOperationException | LinkageError e) {}  // Fall back to the scalar implementation
+		}
+		VECTOR_CONSTRUCTOR = con;
+	}
+	
+	
+	
+	/**
+	 * Hashes the specified number of consecutive leaves, where leaf {@code i} starts at {@code b[off + i * leafLength]}, and writes the output of leaf {@code i} at {@code out[outOff + i * outputLength]}.
+	 * @param b the array containing the leaves
+	 * @param off the offset of the first leaf in {@code b}
+	 * @param count the number of leaves
+	 * @param out the array to write the outputs into
+	 * @param outOff the offset of the first output in {@code out}
+	 */
+	void hashLeaves(byte[] b, int off, int count, byte[] out, int outOff) {
+		int rateWords = rate / 8;
+		int tail = leafLength % rate;
+		for (int first = 0; first < count; first += lanes) {
+			// Idle lanes hash the group's last leaf again, and their output is discarded
+			int n = Math.min(count - first, lanes);
+			for (int i = 0; i < lanes; i++)
+				laneOffsets[i] = off + (first + Math.min(i, n - 1)) * leafLength;
+			Arrays.fill(states, 0);
+			
+			// Absorb the whole blocks
+			for (int pos = 0; pos + rate <= leafLength; pos += rate) {
+				for (int j = 0; j < rateWords; j++) {
+					for (int i = 0; i < lanes; i++)
+						states[j * lanes + i] ^= (long)INT64_ARRAY.get(b, laneOffsets[i] + pos + j * 8);
+				}
+				permuteLanes();
+			}
+			
+			// Absorb the final partial block and the padding
+			int pos = leafLength - tail;
+			for (int i = 0; i < lanes; i++) {
+				int o = laneOffsets[i] + pos;
+				int j = 0;
+				for (; j + 8 <= tail; j += 8)
+					states[(j >>> 3) * lanes + i] ^= (long)INT64_ARRAY.get(b, o + j);
+				for (; j < tail; j++)
+					states[(j >>> 3) * lanes + i] ^= (b[o + j] & 0xFFL) << ((j & 7) << 3);
+				states[(tail >>> 3) * lanes + i] ^= (padding & 0xFFL) << ((tail & 7) << 3);
+				states[(rateWords - 1) * lanes + i] ^= 0x80L << 56;
+			}
+			permuteLanes();
+			
+			for (int i = 0; i < n; i++) {
+				int o = outOff + (first + i) * outputLength;
+				int j = 0;
+				for (; j + 8 <= outputLength; j += 8)
+					INT64_ARRAY.set(out, o + j, states[(j >>> 3) * lanes + i]);
+				for (; j < outputLength; j++)
+					out[o + j] = (byte)(states[(j >>> 3) * lanes + i] >>> ((j & 7) << 3));
+			}
+		}
+	}
+	
+	
+	/**
+	 * Hashes leaves like {@link #hashLeaves(byte[], int, int, byte[], int)}, but concurrently on the specified pool. Each task uses a new instance with the same parameters, so this instance's state is not used.
+	 * @param b the array containing the leaves
+	 * @param off the offset of the first leaf in {@code b}
+	 * @param count the number of leaves
+	 * @param out the array to write the outputs into
+	 * @param outOff the offset of the first output in {@code out}
+	 * @param pool the pool to hash the leaves on
+	 */
+	void hashLeaves(byte[] b, int off, int count, byte[] out, int outOff, ForkJoinPool pool) {
+		// Each task hashes at least TASK_LENGTH bytes, in whole groups of lanes
+		int grain = Math.max((TASK_LENGTH / leafLength + lanes - 1) / lanes, 1) * lanes;
+		pool.invoke(new LeafTask(b, off, count, out, outOff, grain));
+	}
+	
+	
+	/**
+	 * Applies the permutation to the states of all lanes. The scalar implementation has exactly one lane.
+	 */
+	protected void permuteLanes() {
+		KeccakHasher.permute(states, rounds);
+	}
+	
+	
+	
+	private static final int TASK_LENGTH = 256 << 10;
+	
+	private static final VarHandle INT64_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	
+	// Hashes a range of leaves, by splitting it in half (at a multiple of the lane count) until at most 'grain' leaves remain.
+	@SuppressWarnings("serial")
+	private final class LeafTask extends RecursiveAction {
+		
+		private final byte[] data;
+		
+		private final int offset;
+		
+		private final int count;
+		
+		private final byte[] output;
+		
+		private final int outputOffset;
+		
+		private final int grain;
+		
+		
+		
+		public LeafTask(byte[] data, int offset, int count, byte[] output, int outputOffset, int grain) {
+			this.data = data;
+			this.offset = offset;
+			this.count = count;
+			this.output = output;
+			this.outputOffset = outputOffset;
+			this.grain = grain;
+		}
+		
+		
+		
+		@Override
+		protected void compute() {
+			if (count > grain) {
+				int half = (count / 2 + lanes - 1) / lanes * lanes;
+				invokeAll(
+					new LeafTask(data, offset, half, output, outputOffset, grain),
+					new LeafTask(data, offset + half * leafLength, count - half, output, outputOffset + half * outputLength, grain));
+			} else
+				newInstance(rate, padding, rounds, leafLength, outputLength).hashLeaves(data, offset, count, output, outputOffset);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,246 @@
+package p79068.crypto.hash;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+import p79068.crypto.Zeroizable;
+import p79068.crypto.Zeroizer;
+import p79068.hash.AbstractHasher;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+
+
+/**
+ * The common part of the hashers of the Keccak tree hash modes ({@link KangarooTwelve}, {@link ParallelHash}): the message is split into leaves of a fixed length, each leaf is hashed by a separate sponge, and the final node absorbs the leaves' chaining values.
+ * <p>A leaf that arrives in pieces is absorbed by a single streaming sponge. Whole leaves that lie within one {@code update()} call are hashed directly from the caller's array by a {@link KeccakLeafHasher}, several at a time, or concurrently on a pool with {@link #update(byte[], int, int, ForkJoinPool)}. Subclasses handle the message prefix, the final node's encoding and its padding.</p>
+ */
+abstract class KeccakTreeHasher extends AbstractHasher implements Zeroizable {
+	
+	// The number of leaves whose chaining values are buffered by sequential bulk hashing
+	private static final int BULK_LEAVES = 64;
+	
+	
+	/**
+	 * The sponge of the final node. Subclasses absorb their prefix and suffix into it.
+	 */
+	protected KeccakHasher node;
+	
+	/**
+	 * The number of leaves whose chaining values have been absorbed by the final node.
+	 */
+	protected long numLeaves;
+	
+	// The sponge of the current leaf
+	private KeccakHasher leaf;
+	
+	// The number of message bytes in the current leaf, less than leafLength
+	private int leafFilled;
+	
+	// The parameters of the leaves
+	private final int leafRate;
+	private final byte leafPadding;
+	private final int leafRounds;
+	private final int leafLength;
+	private final int cvLength;
+	
+	// Created on the first bulk update, because short messages never need them
+	private KeccakLeafHasher leaves;
+	private byte[] cvBuffer;
+	
+	private byte[] cv;
+	
+	private boolean finished;
+	
+	
+	
+	/**
+	 * Constructs a tree hasher with the specified final node and leaf parameters.
+	 * @param hashFunc the hash function
+	 * @param node the sponge of the final node, which may have absorbed a prefix already
+	 * @param leafRate the rate of the leaf sponges in bytes
+	 * @param leafPadding the first padding byte of each leaf
+	 * @param leafRounds the number of rounds of the leaf sponges
+	 * @param leafLength the length of each leaf in bytes
+	 * @param cvLength the length of each leaf's chaining value in bytes
+	 */
+	protected KeccakTreeHasher(HashFunction hashFunc, KeccakHasher node, int leafRate, byte leafPadding, int leafRounds, int leafLength, int cvLength) {
+		super(hashFunc);
+		this.node = node;
+		numLeaves = 0;
+		leaf = new KeccakHasher(hashFunc, leafRate, leafPadding, leafRounds);
+		leafFilled = 0;
+		this.leafRate = leafRate;
+		this.leafPadding = leafPadding;
+		this.leafRounds = leafRounds;
+		this.leafLength = leafLength;
+		this.cvLength = cvLength;
+		cv = new byte[cvLength];
+		finished = false;
+	}
+	
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		update(b, off, len, null);
+	}
+	
+	
+	/**
+	 * Updates the current state with the specified byte array range, hashing the whole leaves in it concurrently on the specified pool, or sequentially if the pool is {@code null}.
+	 * @param b the byte array to update the state with
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the leaves on, or {@code null}
+	 */
+	void update(byte[] b, int off, int len, ForkJoinPool pool) {
+		checkAbsorbing();
+		Assert.assertRangeInBounds(b.length, off, len);
+		
+		// Complete the current leaf
+		if (leafFilled > 0) {
+			int n = Math.min(leafLength - leafFilled, len);
+			leaf.update(b, off, n);
+			leafFilled += n;
+			off += n;
+			len -= n;
+			if (leafFilled == leafLength)
+				endLeaf();
+		}
+		
+		// Hash whole leaves directly from the array
+		int count = len / leafLength;
+		if (count > 0 && pool != null) {
+			if ((long)count * cvLength > Integer.MAX_VALUE)
+				throw new AssertionError();
+			byte[] cvs = new byte[count * cvLength];
+			KeccakLeafHasher.newInstance(leafRate, leafPadding, leafRounds, leafLength, cvLength).hashLeaves(b, off, count, cvs, 0, pool);
+			node.update(cvs);
+			numLeaves += count;
+			off += count * leafLength;
+			len -= count * leafLength;
+		} else if (count > 0) {
+			if (leaves == null) {
+				leaves = KeccakLeafHasher.newInstance(leafRate, leafPadding, leafRounds, leafLength, cvLength);
+				cvBuffer = new byte[BULK_LEAVES * cvLength];
+			}
+			if (count >= leaves.lanes) {  // Fewer leaves would leave lanes idle, so they go to the streaming sponge
+				count -= count % leaves.lanes;
+				for (int i = 0; i < count; ) {
+					int n = Math.min(count - i, BULK_LEAVES);
+					leaves.hashLeaves(b, off, n, cvBuffer, 0);
+					node.update(cvBuffer, 0, n * cvLength);
+					numLeaves += n;
+					off += n * leafLength;
+					len -= n * leafLength;
+					i += n;
+				}
+			}
+		}
+		
+		// Absorb the remaining leaves through the streaming sponge
+		while (len > 0) {
+			int n = Math.min(leafLength, len);
+			leaf.update(b, off, n);
+			leafFilled = n;
+			off += n;
+			len -= n;
+			if (leafFilled == leafLength)
+				endLeaf();
+		}
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		checkAbsorbing();
+		byte[] result = new byte[hashFunction.getHashLength()];
+		clone().output(result, 0, result.length);
+		return new HashValue(result);
+	}
+	
+	
+	@Override
+	public KeccakTreeHasher clone() {
+		if (node == null)
+			throw new IllegalStateException("Already zeroized");
+		KeccakTreeHasher result = (KeccakTreeHasher)super.clone();
+		result.node = node.clone();
+		result.leaf = leaf.clone();
+		result.leaves = null;
+		result.cvBuffer = null;
+		result.cv = new byte[cvLength];
+		return result;
+	}
+	
+	
+	public void zeroize() {
+		if (node == null)
+			throw new IllegalStateException("Already zeroized");
+		node.zeroize();
+		leaf.zeroize();
+		node = null;
+		leaf = null;
+		if (leaves != null) {
+			Arrays.fill(leaves.states, 0);
+			leaves = null;
+			cvBuffer = Zeroizer.clear(cvBuffer);
+		}
+		cv = Zeroizer.clear(cv);
+	}
+	
+	
+	/**
+	 * Writes the next bytes of the output stream. The first call ends the input with {@link #finish()}.
+	 * @param b the array to write the output into
+	 * @param off the offset into {@code b}
+	 * @param len the number of output bytes to write
+	 */
+	protected void output(byte[] b, int off, int len) {
+		if (node == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		if (!finished) {
+			finish();
+			finished = true;
+		}
+		node.squeeze(b, off, len);
+	}
+	
+	
+	/**
+	 * Ends the message: absorbs any suffix, calls {@link #endPartialLeaf()} if the mode uses leaves for the message's end, absorbs the final node's encoding, and calls {@link KeccakHasher#finish(byte)} on the final node.
+	 */
+	protected abstract void finish();
+	
+	
+	/**
+	 * Absorbs the chaining value of the current leaf into the final node, if the leaf has any bytes.
+	 */
+	protected final void endPartialLeaf() {
+		if (leafFilled > 0)
+			endLeaf();
+	}
+	
+	
+	/**
+	 * Throws an exception if this hasher has been zeroized or its output has been read.
+	 * @throws IllegalStateException if this hasher has been zeroized or its output has been read
+	 */
+	protected final void checkAbsorbing() {
+		if (node == null)
+			throw new IllegalStateException("Already zeroized");
+		if (finished)
+			throw new IllegalStateException("Already squeezing");
+	}
+	
+	
+	private void endLeaf() {
+		leaf.squeeze(cv, 0, cvLength);
+		node.update(cv, 0, cvLength);
+		leaf.reset();
+		leafFilled = 0;
+		numLeaves++;
+	}
+	
+}
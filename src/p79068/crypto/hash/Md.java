@@ -1,5 +1,8 @@
 package p79068.crypto.hash;
 
+import p79068.Assert;
+import p79068.backend.Backend;
+import p79068.hash.HashValue;
 import p79068.hash.Hasher;
 
 
@@ -10,6 +13,7 @@ import p79068.hash.Hasher;
  *   <li>MD4 is described in RFC 1320.</li>
  *   <li>MD5 is described in RFC 1321.</li>
  * </ul>
+ * <p>The hashers may be backed by the Java platform's {@link java.security.MessageDigest} instead of this library's code, if the platform provides the algorithm and that is faster on this machine. See {@link p79068.backend.Backends}.</p>
  */
 public final class Md extends AbstractBlockHashFunction {
 	
@@ -30,6 +34,11 @@ public final class Md extends AbstractBlockHashFunction {
 	
 	
 	
+	// Selected on first use
+	private Backend backend;
+	
+	
+	
 	private Md(String name, int blockLen) {
 		super(name, 16, blockLen);
 	}
@@ -42,10 +51,77 @@ public final class Md extends AbstractBlockHashFunction {
 	 */
 	@Override
 	public Hasher newHasher() {
-		if      (this == MD2_FUNCTION) return new BlockHasher(this, new Md2Core());
-		else if (this == MD4_FUNCTION) return new BlockHasher(this, new FastMd45Core(false));
-		else if (this == MD5_FUNCTION) return new BlockHasher(this, new FastMd45Core(true));
+		if (getBackend() == Backend.JDK)
+			return JdkDigestHasher.newInstance(this);
+		else
+			return newLibraryHasher();
+	}
+	
+	
+	// Returns a new hasher of this library's implementation. Also used by tests.
+	Hasher newLibraryHasher() {
+		return new BlockHasher(this, newCore());
+	}
+	
+	
+	@Override
+	BlockHasherCore newCore() {
+		if      (this == MD2_FUNCTION) return new Md2Core();
+		else if (this == MD4_FUNCTION) return new FastMd45Core(false);
+		else if (this == MD5_FUNCTION) return new FastMd45Core(true);
 		else throw new AssertionError();
 	}
 	
+	
+	// HotSpot's MD5 intrinsic has no switch among the product options, so MD5 is always calibrated
+	private Backend getBackend() {
+		if (backend == null)
+			backend = JdkDigestHasher.selectBackend(this, null, this::newLibraryHasher);
+		return backend;
+	}
+	
+	
+	/**
+	 * Computes and returns the hash values of the specified byte arrays. For MD5, if this library's implementation is selected, several messages are compressed in lock step; otherwise they are hashed one at a time with the selected backend.
+	 * @param messages the byte arrays to hash
+	 * @return a new array of the hash values, where element {@code i} is the hash of {@code messages[i]}
+	 * @throws NullPointerException if {@code messages} or any element is {@code null}
+	 */
+	@Override
+	public HashValue[] getHashes(byte[][] messages) {
+		MultiBufferHasher mb = newMultiBufferHasher();
+		if (mb == null)
+			return super.getHashes(messages);
+		return mb.getHashes(messages, null, null);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash values of the specified byte array ranges. For MD5, if this library's implementation is selected, several messages are compressed in lock step; otherwise they are hashed one at a time with the selected backend.
+	 * @param messages the byte arrays to hash
+	 * @param offsets the offset into each byte array
+	 * @param lengths the length of the subrange in each byte array
+	 * @return a new array of the hash values, where element {@code i} is the hash of range {@code i}
+	 * @throws NullPointerException if any array or any element of {@code messages} is {@code null}
+	 * @throws IllegalArgumentException if the three arrays differ in length
+	 * @throws IndexOutOfBoundsException if a range lies outside of its byte array
+	 */
+	@Override
+	public HashValue[] getHashes(byte[][] messages, int[] offsets, int[] lengths) {
+		MultiBufferHasher mb = newMultiBufferHasher();
+		if (mb == null)
+			return super.getHashes(messages, offsets, lengths);
+		Assert.assertNotNull(offsets, lengths);
+		return mb.getHashes(messages, offsets, lengths);
+	}
+	
+	
+	// Returns a new multi-buffer hasher for this hash function, or null if there is none or the JDK backend is selected.
+	private MultiBufferHasher newMultiBufferHasher() {
+		if (getBackend() == Backend.JDK)
+			return null;
+		if (this == MD5_FUNCTION) return MultiBufferHasher.newMd5();
+		else return null;
+	}
+	
 }
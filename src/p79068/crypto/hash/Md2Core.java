@@ -1,9 +1,7 @@
 package p79068.crypto.hash;
 
-import java.math.BigInteger;
 import p79068.Assert;
 import p79068.crypto.Zeroizer;
-import p79068.hash.HashValue;
 
 
 final class Md2Core extends BlockHasherCore {
@@ -11,11 +9,19 @@ final class Md2Core extends BlockHasherCore {
 	private int[] state;     // All unsigned 8-bit
 	private int[] checksum;  // All unsigned 8-bit
 	
+	// Scratch space, whose contents are meaningless between method calls
+	private int[] savedState;
+	private int[] savedChecksum;
+	private int[] msg;
+	
 	
 	
 	public Md2Core() {
 		state    = new int[48];
 		checksum = new int[16];
+		savedState    = new int[48];
+		savedChecksum = new int[16];
+		msg           = new int[16];
 	}
 	
 	
@@ -27,6 +33,9 @@ final class Md2Core extends BlockHasherCore {
 		Md2Core result = (Md2Core)super.clone();
 		result.state    = result.state.clone();
 		result.checksum = result.checksum.clone();
+		result.savedState    = new int[48];
+		result.savedChecksum = new int[16];
+		result.msg           = new int[16];
 		return result;
 	}
 	
@@ -37,6 +46,9 @@ final class Md2Core extends BlockHasherCore {
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
 		checksum = Zeroizer.clear(checksum);
+		savedState = Zeroizer.clear(savedState);
+		savedChecksum = Zeroizer.clear(savedChecksum);
+		msg = Zeroizer.clear(msg);
 	}
 	
 	
@@ -47,8 +59,6 @@ final class Md2Core extends BlockHasherCore {
 		if (len % 16 != 0)
 			throw new AssertionError();
 		
-		int[] msg = new int[16];
-		
 		// For each block of 16 bytes
 		for (int i = off, end = off + len; i < end; i += 16) {
 			// Copy message block and convert from int8 to uint32
@@ -82,7 +92,10 @@ final class Md2Core extends BlockHasherCore {
 	
 	
 	@Override
-	public HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length) {
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		System.arraycopy(state, 0, savedState, 0, 48);
+		System.arraycopy(checksum, 0, savedChecksum, 0, 16);
+		
 		// Pad and compress last partial block (possibly empty)
 		for (int i = blockFilled; i < block.length; i++)
 			block[i] = (byte)(16 - blockFilled);
@@ -94,10 +107,11 @@ final class Md2Core extends BlockHasherCore {
 		compress(block);
 		
 		// Resulting hash is a prefix of the state
-		byte[] hash = new byte[16];
 		for (int i = 0; i < 16; i++)
-			hash[i] = (byte)state[i];
-		return new HashValue(hash);
+			out[off + i] = (byte)state[i];
+		
+		System.arraycopy(savedState, 0, state, 0, 48);
+		System.arraycopy(savedChecksum, 0, checksum, 0, 16);
 	}
 	
 	
@@ -1,11 +1,7 @@
 package p79068.crypto.hash;
 
-import java.math.BigInteger;
-import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizer;
-import p79068.hash.HashValue;
-import p79068.math.IntegerBitMath;
 
 
 class Md45Core extends BlockHasherCore {
@@ -14,11 +10,17 @@ class Md45Core extends BlockHasherCore {
 	
 	protected int[] state;
 	
+	private int[] savedState;  // Scratch space for getHash()
+	
+	private int[] schedule;  // Scratch space for compress()
+	
 	
 	
 	public Md45Core(boolean md5Mode) {
 		this.md5Mode = md5Mode;
 		state = new int[]{0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476};
+		savedState = new int[4];
+		schedule = new int[16];
 	}
 	
 	
@@ -29,6 +31,8 @@ class Md45Core extends BlockHasherCore {
 			throw new IllegalStateException("Already zeroized");
 		Md45Core result = (Md45Core)super.clone();
 		result.state = result.state.clone();
+		result.savedState = new int[4];
+		result.schedule = new int[16];
 		return result;
 	}
 	
@@ -38,6 +42,23 @@ class Md45Core extends BlockHasherCore {
 		if (state == null)
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
+		savedState = Zeroizer.clear(savedState);
+		schedule = Zeroizer.clear(schedule);
+	}
+	
+	
+	@Override
+	public boolean isStateCopyable() {
+		return true;
+	}
+	
+	
+	@Override
+	public void copyStateFrom(BlockHasherCore source) {
+		int[] src = ((Md45Core)source).state;
+		if (state == null || src == null)
+			throw new IllegalStateException("Already zeroized");
+		System.arraycopy(src, 0, state, 0, state.length);
 	}
 	
 	
@@ -48,8 +69,6 @@ class Md45Core extends BlockHasherCore {
 		if (len % 64 != 0)
 			throw new AssertionError();
 		
-		int[] schedule = new int[16];
-		
 		// For each block of 64 bytes
 		for (int i = off, end = off + len; i < end; ) {
 			
@@ -108,19 +127,12 @@ class Md45Core extends BlockHasherCore {
 	
 	
 	@Override
-	public HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length) {
-		block[blockFilled] = (byte)0x80;
-		blockFilled++;
-		Arrays.fill(block, blockFilled, block.length, (byte)0);
-		if (blockFilled + 8 > block.length) {
-			compress(block);
-			Arrays.fill(block, (byte)0);
-		}
-		length = length.shiftLeft(3);  // Length is now in bits
-		for (int i = 0; i < 8; i++)
-			block[block.length - 8 + i] = length.shiftRight(i * 8).byteValue();
-		compress(block);
-		return new HashValue(IntegerBitMath.toBytesLittleEndian(state));
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		System.arraycopy(state, 0, savedState, 0, state.length);
+		padAndCompress(block, blockFilled, length, lengthHigh, (byte)0x80, 8, false);
+		for (int i = 0; i < 16; i++)  // Serialize in little endian
+			out[off + i] = (byte)(state[i >>> 2] >>> ((i & 3) << 3));
+		System.arraycopy(savedState, 0, state, 0, state.length);
 	}
 	
 	
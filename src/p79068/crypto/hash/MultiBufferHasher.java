@@ -0,0 +1,262 @@
+package p79068.crypto.hash;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import p79068.Assert;
+import p79068.hash.HashValue;
+
+
+/**
+ * Hashes many independent messages with a Merkle-Damg&aring;rd hash function that has 64-byte blocks and 32-bit state words (MD5, SHA-1, SHA-256), by running several compression states (lanes) in lock step.
+ * <p>Each lane works through one message at a time. When a lane finishes its message (including the padding blocks), it immediately takes the next unassigned message, so lanes are kept busy even when message lengths differ. Once no messages remain, the idle lanes are masked: they compress a dummy block into their own scratch state, and their output is discarded.</p>
+ * <p>Subclasses implement the interleaved compression function. The scalar subclasses interleave {@link #LANES} lanes in plain Java code. {@code VectorMultiBufferHasher} uses the incubating Vector API with one lane per 32-bit element of the preferred vector species, and is selected by the {@code new...()} factory methods when it is available. Instances are single-use and not thread-safe.</p>
+ */
+abstract class MultiBufferHasher {
+	
+	/**
+	 * The number of lanes of the scalar subclasses, whose compression functions are unrolled for exactly this many lanes.
+	 */
+	protected static final int LANES = 4;
+	
+	private static final int BLOCK_LENGTH = 64;
+	
+	
+	/**
+	 * The number of independent compression states processed in lock step.
+	 */
+	protected final int lanes;
+	
+	private final int[] initialState;
+	
+	private final int hashLength;
+	
+	private final boolean bigEndian;
+	
+	/**
+	 * The chaining values of all lanes, word-major: word {@code j} of lane {@code i} is at index {@code j * lanes + i}.
+	 */
+	protected final int[] states;
+	
+	/**
+	 * The current block of each lane, given as an array and an offset into it. Read by {@link #compressLanes()}.
+	 */
+	protected final byte[][] blocks;
+	protected final int[] blockOffsets;
+	
+	// Per-lane scheduling state
+	private final int[] laneMessage;      // Index of the message being hashed, or -1 if the lane is idle
+	private final int[] laneBlock;        // Index of the next block of the message
+	private final int[] laneFullBlocks;   // Number of whole blocks taken directly from the message
+	private final int[] laneTotalBlocks;  // Including the 1 or 2 padding blocks
+	private final byte[][] lanePadding;   // The final partial block and the padding, 2 blocks long
+	
+	private final byte[] dummyBlock;
+	
+	
+	
+	protected MultiBufferHasher(int lanes, int[] initialState, int hashLength, boolean bigEndian) {
+		this.lanes = lanes;
+		this.initialState = initialState;
+		this.hashLength = hashLength;
+		this.bigEndian = bigEndian;
+		states = new int[lanes * initialState.length];
+		blocks = new byte[lanes][];
+		blockOffsets = new int[lanes];
+		laneMessage = new int[lanes];
+		laneBlock = new int[lanes];
+		laneFullBlocks = new int[lanes];
+		laneTotalBlocks = new int[lanes];
+		lanePadding = new byte[lanes][BLOCK_LENGTH * 2];
+		dummyBlock = new byte[BLOCK_LENGTH];
+	}
+	
+	
+	
+	/**
+	 * Returns a new multi-buffer hasher for SHA-1, using the Vector API if available.
+	 * @return a new multi-buffer hasher for SHA-1
+	 */
+	public static MultiBufferHasher newSha1() {
+		MultiBufferHasher result = newVectorHasher(Sha.SHA1_FUNCTION);
+		return result != null ? result : new MultiBufferSha1();
+	}
+	
+	
+	/**
+	 * Returns a new multi-buffer hasher for SHA-256, using the Vector API if available.
+	 * @return a new multi-buffer hasher for SHA-256
+	 */
+	public static MultiBufferHasher newSha256() {
+		MultiBufferHasher result = newVectorHasher(Sha.SHA256_FUNCTION);
+		return result != null ? result : new MultiBufferSha256();
+	}
+	
+	
+	/**
+	 * Returns a new multi-buffer hasher for MD5, using the Vector API if available.
+	 * @return a new multi-buffer hasher for MD5
+	 */
+	public static MultiBufferHasher newMd5() {
+		MultiBufferHasher result = newVectorHasher(Md.MD5_FUNCTION);
+		return result != null ? result : new MultiBufferMd5();
+	}
+	
+	
+	/**
+	 * Tests whether the Vector API implementation is used by the factory methods.
+	 * @return whether the Vector API implementation is available
+	 */
+	public static boolean isVectorAvailable() {
+		return VECTOR_CONSTRUCTOR != null;
+	}
+	
+	
+	/**
+	 * Returns a new Vector API multi-buffer hasher for the specified hash function, or {@code null} if the Vector API is unavailable.
+	 * @param hashFunc one of SHA-1, SHA-256, MD5
+	 * @return a new Vector API multi-buffer hasher, or {@code null}
+	 */
+	static MultiBufferHasher newVectorHasher(BlockHashFunction hashFunc) {
+		if (VECTOR_CONSTRUCTOR == null)
+			return null;
+		try {
+			return VECTOR_CONSTRUCTOR.newInstance(hashFunc);
+		} catch (ReflectiveOperationException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	
+	// The constructor of VectorMultiBufferHasher, or null if the jdk.incubator.vector module is absent, the preferred species is too narrow to beat the scalar lanes, or the system property p79068.crypto.hash.vector is "false".
+	// The class is only reached reflectively, so that this class still links when the module is absent.
+	private static final Constructor<? extends MultiBufferHasher> VECTOR_CONSTRUCTOR;
+	
+	static {
+		Constructor<? extends MultiBufferHasher> con = null;
+		if (!"false".equals(System.getProperty("p79068.crypto.hash.vector"))) {
+			try {
+				Class<? extends MultiBufferHasher> cls = Class.forName("p79068.crypto.hash.VectorMultiBufferHasher").asSubclass(MultiBufferHasher.class);
+				if ((Integer)cls.getDeclaredMethod("preferredLanes").invoke(null) > LANES)
+					con = cls.getDeclaredConstructor(BlockHashFunction.class);
+			} catch (ReflectiveOperationException | LinkageError e) {}  // Fall back to the scalar implementations
+		}
+		VECTOR_CONSTRUCTOR = con;
+	}
+	
+	
+	
+	/**
+	 * Computes the hash value of each specified message range.
+	 * @param messages the messages to hash
+	 * @param offsets the offset into each message, or {@code null} for all zeros
+	 * @param lengths the length of each message range, or {@code null} for the full array lengths
+	 * @return the hash values, in the same order as the messages
+	 */
+	public HashValue[] getHashes(byte[][] messages, int[] offsets, int[] lengths) {
+		Assert.assertNotNull((Object[])messages);
+		int count = messages.length;
+		if (offsets != null && offsets.length != count || lengths != null && lengths.length != count)
+			throw new IllegalArgumentException("Array lengths differ");
+		for (int i = 0; i < count; i++) {
+			Assert.assertNotNull(messages[i]);
+			Assert.assertRangeInBounds(messages[i].length, offsets != null ? offsets[i] : 0, lengths != null ? lengths[i] : messages[i].length);
+		}
+		
+		HashValue[] result = new HashValue[count];
+		byte[] hash = new byte[hashLength];
+		int nextMessage = 0;
+		int active = 0;
+		for (int i = 0; i < lanes; i++) {
+			if (nextMessage < count) {
+				startMessage(i, nextMessage, messages, offsets, lengths);
+				nextMessage++;
+				active++;
+			} else
+				laneMessage[i] = -1;
+		}
+		
+		while (active > 0) {
+			// Select each lane's block
+			for (int i = 0; i < lanes; i++) {
+				int msg = laneMessage[i];
+				if (msg == -1) {
+					blocks[i] = dummyBlock;
+					blockOffsets[i] = 0;
+				} else if (laneBlock[i] < laneFullBlocks[i]) {
+					blocks[i] = messages[msg];
+					blockOffsets[i] = (offsets != null ? offsets[msg] : 0) + laneBlock[i] * BLOCK_LENGTH;
+				} else {
+					blocks[i] = lanePadding[i];
+					blockOffsets[i] = (laneBlock[i] - laneFullBlocks[i]) * BLOCK_LENGTH;
+				}
+			}
+			
+			compressLanes();
+			
+			// Retire finished messages and refill their lanes
+			for (int i = 0; i < lanes; i++) {
+				int msg = laneMessage[i];
+				if (msg == -1)
+					continue;
+				laneBlock[i]++;
+				if (laneBlock[i] < laneTotalBlocks[i])
+					continue;
+				
+				for (int j = 0; j < hashLength; j++) {
+					int word = states[(j >>> 2) * lanes + i];
+					int shift = bigEndian ? (3 - (j & 3)) << 3 : (j & 3) << 3;
+					hash[j] = (byte)(word >>> shift);
+				}
+				result[msg] = new HashValue(hash);
+				
+				if (nextMessage < count) {
+					startMessage(i, nextMessage, messages, offsets, lengths);
+					nextMessage++;
+				} else {
+					laneMessage[i] = -1;
+					active--;
+				}
+			}
+		}
+		return result;
+	}
+	
+	
+	// Assigns the specified message to the specified lane, resets the lane's state, and prepares the padding blocks.
+	private void startMessage(int lane, int msg, byte[][] messages, int[] offsets, int[] lengths) {
+		for (int i = 0; i < initialState.length; i++)
+			states[i * lanes + lane] = initialState[i];
+		laneMessage[lane] = msg;
+		laneBlock[lane] = 0;
+		
+		byte[] b = messages[msg];
+		int off = offsets != null ? offsets[msg] : 0;
+		int len = lengths != null ? lengths[msg] : b.length;
+		int full = len / BLOCK_LENGTH;
+		int tail = len % BLOCK_LENGTH;
+		laneFullBlocks[lane] = full;
+		
+		byte[] pad = lanePadding[lane];
+		Arrays.fill(pad, (byte)0);
+		System.arraycopy(b, off + full * BLOCK_LENGTH, pad, 0, tail);
+		pad[tail] = (byte)0x80;
+		int padBlocks = tail + 9 <= BLOCK_LENGTH ? 1 : 2;
+		laneTotalBlocks[lane] = full + padBlocks;
+		long bitLength = (long)len << 3;
+		int end = padBlocks * BLOCK_LENGTH;
+		for (int i = 0; i < 8; i++) {
+			byte x = (byte)(bitLength >>> (i << 3));
+			if (bigEndian)
+				pad[end - 1 - i] = x;
+			else
+				pad[end - 8 + i] = x;
+		}
+	}
+	
+	
+	/**
+	 * Applies the compression function to every lane: the block of lane {@code i} is 64 bytes of {@code blocks[i]} starting at {@code blockOffsets[i]}, and it is combined into lane {@code i} of {@code states}.
+	 */
+	protected abstract void compressLanes();
+	
+}
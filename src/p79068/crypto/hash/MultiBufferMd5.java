@@ -0,0 +1,153 @@
+package p79068.crypto.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+
+/**
+ * Computes MD5 hashes of several messages at a time, interleaving the rounds of {@link MultiBufferHasher#LANES} independent blocks.
+ */
+final class MultiBufferMd5 extends MultiBufferHasher {
+	
+	private static final VarHandle INT32_ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	static final int[] INITIAL_STATE = {0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476};
+	
+	
+	
+	// For each lane, the message word used by each round plus the round constant. Lane i occupies elements [i * 64, (i + 1) * 64).
+	private final int[] schedule;
+	
+	
+	
+	public MultiBufferMd5() {
+		super(LANES, INITIAL_STATE, 16, false);
+		schedule = new int[LANES * 64];
+	}
+	
+	
+	
+	@Override
+	protected void compressLanes() {
+		// Arrange each lane's message words in the order that the rounds use them
+		for (int i = 0; i < LANES; i++) {
+			byte[] b = blocks[i];
+			int off = blockOffsets[i];
+			int base = i * 64;
+			for (int j = 0; j < 64; j++)
+				schedule[base + j] = (int)INT32_ARRAY.get(b, off + MESSAGE_OFFSETS[j]) + T[j];
+		}
+		
+		int a0 = states[ 0];  int a1 = states[ 1];  int a2 = states[ 2];  int a3 = states[ 3];
+		int b0 = states[ 4];  int b1 = states[ 5];  int b2 = states[ 6];  int b3 = states[ 7];
+		int c0 = states[ 8];  int c1 = states[ 9];  int c2 = states[10];  int c3 = states[11];
+		int d0 = states[12];  int d1 = states[13];  int d2 = states[14];  int d3 = states[15];
+		
+		// Rounds 0 to 15, 4 per iteration so that the variable names come back around
+		for (int j = 0; j < 16; j += 4) {
+			a0 += (d0 ^ (b0 & (c0 ^ d0))) + schedule[j];  a0 = b0 + (a0 <<  7 | a0 >>> 25);
+			a1 += (d1 ^ (b1 & (c1 ^ d1))) + schedule[64 + j];  a1 = b1 + (a1 <<  7 | a1 >>> 25);
+			a2 += (d2 ^ (b2 & (c2 ^ d2))) + schedule[128 + j];  a2 = b2 + (a2 <<  7 | a2 >>> 25);
+			a3 += (d3 ^ (b3 & (c3 ^ d3))) + schedule[192 + j];  a3 = b3 + (a3 <<  7 | a3 >>> 25);
+			d0 += (c0 ^ (a0 & (b0 ^ c0))) + schedule[j + 1];  d0 = a0 + (d0 << 12 | d0 >>> 20);
+			d1 += (c1 ^ (a1 & (b1 ^ c1))) + schedule[64 + j + 1];  d1 = a1 + (d1 << 12 | d1 >>> 20);
+			d2 += (c2 ^ (a2 & (b2 ^ c2))) + schedule[128 + j + 1];  d2 = a2 + (d2 << 12 | d2 >>> 20);
+			d3 += (c3 ^ (a3 & (b3 ^ c3))) + schedule[192 + j + 1];  d3 = a3 + (d3 << 12 | d3 >>> 20);
+			c0 += (b0 ^ (d0 & (a0 ^ b0))) + schedule[j + 2];  c0 = d0 + (c0 << 17 | c0 >>> 15);
+			c1 += (b1 ^ (d1 & (a1 ^ b1))) + schedule[64 + j + 2];  c1 = d1 + (c1 << 17 | c1 >>> 15);
+			c2 += (b2 ^ (d2 & (a2 ^ b2))) + schedule[128 + j + 2];  c2 = d2 + (c2 << 17 | c2 >>> 15);
+			c3 += (b3 ^ (d3 & (a3 ^ b3))) + schedule[192 + j + 2];  c3 = d3 + (c3 << 17 | c3 >>> 15);
+			b0 += (a0 ^ (c0 & (d0 ^ a0))) + schedule[j + 3];  b0 = c0 + (b0 << 22 | b0 >>> 10);
+			b1 += (a1 ^ (c1 & (d1 ^ a1))) + schedule[64 + j + 3];  b1 = c1 + (b1 << 22 | b1 >>> 10);
+			b2 += (a2 ^ (c2 & (d2 ^ a2))) + schedule[128 + j + 3];  b2 = c2 + (b2 << 22 | b2 >>> 10);
+			b3 += (a3 ^ (c3 & (d3 ^ a3))) + schedule[192 + j + 3];  b3 = c3 + (b3 << 22 | b3 >>> 10);
+		}
+		
+		// Rounds 16 to 31
+		for (int j = 16; j < 32; j += 4) {
+			a0 += (c0 ^ (d0 & (b0 ^ c0))) + schedule[j];  a0 = b0 + (a0 <<  5 | a0 >>> 27);
+			a1 += (c1 ^ (d1 & (b1 ^ c1))) + schedule[64 + j];  a1 = b1 + (a1 <<  5 | a1 >>> 27);
+			a2 += (c2 ^ (d2 & (b2 ^ c2))) + schedule[128 + j];  a2 = b2 + (a2 <<  5 | a2 >>> 27);
+			a3 += (c3 ^ (d3 & (b3 ^ c3))) + schedule[192 + j];  a3 = b3 + (a3 <<  5 | a3 >>> 27);
+			d0 += (b0 ^ (c0 & (a0 ^ b0))) + schedule[j + 1];  d0 = a0 + (d0 <<  9 | d0 >>> 23);
+			d1 += (b1 ^ (c1 & (a1 ^ b1))) + schedule[64 + j + 1];  d1 = a1 + (d1 <<  9 | d1 >>> 23);
+			d2 += (b2 ^ (c2 & (a2 ^ b2))) + schedule[128 + j + 1];  d2 = a2 + (d2 <<  9 | d2 >>> 23);
+			d3 += (b3 ^ (c3 & (a3 ^ b3))) + schedule[192 + j + 1];  d3 = a3 + (d3 <<  9 | d3 >>> 23);
+			c0 += (a0 ^ (b0 & (d0 ^ a0))) + schedule[j + 2];  c0 = d0 + (c0 << 14 | c0 >>> 18);
+			c1 += (a1 ^ (b1 & (d1 ^ a1))) + schedule[64 + j + 2];  c1 = d1 + (c1 << 14 | c1 >>> 18);
+			c2 += (a2 ^ (b2 & (d2 ^ a2))) + schedule[128 + j + 2];  c2 = d2 + (c2 << 14 | c2 >>> 18);
+			c3 += (a3 ^ (b3 & (d3 ^ a3))) + schedule[192 + j + 2];  c3 = d3 + (c3 << 14 | c3 >>> 18);
+			b0 += (d0 ^ (a0 & (c0 ^ d0))) + schedule[j + 3];  b0 = c0 + (b0 << 20 | b0 >>> 12);
+			b1 += (d1 ^ (a1 & (c1 ^ d1))) + schedule[64 + j + 3];  b1 = c1 + (b1 << 20 | b1 >>> 12);
+			b2 += (d2 ^ (a2 & (c2 ^ d2))) + schedule[128 + j + 3];  b2 = c2 + (b2 << 20 | b2 >>> 12);
+			b3 += (d3 ^ (a3 & (c3 ^ d3))) + schedule[192 + j + 3];  b3 = c3 + (b3 << 20 | b3 >>> 12);
+		}
+		
+		// Rounds 32 to 47
+		for (int j = 32; j < 48; j += 4) {
+			a0 += (b0 ^ c0 ^ d0) + schedule[j];  a0 = b0 + (a0 <<  4 | a0 >>> 28);
+			a1 += (b1 ^ c1 ^ d1) + schedule[64 + j];  a1 = b1 + (a1 <<  4 | a1 >>> 28);
+			a2 += (b2 ^ c2 ^ d2) + schedule[128 + j];  a2 = b2 + (a2 <<  4 | a2 >>> 28);
+			a3 += (b3 ^ c3 ^ d3) + schedule[192 + j];  a3 = b3 + (a3 <<  4 | a3 >>> 28);
+			d0 += (a0 ^ b0 ^ c0) + schedule[j + 1];  d0 = a0 + (d0 << 11 | d0 >>> 21);
+			d1 += (a1 ^ b1 ^ c1) + schedule[64 + j + 1];  d1 = a1 + (d1 << 11 | d1 >>> 21);
+			d2 += (a2 ^ b2 ^ c2) + schedule[128 + j + 1];  d2 = a2 + (d2 << 11 | d2 >>> 21);
+			d3 += (a3 ^ b3 ^ c3) + schedule[192 + j + 1];  d3 = a3 + (d3 << 11 | d3 >>> 21);
+			c0 += (d0 ^ a0 ^ b0) + schedule[j + 2];  c0 = d0 + (c0 << 16 | c0 >>> 16);
+			c1 += (d1 ^ a1 ^ b1) + schedule[64 + j + 2];  c1 = d1 + (c1 << 16 | c1 >>> 16);
+			c2 += (d2 ^ a2 ^ b2) + schedule[128 + j + 2];  c2 = d2 + (c2 << 16 | c2 >>> 16);
+			c3 += (d3 ^ a3 ^ b3) + schedule[192 + j + 2];  c3 = d3 + (c3 << 16 | c3 >>> 16);
+			b0 += (c0 ^ d0 ^ a0) + schedule[j + 3];  b0 = c0 + (b0 << 23 | b0 >>>  9);
+			b1 += (c1 ^ d1 ^ a1) + schedule[64 + j + 3];  b1 = c1 + (b1 << 23 | b1 >>>  9);
+			b2 += (c2 ^ d2 ^ a2) + schedule[128 + j + 3];  b2 = c2 + (b2 << 23 | b2 >>>  9);
+			b3 += (c3 ^ d3 ^ a3) + schedule[192 + j + 3];  b3 = c3 + (b3 << 23 | b3 >>>  9);
+		}
+		
+		// Rounds 48 to 63
+		for (int j = 48; j < 64; j += 4) {
+			a0 += (c0 ^ (b0 | ~d0)) + schedule[j];  a0 = b0 + (a0 <<  6 | a0 >>> 26);
+			a1 += (c1 ^ (b1 | ~d1)) + schedule[64 + j];  a1 = b1 + (a1 <<  6 | a1 >>> 26);
+			a2 += (c2 ^ (b2 | ~d2)) + schedule[128 + j];  a2 = b2 + (a2 <<  6 | a2 >>> 26);
+			a3 += (c3 ^ (b3 | ~d3)) + schedule[192 + j];  a3 = b3 + (a3 <<  6 | a3 >>> 26);
+			d0 += (b0 ^ (a0 | ~c0)) + schedule[j + 1];  d0 = a0 + (d0 << 10 | d0 >>> 22);
+			d1 += (b1 ^ (a1 | ~c1)) + schedule[64 + j + 1];  d1 = a1 + (d1 << 10 | d1 >>> 22);
+			d2 += (b2 ^ (a2 | ~c2)) + schedule[128 + j + 1];  d2 = a2 + (d2 << 10 | d2 >>> 22);
+			d3 += (b3 ^ (a3 | ~c3)) + schedule[192 + j + 1];  d3 = a3 + (d3 << 10 | d3 >>> 22);
+			c0 += (a0 ^ (d0 | ~b0)) + schedule[j + 2];  c0 = d0 + (c0 << 15 | c0 >>> 17);
+			c1 += (a1 ^ (d1 | ~b1)) + schedule[64 + j + 2];  c1 = d1 + (c1 << 15 | c1 >>> 17);
+			c2 += (a2 ^ (d2 | ~b2)) + schedule[128 + j + 2];  c2 = d2 + (c2 << 15 | c2 >>> 17);
+			c3 += (a3 ^ (d3 | ~b3)) + schedule[192 + j + 2];  c3 = d3 + (c3 << 15 | c3 >>> 17);
+			b0 += (d0 ^ (c0 | ~a0)) + schedule[j + 3];  b0 = c0 + (b0 << 21 | b0 >>> 11);
+			b1 += (d1 ^ (c1 | ~a1)) + schedule[64 + j + 3];  b1 = c1 + (b1 << 21 | b1 >>> 11);
+			b2 += (d2 ^ (c2 | ~a2)) + schedule[128 + j + 3];  b2 = c2 + (b2 << 21 | b2 >>> 11);
+			b3 += (d3 ^ (c3 | ~a3)) + schedule[192 + j + 3];  b3 = c3 + (b3 << 21 | b3 >>> 11);
+		}
+		
+		states[ 0] += a0;  states[ 1] += a1;  states[ 2] += a2;  states[ 3] += a3;
+		states[ 4] += b0;  states[ 5] += b1;  states[ 6] += b2;  states[ 7] += b3;
+		states[ 8] += c0;  states[ 9] += c1;  states[10] += c2;  states[11] += c3;
+		states[12] += d0;  states[13] += d1;  states[14] += d2;  states[15] += d3;
+	}
+	
+	
+	// The byte offset of the message word used by each round
+	static final int[] MESSAGE_OFFSETS = {
+		 0,  4,  8, 12, 16, 20, 24, 28, 32, 36, 40, 44, 48, 52, 56, 60,
+		 4, 24, 44,  0, 20, 40, 60, 16, 36, 56, 12, 32, 52,  8, 28, 48,
+		20, 32, 44, 56,  4, 16, 28, 40, 52,  0, 12, 24, 36, 48, 60,  8,
+		 0, 28, 56, 20, 48, 12, 40,  4, 32, 60, 24, 52, 16, 44,  8, 36,
+	};
+	
+	static final int[] T = {
+		0xD76AA478, 0xE8C7B756, 0x242070DB, 0xC1BDCEEE, 0xF57C0FAF, 0x4787C62A, 0xA8304613, 0xFD469501,
+		0x698098D8, 0x8B44F7AF, 0xFFFF5BB1, 0x895CD7BE, 0x6B901122, 0xFD987193, 0xA679438E, 0x49B40821,
+		0xF61E2562, 0xC040B340, 0x265E5A51, 0xE9B6C7AA, 0xD62F105D, 0x02441453, 0xD8A1E681, 0xE7D3FBC8,
+		0x21E1CDE6, 0xC33707D6, 0xF4D50D87, 0x455A14ED, 0xA9E3E905, 0xFCEFA3F8, 0x676F02D9, 0x8D2A4C8A,
+		0xFFFA3942, 0x8771F681, 0x6D9D6122, 0xFDE5380C, 0xA4BEEA44, 0x4BDECFA9, 0xF6BB4B60, 0xBEBFBC70,
+		0x289B7EC6, 0xEAA127FA, 0xD4EF3085, 0x04881D05, 0xD9D4D039, 0xE6DB99E5, 0x1FA27CF8, 0xC4AC5665,
+		0xF4292244, 0x432AFF97, 0xAB9423A7, 0xFC93A039, 0x655B59C3, 0x8F0CCC92, 0xFFEFF47D, 0x85845DD1,
+		0x6FA87E4F, 0xFE2CE6E0, 0xA3014314, 0x4E0811A1, 0xF7537E82, 0xBD3AF235, 0x2AD7D2BB, 0xEB86D391,
+	};
+	
+}
@@ -0,0 +1,168 @@
+package p79068.crypto.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+
+/**
+ * Computes SHA-1 hashes of several messages at a time, interleaving the rounds of {@link MultiBufferHasher#LANES} independent blocks.
+ */
+final class MultiBufferSha1 extends MultiBufferHasher {
+	
+	private static final VarHandle INT32_ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	
+	static final int[] INITIAL_STATE = {0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0};
+	
+	
+	
+	// For each lane, the message schedule. Lane i occupies elements [i * 80, (i + 1) * 80).
+	private final int[] schedule;
+	
+	
+	
+	public MultiBufferSha1() {
+		super(LANES, INITIAL_STATE, 20, true);
+		schedule = new int[LANES * 80];
+	}
+	
+	
+	
+	@Override
+	protected void compressLanes() {
+		// Load each lane's message block
+		for (int i = 0; i < LANES; i++) {
+			byte[] b = blocks[i];
+			int off = blockOffsets[i];
+			for (int j = 0; j < 16; j++)
+				schedule[i * 80 + j] = (int)INT32_ARRAY.get(b, off + j * 4);
+		}
+		
+		// Expand the message schedules, all lanes together
+		for (int j = 16; j < 80; j++) {
+			int t0 = schedule[j - 3] ^ schedule[j - 8] ^ schedule[j - 14] ^ schedule[j - 16];
+			int t1 = schedule[80 + j - 3] ^ schedule[80 + j - 8] ^ schedule[80 + j - 14] ^ schedule[80 + j - 16];
+			int t2 = schedule[160 + j - 3] ^ schedule[160 + j - 8] ^ schedule[160 + j - 14] ^ schedule[160 + j - 16];
+			int t3 = schedule[240 + j - 3] ^ schedule[240 + j - 8] ^ schedule[240 + j - 14] ^ schedule[240 + j - 16];
+			schedule[j] = t0 << 1 | t0 >>> 31;
+			schedule[80 + j] = t1 << 1 | t1 >>> 31;
+			schedule[160 + j] = t2 << 1 | t2 >>> 31;
+			schedule[240 + j] = t3 << 1 | t3 >>> 31;
+		}
+		
+		int a0 = states[ 0];  int a1 = states[ 1];  int a2 = states[ 2];  int a3 = states[ 3];
+		int b0 = states[ 4];  int b1 = states[ 5];  int b2 = states[ 6];  int b3 = states[ 7];
+		int c0 = states[ 8];  int c1 = states[ 9];  int c2 = states[10];  int c3 = states[11];
+		int d0 = states[12];  int d1 = states[13];  int d2 = states[14];  int d3 = states[15];
+		int e0 = states[16];  int e1 = states[17];  int e2 = states[18];  int e3 = states[19];
+		
+		// Rounds 0 to 19, 5 per iteration so that the variable names come back around
+		for (int j = 0; j < 20; j += 5) {
+			e0 += (a0 << 5 | a0 >>> 27) + (d0 ^ (b0 & (c0 ^ d0))) + schedule[j] + K0;  b0 = b0 << 30 | b0 >>> 2;
+			e1 += (a1 << 5 | a1 >>> 27) + (d1 ^ (b1 & (c1 ^ d1))) + schedule[80 + j] + K0;  b1 = b1 << 30 | b1 >>> 2;
+			e2 += (a2 << 5 | a2 >>> 27) + (d2 ^ (b2 & (c2 ^ d2))) + schedule[160 + j] + K0;  b2 = b2 << 30 | b2 >>> 2;
+			e3 += (a3 << 5 | a3 >>> 27) + (d3 ^ (b3 & (c3 ^ d3))) + schedule[240 + j] + K0;  b3 = b3 << 30 | b3 >>> 2;
+			d0 += (e0 << 5 | e0 >>> 27) + (c0 ^ (a0 & (b0 ^ c0))) + schedule[j + 1] + K0;  a0 = a0 << 30 | a0 >>> 2;
+			d1 += (e1 << 5 | e1 >>> 27) + (c1 ^ (a1 & (b1 ^ c1))) + schedule[80 + j + 1] + K0;  a1 = a1 << 30 | a1 >>> 2;
+			d2 += (e2 << 5 | e2 >>> 27) + (c2 ^ (a2 & (b2 ^ c2))) + schedule[160 + j + 1] + K0;  a2 = a2 << 30 | a2 >>> 2;
+			d3 += (e3 << 5 | e3 >>> 27) + (c3 ^ (a3 & (b3 ^ c3))) + schedule[240 + j + 1] + K0;  a3 = a3 << 30 | a3 >>> 2;
+			c0 += (d0 << 5 | d0 >>> 27) + (b0 ^ (e0 & (a0 ^ b0))) + schedule[j + 2] + K0;  e0 = e0 << 30 | e0 >>> 2;
+			c1 += (d1 << 5 | d1 >>> 27) + (b1 ^ (e1 & (a1 ^ b1))) + schedule[80 + j + 2] + K0;  e1 = e1 << 30 | e1 >>> 2;
+			c2 += (d2 << 5 | d2 >>> 27) + (b2 ^ (e2 & (a2 ^ b2))) + schedule[160 + j + 2] + K0;  e2 = e2 << 30 | e2 >>> 2;
+			c3 += (d3 << 5 | d3 >>> 27) + (b3 ^ (e3 & (a3 ^ b3))) + schedule[240 + j + 2] + K0;  e3 = e3 << 30 | e3 >>> 2;
+			b0 += (c0 << 5 | c0 >>> 27) + (a0 ^ (d0 & (e0 ^ a0))) + schedule[j + 3] + K0;  d0 = d0 << 30 | d0 >>> 2;
+			b1 += (c1 << 5 | c1 >>> 27) + (a1 ^ (d1 & (e1 ^ a1))) + schedule[80 + j + 3] + K0;  d1 = d1 << 30 | d1 >>> 2;
+			b2 += (c2 << 5 | c2 >>> 27) + (a2 ^ (d2 & (e2 ^ a2))) + schedule[160 + j + 3] + K0;  d2 = d2 << 30 | d2 >>> 2;
+			b3 += (c3 << 5 | c3 >>> 27) + (a3 ^ (d3 & (e3 ^ a3))) + schedule[240 + j + 3] + K0;  d3 = d3 << 30 | d3 >>> 2;
+			a0 += (b0 << 5 | b0 >>> 27) + (e0 ^ (c0 & (d0 ^ e0))) + schedule[j + 4] + K0;  c0 = c0 << 30 | c0 >>> 2;
+			a1 += (b1 << 5 | b1 >>> 27) + (e1 ^ (c1 & (d1 ^ e1))) + schedule[80 + j + 4] + K0;  c1 = c1 << 30 | c1 >>> 2;
+			a2 += (b2 << 5 | b2 >>> 27) + (e2 ^ (c2 & (d2 ^ e2))) + schedule[160 + j + 4] + K0;  c2 = c2 << 30 | c2 >>> 2;
+			a3 += (b3 << 5 | b3 >>> 27) + (e3 ^ (c3 & (d3 ^ e3))) + schedule[240 + j + 4] + K0;  c3 = c3 << 30 | c3 >>> 2;
+		}
+		
+		// Rounds 20 to 39
+		for (int j = 20; j < 40; j += 5) {
+			e0 += (a0 << 5 | a0 >>> 27) + (b0 ^ c0 ^ d0) + schedule[j] + K1;  b0 = b0 << 30 | b0 >>> 2;
+			e1 += (a1 << 5 | a1 >>> 27) + (b1 ^ c1 ^ d1) + schedule[80 + j] + K1;  b1 = b1 << 30 | b1 >>> 2;
+			e2 += (a2 << 5 | a2 >>> 27) + (b2 ^ c2 ^ d2) + schedule[160 + j] + K1;  b2 = b2 << 30 | b2 >>> 2;
+			e3 += (a3 << 5 | a3 >>> 27) + (b3 ^ c3 ^ d3) + schedule[240 + j] + K1;  b3 = b3 << 30 | b3 >>> 2;
+			d0 += (e0 << 5 | e0 >>> 27) + (a0 ^ b0 ^ c0) + schedule[j + 1] + K1;  a0 = a0 << 30 | a0 >>> 2;
+			d1 += (e1 << 5 | e1 >>> 27) + (a1 ^ b1 ^ c1) + schedule[80 + j + 1] + K1;  a1 = a1 << 30 | a1 >>> 2;
+			d2 += (e2 << 5 | e2 >>> 27) + (a2 ^ b2 ^ c2) + schedule[160 + j + 1] + K1;  a2 = a2 << 30 | a2 >>> 2;
+			d3 += (e3 << 5 | e3 >>> 27) + (a3 ^ b3 ^ c3) + schedule[240 + j + 1] + K1;  a3 = a3 << 30 | a3 >>> 2;
+			c0 += (d0 << 5 | d0 >>> 27) + (e0 ^ a0 ^ b0) + schedule[j + 2] + K1;  e0 = e0 << 30 | e0 >>> 2;
+			c1 += (d1 << 5 | d1 >>> 27) + (e1 ^ a1 ^ b1) + schedule[80 + j + 2] + K1;  e1 = e1 << 30 | e1 >>> 2;
+			c2 += (d2 << 5 | d2 >>> 27) + (e2 ^ a2 ^ b2) + schedule[160 + j + 2] + K1;  e2 = e2 << 30 | e2 >>> 2;
+			c3 += (d3 << 5 | d3 >>> 27) + (e3 ^ a3 ^ b3) + schedule[240 + j + 2] + K1;  e3 = e3 << 30 | e3 >>> 2;
+			b0 += (c0 << 5 | c0 >>> 27) + (d0 ^ e0 ^ a0) + schedule[j + 3] + K1;  d0 = d0 << 30 | d0 >>> 2;
+			b1 += (c1 << 5 | c1 >>> 27) + (d1 ^ e1 ^ a1) + schedule[80 + j + 3] + K1;  d1 = d1 << 30 | d1 >>> 2;
+			b2 += (c2 << 5 | c2 >>> 27) + (d2 ^ e2 ^ a2) + schedule[160 + j + 3] + K1;  d2 = d2 << 30 | d2 >>> 2;
+			b3 += (c3 << 5 | c3 >>> 27) + (d3 ^ e3 ^ a3) + schedule[240 + j + 3] + K1;  d3 = d3 << 30 | d3 >>> 2;
+			a0 += (b0 << 5 | b0 >>> 27) + (c0 ^ d0 ^ e0) + schedule[j + 4] + K1;  c0 = c0 << 30 | c0 >>> 2;
+			a1 += (b1 << 5 | b1 >>> 27) + (c1 ^ d1 ^ e1) + schedule[80 + j + 4] + K1;  c1 = c1 << 30 | c1 >>> 2;
+			a2 += (b2 << 5 | b2 >>> 27) + (c2 ^ d2 ^ e2) + schedule[160 + j + 4] + K1;  c2 = c2 << 30 | c2 >>> 2;
+			a3 += (b3 << 5 | b3 >>> 27) + (c3 ^ d3 ^ e3) + schedule[240 + j + 4] + K1;  c3 = c3 << 30 | c3 >>> 2;
+		}
+		
+		// Rounds 40 to 59
+		for (int j = 40; j < 60; j += 5) {
+			e0 += (a0 << 5 | a0 >>> 27) + ((b0 & (c0 | d0)) | (c0 & d0)) + schedule[j] + K2;  b0 = b0 << 30 | b0 >>> 2;
+			e1 += (a1 << 5 | a1 >>> 27) + ((b1 & (c1 | d1)) | (c1 & d1)) + schedule[80 + j] + K2;  b1 = b1 << 30 | b1 >>> 2;
+			e2 += (a2 << 5 | a2 >>> 27) + ((b2 & (c2 | d2)) | (c2 & d2)) + schedule[160 + j] + K2;  b2 = b2 << 30 | b2 >>> 2;
+			e3 += (a3 << 5 | a3 >>> 27) + ((b3 & (c3 | d3)) | (c3 & d3)) + schedule[240 + j] + K2;  b3 = b3 << 30 | b3 >>> 2;
+			d0 += (e0 << 5 | e0 >>> 27) + ((a0 & (b0 | c0)) | (b0 & c0)) + schedule[j + 1] + K2;  a0 = a0 << 30 | a0 >>> 2;
+			d1 += (e1 << 5 | e1 >>> 27) + ((a1 & (b1 | c1)) | (b1 & c1)) + schedule[80 + j + 1] + K2;  a1 = a1 << 30 | a1 >>> 2;
+			d2 += (e2 << 5 | e2 >>> 27) + ((a2 & (b2 | c2)) | (b2 & c2)) + schedule[160 + j + 1] + K2;  a2 = a2 << 30 | a2 >>> 2;
+			d3 += (e3 << 5 | e3 >>> 27) + ((a3 & (b3 | c3)) | (b3 & c3)) + schedule[240 + j + 1] + K2;  a3 = a3 << 30 | a3 >>> 2;
+			c0 += (d0 << 5 | d0 >>> 27) + ((e0 & (a0 | b0)) | (a0 & b0)) + schedule[j + 2] + K2;  e0 = e0 << 30 | e0 >>> 2;
+			c1 += (d1 << 5 | d1 >>> 27) + ((e1 & (a1 | b1)) | (a1 & b1)) + schedule[80 + j + 2] + K2;  e1 = e1 << 30 | e1 >>> 2;
+			c2 += (d2 << 5 | d2 >>> 27) + ((e2 & (a2 | b2)) | (a2 & b2)) + schedule[160 + j + 2] + K2;  e2 = e2 << 30 | e2 >>> 2;
+			c3 += (d3 << 5 | d3 >>> 27) + ((e3 & (a3 | b3)) | (a3 & b3)) + schedule[240 + j + 2] + K2;  e3 = e3 << 30 | e3 >>> 2;
+			b0 += (c0 << 5 | c0 >>> 27) + ((d0 & (e0 | a0)) | (e0 & a0)) + schedule[j + 3] + K2;  d0 = d0 << 30 | d0 >>> 2;
+			b1 += (c1 << 5 | c1 >>> 27) + ((d1 & (e1 | a1)) | (e1 & a1)) + schedule[80 + j + 3] + K2;  d1 = d1 << 30 | d1 >>> 2;
+			b2 += (c2 << 5 | c2 >>> 27) + ((d2 & (e2 | a2)) | (e2 & a2)) + schedule[160 + j + 3] + K2;  d2 = d2 << 30 | d2 >>> 2;
+			b3 += (c3 << 5 | c3 >>> 27) + ((d3 & (e3 | a3)) | (e3 & a3)) + schedule[240 + j + 3] + K2;  d3 = d3 << 30 | d3 >>> 2;
+			a0 += (b0 << 5 | b0 >>> 27) + ((c0 & (d0 | e0)) | (d0 & e0)) + schedule[j + 4] + K2;  c0 = c0 << 30 | c0 >>> 2;
+			a1 += (b1 << 5 | b1 >>> 27) + ((c1 & (d1 | e1)) | (d1 & e1)) + schedule[80 + j + 4] + K2;  c1 = c1 << 30 | c1 >>> 2;
+			a2 += (b2 << 5 | b2 >>> 27) + ((c2 & (d2 | e2)) | (d2 & e2)) + schedule[160 + j + 4] + K2;  c2 = c2 << 30 | c2 >>> 2;
+			a3 += (b3 << 5 | b3 >>> 27) + ((c3 & (d3 | e3)) | (d3 & e3)) + schedule[240 + j + 4] + K2;  c3 = c3 << 30 | c3 >>> 2;
+		}
+		
+		// Rounds 60 to 79
+		for (int j = 60; j < 80; j += 5) {
+			e0 += (a0 << 5 | a0 >>> 27) + (b0 ^ c0 ^ d0) + schedule[j] + K3;  b0 = b0 << 30 | b0 >>> 2;
+			e1 += (a1 << 5 | a1 >>> 27) + (b1 ^ c1 ^ d1) + schedule[80 + j] + K3;  b1 = b1 << 30 | b1 >>> 2;
+			e2 += (a2 << 5 | a2 >>> 27) + (b2 ^ c2 ^ d2) + schedule[160 + j] + K3;  b2 = b2 << 30 | b2 >>> 2;
+			e3 += (a3 << 5 | a3 >>> 27) + (b3 ^ c3 ^ d3) + schedule[240 + j] + K3;  b3 = b3 << 30 | b3 >>> 2;
+			d0 += (e0 << 5 | e0 >>> 27) + (a0 ^ b0 ^ c0) + schedule[j + 1] + K3;  a0 = a0 << 30 | a0 >>> 2;
+			d1 += (e1 << 5 | e1 >>> 27) + (a1 ^ b1 ^ c1) + schedule[80 + j + 1] + K3;  a1 = a1 << 30 | a1 >>> 2;
+			d2 += (e2 << 5 | e2 >>> 27) + (a2 ^ b2 ^ c2) + schedule[160 + j + 1] + K3;  a2 = a2 << 30 | a2 >>> 2;
+			d3 += (e3 << 5 | e3 >>> 27) + (a3 ^ b3 ^ c3) + schedule[240 + j + 1] + K3;  a3 = a3 << 30 | a3 >>> 2;
+			c0 += (d0 << 5 | d0 >>> 27) + (e0 ^ a0 ^ b0) + schedule[j + 2] + K3;  e0 = e0 << 30 | e0 >>> 2;
+			c1 += (d1 << 5 | d1 >>> 27) + (e1 ^ a1 ^ b1) + schedule[80 + j + 2] + K3;  e1 = e1 << 30 | e1 >>> 2;
+			c2 += (d2 << 5 | d2 >>> 27) + (e2 ^ a2 ^ b2) + schedule[160 + j + 2] + K3;  e2 = e2 << 30 | e2 >>> 2;
+			c3 += (d3 << 5 | d3 >>> 27) + (e3 ^ a3 ^ b3) + schedule[240 + j + 2] + K3;  e3 = e3 << 30 | e3 >>> 2;
+			b0 += (c0 << 5 | c0 >>> 27) + (d0 ^ e0 ^ a0) + schedule[j + 3] + K3;  d0 = d0 << 30 | d0 >>> 2;
+			b1 += (c1 << 5 | c1 >>> 27) + (d1 ^ e1 ^ a1) + schedule[80 + j + 3] + K3;  d1 = d1 << 30 | d1 >>> 2;
+			b2 += (c2 << 5 | c2 >>> 27) + (d2 ^ e2 ^ a2) + schedule[160 + j + 3] + K3;  d2 = d2 << 30 | d2 >>> 2;
+			b3 += (c3 << 5 | c3 >>> 27) + (d3 ^ e3 ^ a3) + schedule[240 + j + 3] + K3;  d3 = d3 << 30 | d3 >>> 2;
+			a0 += (b0 << 5 | b0 >>> 27) + (c0 ^ d0 ^ e0) + schedule[j + 4] + K3;  c0 = c0 << 30 | c0 >>> 2;
+			a1 += (b1 << 5 | b1 >>> 27) + (c1 ^ d1 ^ e1) + schedule[80 + j + 4] + K3;  c1 = c1 << 30 | c1 >>> 2;
+			a2 += (b2 << 5 | b2 >>> 27) + (c2 ^ d2 ^ e2) + schedule[160 + j + 4] + K3;  c2 = c2 << 30 | c2 >>> 2;
+			a3 += (b3 << 5 | b3 >>> 27) + (c3 ^ d3 ^ e3) + schedule[240 + j + 4] + K3;  c3 = c3 << 30 | c3 >>> 2;
+		}
+		
+		states[ 0] += a0;  states[ 1] += a1;  states[ 2] += a2;  states[ 3] += a3;
+		states[ 4] += b0;  states[ 5] += b1;  states[ 6] += b2;  states[ 7] += b3;
+		states[ 8] += c0;  states[ 9] += c1;  states[10] += c2;  states[11] += c3;
+		states[12] += d0;  states[13] += d1;  states[14] += d2;  states[15] += d3;
+		states[16] += e0;  states[17] += e1;  states[18] += e2;  states[19] += e3;
+	}
+	
+	
+	private static final int K0 = 0x5A827999;
+	private static final int K1 = 0x6ED9EBA1;
+	private static final int K2 = 0x8F1BBCDC;
+	private static final int K3 = 0xCA62C1D6;
+	
+}
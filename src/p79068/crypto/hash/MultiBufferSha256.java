@@ -0,0 +1,114 @@
+package p79068.crypto.hash;
+
+import static java.lang.Integer.rotateRight;
+import static p79068.crypto.hash.Sha256Core.K;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+
+/**
+ * Computes SHA-256 hashes of several messages at a time, interleaving the rounds of {@link MultiBufferHasher#LANES} independent blocks.
+ */
+final class MultiBufferSha256 extends MultiBufferHasher {
+	
+	private static final VarHandle INT32_ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	
+	static final int[] INITIAL_STATE = {0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A, 0x510E527F, 0x9B05688C, 0x1F83D9AB, 0x5BE0CD19};
+	
+	
+	
+	// For each lane, the message schedule. Lane i occupies elements [i * 64, (i + 1) * 64).
+	private final int[] schedule;
+	
+	
+	
+	public MultiBufferSha256() {
+		super(LANES, INITIAL_STATE, 32, true);
+		schedule = new int[LANES * 64];
+	}
+	
+	
+	
+	@Override
+	protected void compressLanes() {
+		// Load each lane's message block
+		for (int i = 0; i < LANES; i++) {
+			byte[] b = blocks[i];
+			int off = blockOffsets[i];
+			for (int j = 0; j < 16; j++)
+				schedule[i * 64 + j] = (int)INT32_ARRAY.get(b, off + j * 4);
+		}
+		
+		// Expand the message schedules, all lanes together
+		for (int j = 16; j < 64; j++) {
+			int x0 = schedule[j - 15];
+			int y0 = schedule[j - 2];
+			int x1 = schedule[64 + j - 15];
+			int y1 = schedule[64 + j - 2];
+			int x2 = schedule[128 + j - 15];
+			int y2 = schedule[128 + j - 2];
+			int x3 = schedule[192 + j - 15];
+			int y3 = schedule[192 + j - 2];
+			schedule[j] = schedule[j - 16] + schedule[j - 7] + (rotateRight(x0, 7) ^ rotateRight(x0, 18) ^ (x0 >>> 3)) + (rotateRight(y0, 17) ^ rotateRight(y0, 19) ^ (y0 >>> 10));
+			schedule[64 + j] = schedule[64 + j - 16] + schedule[64 + j - 7] + (rotateRight(x1, 7) ^ rotateRight(x1, 18) ^ (x1 >>> 3)) + (rotateRight(y1, 17) ^ rotateRight(y1, 19) ^ (y1 >>> 10));
+			schedule[128 + j] = schedule[128 + j - 16] + schedule[128 + j - 7] + (rotateRight(x2, 7) ^ rotateRight(x2, 18) ^ (x2 >>> 3)) + (rotateRight(y2, 17) ^ rotateRight(y2, 19) ^ (y2 >>> 10));
+			schedule[192 + j] = schedule[192 + j - 16] + schedule[192 + j - 7] + (rotateRight(x3, 7) ^ rotateRight(x3, 18) ^ (x3 >>> 3)) + (rotateRight(y3, 17) ^ rotateRight(y3, 19) ^ (y3 >>> 10));
+		}
+		
+		int a0 = states[ 0];  int a1 = states[ 1];  int a2 = states[ 2];  int a3 = states[ 3];
+		int b0 = states[ 4];  int b1 = states[ 5];  int b2 = states[ 6];  int b3 = states[ 7];
+		int c0 = states[ 8];  int c1 = states[ 9];  int c2 = states[10];  int c3 = states[11];
+		int d0 = states[12];  int d1 = states[13];  int d2 = states[14];  int d3 = states[15];
+		int e0 = states[16];  int e1 = states[17];  int e2 = states[18];  int e3 = states[19];
+		int f0 = states[20];  int f1 = states[21];  int f2 = states[22];  int f3 = states[23];
+		int g0 = states[24];  int g1 = states[25];  int g2 = states[26];  int g3 = states[27];
+		int h0 = states[28];  int h1 = states[29];  int h2 = states[30];  int h3 = states[31];
+		
+		// The 64 rounds, 8 per iteration so that the variable names come back around
+		for (int j = 0; j < 64; j += 8) {
+			h0 += (rotateRight(e0, 6) ^ rotateRight(e0, 11) ^ rotateRight(e0, 25)) + (g0 ^ (e0 & (f0 ^ g0))) + K[j] + schedule[j];  d0 += h0;  h0 += (rotateRight(a0, 2) ^ rotateRight(a0, 13) ^ rotateRight(a0, 22)) + ((a0 & (b0 | c0)) | (b0 & c0));
+			h1 += (rotateRight(e1, 6) ^ rotateRight(e1, 11) ^ rotateRight(e1, 25)) + (g1 ^ (e1 & (f1 ^ g1))) + K[j] + schedule[64 + j];  d1 += h1;  h1 += (rotateRight(a1, 2) ^ rotateRight(a1, 13) ^ rotateRight(a1, 22)) + ((a1 & (b1 | c1)) | (b1 & c1));
+			h2 += (rotateRight(e2, 6) ^ rotateRight(e2, 11) ^ rotateRight(e2, 25)) + (g2 ^ (e2 & (f2 ^ g2))) + K[j] + schedule[128 + j];  d2 += h2;  h2 += (rotateRight(a2, 2) ^ rotateRight(a2, 13) ^ rotateRight(a2, 22)) + ((a2 & (b2 | c2)) | (b2 & c2));
+			h3 += (rotateRight(e3, 6) ^ rotateRight(e3, 11) ^ rotateRight(e3, 25)) + (g3 ^ (e3 & (f3 ^ g3))) + K[j] + schedule[192 + j];  d3 += h3;  h3 += (rotateRight(a3, 2) ^ rotateRight(a3, 13) ^ rotateRight(a3, 22)) + ((a3 & (b3 | c3)) | (b3 & c3));
+			g0 += (rotateRight(d0, 6) ^ rotateRight(d0, 11) ^ rotateRight(d0, 25)) + (f0 ^ (d0 & (e0 ^ f0))) + K[j + 1] + schedule[j + 1];  c0 += g0;  g0 += (rotateRight(h0, 2) ^ rotateRight(h0, 13) ^ rotateRight(h0, 22)) + ((h0 & (a0 | b0)) | (a0 & b0));
+			g1 += (rotateRight(d1, 6) ^ rotateRight(d1, 11) ^ rotateRight(d1, 25)) + (f1 ^ (d1 & (e1 ^ f1))) + K[j + 1] + schedule[64 + j + 1];  c1 += g1;  g1 += (rotateRight(h1, 2) ^ rotateRight(h1, 13) ^ rotateRight(h1, 22)) + ((h1 & (a1 | b1)) | (a1 & b1));
+			g2 += (rotateRight(d2, 6) ^ rotateRight(d2, 11) ^ rotateRight(d2, 25)) + (f2 ^ (d2 & (e2 ^ f2))) + K[j + 1] + schedule[128 + j + 1];  c2 += g2;  g2 += (rotateRight(h2, 2) ^ rotateRight(h2, 13) ^ rotateRight(h2, 22)) + ((h2 & (a2 | b2)) | (a2 & b2));
+			g3 += (rotateRight(d3, 6) ^ rotateRight(d3, 11) ^ rotateRight(d3, 25)) + (f3 ^ (d3 & (e3 ^ f3))) + K[j + 1] + schedule[192 + j + 1];  c3 += g3;  g3 += (rotateRight(h3, 2) ^ rotateRight(h3, 13) ^ rotateRight(h3, 22)) + ((h3 & (a3 | b3)) | (a3 & b3));
+			f0 += (rotateRight(c0, 6) ^ rotateRight(c0, 11) ^ rotateRight(c0, 25)) + (e0 ^ (c0 & (d0 ^ e0))) + K[j + 2] + schedule[j + 2];  b0 += f0;  f0 += (rotateRight(g0, 2) ^ rotateRight(g0, 13) ^ rotateRight(g0, 22)) + ((g0 & (h0 | a0)) | (h0 & a0));
+			f1 += (rotateRight(c1, 6) ^ rotateRight(c1, 11) ^ rotateRight(c1, 25)) + (e1 ^ (c1 & (d1 ^ e1))) + K[j + 2] + schedule[64 + j + 2];  b1 += f1;  f1 += (rotateRight(g1, 2) ^ rotateRight(g1, 13) ^ rotateRight(g1, 22)) + ((g1 & (h1 | a1)) | (h1 & a1));
+			f2 += (rotateRight(c2, 6) ^ rotateRight(c2, 11) ^ rotateRight(c2, 25)) + (e2 ^ (c2 & (d2 ^ e2))) + K[j + 2] + schedule[128 + j + 2];  b2 += f2;  f2 += (rotateRight(g2, 2) ^ rotateRight(g2, 13) ^ rotateRight(g2, 22)) + ((g2 & (h2 | a2)) | (h2 & a2));
+			f3 += (rotateRight(c3, 6) ^ rotateRight(c3, 11) ^ rotateRight(c3, 25)) + (e3 ^ (c3 & (d3 ^ e3))) + K[j + 2] + schedule[192 + j + 2];  b3 += f3;  f3 += (rotateRight(g3, 2) ^ rotateRight(g3, 13) ^ rotateRight(g3, 22)) + ((g3 & (h3 | a3)) | (h3 & a3));
+			e0 += (rotateRight(b0, 6) ^ rotateRight(b0, 11) ^ rotateRight(b0, 25)) + (d0 ^ (b0 & (c0 ^ d0))) + K[j + 3] + schedule[j + 3];  a0 += e0;  e0 += (rotateRight(f0, 2) ^ rotateRight(f0, 13) ^ rotateRight(f0, 22)) + ((f0 & (g0 | h0)) | (g0 & h0));
+			e1 += (rotateRight(b1, 6) ^ rotateRight(b1, 11) ^ rotateRight(b1, 25)) + (d1 ^ (b1 & (c1 ^ d1))) + K[j + 3] + schedule[64 + j + 3];  a1 += e1;  e1 += (rotateRight(f1, 2) ^ rotateRight(f1, 13) ^ rotateRight(f1, 22)) + ((f1 & (g1 | h1)) | (g1 & h1));
+			e2 += (rotateRight(b2, 6) ^ rotateRight(b2, 11) ^ rotateRight(b2, 25)) + (d2 ^ (b2 & (c2 ^ d2))) + K[j + 3] + schedule[128 + j + 3];  a2 += e2;  e2 += (rotateRight(f2, 2) ^ rotateRight(f2, 13) ^ rotateRight(f2, 22)) + ((f2 & (g2 | h2)) | (g2 & h2));
+			e3 += (rotateRight(b3, 6) ^ rotateRight(b3, 11) ^ rotateRight(b3, 25)) + (d3 ^ (b3 & (c3 ^ d3))) + K[j + 3] + schedule[192 + j + 3];  a3 += e3;  e3 += (rotateRight(f3, 2) ^ rotateRight(f3, 13) ^ rotateRight(f3, 22)) + ((f3 & (g3 | h3)) | (g3 & h3));
+			d0 += (rotateRight(a0, 6) ^ rotateRight(a0, 11) ^ rotateRight(a0, 25)) + (c0 ^ (a0 & (b0 ^ c0))) + K[j + 4] + schedule[j + 4];  h0 += d0;  d0 += (rotateRight(e0, 2) ^ rotateRight(e0, 13) ^ rotateRight(e0, 22)) + ((e0 & (f0 | g0)) | (f0 & g0));
+			d1 += (rotateRight(a1, 6) ^ rotateRight(a1, 11) ^ rotateRight(a1, 25)) + (c1 ^ (a1 & (b1 ^ c1))) + K[j + 4] + schedule[64 + j + 4];  h1 += d1;  d1 += (rotateRight(e1, 2) ^ rotateRight(e1, 13) ^ rotateRight(e1, 22)) + ((e1 & (f1 | g1)) | (f1 & g1));
+			d2 += (rotateRight(a2, 6) ^ rotateRight(a2, 11) ^ rotateRight(a2, 25)) + (c2 ^ (a2 & (b2 ^ c2))) + K[j + 4] + schedule[128 + j + 4];  h2 += d2;  d2 += (rotateRight(e2, 2) ^ rotateRight(e2, 13) ^ rotateRight(e2, 22)) + ((e2 & (f2 | g2)) | (f2 & g2));
+			d3 += (rotateRight(a3, 6) ^ rotateRight(a3, 11) ^ rotateRight(a3, 25)) + (c3 ^ (a3 & (b3 ^ c3))) + K[j + 4] + schedule[192 + j + 4];  h3 += d3;  d3 += (rotateRight(e3, 2) ^ rotateRight(e3, 13) ^ rotateRight(e3, 22)) + ((e3 & (f3 | g3)) | (f3 & g3));
+			c0 += (rotateRight(h0, 6) ^ rotateRight(h0, 11) ^ rotateRight(h0, 25)) + (b0 ^ (h0 & (a0 ^ b0))) + K[j + 5] + schedule[j + 5];  g0 += c0;  c0 += (rotateRight(d0, 2) ^ rotateRight(d0, 13) ^ rotateRight(d0, 22)) + ((d0 & (e0 | f0)) | (e0 & f0));
+			c1 += (rotateRight(h1, 6) ^ rotateRight(h1, 11) ^ rotateRight(h1, 25)) + (b1 ^ (h1 & (a1 ^ b1))) + K[j + 5] + schedule[64 + j + 5];  g1 += c1;  c1 += (rotateRight(d1, 2) ^ rotateRight(d1, 13) ^ rotateRight(d1, 22)) + ((d1 & (e1 | f1)) | (e1 & f1));
+			c2 += (rotateRight(h2, 6) ^ rotateRight(h2, 11) ^ rotateRight(h2, 25)) + (b2 ^ (h2 & (a2 ^ b2))) + K[j + 5] + schedule[128 + j + 5];  g2 += c2;  c2 += (rotateRight(d2, 2) ^ rotateRight(d2, 13) ^ rotateRight(d2, 22)) + ((d2 & (e2 | f2)) | (e2 & f2));
+			c3 += (rotateRight(h3, 6) ^ rotateRight(h3, 11) ^ rotateRight(h3, 25)) + (b3 ^ (h3 & (a3 ^ b3))) + K[j + 5] + schedule[192 + j + 5];  g3 += c3;  c3 += (rotateRight(d3, 2) ^ rotateRight(d3, 13) ^ rotateRight(d3, 22)) + ((d3 & (e3 | f3)) | (e3 & f3));
+			b0 += (rotateRight(g0, 6) ^ rotateRight(g0, 11) ^ rotateRight(g0, 25)) + (a0 ^ (g0 & (h0 ^ a0))) + K[j + 6] + schedule[j + 6];  f0 += b0;  b0 += (rotateRight(c0, 2) ^ rotateRight(c0, 13) ^ rotateRight(c0, 22)) + ((c0 & (d0 | e0)) | (d0 & e0));
+			b1 += (rotateRight(g1, 6) ^ rotateRight(g1, 11) ^ rotateRight(g1, 25)) + (a1 ^ (g1 & (h1 ^ a1))) + K[j + 6] + schedule[64 + j + 6];  f1 += b1;  b1 += (rotateRight(c1, 2) ^ rotateRight(c1, 13) ^ rotateRight(c1, 22)) + ((c1 & (d1 | e1)) | (d1 & e1));
+			b2 += (rotateRight(g2, 6) ^ rotateRight(g2, 11) ^ rotateRight(g2, 25)) + (a2 ^ (g2 & (h2 ^ a2))) + K[j + 6] + schedule[128 + j + 6];  f2 += b2;  b2 += (rotateRight(c2, 2) ^ rotateRight(c2, 13) ^ rotateRight(c2, 22)) + ((c2 & (d2 | e2)) | (d2 & e2));
+			b3 += (rotateRight(g3, 6) ^ rotateRight(g3, 11) ^ rotateRight(g3, 25)) + (a3 ^ (g3 & (h3 ^ a3))) + K[j + 6] + schedule[192 + j + 6];  f3 += b3;  b3 += (rotateRight(c3, 2) ^ rotateRight(c3, 13) ^ rotateRight(c3, 22)) + ((c3 & (d3 | e3)) | (d3 & e3));
+			a0 += (rotateRight(f0, 6) ^ rotateRight(f0, 11) ^ rotateRight(f0, 25)) + (h0 ^ (f0 & (g0 ^ h0))) + K[j + 7] + schedule[j + 7];  e0 += a0;  a0 += (rotateRight(b0, 2) ^ rotateRight(b0, 13) ^ rotateRight(b0, 22)) + ((b0 & (c0 | d0)) | (c0 & d0));
+			a1 += (rotateRight(f1, 6) ^ rotateRight(f1, 11) ^ rotateRight(f1, 25)) + (h1 ^ (f1 & (g1 ^ h1))) + K[j + 7] + schedule[64 + j + 7];  e1 += a1;  a1 += (rotateRight(b1, 2) ^ rotateRight(b1, 13) ^ rotateRight(b1, 22)) + ((b1 & (c1 | d1)) | (c1 & d1));
+			a2 += (rotateRight(f2, 6) ^ rotateRight(f2, 11) ^ rotateRight(f2, 25)) + (h2 ^ (f2 & (g2 ^ h2))) + K[j + 7] + schedule[128 + j + 7];  e2 += a2;  a2 += (rotateRight(b2, 2) ^ rotateRight(b2, 13) ^ rotateRight(b2, 22)) + ((b2 & (c2 | d2)) | (c2 & d2));
+			a3 += (rotateRight(f3, 6) ^ rotateRight(f3, 11) ^ rotateRight(f3, 25)) + (h3 ^ (f3 & (g3 ^ h3))) + K[j + 7] + schedule[192 + j + 7];  e3 += a3;  a3 += (rotateRight(b3, 2) ^ rotateRight(b3, 13) ^ rotateRight(b3, 22)) + ((b3 & (c3 | d3)) | (c3 & d3));
+		}
+		
+		states[ 0] += a0;  states[ 1] += a1;  states[ 2] += a2;  states[ 3] += a3;
+		states[ 4] += b0;  states[ 5] += b1;  states[ 6] += b2;  states[ 7] += b3;
+		states[ 8] += c0;  states[ 9] += c1;  states[10] += c2;  states[11] += c3;
+		states[12] += d0;  states[13] += d1;  states[14] += d2;  states[15] += d3;
+		states[16] += e0;  states[17] += e1;  states[18] += e2;  states[19] += e3;
+		states[20] += f0;  states[21] += f1;  states[22] += f2;  states[23] += f3;
+		states[24] += g0;  states[25] += g1;  states[26] += g2;  states[27] += g3;
+		states[28] += h0;  states[29] += h1;  states[30] += h2;  states[31] += h3;
+	}
+	
+}
@@ -0,0 +1,132 @@
+package p79068.crypto.hash;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+import p79068.hash.AbstractHashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+
+
+/**
+ * The ParallelHash128 and ParallelHash256 hash functions of NIST SP 800-185, parameterized by a block length, an output length and a customization string.
+ * <p>The message is split into blocks of the block length. Each block is hashed independently with SHAKE128 or SHAKE256, and the block hashes are absorbed by a final cSHAKE sponge. The blocks are hashed several at a time (see {@link KeccakLeafHasher}), and the {@code getHash(..., ForkJoinPool)} method hashes them concurrently, so only the final sponge is sequential.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class ParallelHash extends AbstractHashFunction {
+	
+	// The domain separation bits 00 of cSHAKE, followed by the first bit of the pad10*1 padding
+	static final byte CSHAKE_PADDING = 0x04;
+	
+	
+	
+	private final int rate;
+	
+	private final int blockLength;
+	
+	// The final node after absorbing the cSHAKE prefix and the block length
+	private final KeccakHasher initialNode;
+	
+	
+	
+	/**
+	 * Constructs a ParallelHash function with the specified parameters.
+	 * @param xof {@link Shake#SHAKE128_FUNCTION} for ParallelHash128, or {@link Shake#SHAKE256_FUNCTION} for ParallelHash256
+	 * @param blockLength the length of each block in bytes
+	 * @param hashLen the length of the hash value in bytes
+	 * @param customization the customization string
+	 * @throws NullPointerException if {@code xof} or {@code customization} is {@code null}
+	 * @throws IllegalArgumentException if {@code xof} is not one of the SHAKE functions, or {@code blockLength} or {@code hashLen} is not positive
+	 */
+	public ParallelHash(Shake xof, int blockLength, int hashLen, byte[] customization) {
+		super(getName(xof), hashLen);
+		Assert.assertNotNull(customization);
+		if (blockLength <= 0 || hashLen == 0)
+			throw new IllegalArgumentException("Block length and hash length must be positive");
+		rate = xof.getRate();
+		this.blockLength = blockLength;
+		
+		// cSHAKE prefix: bytepad(encode_string(N) || encode_string(S), rate), with the function name N = "ParallelHash"
+		ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+		prefix.writeBytes(leftEncode(rate));
+		encodeString(prefix, "ParallelHash".getBytes(StandardCharsets.US_ASCII));
+		encodeString(prefix, customization);
+		while (prefix.size() % rate != 0)
+			prefix.write(0);
+		prefix.writeBytes(leftEncode(blockLength));
+		initialNode = new KeccakHasher(this, rate, CSHAKE_PADDING);
+		initialNode.update(prefix.toByteArray());
+	}
+	
+	
+	private static String getName(Shake xof) {
+		Assert.assertNotNull(xof);
+		if (xof == Shake.SHAKE128_FUNCTION)
+			return "ParallelHash128";
+		else if (xof == Shake.SHAKE256_FUNCTION)
+			return "ParallelHash256";
+		else
+			throw new IllegalArgumentException("Unsupported extendable-output function");
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		return new ParallelHashHasher(this, initialNode.clone(), rate, blockLength);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, hashing the blocks concurrently on the specified pool. The result equals {@code getHash(b, off, len)}.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the blocks on
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public HashValue getHash(byte[] b, int off, int len, ForkJoinPool pool) {
+		Assert.assertNotNull(b, pool);
+		ParallelHashHasher hasher = new ParallelHashHasher(this, initialNode.clone(), rate, blockLength);
+		hasher.update(b, off, len, pool);
+		return hasher.getHash();
+	}
+	
+	
+	
+	// left_encode(x): the number of bytes, followed by the bytes of x in big endian without leading zeros (at least one byte).
+	private static byte[] leftEncode(long x) {
+		int n = Math.max((64 - Long.numberOfLeadingZeros(x) + 7) / 8, 1);
+		byte[] result = new byte[n + 1];
+		result[0] = (byte)n;
+		for (int i = 0; i < n; i++)
+			result[1 + i] = (byte)(x >>> ((n - 1 - i) * 8));
+		return result;
+	}
+	
+	
+	// right_encode(x): the bytes of x in big endian without leading zeros (at least one byte), followed by their number.
+	static byte[] rightEncode(long x) {
+		int n = Math.max((64 - Long.numberOfLeadingZeros(x) + 7) / 8, 1);
+		byte[] result = new byte[n + 1];
+		for (int i = 0; i < n; i++)
+			result[i] = (byte)(x >>> ((n - 1 - i) * 8));
+		result[n] = (byte)n;
+		return result;
+	}
+	
+	
+	// encode_string(s): the bit length of s with left_encode(), followed by s.
+	private static void encodeString(ByteArrayOutputStream out, byte[] s) {
+		out.writeBytes(leftEncode((long)s.length * 8));
+		out.writeBytes(s);
+	}
+	
+}
@@ -0,0 +1,32 @@
+package p79068.crypto.hash;
+
+
+final class ParallelHashHasher extends KeccakTreeHasher {
+	
+	// The padding of SHAKE, because each block is hashed with cSHAKE with an empty function name and customization string
+	private static final byte LEAF_PADDING = 0x1F;
+	
+	
+	
+	// The leaves output 2 * 128 or 2 * 256 bits, which equals the capacity of the sponge
+	public ParallelHashHasher(ParallelHash hashFunc, KeccakHasher node, int rate, int blockLength) {
+		super(hashFunc, node, rate, LEAF_PADDING, 24, blockLength, 200 - rate);
+	}
+	
+	
+	
+	@Override
+	public ParallelHashHasher clone() {
+		return (ParallelHashHasher)super.clone();
+	}
+	
+	
+	@Override
+	protected void finish() {
+		endPartialLeaf();
+		node.update(ParallelHash.rightEncode(numLeaves));
+		node.update(ParallelHash.rightEncode((long)hashFunction.getHashLength() * 8));
+		node.finish(ParallelHash.CSHAKE_PADDING);
+	}
+	
+}
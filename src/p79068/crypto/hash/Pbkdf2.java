@@ -0,0 +1,152 @@
+package p79068.crypto.hash;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import p79068.Assert;
+
+
+/**
+ * The PBKDF2 password-based key derivation function with HMAC as the pseudorandom function (RFC 8018).
+ * <p>Each block of the derived key is the XOR of a chain of HMACs, where the first HMAC is of the salt and the block index, and each further HMAC is of the previous one. The chain is computed with {@link Hmac}'s one-shot path, which restores the precomputed inner and outer states of the password for each HMAC, so each iteration costs exactly two compressions and allocates no objects (see {@link Hmac} for when this applies). The chains of different blocks are independent, and the {@code deriveKey(..., ForkJoinPool)} method computes them concurrently.</p>
+ */
+public final class Pbkdf2 {
+	
+	/**
+	 * Derives and returns a key of the specified length from the specified password and salt.
+	 * @param hashFunc the underlying block hash function of the HMAC
+	 * @param password the password, which is the HMAC key
+	 * @param salt the salt
+	 * @param iterations the number of iterations, which is positive
+	 * @param keyLen the length of the derived key in bytes
+	 * @return the derived key
+	 * @throws NullPointerException if any argument is {@code null}
+	 * @throws IllegalArgumentException if the number of iterations is not positive, or the key length is negative
+	 */
+	public static byte[] deriveKey(BlockHashFunction hashFunc, byte[] password, byte[] salt, int iterations, int keyLen) {
+		Assert.assertNotNull(hashFunc, password, salt);
+		checkArguments(iterations, keyLen);
+		Hmac prf = new Hmac(hashFunc, password);
+		byte[] result = new byte[keyLen];
+		deriveBlocks(prf, salt, iterations, 0, blockCount(prf, keyLen), result);
+		prf.zeroize();
+		return result;
+	}
+	
+	
+	/**
+	 * Derives and returns a key of the specified length from the specified password and salt, computing the blocks of the key concurrently on the specified pool. A key of at most one hash value length is derived on the calling thread.
+	 * @param hashFunc the underlying block hash function of the HMAC
+	 * @param password the password, which is the HMAC key
+	 * @param salt the salt
+	 * @param iterations the number of iterations, which is positive
+	 * @param keyLen the length of the derived key in bytes
+	 * @param pool the pool to compute the blocks on
+	 * @return the derived key
+	 * @throws NullPointerException if any argument is {@code null}
+	 * @throws IllegalArgumentException if the number of iterations is not positive, or the key length is negative
+	 */
+	public static byte[] deriveKey(BlockHashFunction hashFunc, byte[] password, byte[] salt, int iterations, int keyLen, ForkJoinPool pool) {
+		Assert.assertNotNull(hashFunc, password, salt, pool);
+		checkArguments(iterations, keyLen);
+		Hmac prf = new Hmac(hashFunc, password);
+		byte[] result = new byte[keyLen];
+		int blocks = blockCount(prf, keyLen);
+		if (blocks <= 1)
+			deriveBlocks(prf, salt, iterations, 0, blocks, result);
+		else
+			pool.invoke(new BlockTask(prf, salt, iterations, 0, blocks, result));
+		prf.zeroize();
+		return result;
+	}
+	
+	
+	
+	private static void checkArguments(int iterations, int keyLen) {
+		if (iterations <= 0)
+			throw new IllegalArgumentException("Number of iterations must be positive");
+		if (keyLen < 0)
+			throw new IllegalArgumentException("Negative key length");
+	}
+	
+	
+	private static int blockCount(Hmac prf, int keyLen) {
+		int hashLen = prf.getHashLength();
+		return (int)(((long)keyLen + hashLen - 1) / hashLen);
+	}
+	
+	
+	// Computes blocks [start, end) of the key (numbered from 0) and writes them into the key array, truncating the last block of the key.
+	private static void deriveBlocks(Hmac prf, byte[] salt, int iterations, int start, int end, byte[] key) {
+		int hashLen = prf.getHashLength();
+		byte[] msg = Arrays.copyOf(salt, salt.length + 4);
+		byte[] u = new byte[hashLen];
+		byte[] t = new byte[hashLen];
+		for (int i = start; i < end; i++) {
+			int index = i + 1;  // Big endian, starting at 1
+			msg[salt.length + 0] = (byte)(index >>> 24);
+			msg[salt.length + 1] = (byte)(index >>> 16);
+			msg[salt.length + 2] = (byte)(index >>>  8);
+			msg[salt.length + 3] = (byte)(index >>>  0);
+			prf.mac(msg, 0, msg.length, u, 0);
+			System.arraycopy(u, 0, t, 0, hashLen);
+			prf.iterate(u, iterations - 1, t);
+			int off = i * hashLen;
+			System.arraycopy(t, 0, key, off, Math.min(hashLen, key.length - off));
+		}
+		Arrays.fill(u, (byte)0);
+		Arrays.fill(t, (byte)0);
+	}
+	
+	
+	
+	/**
+	 * Not instantiable.
+	 */
+	private Pbkdf2() {}
+	
+	
+	
+	// Computes a range of blocks, by splitting it in half until single blocks remain.
+	@SuppressWarnings("serial")
+	private static final class BlockTask extends RecursiveAction {
+		
+		private final Hmac prf;
+		
+		private final byte[] salt;
+		
+		private final int iterations;
+		
+		private final int start;
+		
+		private final int end;
+		
+		private final byte[] key;
+		
+		
+		
+		public BlockTask(Hmac prf, byte[] salt, int iterations, int start, int end, byte[] key) {
+			this.prf = prf;
+			this.salt = salt;
+			this.iterations = iterations;
+			this.start = start;
+			this.end = end;
+			this.key = key;
+		}
+		
+		
+		
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				int mid = start + (end - start) / 2;
+				invokeAll(
+					new BlockTask(prf, salt, iterations, start, mid, key),
+					new BlockTask(prf, salt, iterations, mid, end, key));
+			} else
+				deriveBlocks(prf, salt, iterations, start, end, key);
+		}
+		
+	}
+	
+}
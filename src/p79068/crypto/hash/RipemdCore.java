@@ -1,11 +1,7 @@
 package p79068.crypto.hash;
 
-import java.math.BigInteger;
-import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizer;
-import p79068.hash.HashValue;
-import p79068.math.IntegerBitMath;
 
 
 final class RipemdCore extends BlockHasherCore {
@@ -14,6 +10,10 @@ final class RipemdCore extends BlockHasherCore {
 	
 	private int[] state;
 	
+	private int[] savedState;  // Scratch space for getHash()
+	
+	private int[] schedule;  // Scratch space for compress()
+	
 	
 	
 	public RipemdCore(int hashLen) {
@@ -28,6 +28,8 @@ final class RipemdCore extends BlockHasherCore {
 			case 40 /* RIPEMD-320 */ -> new int[]{0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0, 0x76543210, 0xFEDCBA98, 0x89ABCDEF, 0x01234567, 0x3C2D1E0F};
 			default -> throw new AssertionError();
 		};
+		savedState = new int[state.length];
+		schedule = new int[16];
 	}
 	
 	
@@ -38,6 +40,8 @@ final class RipemdCore extends BlockHasherCore {
 			throw new IllegalStateException("Already zeroized");
 		RipemdCore result = (RipemdCore)super.clone();
 		result.state = result.state.clone();
+		result.savedState = new int[state.length];
+		result.schedule = new int[16];
 		return result;
 	}
 	
@@ -47,6 +51,8 @@ final class RipemdCore extends BlockHasherCore {
 		if (state == null)
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
+		savedState = Zeroizer.clear(savedState);
+		schedule = Zeroizer.clear(schedule);
 	}
 	
 	
@@ -57,8 +63,6 @@ final class RipemdCore extends BlockHasherCore {
 		if (len % 64 != 0)
 			throw new AssertionError();
 		
-		int[] schedule = new int[16];
-		
 		// For each block of 64 bytes
 		for (int i = off, end = off + len; i < end; ) {
 			
@@ -252,19 +256,12 @@ final class RipemdCore extends BlockHasherCore {
 	
 	
 	@Override
-	public HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length) {
-		block[blockFilled] = (byte)0x80;
-		blockFilled++;
-		Arrays.fill(block, blockFilled, block.length, (byte)0);
-		if (blockFilled + 8 > block.length) {
-			compress(block);
-			Arrays.fill(block, (byte)0);
-		}
-		length = length.shiftLeft(3);  // Length is now in bits
-		for (int i = 0; i < 8; i++)
-			block[block.length - 8 + i] = length.shiftRight(i * 8).byteValue();
-		compress(block);
-		return new HashValue(IntegerBitMath.toBytesLittleEndian(state));
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		System.arraycopy(state, 0, savedState, 0, state.length);
+		padAndCompress(block, blockFilled, length, lengthHigh, (byte)0x80, 8, false);
+		for (int i = 0; i < state.length * 4; i++)  // Serialize in little endian
+			out[off + i] = (byte)(state[i >>> 2] >>> ((i & 3) << 3));
+		System.arraycopy(savedState, 0, state, 0, state.length);
 	}
 	
 	
@@ -1,12 +1,16 @@
 package p79068.crypto.hash;
 
+import p79068.Assert;
+import p79068.backend.Backend;
 import p79068.crypto.cipher.Cipherer;
 import p79068.crypto.cipher.Shacal;
+import p79068.hash.HashValue;
 import p79068.hash.Hasher;
 
 
 /**
  * The SHA hash function family, described in FIPS Publication 180.
+ * <p>Except for the original SHA, the hashers may be backed by the Java platform's {@link java.security.MessageDigest} instead of this library's code, if that is faster on this machine. See {@link p79068.backend.Backends}.</p>
  */
 public final class Sha extends AbstractBlockHashFunction {
 	
@@ -59,6 +63,11 @@ public final class Sha extends AbstractBlockHashFunction {
 	
 	
 	
+	// Selected on first use
+	private Backend backend;
+	
+	
+	
 	private Sha(String name, int hashLen, int blockLen) {
 		super(name, hashLen, blockLen);
 	}
@@ -71,16 +80,84 @@ public final class Sha extends AbstractBlockHashFunction {
 	 */
 	@Override
 	public Hasher newHasher() {
-		if      (this == SHA_FUNCTION   ) return new BlockHasher(this, new Sha1Core(false));
-		else if (this == SHA1_FUNCTION  ) return new BlockHasher(this, new FastSha1Core());
-		else if (this == SHA224_FUNCTION) return new BlockHasher(this, new FastSha256Core(false));
-		else if (this == SHA256_FUNCTION) return new BlockHasher(this, new FastSha256Core(true));
+		if (getBackend() == Backend.JDK)
+			return JdkDigestHasher.newInstance(this);
+		else
+			return newLibraryHasher();
+	}
+	
+	
+	// Returns a new hasher of this library's implementation. Also used by tests.
+	Hasher newLibraryHasher() {
+		return new BlockHasher(this, newCore());
+	}
+	
+	
+	@Override
+	BlockHasherCore newCore() {
+		if      (this == SHA_FUNCTION   ) return new Sha1Core(false);
+		else if (this == SHA1_FUNCTION  ) return new FastSha1Core();
+		else if (this == SHA224_FUNCTION) return new FastSha256Core(false);
+		else if (this == SHA256_FUNCTION) return new FastSha256Core(true);
 		else if (this == SHA384_FUNCTION || this == SHA512_FUNCTION || this == SHA512_224_FUNCTION || this == SHA512_256_FUNCTION)
-			return new BlockHasher(this, new FastSha512Core(getHashLength()));
+			return new FastSha512Core(getHashLength());
 		else throw new AssertionError();
 	}
 	
 	
+	// The original SHA has no JDK implementation, and the JDK's name "SHA" means SHA-1.
+	private Backend getBackend() {
+		if (backend == null)
+			backend = this == SHA_FUNCTION ? Backend.LIBRARY : JdkDigestHasher.selectBackend(this, "UseSHA", this::newLibraryHasher);
+		return backend;
+	}
+	
+	
+	/**
+	 * Computes and returns the hash values of the specified byte arrays. For SHA-1 and SHA-256, if this library's implementation is selected, several messages are compressed in lock step; otherwise they are hashed one at a time with the selected backend.
+	 * @param messages the byte arrays to hash
+	 * @return a new array of the hash values, where element {@code i} is the hash of {@code messages[i]}
+	 * @throws NullPointerException if {@code messages} or any element is {@code null}
+	 */
+	@Override
+	public HashValue[] getHashes(byte[][] messages) {
+		MultiBufferHasher mb = newMultiBufferHasher();
+		if (mb == null)
+			return super.getHashes(messages);
+		return mb.getHashes(messages, null, null);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash values of the specified byte array ranges. For SHA-1 and SHA-256, if this library's implementation is selected, several messages are compressed in lock step; otherwise they are hashed one at a time with the selected backend.
+	 * @param messages the byte arrays to hash
+	 * @param offsets the offset into each byte array
+	 * @param lengths the length of the subrange in each byte array
+	 * @return a new array of the hash values, where element {@code i} is the hash of range {@code i}
+	 * @throws NullPointerException if any array or any element of {@code messages} is {@code null}
+	 * @throws IllegalArgumentException if the three arrays differ in length
+	 * @throws IndexOutOfBoundsException if a range lies outside of its byte array
+	 */
+	@Override
+	public HashValue[] getHashes(byte[][] messages, int[] offsets, int[] lengths) {
+		MultiBufferHasher mb = newMultiBufferHasher();
+		if (mb == null)
+			return super.getHashes(messages, offsets, lengths);
+		Assert.assertNotNull(offsets, lengths);
+		return mb.getHashes(messages, offsets, lengths);
+	}
+	
+	
+	// Returns a new multi-buffer hasher for this hash function, or null if there is none or the JDK backend is selected.
+	private MultiBufferHasher newMultiBufferHasher() {
+		if (getBackend() == Backend.JDK)
+			return null;
+		if      (this == SHA1_FUNCTION  ) return MultiBufferHasher.newSha1();
+		else if (this == SHA256_FUNCTION) return MultiBufferHasher.newSha256();
+		else return null;
+	}
+	
+	
 	public static Cipherer newShacalCipherer(Shacal cipher, byte[] key) {
 		if (cipher.isShacal1())
 			return new Shacal1Cipherer(cipher, key);
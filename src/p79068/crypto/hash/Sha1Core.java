@@ -1,23 +1,28 @@
 package p79068.crypto.hash;
 
-import java.math.BigInteger;
-import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizer;
-import p79068.hash.HashValue;
-import p79068.math.IntegerBitMath;
 
 
 class Sha1Core extends BlockHasherCore {
 	
 	protected int[] state;
 	
+	private int[] savedState;  // Scratch space for getHash()
+	
+	private int[] schedule;  // Scratch space for compress()
+	
+	private int[] tempState;  // Scratch space for compress()
+	
 	private final boolean sha1Mode;
 	
 	
 	
 	public Sha1Core(boolean sha1Mode) {
 		state = new int[]{0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0};
+		savedState = new int[5];
+		schedule = new int[80];
+		tempState = new int[5];
 		this.sha1Mode = sha1Mode;
 	}
 	
@@ -29,6 +34,9 @@ class Sha1Core extends BlockHasherCore {
 			throw new IllegalStateException("Already zeroized");
 		Sha1Core result = (Sha1Core)super.clone();
 		result.state = result.state.clone();
+		result.savedState = new int[5];
+		result.schedule = new int[80];
+		result.tempState = new int[5];
 		return result;
 	}
 	
@@ -38,6 +46,24 @@ class Sha1Core extends BlockHasherCore {
 		if (state == null)
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
+		savedState = Zeroizer.clear(savedState);
+		schedule = Zeroizer.clear(schedule);
+		tempState = Zeroizer.clear(tempState);
+	}
+	
+	
+	@Override
+	public boolean isStateCopyable() {
+		return true;
+	}
+	
+	
+	@Override
+	public void copyStateFrom(BlockHasherCore source) {
+		int[] src = ((Sha1Core)source).state;
+		if (state == null || src == null)
+			throw new IllegalStateException("Already zeroized");
+		System.arraycopy(src, 0, state, 0, state.length);
 	}
 	
 	
@@ -47,8 +73,6 @@ class Sha1Core extends BlockHasherCore {
 		if (len % 64 != 0)
 			throw new AssertionError();
 		
-		int[] schedule = new int[80];
-		
 		// For each block of 64 bytes
 		for (int i = off, end = off + len; i < end; ) {
 			
@@ -69,7 +93,7 @@ class Sha1Core extends BlockHasherCore {
 				schedule[j] = temp;
 			}
 			
-			int[] tempState = state.clone();
+			System.arraycopy(state, 0, tempState, 0, 5);
 			encrypt(schedule, tempState);
 			
 			state[0] += tempState[0];
@@ -165,22 +189,15 @@ class Sha1Core extends BlockHasherCore {
 	
 	
 	@Override
-	public HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length) {
-		if (length.bitLength() > 61)  // SHA-1 only supports messages less than 2^64 bits long
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		if (lengthHigh != 0 || (length >>> 61) != 0)  // SHA-1 only supports messages less than 2^64 bits long
 			throw new IllegalStateException("Message too long");
 		
-		block[blockFilled] = (byte)0x80;
-		blockFilled++;
-		Arrays.fill(block, blockFilled, block.length, (byte)0);
-		if (blockFilled + 8 > block.length) {
-			compress(block);
-			Arrays.fill(block, (byte)0);
-		}
-		length = length.shiftLeft(3);  // Length is now in bits
-		for (int i = 0; i < 8; i++)
-			block[block.length - 1 - i] = length.shiftRight(i * 8).byteValue();
-		compress(block);
-		return new HashValue(IntegerBitMath.toBytesBigEndian(state));
+		System.arraycopy(state, 0, savedState, 0, state.length);
+		padAndCompress(block, blockFilled, length, lengthHigh, (byte)0x80, 8, true);
+		for (int i = 0; i < 20; i++)  // Serialize in big endian
+			out[off + i] = (byte)(state[i >>> 2] >>> ((3 - (i & 3)) << 3));
+		System.arraycopy(savedState, 0, state, 0, state.length);
 	}
 	
 }
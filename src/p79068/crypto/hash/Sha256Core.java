@@ -1,12 +1,8 @@
 package p79068.crypto.hash;
 
 import static java.lang.Integer.rotateRight;
-import java.math.BigInteger;
-import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizer;
-import p79068.hash.HashValue;
-import p79068.math.IntegerBitMath;
 
 
 class Sha256Core extends BlockHasherCore {
@@ -15,6 +11,12 @@ class Sha256Core extends BlockHasherCore {
 	
 	protected int[] state;
 	
+	private int[] savedState;  // Scratch space for getHash()
+	
+	private int[] schedule;  // Scratch space for compress()
+	
+	private int[] tempState;  // Scratch space for compress()
+	
 	
 	
 	public Sha256Core(boolean sha256Mode) {
@@ -30,6 +32,9 @@ class Sha256Core extends BlockHasherCore {
 				0xFFC00B31, 0x68581511, 0x64F98FA7, 0xBEFA4FA4,
 			};
 		}
+		savedState = new int[8];
+		schedule = new int[64];
+		tempState = new int[8];
 	}
 	
 	
@@ -40,6 +45,9 @@ class Sha256Core extends BlockHasherCore {
 			throw new IllegalStateException("Already zeroized");
 		Sha256Core result = (Sha256Core)super.clone();
 		result.state = result.state.clone();
+		result.savedState = new int[8];
+		result.schedule = new int[64];
+		result.tempState = new int[8];
 		return result;
 	}
 	
@@ -49,6 +57,24 @@ class Sha256Core extends BlockHasherCore {
 		if (state == null)
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
+		savedState = Zeroizer.clear(savedState);
+		schedule = Zeroizer.clear(schedule);
+		tempState = Zeroizer.clear(tempState);
+	}
+	
+	
+	@Override
+	public boolean isStateCopyable() {
+		return true;
+	}
+	
+	
+	@Override
+	public void copyStateFrom(BlockHasherCore source) {
+		int[] src = ((Sha256Core)source).state;
+		if (state == null || src == null)
+			throw new IllegalStateException("Already zeroized");
+		System.arraycopy(src, 0, state, 0, state.length);
 	}
 	
 	
@@ -59,8 +85,6 @@ class Sha256Core extends BlockHasherCore {
 		if (len % 64 != 0)
 			throw new AssertionError();
 		
-		int[] schedule = new int[64];
-		
 		// For each block of 64 bytes
 		for (int i = off, end = off + len; i < end; ) {
 			
@@ -77,7 +101,7 @@ class Sha256Core extends BlockHasherCore {
 			for (int j = 16; j < 64; j++)
 				schedule[j] = schedule[j-16] + schedule[j-7] + smallSigma0(schedule[j-15]) + smallSigma1(schedule[j-2]);
 			
-			int[] tempState = state.clone();
+			System.arraycopy(state, 0, tempState, 0, 8);
 			encrypt(schedule, tempState);
 			
 			state[0] += tempState[0];
@@ -93,24 +117,16 @@ class Sha256Core extends BlockHasherCore {
 	
 	
 	@Override
-	public HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length) {
-		if (length.bitLength() > 61)  // SHA-224, SHA-256 only support messages less than 2^64 bits long
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		if (lengthHigh != 0 || (length >>> 61) != 0)  // SHA-224, SHA-256 only support messages less than 2^64 bits long
 			throw new IllegalStateException("Message too long");
 		
-		block[blockFilled] = (byte)0x80;
-		blockFilled++;
-		Arrays.fill(block, blockFilled, block.length, (byte)0);
-		if (blockFilled + 8 > block.length) {
-			compress(block);
-			Arrays.fill(block, (byte)0);
-		}
-		length = length.shiftLeft(3);  // Length is now in bits
-		for (int i = 0; i < 8; i++)
-			block[block.length - 1 - i] = length.shiftRight(i * 8).byteValue();
-		compress(block);
-		if (!sha256Mode)  // If SHA-224, truncate the state
-			state = Arrays.copyOf(state, 7);
-		return new HashValue(IntegerBitMath.toBytesBigEndian(state));
+		System.arraycopy(state, 0, savedState, 0, state.length);
+		padAndCompress(block, blockFilled, length, lengthHigh, (byte)0x80, 8, true);
+		int hashLen = sha256Mode ? 32 : 28;  // If SHA-224, truncate the state
+		for (int i = 0; i < hashLen; i++)  // Serialize in big endian
+			out[off + i] = (byte)(state[i >>> 2] >>> ((3 - (i & 3)) << 3));
+		System.arraycopy(savedState, 0, state, 0, state.length);
 	}
 	
 	
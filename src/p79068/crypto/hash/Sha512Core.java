@@ -1,12 +1,8 @@
 package p79068.crypto.hash;
 
 import static java.lang.Long.rotateRight;
-import java.math.BigInteger;
-import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizer;
-import p79068.hash.HashValue;
-import p79068.math.LongBitMath;
 
 
 class Sha512Core extends BlockHasherCore {
@@ -15,6 +11,10 @@ class Sha512Core extends BlockHasherCore {
 	
 	protected long[] state;
 	
+	private long[] savedState;  // Scratch space for getHash()
+	
+	protected long[] schedule;  // Scratch space for compress()
+	
 	
 	
 	public Sha512Core(int hashLen) {
@@ -26,6 +26,8 @@ class Sha512Core extends BlockHasherCore {
 			case 64 /* SHA-512     */ -> new long[]{0x6A09E667F3BCC908L, 0xBB67AE8584CAA73BL, 0x3C6EF372FE94F82BL, 0xA54FF53A5F1D36F1L, 0x510E527FADE682D1L, 0x9B05688C2B3E6C1FL, 0x1F83D9ABFB41BD6BL, 0x5BE0CD19137E2179L};
 			default -> throw new AssertionError();
 		};
+		savedState = new long[8];
+		schedule = new long[80];
 	}
 	
 	
@@ -36,6 +38,8 @@ class Sha512Core extends BlockHasherCore {
 			throw new IllegalStateException("Already zeroized");
 		Sha512Core result = (Sha512Core)super.clone();
 		result.state = result.state.clone();
+		result.savedState = new long[8];
+		result.schedule = new long[80];
 		return result;
 	}
 	
@@ -45,6 +49,23 @@ class Sha512Core extends BlockHasherCore {
 		if (state == null)
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
+		savedState = Zeroizer.clear(savedState);
+		schedule = Zeroizer.clear(schedule);
+	}
+	
+	
+	@Override
+	public boolean isStateCopyable() {
+		return true;
+	}
+	
+	
+	@Override
+	public void copyStateFrom(BlockHasherCore source) {
+		long[] src = ((Sha512Core)source).state;
+		if (state == null || src == null)
+			throw new IllegalStateException("Already zeroized");
+		System.arraycopy(src, 0, state, 0, state.length);
 	}
 	
 	
@@ -55,8 +76,6 @@ class Sha512Core extends BlockHasherCore {
 		if (len % 128 != 0)
 			throw new AssertionError();
 		
-		long[] schedule = new long[80];
-		
 		// For each block of 128 bytes
 		for (int i = off, end = off + len; i < end; ) {
 			
@@ -119,23 +138,15 @@ class Sha512Core extends BlockHasherCore {
 	
 	
 	@Override
-	public HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length) {
-		if (length.bitLength() > 125)  // SHA-384, SHA-512, SHA-512/t only support messages less than 2^128 bits long
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		if ((lengthHigh >>> 61) != 0)  // SHA-384, SHA-512, SHA-512/t only support messages less than 2^128 bits long
 			throw new IllegalStateException("Message too long");
 		
-		block[blockFilled] = (byte)0x80;
-		blockFilled++;
-		Arrays.fill(block, blockFilled, block.length, (byte)0);
-		if (blockFilled + 16 > block.length) {
-			compress(block);
-			Arrays.fill(block, (byte)0);
-		}
-		length = length.shiftLeft(3);  // Length is now in bits
-		for (int i = 0; i < 16; i++)
-			block[block.length - 1 - i] = length.shiftRight(i * 8).byteValue();
-		compress(block);
-		byte[] hash = LongBitMath.toBytesBigEndian(state);
-		return new HashValue(Arrays.copyOf(hash, hashLength));  // Truncate the hash
+		System.arraycopy(state, 0, savedState, 0, state.length);
+		padAndCompress(block, blockFilled, length, lengthHigh, (byte)0x80, 16, true);
+		for (int i = 0; i < hashLength; i++)  // Serialize in big endian and truncate
+			out[off + i] = (byte)(state[i >>> 3] >>> ((7 - (i & 7)) << 3));
+		System.arraycopy(savedState, 0, state, 0, state.length);
 	}
 	
 	
@@ -0,0 +1,54 @@
+package p79068.crypto.hash;
+
+import p79068.hash.AbstractHashFunction;
+
+
+/**
+ * The SHAKE extendable-output functions, described in FIPS Publication 202. They use the Keccak permutation like {@link Keccak}, with a different padding, and can produce output of any length with {@link XofHasher#squeeze(byte[], int, int)}.
+ * <p>As a hash function, each one produces a fixed-length prefix of its output stream: 32 bytes for SHAKE128 and 64 bytes for SHAKE256, which give their full security strength.</p>
+ */
+public final class Shake extends AbstractHashFunction {
+	
+	/**
+	 * The SHAKE128 extendable-output function. {@code name = "SHAKE128"}, {@code hashLength = 32}, with a rate of 168 bytes.
+	 */
+	public final static Shake SHAKE128_FUNCTION = new Shake("SHAKE128", 32, 168);
+	
+	/**
+	 * The SHAKE256 extendable-output function. {@code name = "SHAKE256"}, {@code hashLength = 64}, with a rate of 136 bytes.
+	 */
+	public final static Shake SHAKE256_FUNCTION = new Shake("SHAKE256", 64, 136);
+	
+	
+	// The domain separation bits 1111 of FIPS 202, followed by the first bit of the pad10*1 padding
+	private static final byte PADDING = 0x1F;
+	
+	
+	
+	private final int rate;
+	
+	
+	
+	private Shake(String name, int hashLen, int rate) {
+		super(name, hashLen);
+		this.rate = rate;
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this function, whose output can be squeezed to any length.
+	 * @return a new hasher of this function
+	 */
+	@Override
+	public XofHasher newHasher() {
+		return new KeccakHasher(this, rate, PADDING);
+	}
+	
+	
+	// Returns the number of bytes absorbed or squeezed per permutation. Also used by ParallelHash.
+	int getRate() {
+		return rate;
+	}
+	
+}
@@ -0,0 +1,268 @@
+package p79068.crypto.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import p79068.Assert;
+import p79068.hash.AbstractHashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+
+
+/**
+ * The SipHash keyed pseudorandom function, with a 128-bit key and 64-bit or 128-bit output. SipHash-2-4 is the standard variant; SipHash-1-3 is faster and is used by some hash tables. The hash value is serialized in little endian, like the output of the reference implementation.
+ * <p>SipHash is designed for short inputs, such as hash table keys that must resist hash flooding and authentication tags of short messages. The methods {@link #hash64(byte[], int, int)}, {@link #hash128(byte[], int, int, long[])}, {@link #sipHash24(long, long, byte[], int, int)} and {@link #sipHash13(long, long, byte[], int, int)} hash a byte array range without allocating any objects.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class SipHash extends AbstractHashFunction {
+	
+	private static final VarHandle INT64_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	
+	private final int compressionRounds;
+	private final int finalizationRounds;
+	
+	// The key as two little-endian words
+	private final long k0;
+	private final long k1;
+	
+	
+	
+	/**
+	 * Constructs a SipHash-2-4 function with 64-bit output and the specified key.
+	 * @param key the secret key, which is 16 bytes long
+	 * @throws NullPointerException if the key is {@code null}
+	 * @throws IllegalArgumentException if the key is not 16 bytes long
+	 */
+	public SipHash(byte[] key) {
+		this(2, 4, 8, key);
+	}
+	
+	
+	/**
+	 * Constructs a SipHash function with the specified numbers of rounds, hash length and key.
+	 * @param compressionRounds the number of rounds per message word, such as 2 or 1
+	 * @param finalizationRounds the number of rounds of finalization, such as 4 or 3
+	 * @param hashLen the length of the hash value in bytes, which is 8 or 16
+	 * @param key the secret key, which is 16 bytes long
+	 * @throws NullPointerException if the key is {@code null}
+	 * @throws IllegalArgumentException if a number of rounds is not positive, the hash length is not 8 or 16, or the key is not 16 bytes long
+	 */
+	public SipHash(int compressionRounds, int finalizationRounds, int hashLen, byte[] key) {
+		super((hashLen == 16 ? "SipHash128-" : "SipHash-") + compressionRounds + "-" + finalizationRounds, hashLen);
+		if (compressionRounds <= 0 || finalizationRounds <= 0)
+			throw new IllegalArgumentException("Number of rounds must be positive");
+		if (hashLen != 8 && hashLen != 16)
+			throw new IllegalArgumentException("Hash length must be 8 or 16");
+		Assert.assertNotNull(key);
+		if (key.length != 16)
+			throw new IllegalArgumentException("Key must be 16 bytes long");
+		this.compressionRounds = compressionRounds;
+		this.finalizationRounds = finalizationRounds;
+		k0 = (long)INT64_ARRAY.get(key, 0);
+		k1 = (long)INT64_ARRAY.get(key, 8);
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		return new SipHashHasher(this, initialState(k0, k1, getHashLength() == 16), compressionRounds, finalizationRounds);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, without a hasher.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	@Override
+	public HashValue getHash(byte[] b, int off, int len) {
+		Assert.assertNotNull(b);
+		long[] result = new long[2];
+		if (getHashLength() == 8)
+			result[0] = hash64(b, off, len);
+		else
+			hash128(b, off, len, result);
+		return toHashValue(result, getHashLength());
+	}
+	
+	
+	/**
+	 * Returns the 64-bit output of this function for the specified byte array range. This method does not allocate any objects.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the 64-bit output for the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 * @throws IllegalStateException if this function has 128-bit output
+	 */
+	public long hash64(byte[] b, int off, int len) {
+		if (getHashLength() != 8)
+			throw new IllegalStateException("Function has 128-bit output");
+		if (compressionRounds == 2 && finalizationRounds == 4)
+			return sipHash24(k0, k1, b, off, len);
+		else if (compressionRounds == 1 && finalizationRounds == 3)
+			return sipHash13(k0, k1, b, off, len);
+		else
+			return hash(compressionRounds, finalizationRounds, k0, k1, b, off, len, null);
+	}
+	
+	
+	/**
+	 * Computes the 128-bit output of this function for the specified byte array range, and stores the first and second 64-bit halves into {@code result[0]} and {@code result[1]}. This method does not allocate any objects.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param result the array to store the output into, which has a length of at least 2
+	 * @throws NullPointerException if {@code b} or {@code result} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}, or {@code result} is too short
+	 * @throws IllegalStateException if this function has 64-bit output
+	 */
+	public void hash128(byte[] b, int off, int len, long[] result) {
+		if (getHashLength() != 16)
+			throw new IllegalStateException("Function has 64-bit output");
+		Assert.assertNotNull(result);
+		Assert.assertRangeInBounds(result.length, 0, 2);
+		if (compressionRounds == 2 && finalizationRounds == 4)
+			hash(2, 4, k0, k1, b, off, len, result);
+		else if (compressionRounds == 1 && finalizationRounds == 3)
+			hash(1, 3, k0, k1, b, off, len, result);
+		else
+			hash(compressionRounds, finalizationRounds, k0, k1, b, off, len, result);
+	}
+	
+	
+	
+	/**
+	 * Returns the SipHash-2-4 64-bit output for the specified key and byte array range. The key words are the 16 key bytes read as two little-endian integers. This method does not allocate any objects.
+	 * @param k0 the first half of the key
+	 * @param k1 the second half of the key
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the SipHash-2-4 output for the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static long sipHash24(long k0, long k1, byte[] b, int off, int len) {
+		return hash(2, 4, k0, k1, b, off, len, null);
+	}
+	
+	
+	/**
+	 * Returns the SipHash-1-3 64-bit output for the specified key and byte array range. The key words are the 16 key bytes read as two little-endian integers. This method does not allocate any objects.
+	 * @param k0 the first half of the key
+	 * @param k1 the second half of the key
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the SipHash-1-3 output for the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static long sipHash13(long k0, long k1, byte[] b, int off, int len) {
+		return hash(1, 3, k0, k1, b, off, len, null);
+	}
+	
+	
+	
+	// Hashes with the state in local variables. When result128 is null, returns the 64-bit output; otherwise stores the 128-bit output into it and returns 0.
+	// The callers pass constant numbers of rounds, so that the round loops are unrolled after inlining.
+	private static long hash(int c, int d, long k0, long k1, byte[] b, int off, int len, long[] result128) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		long v0 = k0 ^ 0x736F6D6570736575L;
+		long v1 = k1 ^ 0x646F72616E646F6DL;
+		long v2 = k0 ^ 0x6C7967656E657261L;
+		long v3 = k1 ^ 0x7465646279746573L;
+		if (result128 != null)
+			v1 ^= 0xEE;
+		
+		int end = off + len;
+		for (; end - off >= 8; off += 8) {
+			long m = (long)INT64_ARRAY.get(b, off);
+			v3 ^= m;
+			for (int i = 0; i < c; i++) {
+				v0 += v1;  v1 = Long.rotateLeft(v1, 13);  v1 ^= v0;  v0 = Long.rotateLeft(v0, 32);
+				v2 += v3;  v3 = Long.rotateLeft(v3, 16);  v3 ^= v2;
+				v0 += v3;  v3 = Long.rotateLeft(v3, 21);  v3 ^= v0;
+				v2 += v1;  v1 = Long.rotateLeft(v1, 17);  v1 ^= v2;  v2 = Long.rotateLeft(v2, 32);
+			}
+			v0 ^= m;
+		}
+		long m = (long)len << 56;
+		for (int i = 0; off + i < end; i++)
+			m |= (b[off + i] & 0xFFL) << (i * 8);
+		v3 ^= m;
+		for (int i = 0; i < c; i++) {
+			v0 += v1;  v1 = Long.rotateLeft(v1, 13);  v1 ^= v0;  v0 = Long.rotateLeft(v0, 32);
+			v2 += v3;  v3 = Long.rotateLeft(v3, 16);  v3 ^= v2;
+			v0 += v3;  v3 = Long.rotateLeft(v3, 21);  v3 ^= v0;
+			v2 += v1;  v1 = Long.rotateLeft(v1, 17);  v1 ^= v2;  v2 = Long.rotateLeft(v2, 32);
+		}
+		v0 ^= m;
+		
+		v2 ^= result128 != null ? 0xEE : 0xFF;
+		for (int i = 0; i < d; i++) {
+			v0 += v1;  v1 = Long.rotateLeft(v1, 13);  v1 ^= v0;  v0 = Long.rotateLeft(v0, 32);
+			v2 += v3;  v3 = Long.rotateLeft(v3, 16);  v3 ^= v2;
+			v0 += v3;  v3 = Long.rotateLeft(v3, 21);  v3 ^= v0;
+			v2 += v1;  v1 = Long.rotateLeft(v1, 17);  v1 ^= v2;  v2 = Long.rotateLeft(v2, 32);
+		}
+		if (result128 == null)
+			return v0 ^ v1 ^ v2 ^ v3;
+		result128[0] = v0 ^ v1 ^ v2 ^ v3;
+		v1 ^= 0xDD;
+		for (int i = 0; i < d; i++) {
+			v0 += v1;  v1 = Long.rotateLeft(v1, 13);  v1 ^= v0;  v0 = Long.rotateLeft(v0, 32);
+			v2 += v3;  v3 = Long.rotateLeft(v3, 16);  v3 ^= v2;
+			v0 += v3;  v3 = Long.rotateLeft(v3, 21);  v3 ^= v0;
+			v2 += v1;  v1 = Long.rotateLeft(v1, 17);  v1 ^= v2;  v2 = Long.rotateLeft(v2, 32);
+		}
+		result128[1] = v0 ^ v1 ^ v2 ^ v3;
+		return 0;
+	}
+	
+	
+	static long[] initialState(long k0, long k1, boolean output128) {
+		return new long[]{
+			k0 ^ 0x736F6D6570736575L,
+			k1 ^ 0x646F72616E646F6DL ^ (output128 ? 0xEE : 0),
+			k0 ^ 0x6C7967656E657261L,
+			k1 ^ 0x7465646279746573L,
+		};
+	}
+	
+	
+	// Applies the specified number of SipRounds to the state {v0, v1, v2, v3}.
+	static void rounds(long[] v, int n) {
+		long v0 = v[0], v1 = v[1], v2 = v[2], v3 = v[3];
+		for (int i = 0; i < n; i++) {
+			v0 += v1;  v1 = Long.rotateLeft(v1, 13);  v1 ^= v0;  v0 = Long.rotateLeft(v0, 32);
+			v2 += v3;  v3 = Long.rotateLeft(v3, 16);  v3 ^= v2;
+			v0 += v3;  v3 = Long.rotateLeft(v3, 21);  v3 ^= v0;
+			v2 += v1;  v1 = Long.rotateLeft(v1, 17);  v1 ^= v2;  v2 = Long.rotateLeft(v2, 32);
+		}
+		v[0] = v0;  v[1] = v1;  v[2] = v2;  v[3] = v3;
+	}
+	
+	
+	// Serializes the first hashLen / 8 output words in little endian.
+	static HashValue toHashValue(long[] words, int hashLen) {
+		byte[] result = new byte[hashLen];
+		for (int i = 0; i < hashLen; i++)
+			result[i] = (byte)(words[i >>> 3] >>> ((i & 7) << 3));
+		return new HashValue(result);
+	}
+	
+}
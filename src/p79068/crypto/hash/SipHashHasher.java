@@ -0,0 +1,123 @@
+package p79068.crypto.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import p79068.Assert;
+import p79068.crypto.Zeroizable;
+import p79068.crypto.Zeroizer;
+import p79068.hash.AbstractHasher;
+import p79068.hash.HashValue;
+
+
+final class SipHashHasher extends AbstractHasher implements Zeroizable {
+	
+	private static final VarHandle INT64_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	
+	// {v0, v1, v2, v3}
+	private long[] state;
+	
+	private final int compressionRounds;
+	private final int finalizationRounds;
+	
+	// The bytes of the current partial word, in little endian
+	private long tail;
+	
+	// The total number of bytes hashed
+	private long length;
+	
+	
+	
+	SipHashHasher(SipHash hashFunc, long[] state, int compressionRounds, int finalizationRounds) {
+		super(hashFunc);
+		this.state = state;
+		this.compressionRounds = compressionRounds;
+		this.finalizationRounds = finalizationRounds;
+		tail = 0;
+		length = 0;
+	}
+	
+	
+	
+	@Override
+	public void update(byte b) {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		tail |= (b & 0xFFL) << ((length & 7) << 3);
+		length++;
+		if ((length & 7) == 0) {
+			compress(tail);
+			tail = 0;
+		}
+	}
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		Assert.assertRangeInBounds(b.length, off, len);
+		int end = off + len;
+		for (; off < end && (length & 7) != 0; off++)
+			update(b[off]);
+		for (; end - off >= 8; off += 8, length += 8)
+			compress((long)INT64_ARRAY.get(b, off));
+		for (; off < end; off++)
+			update(b[off]);
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		long[] v = state.clone();
+		long m = tail | length << 56;
+		v[3] ^= m;
+		SipHash.rounds(v, compressionRounds);
+		v[0] ^= m;
+		
+		long[] result = new long[2];
+		boolean output128 = hashFunction.getHashLength() == 16;
+		v[2] ^= output128 ? 0xEE : 0xFF;
+		SipHash.rounds(v, finalizationRounds);
+		result[0] = v[0] ^ v[1] ^ v[2] ^ v[3];
+		if (output128) {
+			v[1] ^= 0xDD;
+			SipHash.rounds(v, finalizationRounds);
+			result[1] = v[0] ^ v[1] ^ v[2] ^ v[3];
+		}
+		return SipHash.toHashValue(result, hashFunction.getHashLength());
+	}
+	
+	
+	@Override
+	public SipHashHasher clone() {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		SipHashHasher result = (SipHashHasher)super.clone();
+		result.state = state.clone();
+		return result;
+	}
+	
+	
+	public void zeroize() {
+		if (hashFunction == null)
+			throw new IllegalStateException("Already zeroized");
+		state = Zeroizer.clear(state);
+		tail = 0;
+		length = 0;
+		hashFunction = null;
+	}
+	
+	
+	
+	private void compress(long m) {
+		state[3] ^= m;
+		SipHash.rounds(state, compressionRounds);
+		state[0] ^= m;
+	}
+	
+}
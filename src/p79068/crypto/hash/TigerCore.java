@@ -1,11 +1,7 @@
 package p79068.crypto.hash;
 
-import java.math.BigInteger;
-import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizer;
-import p79068.hash.HashValue;
-import p79068.math.LongBitMath;
 
 
 final class TigerCore extends BlockHasherCore {
@@ -14,11 +10,17 @@ final class TigerCore extends BlockHasherCore {
 	
 	private long[] state;  // 3 elements (192 bits)
 	
+	private long[] savedState;  // Scratch space for getHash()
+	
+	private long[] schedule;  // Scratch space for compress()
+	
 	
 	
 	public TigerCore(boolean tiger2Mode) {
 		this.tiger2Mode = tiger2Mode;
 		state = new long[]{0x0123456789ABCDEFL, 0xFEDCBA9876543210L, 0xF096A5B4C3B2E187L};
+		savedState = new long[3];
+		schedule = new long[8];
 	}
 	
 	
@@ -29,6 +31,8 @@ final class TigerCore extends BlockHasherCore {
 			throw new IllegalStateException("Already zeroized");
 		TigerCore result = (TigerCore)super.clone();
 		result.state = result.state.clone();
+		result.savedState = new long[3];
+		result.schedule = new long[8];
 		return result;
 	}
 	
@@ -38,6 +42,8 @@ final class TigerCore extends BlockHasherCore {
 		if (state == null)
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
+		savedState = Zeroizer.clear(savedState);
+		schedule = Zeroizer.clear(schedule);
 	}
 	
 	
@@ -48,8 +54,6 @@ final class TigerCore extends BlockHasherCore {
 		if (len % 64 != 0)
 			throw new AssertionError();
 		
-		long[] schedule = new long[8];
-		
 		// For each block of 64 bytes
 		for (int i = off, end = off + len; i < end; ) {
 			
@@ -120,19 +124,12 @@ final class TigerCore extends BlockHasherCore {
 	
 	
 	@Override
-	public HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length) {
-		block[blockFilled] = (byte)(tiger2Mode ? 0x80 : 0x01);
-		blockFilled++;
-		Arrays.fill(block, blockFilled, block.length, (byte)0);
-		if (blockFilled + 8 > block.length) {
-			compress(block);
-			Arrays.fill(block, (byte)0);
-		}
-		length = length.shiftLeft(3);  // Length is now in bits
-		for (int i = 0; i < 8; i++)
-			block[block.length - 8 + i] = length.shiftRight(i * 8).byteValue();
-		compress(block);
-		return new HashValue(LongBitMath.toBytesLittleEndian(state));
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		System.arraycopy(state, 0, savedState, 0, state.length);
+		padAndCompress(block, blockFilled, length, lengthHigh, (byte)(tiger2Mode ? 0x80 : 0x01), 8, false);
+		for (int i = 0; i < 24; i++)  // Serialize in little endian
+			out[off + i] = (byte)(state[i >>> 3] >>> ((i & 7) << 3));
+		System.arraycopy(savedState, 0, state, 0, state.length);
 	}
 	
 	
@@ -7,19 +7,13 @@ import p79068.hash.Hasher;
 
 public final class Whirlpool extends AbstractBlockHashFunction {
 	
-	private int rounds;
-	private int[] sbox;
-	private int[] c;
-	private int[] cInverse;
+	private final FastWhirlpoolTables tables;  // Computed once per variant, shared by all hashers and cipherers
 	
 	
 	
 	private Whirlpool(String name, int rounds, int[] sbox, int[][] cs) {
 		super(name, 64, 64);
-		this.rounds = rounds;
-		this.sbox = sbox;
-		this.c = cs[0];
-		this.cInverse = cs[1];
+		tables = new FastWhirlpoolTables(rounds, sbox, cs[0], cs[1]);
 	}
 	
 	
@@ -30,12 +24,12 @@ public final class Whirlpool extends AbstractBlockHashFunction {
 	 */
 	@Override
 	public Hasher newHasher() {
-		return new BlockHasher(this, new FastWhirlpoolCore(rounds, sbox, c, cInverse));
+		return new BlockHasher(this, new FastWhirlpoolCore(tables));
 	}
 	
 	
 	public Cipherer newCipherer(BlockCipher cipher, byte[] key) {
-		return new FastWhirlpoolCipherer(cipher, key, rounds, sbox, c, cInverse);
+		return new FastWhirlpoolCipherer(cipher, key, tables);
 	}
 	
 	
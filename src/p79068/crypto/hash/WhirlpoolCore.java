@@ -1,10 +1,7 @@
 package p79068.crypto.hash;
 
-import java.math.BigInteger;
-import java.util.Arrays;
 import p79068.Assert;
 import p79068.crypto.Zeroizer;
-import p79068.hash.HashValue;
 
 
 final class WhirlpoolCore extends BlockHasherCore {
@@ -19,6 +16,12 @@ final class WhirlpoolCore extends BlockHasherCore {
 	// Variable (reference doesn't change, but elements do)
 	private byte[] state;
 	
+	// Scratch space, whose contents are meaningless between method calls
+	private byte[] savedState;
+	private byte[] tempmsg;
+	private byte[] tempstate;
+	private byte[] temp;
+	
 	
 	
 	public WhirlpoolCore(int rounds, int[] sbox, int[] c, int[] cInv) {
@@ -41,6 +44,10 @@ final class WhirlpoolCore extends BlockHasherCore {
 		}
 		
 		state = new byte[64];
+		savedState = new byte[64];
+		tempmsg = new byte[64];
+		tempstate = new byte[64];
+		temp = new byte[64];
 	}
 	
 	
@@ -51,6 +58,10 @@ final class WhirlpoolCore extends BlockHasherCore {
 			throw new IllegalStateException("Already zeroized");
 		WhirlpoolCore result = (WhirlpoolCore)super.clone();
 		result.state = result.state.clone();
+		result.savedState = new byte[64];
+		result.tempmsg = new byte[64];
+		result.tempstate = new byte[64];
+		result.temp = new byte[64];
 		return result;
 	}
 	
@@ -60,6 +71,10 @@ final class WhirlpoolCore extends BlockHasherCore {
 		if (state == null)
 			throw new IllegalStateException("Already zeroized");
 		state = Zeroizer.clear(state);
+		savedState = Zeroizer.clear(savedState);
+		tempmsg = Zeroizer.clear(tempmsg);
+		tempstate = Zeroizer.clear(tempstate);
+		temp = Zeroizer.clear(temp);
 	}
 	
 	
@@ -71,12 +86,8 @@ final class WhirlpoolCore extends BlockHasherCore {
 		if (len % 64 != 0)
 			throw new AssertionError();
 		
-		// The lifetime of all 3 arrays actually begin and end within each loop iteration.
-		// But in this implementation, they are allocated only once, to avoid the allocation and garbage collection overheads.
-		byte[] tempmsg = new byte[64];
-		byte[] tempstate = new byte[64];
-		byte[] temp = new byte[64];
-		
+		// The lifetime of the 3 scratch arrays actually begin and end within each loop iteration.
+		// But in this implementation, they are allocated only once per core, to avoid the allocation and garbage collection overheads.
 		// For each block of 64 bytes
 		for (int i = off, end = off + len; i < end; i += 64) {
 			System.arraycopy(message, i, tempmsg, 0, 64);
@@ -89,19 +100,11 @@ final class WhirlpoolCore extends BlockHasherCore {
 	
 	
 	@Override
-	public HashValue getHashDestructively(byte[] block, int blockFilled, BigInteger length) {
-		block[blockFilled] = (byte)0x80;
-		blockFilled++;
-		Arrays.fill(block, blockFilled, block.length, (byte)0);
-		if (blockFilled > block.length - 32) {
-			compress(block);
-			Arrays.fill(block, (byte)0);
-		}
-		length = length.shiftLeft(3);  // Length is now in bits
-		for (int i = 0; i < 32; i++)
-			block[block.length - 1 - i] = length.shiftRight(i * 8).byteValue();
-		compress(block);
-		return new HashValue(state);
+	public void getHash(byte[] block, int blockFilled, long length, long lengthHigh, byte[] out, int off) {
+		System.arraycopy(state, 0, savedState, 0, 64);
+		padAndCompress(block, blockFilled, length, lengthHigh, (byte)0x80, 32, true);
+		System.arraycopy(state, 0, out, off, 64);
+		System.arraycopy(savedState, 0, state, 0, 64);
 	}
 	
 	
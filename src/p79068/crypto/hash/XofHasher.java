@@ -0,0 +1,36 @@
+package p79068.crypto.hash;
+
+import p79068.hash.Hasher;
+
+
+/**
+ * A hasher of an extendable-output function (XOF), whose output is a byte stream of unlimited length rather than a fixed-length hash value.
+ * <p>Usage example:</p>
+ * <pre>XofHasher hasher = Shake.SHAKE128_FUNCTION.newHasher();
+ *hasher.update(seed);
+ *byte[] mask = new byte[4096];
+ *hasher.squeeze(mask, 0, mask.length);</pre>
+ * <p>The output stream does not depend on how it is split into {@code squeeze()} calls: squeezing 10 bytes and then 20 bytes gives the same 30 bytes as squeezing 30 bytes at once.</p>
+ * @see Shake
+ */
+public interface XofHasher extends Hasher {
+	
+	/**
+	 * Writes the next {@code len} bytes of the output stream into the specified array. The first call ends the input: after it, the {@code update()} methods and {@link #getHash()} throw {@link IllegalStateException}. This method does not allocate any objects.
+	 * @param b the array to write the output into
+	 * @param off the offset into {@code b}
+	 * @param len the number of output bytes to write
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 * @throws IllegalStateException if this object has been zeroized
+	 */
+	public void squeeze(byte[] b, int off, int len);
+	
+	
+	/**
+	 * Returns a new hasher with the same internal state as this one's, including the position in the output stream.
+	 * @return a clone of this object
+	 */
+	public XofHasher clone();
+	
+}
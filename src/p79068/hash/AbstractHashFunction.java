@@ -1,9 +1,14 @@
 package p79068.hash;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import p79068.Assert;
 
 
@@ -25,6 +30,22 @@ public abstract class AbstractHashFunction implements HashFunction {
 	private final int hashLength;
 	
 	
+	/**
+	 * Under {@link FileReadMode#AUTO}, file ranges up to this many bytes are read with a single read instead of being memory-mapped.
+	 */
+	private static final int SMALL_FILE_LIMIT = 1 << 20;
+	
+	/**
+	 * The size of each memory-mapped window, in bytes.
+	 */
+	private static final int MAP_WINDOW_SIZE = 1 << 26;
+	
+	/**
+	 * The size of the heap buffer used by {@link FileReadMode#READ} on large files, in bytes.
+	 */
+	private static final int READ_BUFFER_SIZE = 1 << 20;
+	
+	
 	
 	// Constructor
 	
@@ -95,6 +116,59 @@ public abstract class AbstractHashFunction implements HashFunction {
 	}
 	
 	
+	/**
+	 * Computes and returns the hash value of the remaining bytes of the specified buffer, and advances the buffer's position to its limit.
+	 * @param b the buffer to hash
+	 * @return the hash value of the remaining bytes of the buffer
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 */
+	public HashValue getHash(ByteBuffer b) {
+		Assert.assertNotNull(b);
+		Hasher hasher = newHasher();
+		hasher.update(b);
+		return hasher.getHash();
+	}
+	
+	
+	/**
+	 * Computes and returns the hash values of the specified byte arrays. The provided implementation calls {@link #getHash(byte[])} on each array.
+	 * @param messages the byte arrays to hash
+	 * @return a new array of the hash values, where element {@code i} is the hash of {@code messages[i]}
+	 * @throws NullPointerException if {@code messages} or any element is {@code null}
+	 */
+	public HashValue[] getHashes(byte[][] messages) {
+		Assert.assertNotNull((Object[])messages);
+		HashValue[] result = new HashValue[messages.length];
+		for (int i = 0; i < messages.length; i++)
+			result[i] = getHash(messages[i]);
+		return result;
+	}
+	
+	
+	/**
+	 * Computes and returns the hash values of the specified byte array ranges. The provided implementation calls {@link #getHash(byte[], int, int)} on each range.
+	 * @param messages the byte arrays to hash
+	 * @param offsets the offset into each byte array
+	 * @param lengths the length of the subrange in each byte array
+	 * @return a new array of the hash values, where element {@code i} is the hash of range {@code i}
+	 * @throws NullPointerException if any array or any element of {@code messages} is {@code null}
+	 * @throws IllegalArgumentException if the three arrays differ in length
+	 * @throws IndexOutOfBoundsException if a range lies outside of its byte array
+	 */
+	public HashValue[] getHashes(byte[][] messages, int[] offsets, int[] lengths) {
+		Assert.assertNotNull(messages, offsets, lengths);
+		if (offsets.length != messages.length || lengths.length != messages.length)
+			throw new IllegalArgumentException("Array lengths differ");
+		HashValue[] result = new HashValue[messages.length];
+		for (int i = 0; i < messages.length; i++) {
+			Assert.assertNotNull(messages[i]);
+			Assert.assertRangeInBounds(messages[i].length, offsets[i], lengths[i]);
+			result[i] = getHash(messages[i], offsets[i], lengths[i]);
+		}
+		return result;
+	}
+	
+	
 	/**
 	 * Computes and returns the hash value of the specified file.
 	 * @param file the file to hash
@@ -121,6 +195,106 @@ public abstract class AbstractHashFunction implements HashFunction {
 	}
 	
 	
+	/**
+	 * Computes and returns the hash value of the specified file. This uses {@link FileReadMode#AUTO}.
+	 * @param path the file to hash
+	 * @return the hash value of the specified file
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code path} is {@code null}
+	 */
+	public HashValue getHash(Path path) throws IOException {
+		return getHash(path, FileReadMode.AUTO);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified file, reading it in the specified mode.
+	 * @param path the file to hash
+	 * @param mode the way to read the file
+	 * @return the hash value of the specified file
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code path} or {@code mode} is {@code null}
+	 */
+	public HashValue getHash(Path path, FileReadMode mode) throws IOException {
+		Assert.assertNotNull(path, mode);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return getHash(channel, 0, channel.size(), mode);
+		}
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified range of the specified file channel. This uses {@link FileReadMode#AUTO}. The channel's position is not changed.
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to hash
+	 * @return the hash value of the specified file range
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code channel} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 */
+	public HashValue getHash(FileChannel channel, long pos, long len) throws IOException {
+		return getHash(channel, pos, len, FileReadMode.AUTO);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified range of the specified file channel, reading it in the specified mode. The channel's position is not changed.
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to hash
+	 * @param mode the way to read the file
+	 * @return the hash value of the specified file range
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code channel} or {@code mode} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 */
+	public HashValue getHash(FileChannel channel, long pos, long len, FileReadMode mode) throws IOException {
+		Assert.assertNotNull(channel, mode);
+		if (pos < 0 || len < 0)
+			throw new IllegalArgumentException("Negative position or length");
+		if (pos + len < 0 || pos + len > channel.size())
+			throw new EOFException();
+		
+		Hasher hasher = newHasher();
+		if (mode == FileReadMode.MEMORY_MAP || mode == FileReadMode.AUTO && len > SMALL_FILE_LIMIT)
+			updateMapped(hasher, channel, pos, len);
+		else
+			updateRead(hasher, channel, pos, len);
+		return hasher.getHash();
+	}
+	
+	
+	// Reads the range through a heap buffer. A range of at most READ_BUFFER_SIZE bytes takes a single buffer fill.
+	private static void updateRead(Hasher hasher, FileChannel channel, long pos, long len) throws IOException {
+		byte[] buf = new byte[(int)Math.min(len, READ_BUFFER_SIZE)];
+		ByteBuffer bb = ByteBuffer.wrap(buf);
+		while (len > 0) {
+			bb.clear();
+			bb.limit((int)Math.min(len, buf.length));
+			while (bb.hasRemaining()) {
+				int n = channel.read(bb, pos + bb.position());
+				if (n == -1)
+					throw new EOFException();
+			}
+			hasher.update(buf, 0, bb.limit());
+			pos += bb.limit();
+			len -= bb.limit();
+		}
+	}
+	
+	
+	// Maps the range in windows of MAP_WINDOW_SIZE bytes, and hashes each window directly.
+	private static void updateMapped(Hasher hasher, FileChannel channel, long pos, long len) throws IOException {
+		while (len > 0) {
+			int n = (int)Math.min(len, MAP_WINDOW_SIZE);
+			hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, n));
+			pos += n;
+			len -= n;
+		}
+	}
+	
+	
 	/**
 	 * Returns a string representation of this hash function. Currently, it returns the name of the hash function. The string format is subjected to change.
 	 * @return a string representation of this hash function
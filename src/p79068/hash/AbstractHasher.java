@@ -1,5 +1,6 @@
 package p79068.hash;
 
+import java.nio.ByteBuffer;
 import p79068.Assert;
 
 
@@ -57,6 +58,27 @@ public abstract class AbstractHasher implements Hasher, Cloneable {
 	public abstract void update(byte[] b, int off, int len);
 	
 	
+	/**
+	 * Updates the current state with the remaining bytes of the specified buffer, and advances the buffer's position to its limit. The provided implementation passes a heap buffer's backing array to {@link #update(byte[], int, int)}, and otherwise copies the data in chunks through a temporary array.
+	 * @param b the buffer to update the state with
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 */
+	public void update(ByteBuffer b) {
+		Assert.assertNotNull(b);
+		if (b.hasArray()) {
+			update(b.array(), b.arrayOffset() + b.position(), b.remaining());
+			b.position(b.limit());
+		} else {
+			byte[] buf = new byte[Math.min(b.remaining(), 16 * 1024)];
+			while (b.hasRemaining()) {
+				int n = Math.min(b.remaining(), buf.length);
+				b.get(buf, 0, n);
+				update(buf, 0, n);
+			}
+		}
+	}
+	
+	
 	/**
 	 * Returns the current hash value. This method does not alter the hasher's internal state.
 	 * @return the current hash value
@@ -64,6 +86,21 @@ public abstract class AbstractHasher implements Hasher, Cloneable {
 	public abstract HashValue getHash();
 	
 	
+	/**
+	 * Writes the current hash value into the specified array. The provided implementation relies on {@link #getHash()}.
+	 * @param b the array to write the hash value into
+	 * @param off the offset into {@code b}
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if the hash value does not fit into {@code b} at offset {@code off}
+	 */
+	public void getHash(byte[] b, int off) {
+		Assert.assertNotNull(b);
+		byte[] hash = getHash().toBytes();
+		Assert.assertRangeInBounds(b.length, off, hash.length);
+		System.arraycopy(hash, 0, b, off, hash.length);
+	}
+	
+	
 	/**
 	 * Returns the hash function associated with this hasher.
 	 * @return the hash function associated with this hasher
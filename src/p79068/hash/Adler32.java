@@ -1,8 +1,17 @@
 package p79068.hash;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import p79068.Assert;
+import p79068.backend.Backend;
 
 /**
  * The Adler-32 checksum function. It is described in RFC 1950.
+ * <p>The checksum of a concatenation can be computed from the checksums of the parts and the length of the second part, with {@link #combine(HashValue, HashValue, long)} (like zlib's {@code adler32_combine()}). The {@code getHash(..., ForkJoinPool)} methods use this to checksum segments of a large input concurrently and merge them.</p>
+ * <p>The hashers may be backed by the Java platform's {@link java.util.zip.Adler32} instead of this library's code, if that is faster on this machine. See {@link p79068.backend.Backends}.</p>
  * <p>Instantiability: <em>Singleton</em></p>
  */
 public final class Adler32 extends AbstractHashFunction {
@@ -13,6 +22,10 @@ public final class Adler32 extends AbstractHashFunction {
 	public final static Adler32 FUNCTION = new Adler32();
 	
 	
+	// Selected when the first hasher is made
+	private Backend backend;
+	
+	
 	
 	private Adler32() {
 		super("Adler-32", 4);
@@ -26,7 +39,98 @@ public final class Adler32 extends AbstractHashFunction {
 	 */
 	@Override
 	public Hasher newHasher() {
-		return new Adler32Hasher(this);
+		if (getBackend() == Backend.JDK)
+			return new JdkChecksumHasher(this, this::combine, java.util.zip.Adler32::new);
+		else
+			return new Adler32Hasher(this);
+	}
+	
+	
+	private Backend getBackend() {
+		if (backend == null)
+			backend = JdkChecksumHasher.selectBackend(this, () -> new Adler32Hasher(this), java.util.zip.Adler32::new);
+		return backend;
+	}
+	
+	
+	/**
+	 * Returns the checksum of the concatenation of two messages, given the checksum of each message and the length of the second one. This takes constant time.
+	 * @param adlerA the checksum of the first message
+	 * @param adlerB the checksum of the second message
+	 * @param lengthB the length of the second message in bytes
+	 * @return the checksum of the first message followed by the second message
+	 * @throws NullPointerException if {@code adlerA} or {@code adlerB} is {@code null}
+	 * @throws IllegalArgumentException if a hash value is not 4 bytes long, or if {@code lengthB} is negative
+	 */
+	public HashValue combine(HashValue adlerA, HashValue adlerB, long lengthB) {
+		Assert.assertNotNull(adlerA, adlerB);
+		if (lengthB < 0)
+			throw new IllegalArgumentException("Negative length");
+		int a = toInt(adlerA);
+		int b = toInt(adlerB);
+		
+		// With the message B of length n appended to A, s1 = s1(A) + s1(B) - 1 and s2 = s2(A) + s2(B) + n * (s1(A) - 1), all modulo 65521
+		int rem = (int)(lengthB % 65521);
+		int a1 = a & 0xFFFF;
+		int s1 = (a1 + (b & 0xFFFF) + 65521 - 1) % 65521;
+		int s2 = (int)(((long)rem * a1 + (a >>> 16) + (b >>> 16) + 65521 - rem) % 65521);
+		return new HashValue(new byte[]{(byte)(s2 >>> 8), (byte)s2, (byte)(s1 >>> 8), (byte)s1});
+	}
+	
+	
+	/**
+	 * Computes and returns the checksum of the specified byte array range, splitting it into segments that are checksummed concurrently on the specified pool. The result equals {@code getHash(b, off, len)}.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the segments on
+	 * @return the checksum of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public HashValue getHash(byte[] b, int off, int len, ForkJoinPool pool) {
+		return SegmentHashing.getHash(this, this::combine, b, off, len, pool);
+	}
+	
+	
+	/**
+	 * Computes and returns the checksum of the specified file, splitting it into segments that are checksummed concurrently on the specified pool. The result equals {@code getHash(path)}.
+	 * @param path the file to hash
+	 * @param pool the pool to hash the segments on
+	 * @return the checksum of the specified file
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code path} or {@code pool} is {@code null}
+	 */
+	public HashValue getHash(Path path, ForkJoinPool pool) throws IOException {
+		Assert.assertNotNull(path, pool);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return getHash(channel, 0, channel.size(), pool);
+		}
+	}
+	
+	
+	/**
+	 * Computes and returns the checksum of the specified range of the specified file channel, splitting it into segments that are memory-mapped and checksummed concurrently on the specified pool. The channel's position is not changed. The result equals {@code getHash(channel, pos, len)}.
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to hash
+	 * @param pool the pool to hash the segments on
+	 * @return the checksum of the specified file range
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code channel} or {@code pool} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 */
+	public HashValue getHash(FileChannel channel, long pos, long len, ForkJoinPool pool) throws IOException {
+		return SegmentHashing.getHash(this, this::combine, channel, pos, len, pool);
+	}
+	
+	
+	
+	private static int toInt(HashValue hash) {
+		byte[] b = hash.toBytes();
+		if (b.length != 4)
+			throw new IllegalArgumentException("Invalid hash length");
+		return (b[0] & 0xFF) << 24 | (b[1] & 0xFF) << 16 | (b[2] & 0xFF) << 8 | (b[3] & 0xFF);
 	}
 	
 }
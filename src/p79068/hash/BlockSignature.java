@@ -0,0 +1,365 @@
+package p79068.hash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import p79068.Assert;
+
+
+/**
+ * The signature of basis data for {@link Delta}: a weak rolling checksum and a strong hash value for each block of a fixed length. The last block may be shorter.
+ * <p>The full blocks are indexed by weak checksum for matching. A bitmap of about 16 bits per block rejects almost every window that matches no block with one memory access, and the windows that pass look up an open-addressing table with linear probing, which has one slot per distinct weak checksum. Each slot heads a chain of the blocks with that checksum, like rsync's, and a block whose strong hash value is already in its chain is left out, because the earlier block is always found first. So long runs of identical blocks, like the zeros of sparse files, cost one chain entry. All are primitive arrays.</p>
+ * <p>Mutability: <em>Immutable</em>, thread-safe</p>
+ */
+public final class BlockSignature {
+	
+	private final RollingChecksum.Variant variant;
+	
+	private final HashFunction strongHashFunction;
+	
+	private final int blockLength;
+	
+	private final long length;
+	
+	private final int blockCount;
+	
+	// Element i is the weak checksum of block i
+	private final int[] weakSums;
+	
+	// The strong hash value of block i is at offset i * strongLength
+	private final byte[] strongSums;
+	private final int strongLength;
+	
+	// Bit (mix(weak) >>> filterShift) is set if some full block has the weak checksum
+	private final long[] filter;
+	private final int filterShift;
+	
+	// Each slot holds the index plus 1 of the first full block with some weak checksum, or 0 if empty
+	private final int[] table;
+	private final int tableShift;
+	
+	// Element i is the index plus 1 of the next block in block i's chain, or 0 if it is the last
+	private final int[] next;
+	
+	
+	
+	/**
+	 * Computes the signature of the specified byte array range.
+	 * @param b the byte array holding the basis data
+	 * @param off the offset into {@code b}
+	 * @param len the length of the basis data
+	 * @param blockLen the block length
+	 * @param strongHash the hash function of the strong hash values
+	 * @param variant the variant of the weak checksum
+	 * @throws NullPointerException if any argument is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 * @throws IllegalArgumentException if the block length is not positive
+	 */
+	public BlockSignature(byte[] b, int off, int len, int blockLen, HashFunction strongHash, RollingChecksum.Variant variant) {
+		this(readBlocksFromArray(b, off, len, blockLen, strongHash, variant), blockLen, strongHash, variant);
+	}
+	
+	
+	/**
+	 * Computes the signature of the remainder of the specified input stream. The stream is not closed.
+	 * @param in the input stream of the basis data
+	 * @param blockLen the block length
+	 * @param strongHash the hash function of the strong hash values
+	 * @param variant the variant of the weak checksum
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if any argument is {@code null}
+	 * @throws IllegalArgumentException if the block length is not positive
+	 */
+	public BlockSignature(InputStream in, int blockLen, HashFunction strongHash, RollingChecksum.Variant variant) throws IOException {
+		this(readBlocks(new StreamBlockSource(in), blockLen, strongHash, variant), blockLen, strongHash, variant);
+	}
+	
+	
+	private BlockSignature(Blocks blocks, int blockLen, HashFunction strongHash, RollingChecksum.Variant variant) {
+		this.variant = variant;
+		strongHashFunction = strongHash;
+		blockLength = blockLen;
+		strongLength = strongHash.getHashLength();
+		length = blocks.length;
+		blockCount = blocks.count;
+		weakSums = blocks.weakSums;
+		strongSums = blocks.strongSums;
+		
+		int fullBlocks = (int)(length / blockLen);
+		int filterBits = Math.max(Integer.highestOneBit(Math.max(fullBlocks, 1)) * 32, 1 << 10);  // 16 to 32 bits per block
+		filterBits = Math.min(filterBits, 1 << 28);
+		filter = new long[filterBits >>> 6];
+		filterShift = 32 - Integer.numberOfTrailingZeros(filterBits);
+		int tableLen = Integer.highestOneBit(Math.max(fullBlocks, 1)) * 4;  // Load factor at most 1/2, and at least 4 slots
+		table = new int[tableLen];
+		tableShift = 32 - Integer.numberOfTrailingZeros(tableLen);
+		next = new int[fullBlocks];
+		for (int i = 0; i < fullBlocks; i++) {
+			int h = mix(weakSums[i]);
+			int bit = h >>> filterShift;
+			filter[bit >>> 6] |= 1L << bit;
+			int slot = findSlot(h, weakSums[i]);
+			if (table[slot] == 0) {
+				table[slot] = i + 1;
+				continue;
+			}
+			// Append to the chain, unless a block with the same strong hash value is in it
+			int j = table[slot] - 1;
+			while (!strongEquals(j, i) && next[j] != 0)
+				j = next[j] - 1;
+			if (!strongEquals(j, i))
+				next[j] = i + 1;
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the block length.
+	 * @return the block length
+	 */
+	public int getBlockLength() {
+		return blockLength;
+	}
+	
+	
+	/**
+	 * Returns the number of blocks, including a last shorter block.
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+		return blockCount;
+	}
+	
+	
+	/**
+	 * Returns the length of the basis data.
+	 * @return the length of the basis data
+	 */
+	public long getLength() {
+		return length;
+	}
+	
+	
+	/**
+	 * Returns the variant of the weak checksum.
+	 * @return the variant of the weak checksum
+	 */
+	public RollingChecksum.Variant getVariant() {
+		return variant;
+	}
+	
+	
+	/**
+	 * Returns the hash function of the strong hash values.
+	 * @return the hash function of the strong hash values
+	 */
+	public HashFunction getStrongHashFunction() {
+		return strongHashFunction;
+	}
+	
+	
+	/**
+	 * Returns the weak checksum of the specified block.
+	 * @param index the index of the block
+	 * @return the weak checksum of the block
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int getWeakSum(int index) {
+		if (index < 0 || index >= blockCount)
+			throw new IndexOutOfBoundsException();
+		return weakSums[index];
+	}
+	
+	
+	/**
+	 * Returns the strong hash value of the specified block.
+	 * @param index the index of the block
+	 * @return the strong hash value of the block
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public HashValue getStrongSum(int index) {
+		if (index < 0 || index >= blockCount)
+			throw new IndexOutOfBoundsException();
+		return new HashValue(Arrays.copyOfRange(strongSums, index * strongLength, (index + 1) * strongLength));
+	}
+	
+	
+	
+	// Tests whether some full block may have the weak checksum. False positives are rare.
+	boolean mayContain(int weak) {
+		int bit = mix(weak) >>> filterShift;
+		return (filter[bit >>> 6] & 1L << bit) != 0;
+	}
+	
+	
+	// Returns the index of a block whose checksums match the window b[off : off + len], or -1 if none. The preferred block is tried first, which makes runs of identical blocks copy in order.
+	int find(int weak, byte[] b, int off, int len, int preferred) {
+		byte[] strong = null;
+		if (preferred >= 0 && preferred < blockCount && weakSums[preferred] == weak && blockLength(preferred) == len) {
+			strong = strongHashFunction.getHash(b, off, len).toBytes();
+			if (strongEquals(preferred, strong))
+				return preferred;
+		}
+		if (len != blockLength || !mayContain(weak))
+			return -1;
+		for (int i = table[findSlot(mix(weak), weak)] - 1; i != -1; i = next[i] - 1) {
+			if (strong == null)
+				strong = strongHashFunction.getHash(b, off, len).toBytes();
+			if (strongEquals(i, strong))
+				return i;
+		}
+		return -1;
+	}
+	
+	
+	// Returns the length of the specified block, which is shorter only for the last block.
+	int blockLength(int index) {
+		return (int)Math.min(length - (long)index * blockLength, blockLength);
+	}
+	
+	
+	
+	// Returns the table slot of the weak checksum, or the empty slot where it would go.
+	private int findSlot(int mixed, int weak) {
+		int mask = table.length - 1;
+		int slot = mixed >>> tableShift;
+		while (table[slot] != 0 && weakSums[table[slot] - 1] != weak)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	
+	
+	private boolean strongEquals(int index, byte[] strong) {
+		int off = index * strongLength;
+		return Arrays.equals(strongSums, off, off + strongLength, strong, 0, strongLength);
+	}
+	
+	
+	private boolean strongEquals(int i, int j) {
+		return Arrays.equals(strongSums, i * strongLength, (i + 1) * strongLength, strongSums, j * strongLength, (j + 1) * strongLength);
+	}
+	
+	
+	// Returns a hash of the weak checksum whose high bits, which index the filter and the table, depend on all of its bits.
+	private static int mix(int weak) {
+		return weak * 0x9E3779B9;
+	}
+	
+	
+	
+	private static Blocks readBlocksFromArray(byte[] b, int off, int len, int blockLen, HashFunction strongHash, RollingChecksum.Variant variant) {
+		try {
+			return readBlocks(new ArrayBlockSource(b, off, len), blockLen, strongHash, variant);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	
+	// Computes the checksums of every block in the source.
+	private static Blocks readBlocks(BlockSource source, int blockLen, HashFunction strongHash, RollingChecksum.Variant variant) throws IOException {
+		Assert.assertNotNull(strongHash, variant);
+		if (blockLen <= 0)
+			throw new IllegalArgumentException("Block length must be positive");
+		int strongLength = strongHash.getHashLength();
+		RollingChecksum rc = new RollingChecksum(variant);
+		int[] weak = new int[16];
+		byte[] strong = new byte[16 * strongLength];
+		byte[] block = new byte[blockLen];
+		long total = 0;
+		int count = 0;
+		for (int n; (n = source.read(block)) > 0; count++, total += n) {
+			if (count == weak.length) {
+				if (count > Integer.MAX_VALUE / 2 / strongLength)
+					throw new IllegalArgumentException("Too many blocks");
+				weak = Arrays.copyOf(weak, count * 2);
+				strong = Arrays.copyOf(strong, count * 2 * strongLength);
+			}
+			rc.reset(block, 0, n);
+			weak[count] = rc.getValue();
+			byte[] h = strongHash.getHash(block, 0, n).toBytes();
+			System.arraycopy(h, 0, strong, count * strongLength, strongLength);
+		}
+		return new Blocks(total, count, Arrays.copyOf(weak, count), Arrays.copyOf(strong, count * strongLength));
+	}
+	
+	
+	
+	private static final class Blocks {
+		
+		public final long length;
+		public final int count;
+		public final int[] weakSums;
+		public final byte[] strongSums;
+		
+		
+		public Blocks(long length, int count, int[] weakSums, byte[] strongSums) {
+			this.length = length;
+			this.count = count;
+			this.weakSums = weakSums;
+			this.strongSums = strongSums;
+		}
+		
+	}
+	
+	
+	// Fills a block buffer, returning the number of bytes read, which is less than the block length only at the end.
+	private interface BlockSource {
+		
+		public int read(byte[] block) throws IOException;
+		
+	}
+	
+	
+	private static final class ArrayBlockSource implements BlockSource {
+		
+		private final byte[] data;
+		private int offset;
+		private final int end;
+		
+		
+		public ArrayBlockSource(byte[] b, int off, int len) {
+			Assert.assertNotNull(b);
+			Assert.assertRangeInBounds(b.length, off, len);
+			data = b;
+			offset = off;
+			end = off + len;
+		}
+		
+		
+		public int read(byte[] block) {
+			int n = Math.min(block.length, end - offset);
+			System.arraycopy(data, offset, block, 0, n);
+			offset += n;
+			return n;
+		}
+		
+	}
+	
+	
+	private static final class StreamBlockSource implements BlockSource {
+		
+		private final InputStream input;
+		
+		
+		public StreamBlockSource(InputStream in) {
+			Assert.assertNotNull(in);
+			input = in;
+		}
+		
+		
+		public int read(byte[] block) throws IOException {
+			int n = 0;
+			while (n < block.length) {
+				int m = input.read(block, n, block.length - n);
+				if (m == -1)
+					break;
+				n += m;
+			}
+			return n;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,100 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+/**
+ * A chunk of a stream found by a {@link Chunker}: its offset, length and hash value.
+ * <p>Mutability: <em>Immutable</em></p>
+ * @see ChunkPipeline
+ */
+public final class Chunk {
+	
+	private final long offset;
+	
+	private final int length;
+	
+	private final HashValue hash;
+	
+	
+	
+	/**
+	 * Constructs a chunk with the specified offset, length and hash value.
+	 * @param off the offset of the chunk in the stream
+	 * @param len the length of the chunk
+	 * @param hash the hash value of the chunk's bytes
+	 * @throws NullPointerException if the hash value is {@code null}
+	 * @throws IllegalArgumentException if the offset or length is negative
+	 */
+	public Chunk(long off, int len, HashValue hash) {
+		Assert.assertNotNull(hash);
+		if (off < 0 || len < 0)
+			throw new IllegalArgumentException("Negative offset or length");
+		offset = off;
+		length = len;
+		this.hash = hash;
+	}
+	
+	
+	
+	/**
+	 * Returns the offset of this chunk in the stream.
+	 * @return the offset of this chunk
+	 */
+	public long getOffset() {
+		return offset;
+	}
+	
+	
+	/**
+	 * Returns the length of this chunk.
+	 * @return the length of this chunk
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	
+	/**
+	 * Returns the hash value of this chunk's bytes.
+	 * @return the hash value of this chunk
+	 */
+	public HashValue getHash() {
+		return hash;
+	}
+	
+	
+	/**
+	 * Tests whether the specified object is a chunk with the same offset, length and hash value.
+	 * @param obj the object to test for equality
+	 * @return whether the object is an equal chunk
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Chunk))
+			return false;
+		Chunk other = (Chunk)obj;
+		return offset == other.offset && length == other.length && hash.equals(other.hash);
+	}
+	
+	
+	/**
+	 * Returns the hash code of this chunk.
+	 * @return the hash code of this chunk
+	 */
+	@Override
+	public int hashCode() {
+		return Long.hashCode(offset) + length * 31 + hash.hashCode();
+	}
+	
+	
+	/**
+	 * Returns a string representation of this chunk. The string format is subject to change.
+	 * @return a string representation of this chunk
+	 */
+	@Override
+	public String toString() {
+		return String.format("Chunk(offset=%d, length=%d, hash=%s)", offset, length, hash);
+	}
+	
+}
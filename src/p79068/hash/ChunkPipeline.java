@@ -0,0 +1,228 @@
+package p79068.hash;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import p79068.Assert;
+
+
+/**
+ * Splits a stream into content-defined chunks and hashes each chunk, delivering the chunks in stream order.
+ * <p>The calling thread reads the stream into buffers of at least {@value #BUFFER_LENGTH} bytes and finds the chunk boundaries in each buffer, while the chunks of earlier buffers are hashed on the pool, one task per buffer. Up to twice the pool's parallelism buffers are in flight; when that many are, the oldest one is waited for, its chunks are passed to the consumer, and its buffer is reused. The bytes after the last boundary of a buffer are carried over to the start of the next buffer. So reading and chunking overlap with hashing, and hashing scales with the pool.</p>
+ * <p>The consumer is called on the calling thread. The chunks, and hence their hash values, are the same for any pool and any division of the stream into reads.</p>
+ * <p>Mutability: <em>Immutable</em>, thread-safe</p>
+ */
+public final class ChunkPipeline {
+	
+	/**
+	 * The minimum length of each read buffer, in bytes. A buffer is also at least twice the maximum chunk length.
+	 */
+	public final static int BUFFER_LENGTH = 4 << 20;
+	
+	
+	
+	private final Chunker chunker;
+	
+	private final HashFunction hashFunction;
+	
+	private final ForkJoinPool pool;
+	
+	
+	
+	/**
+	 * Constructs a pipeline with the specified chunker, hash function and pool.
+	 * @param chunker the chunker that finds the boundaries
+	 * @param hashFunc the hash function to hash each chunk with
+	 * @param pool the pool to hash the chunks on
+	 * @throws NullPointerException if any argument is {@code null}
+	 */
+	public ChunkPipeline(Chunker chunker, HashFunction hashFunc, ForkJoinPool pool) {
+		Assert.assertNotNull(chunker, hashFunc, pool);
+		this.chunker = chunker;
+		hashFunction = hashFunc;
+		this.pool = pool;
+	}
+	
+	
+	
+	/**
+	 * Chunks and hashes the remainder of the specified input stream, passing each chunk to the specified consumer in order. The offsets of the chunks are relative to the stream's current position. The stream is not closed.
+	 * @param in the input stream to read
+	 * @param sink the consumer of the chunks
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code in} or {@code sink} is {@code null}
+	 */
+	public void process(InputStream in, Consumer<? super Chunk> sink) throws IOException {
+		Assert.assertNotNull(in, sink);
+		process(in::read, 0, sink);
+	}
+	
+	
+	/**
+	 * Chunks and hashes the specified file, passing each chunk to the specified consumer in order.
+	 * @param path the path of the file to read
+	 * @param sink the consumer of the chunks
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code path} or {@code sink} is {@code null}
+	 */
+	public void process(Path path, Consumer<? super Chunk> sink) throws IOException {
+		Assert.assertNotNull(path, sink);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			process(channel, 0, channel.size(), sink);
+		}
+	}
+	
+	
+	/**
+	 * Chunks and hashes the specified range of the specified file channel, passing each chunk to the specified consumer in order. The offsets of the chunks are positions in the file. The channel's position is not changed.
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to chunk
+	 * @param sink the consumer of the chunks
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code channel} or {@code sink} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 */
+	public void process(FileChannel channel, long pos, long len, Consumer<? super Chunk> sink) throws IOException {
+		Assert.assertNotNull(channel, sink);
+		if (pos < 0 || len < 0)
+			throw new IllegalArgumentException("Negative position or length");
+		if (pos + len < 0 || pos + len > channel.size())
+			throw new EOFException();
+		long end = pos + len;
+		long[] next = {pos};
+		process(
+			(b, off, n) -> {
+				if (next[0] == end)
+					return -1;
+				int m = channel.read(ByteBuffer.wrap(b, off, (int)Math.min(n, end - next[0])), next[0]);
+				if (m == -1)
+					throw new EOFException();
+				next[0] += m;
+				return m;
+			},
+			pos, sink);
+	}
+	
+	
+	
+	// Chunks and hashes the source, where the first byte read is at the specified stream offset.
+	private void process(Source source, long offset, Consumer<? super Chunk> sink) throws IOException {
+		int bufferLen = Math.max(BUFFER_LENGTH, chunker.getMaxLength() * 2);
+		int maxInFlight = pool.getParallelism() * 2;
+		ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+		ArrayDeque<byte[]> freeBuffers = new ArrayDeque<>();
+		
+		byte[] buffer = new byte[bufferLen];
+		int filled = 0;
+		long bufferOffset = offset;  // Stream offset of buffer[0]
+		boolean eof = false;
+		while (true) {
+			while (!eof && filled < buffer.length) {
+				int n = source.read(buffer, filled, buffer.length - filled);
+				if (n == -1)
+					eof = true;
+				else
+					filled += n;
+			}
+			
+			// Find the chunks that end in this buffer. Without the end of the stream, each search needs a maximum chunk length of data.
+			Batch batch = new Batch(buffer, bufferOffset);
+			int pos = 0;
+			while (pos < filled && (eof || filled - pos >= chunker.getMaxLength())) {
+				int n = chunker.nextChunkLength(buffer, pos, filled - pos);
+				batch.add(pos, n);
+				pos += n;
+			}
+			if (batch.count > 0) {
+				batch.task = pool.submit(batch::hashChunks);
+				inFlight.addLast(batch);
+			}
+			if (eof && pos == filled)
+				break;
+			
+			while (inFlight.size() >= maxInFlight)
+				freeBuffers.addLast(deliver(inFlight.removeFirst(), sink));
+			byte[] next = freeBuffers.isEmpty() ? new byte[bufferLen] : freeBuffers.removeFirst();
+			System.arraycopy(buffer, pos, next, 0, filled - pos);
+			filled -= pos;
+			bufferOffset += pos;
+			buffer = next;
+		}
+		while (!inFlight.isEmpty())
+			deliver(inFlight.removeFirst(), sink);
+	}
+	
+	
+	// Waits for the batch's hashes, passes its chunks to the sink, and returns its buffer.
+	private static byte[] deliver(Batch batch, Consumer<? super Chunk> sink) {
+		batch.task.join();
+		for (int i = 0; i < batch.count; i++)
+			sink.accept(new Chunk(batch.bufferOffset + batch.starts[i], batch.lengths[i], batch.hashes[i]));
+		return batch.buffer;
+	}
+	
+	
+	
+	// Reads like InputStream.read(byte[], int, int), returning -1 at the end of the stream.
+	private interface Source {
+		
+		public int read(byte[] b, int off, int len) throws IOException;
+		
+	}
+	
+	
+	
+	// The chunks found in one buffer, and their hash values once the task is done.
+	private final class Batch {
+		
+		public final byte[] buffer;
+		public final long bufferOffset;
+		
+		public int[] starts;
+		public int[] lengths;
+		public int count;
+		
+		public HashValue[] hashes;
+		public ForkJoinTask<?> task;
+		
+		
+		public Batch(byte[] buffer, long bufferOffset) {
+			this.buffer = buffer;
+			this.bufferOffset = bufferOffset;
+			starts = new int[64];
+			lengths = new int[64];
+			count = 0;
+		}
+		
+		
+		public void add(int start, int length) {
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				lengths = Arrays.copyOf(lengths, count * 2);
+			}
+			starts[count] = start;
+			lengths[count] = length;
+			count++;
+		}
+		
+		
+		public void hashChunks() {
+			HashValue[] result = new HashValue[count];
+			for (int i = 0; i < count; i++)
+				result[i] = hashFunction.getHash(buffer, starts[i], lengths[i]);
+			hashes = result;
+		}
+		
+	}
+	
+}
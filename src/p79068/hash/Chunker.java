@@ -0,0 +1,114 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+/**
+ * Splits data into chunks at positions determined by the content, for deduplication. A boundary depends only on the bytes shortly before it, so inserting or deleting bytes changes only the chunks around the edit, and the chunks after it are found again.
+ * <p>Each chunk is at least the minimum length and at most the maximum length, except that the last chunk of the data may be shorter. The boundary condition is chosen so that chunks are about the average length on random data.</p>
+ * <p>The search starts afresh at each chunk, so the chunks of a stream can be found from any buffer that holds the next chunk in full. See {@link ChunkPipeline} for chunking and hashing a stream.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ * @see GearChunker
+ * @see RabinChunker
+ */
+public abstract class Chunker {
+	
+	/**
+	 * The largest maximum chunk length allowed, which is 64 MiB.
+	 */
+	public final static int MAX_CHUNK_LENGTH = 1 << 26;
+	
+	
+	
+	/**
+	 * The minimum chunk length, which is positive.
+	 */
+	protected final int minLength;
+	
+	/**
+	 * The average chunk length, which is a power of 2.
+	 */
+	protected final int averageLength;
+	
+	/**
+	 * The maximum chunk length, which is at most {@link #MAX_CHUNK_LENGTH}.
+	 */
+	protected final int maxLength;
+	
+	
+	
+	/**
+	 * Constructs a chunker with the specified chunk lengths.
+	 * @param minLen the minimum chunk length
+	 * @param avgLen the average chunk length, which is a power of 2 and at least 64
+	 * @param maxLen the maximum chunk length
+	 * @throws IllegalArgumentException if the lengths are not {@code 0 < minLen <= avgLen <= maxLen <= MAX_CHUNK_LENGTH}, or the average is not a power of 2 of at least 64
+	 */
+	protected Chunker(int minLen, int avgLen, int maxLen) {
+		if (minLen <= 0 || minLen > avgLen || avgLen > maxLen || maxLen > MAX_CHUNK_LENGTH)
+			throw new IllegalArgumentException("Invalid chunk lengths");
+		if (avgLen < 64 || Integer.bitCount(avgLen) != 1)
+			throw new IllegalArgumentException("Average chunk length must be a power of 2 of at least 64");
+		minLength = minLen;
+		averageLength = avgLen;
+		maxLength = maxLen;
+	}
+	
+	
+	
+	/**
+	 * Returns the length of the chunk that starts at the specified offset. The range must hold at least {@link #getMaxLength()} bytes, or else all the remaining data; in the latter case the returned chunk may end at the end of the range without a boundary.
+	 * @param b the byte array holding the data
+	 * @param off the offset of the start of the chunk in {@code b}
+	 * @param len the number of bytes available in {@code b} starting at {@code off}
+	 * @return the length of the chunk, which is {@code len} if {@code len} is at most the minimum chunk length, and otherwise between the minimum length (exclusive) and {@code min(len, maxLength)}
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public final int nextChunkLength(byte[] b, int off, int len) {
+		Assert.assertNotNull(b);
+		Assert.assertRangeInBounds(b.length, off, len);
+		if (len <= minLength)
+			return len;
+		return findBoundary(b, off, Math.min(len, maxLength));
+	}
+	
+	
+	/**
+	 * Returns the minimum chunk length.
+	 * @return the minimum chunk length
+	 */
+	public final int getMinLength() {
+		return minLength;
+	}
+	
+	
+	/**
+	 * Returns the average chunk length.
+	 * @return the average chunk length
+	 */
+	public final int getAverageLength() {
+		return averageLength;
+	}
+	
+	
+	/**
+	 * Returns the maximum chunk length.
+	 * @return the maximum chunk length
+	 */
+	public final int getMaxLength() {
+		return maxLength;
+	}
+	
+	
+	
+	/**
+	 * Returns the length of the chunk that starts at the specified offset, which is {@code len} if there is no boundary in the range.
+	 * @param b the byte array holding the data
+	 * @param off the offset of the start of the chunk in {@code b}
+	 * @param len the number of bytes to search, which is greater than the minimum length and at most the maximum length
+	 * @return the length of the chunk, which is greater than the minimum length and at most {@code len}
+	 */
+	protected abstract int findBoundary(byte[] b, int off, int len);
+	
+}
@@ -1,10 +1,21 @@
 package p79068.hash;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import p79068.Assert;
+import p79068.backend.Backend;
 import p79068.util.HashCoder;
 
 
 /**
- * A family of CRC hash functions.
+ * A family of CRC hash functions. Every member uses the same table-driven engine, which processes 16 bytes per iteration with slicing tables that each {@code Crc} object builds once and shares among its hashers.
+ * <p>A CRC is linear over GF(2), so the CRC of a concatenation can be computed from the CRCs of the parts and the length of the second part, with {@link #combine(HashValue, HashValue, long)}. The {@code getHash(..., ForkJoinPool)} methods use this to compute the CRCs of segments of a large input concurrently and merge them.</p>
+ * <p>The hashers of {@link #CRC32_FUNCTION} and {@link #CRC32C_FUNCTION} may be backed by the Java platform's {@link CRC32} and {@link CRC32C} instead, if that is faster on this machine. See {@link p79068.backend.Backends}.</p>
  */
 public final class Crc extends AbstractHashFunction {
 	
@@ -24,6 +35,91 @@ public final class Crc extends AbstractHashFunction {
 	 */
 	public static final Crc CRC32_FUNCTION = new Crc("CRC-32", 32, 0x104C11DB7L, true, true, 0xFFFFFFFFL, 0xFFFFFFFFL);
 	
+	/**
+	 * An instance of the CRC-32C (Castagnoli) hash function, used by iSCSI, SCTP, ext4 and Btrfs.
+	 * <p>Its parameters:</p>
+	 * <ul>
+	 *  <li>{@code name = "CRC-32C"}</li>
+	 *  <li>{@code hashLength = 4}</li>
+	 *  <li>{@code degree = 32}</li>
+	 *  <li>{@code polynomial = 0x11EDC6F41L}</li>
+	 *  <li>{@code reverseIn = true}</li>
+	 *  <li>{@code reverseOut = true}</li>
+	 *  <li>{@code xorIn = 0xFFFFFFFFL}</li>
+	 *  <li>{@code xorOut = 0xFFFFFFFFL}</li>
+	 * </ul>
+	 * <p>The hash of the ASCII string "123456789" is E3069283.</p>
+	 */
+	public static final Crc CRC32C_FUNCTION = new Crc("CRC-32C", 32, 0x11EDC6F41L, true, true, 0xFFFFFFFFL, 0xFFFFFFFFL);
+	
+	/**
+	 * An instance of the CRC-64 hash function of ECMA-182. The x<sup>64</sup> term of the polynomial is omitted.
+	 * <p>Its parameters:</p>
+	 * <ul>
+	 *  <li>{@code name = "CRC-64/ECMA"}</li>
+	 *  <li>{@code hashLength = 8}</li>
+	 *  <li>{@code degree = 64}</li>
+	 *  <li>{@code polynomial = 0x42F0E1EBA9EA3693L}</li>
+	 *  <li>{@code reverseIn = false}</li>
+	 *  <li>{@code reverseOut = false}</li>
+	 *  <li>{@code xorIn = 0}</li>
+	 *  <li>{@code xorOut = 0}</li>
+	 * </ul>
+	 * <p>The hash of the ASCII string "123456789" is 6C40DF5F0B497347.</p>
+	 */
+	public static final Crc CRC64_ECMA_FUNCTION = new Crc("CRC-64/ECMA", 64, 0x42F0E1EBA9EA3693L, false, false, 0, 0);
+	
+	/**
+	 * An instance of the CRC-64 hash function of the XZ file format, which uses the ECMA-182 polynomial with reflection and inversion. The x<sup>64</sup> term of the polynomial is omitted.
+	 * <p>Its parameters:</p>
+	 * <ul>
+	 *  <li>{@code name = "CRC-64/XZ"}</li>
+	 *  <li>{@code hashLength = 8}</li>
+	 *  <li>{@code degree = 64}</li>
+	 *  <li>{@code polynomial = 0x42F0E1EBA9EA3693L}</li>
+	 *  <li>{@code reverseIn = true}</li>
+	 *  <li>{@code reverseOut = true}</li>
+	 *  <li>{@code xorIn = 0xFFFFFFFFFFFFFFFFL}</li>
+	 *  <li>{@code xorOut = 0xFFFFFFFFFFFFFFFFL}</li>
+	 * </ul>
+	 * <p>The hash of the ASCII string "123456789" is 995DC9BBDF1939FA.</p>
+	 */
+	public static final Crc CRC64_XZ_FUNCTION = new Crc("CRC-64/XZ", 64, 0x42F0E1EBA9EA3693L, true, true, 0xFFFFFFFFFFFFFFFFL, 0xFFFFFFFFFFFFFFFFL);
+	
+	/**
+	 * An instance of the CRC-16/CCITT hash function (also known as CRC-16/KERMIT), as used by ITU-T V.41 with reflected bit order.
+	 * <p>Its parameters:</p>
+	 * <ul>
+	 *  <li>{@code name = "CRC-16/CCITT"}</li>
+	 *  <li>{@code hashLength = 2}</li>
+	 *  <li>{@code degree = 16}</li>
+	 *  <li>{@code polynomial = 0x11021L}</li>
+	 *  <li>{@code reverseIn = true}</li>
+	 *  <li>{@code reverseOut = true}</li>
+	 *  <li>{@code xorIn = 0}</li>
+	 *  <li>{@code xorOut = 0}</li>
+	 * </ul>
+	 * <p>The hash of the ASCII string "123456789" is 2189.</p>
+	 */
+	public static final Crc CRC16_CCITT_FUNCTION = new Crc("CRC-16/CCITT", 16, 0x11021L, true, true, 0, 0);
+	
+	/**
+	 * An instance of the CRC-24 hash function of OpenPGP (RFC 4880), used for ASCII armor checksums.
+	 * <p>Its parameters:</p>
+	 * <ul>
+	 *  <li>{@code name = "CRC-24/OpenPGP"}</li>
+	 *  <li>{@code hashLength = 3}</li>
+	 *  <li>{@code degree = 24}</li>
+	 *  <li>{@code polynomial = 0x1864CFBL}</li>
+	 *  <li>{@code reverseIn = false}</li>
+	 *  <li>{@code reverseOut = false}</li>
+	 *  <li>{@code xorIn = 0xB704CEL}</li>
+	 *  <li>{@code xorOut = 0}</li>
+	 * </ul>
+	 * <p>The hash of the ASCII string "123456789" is 21CF02.</p>
+	 */
+	public static final Crc CRC24_OPENPGP_FUNCTION = new Crc("CRC-24/OpenPGP", 24, 0x1864CFBL, false, false, 0xB704CEL, 0);
+	
 	
 	private String name;
 	private int degree;
@@ -33,6 +129,15 @@ public final class Crc extends AbstractHashFunction {
 	private long xorInput;
 	private long xorOutput;
 	
+	// The slicing tables of the hasher, built once and shared by all hashers of this function
+	private long[] xorTables;
+	
+	// Element i is x^(8 * 2^i) mod the polynomial, for multiplying a remainder by x^(8 * n) in O(log n) steps
+	private long[] byteShiftPowers;
+	
+	// Selected when the first hasher is made
+	private Backend backend;
+	
 	
 	
 	/**
@@ -66,6 +171,15 @@ public final class Crc extends AbstractHashFunction {
 		this.reverseOutputBits = revOut;
 		this.xorInput = xorIn;
 		this.xorOutput = xorOut;
+		xorTables = CrcHasher.newTables(deg, poly, revIn);
+		byteShiftPowers = new long[63];
+		long p = 1;
+		for (int i = 0; i < 8; i++)
+			p = multiplyByX(p);
+		for (int i = 0; i < byteShiftPowers.length; i++) {
+			byteShiftPowers[i] = p;
+			p = multiplyMod(p, p);
+		}
 	}
 	
 	
@@ -76,9 +190,93 @@ public final class Crc extends AbstractHashFunction {
 	 */
 	@Override
 	public Hasher newHasher() {
-		if (equals(CRC32_FUNCTION))
-			return new Crc32Hasher(this);
-		return new CrcHasher(this, degree, polynomial, reverseInputBits, reverseOutputBits, xorInput, xorOutput);
+		if (getBackend() == Backend.JDK)
+			return new JdkChecksumHasher(this, this::combine, this == CRC32_FUNCTION ? CRC32::new : CRC32C::new);
+		else
+			return newLibraryHasher();
+	}
+	
+	
+	private Hasher newLibraryHasher() {
+		return new CrcHasher(this, degree, reverseInputBits, reverseOutputBits, xorInput, xorOutput, xorTables);
+	}
+	
+	
+	// Only the CRC-32 and CRC-32C objects of this class use the JDK backend, not other objects with the same parameters.
+	private Backend getBackend() {
+		if (backend == null) {
+			if (this == CRC32_FUNCTION)
+				backend = JdkChecksumHasher.selectBackend(this, this::newLibraryHasher, CRC32::new);
+			else if (this == CRC32C_FUNCTION)
+				backend = JdkChecksumHasher.selectBackend(this, this::newLibraryHasher, CRC32C::new);
+			else
+				backend = Backend.LIBRARY;
+		}
+		return backend;
+	}
+	
+	
+	/**
+	 * Returns the hash value of the concatenation of two messages, given the hash value of each message and the length of the second one. This takes O(log {@code lengthB}) time, independent of the length of the first message.
+	 * @param crcA the hash value of the first message under this function
+	 * @param crcB the hash value of the second message under this function
+	 * @param lengthB the length of the second message in bytes
+	 * @return the hash value of the first message followed by the second message
+	 * @throws NullPointerException if {@code crcA} or {@code crcB} is {@code null}
+	 * @throws IllegalArgumentException if a hash value has the wrong length, or if {@code lengthB} is negative
+	 */
+	public HashValue combine(HashValue crcA, HashValue crcB, long lengthB) {
+		Assert.assertNotNull(crcA, crcB);
+		if (lengthB < 0)
+			throw new IllegalArgumentException("Negative length");
+		return toHashValue(combineRegisters(toRegister(crcA), toRegister(crcB), lengthB));
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, splitting it into segments that are hashed concurrently on the specified pool. The result equals {@code getHash(b, off, len)}.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the segments on
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public HashValue getHash(byte[] b, int off, int len, ForkJoinPool pool) {
+		return SegmentHashing.getHash(this, this::combine, b, off, len, pool);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified file, splitting it into segments that are hashed concurrently on the specified pool. The result equals {@code getHash(path)}.
+	 * @param path the file to hash
+	 * @param pool the pool to hash the segments on
+	 * @return the hash value of the specified file
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code path} or {@code pool} is {@code null}
+	 */
+	public HashValue getHash(Path path, ForkJoinPool pool) throws IOException {
+		Assert.assertNotNull(path, pool);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return getHash(channel, 0, channel.size(), pool);
+		}
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified range of the specified file channel, splitting it into segments that are memory-mapped and hashed concurrently on the specified pool. The channel's position is not changed. The result equals {@code getHash(channel, pos, len)}.
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to hash
+	 * @param pool the pool to hash the segments on
+	 * @return the hash value of the specified file range
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code channel} or {@code pool} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 */
+	public HashValue getHash(FileChannel channel, long pos, long len, ForkJoinPool pool) throws IOException {
+		return SegmentHashing.getHash(this, this::combine, channel, pos, len, pool);
 	}
 	
 	
@@ -119,4 +317,65 @@ public final class Crc extends AbstractHashFunction {
 		return h.getHashCode();
 	}
 	
+	
+	
+	/* 
+	 * Let reg(M) be the shift register after message M, as a polynomial in non-reflected order and before the final XOR, and let n be the degree. Then
+	 *   reg(M) = (xorIn * x^(8 * |M|) + M * x^n) mod polynomial,
+	 * so for a concatenation, reg(A ++ B) = ((reg(A) XOR xorIn) * x^(8 * |B|) XOR reg(B)) mod polynomial.
+	 */
+	private long combineRegisters(long regA, long regB, long lengthB) {
+		long result = regA ^ xorInput;
+		for (int i = 0; lengthB != 0; i++, lengthB >>>= 1) {
+			if ((lengthB & 1) != 0)
+				result = multiplyMod(result, byteShiftPowers[i]);
+		}
+		return result ^ regB;
+	}
+	
+	
+	// Converts a hash value of this function back to the shift register value.
+	private long toRegister(HashValue hash) {
+		byte[] b = hash.toBytes();
+		if (b.length != getHashLength())
+			throw new IllegalArgumentException("Invalid hash length");
+		long result = 0;
+		for (byte x : b)
+			result = (result << 8) | (x & 0xFF);
+		if (reverseOutputBits)
+			result = Long.reverse(result) >>> (64 - degree);
+		return result ^ xorOutput;
+	}
+	
+	
+	// Converts a shift register value to a hash value, in the same way as CrcHasher.getHash().
+	private HashValue toHashValue(long reg) {
+		reg ^= xorOutput;
+		if (reverseOutputBits)
+			reg = Long.reverse(reg) >>> (64 - degree);
+		byte[] b = new byte[getHashLength()];
+		for (int i = 0; i < b.length; i++)
+			b[b.length - 1 - i] = (byte)(reg >>> (i * 8));
+		return new HashValue(b);
+	}
+	
+	
+	// Returns x * p mod polynomial, where p has degree less than the degree of the polynomial.
+	private long multiplyByX(long p) {
+		long mask = degree < 64 ? (1L << degree) - 1 : -1;
+		return ((p << 1) ^ (-((p >>> (degree - 1)) & 1) & polynomial)) & mask;  // The x^degree term of the polynomial cancels the bit shifted out
+	}
+	
+	
+	// Returns a * b mod polynomial, where a and b have degree less than the degree of the polynomial.
+	private long multiplyMod(long a, long b) {
+		long result = 0;
+		for (int i = degree - 1; i >= 0; i--) {
+			result = multiplyByX(result);
+			if (((a >>> i) & 1) != 0)
+				result ^= b;
+		}
+		return result;
+	}
+	
 }
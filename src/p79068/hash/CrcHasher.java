@@ -15,66 +15,56 @@
  * 4) Apply bit reversal to remainder
  * 
  * This parameterized algorithm was adapted from the "Rocksoft^tm Model CRC Algorithm" to correspond more closely to pure polynomial division.
+ * 
+ * The register is always 64 bits wide. In the left-shift algorithm, the remainder occupies the top degree bits; in the right-shift algorithm, it is bit-reversed and occupies the bottom degree bits.
+ * Either way, a whole 64-bit register can absorb 8 message bytes at once, so the main loop uses slicing-by-16: table k gives the effect of one byte followed by k zero bytes,
+ * and each iteration XORs 16 table entries, one for each byte of a 16-byte chunk. The tables depend only on the degree, polynomial and input reversal, and are built once per Crc object.
  */
 
 
 package p79068.hash;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import p79068.Assert;
 
 
 final class CrcHasher extends AbstractHasher {
 	
+	/**
+	 * The number of bytes that the main loop consumes per iteration, which is also the number of 256-entry tables.
+	 */
+	static final int SLICES = 16;
+	
+	private static final VarHandle INT64_ARRAY_BIG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle INT64_ARRAY_LITTLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	
 	private int degree;
 	private boolean reverseInputBits;
 	private boolean reverseOutputBits;
 	private long xorOutput;
 	
-	private long[] xorTable;
+	// Table k is at offset k * 256; shared with other hashers of the same hash function, and never modified
+	private long[] xorTables;
 	
 	private long state;  // State of the shift register
 	
 	
 	
-	CrcHasher(Crc hashFunc, int degree, long poly, boolean revIn, boolean revOut, long xorIn, long xorOut) {
+	CrcHasher(Crc hashFunc, int degree, boolean revIn, boolean revOut, long xorIn, long xorOut, long[] tables) {
 		super(hashFunc);
-		if (degree < 1 || degree > 64)
-			throw new IllegalArgumentException("Invalid degree");
-		if (degree < 64 && (poly >>> degree) != 1)
-			throw new IllegalArgumentException("Illegal polynomial");
-		if (degree < 64 && (xorIn >>> degree) != 0)
-			throw new IllegalArgumentException("Invalid initial XOR constant");
-		if (degree < 64 && (xorOut >>> degree) != 0)
-			throw new IllegalArgumentException("Invalid final XOR constant");
-		
 		this.degree = degree;
 		this.reverseInputBits = revIn;
 		this.reverseOutputBits = revOut;
 		this.xorOutput = xorOut;
-		
-		// Build look-up table to allow whole-byte CRC processing
-		poly <<= 64 - degree;
-		xorTable = new long[256];
-		
-		if (!revIn) {  // Use the left-shift algorithm
-			for (int i = 0; i < 256; i++) {
-				long reg = (long)i << 56;
-				for (int j = 0; j < 8; j++)
-					reg = (reg >>> 1) ^ (reg >>> 63) * poly;
-				xorTable[i] = reg;
-			}
+		xorTables = tables;
+		if (!revIn)
 			state = xorIn << (64 - degree);
-			
-		} else {  // Use the right-shift algorithm
-			poly = Long.reverse(poly);
-			for (int i = 0; i < 256; i++) {
-				long reg = i;
-				for (int j = 0; j < 8; j++)
-					reg = (reg >>> 1) ^ (reg & 1) * poly;
-				xorTable[i] = reg;
-			}
-			state = xorIn;
-		}
+		else
+			state = Long.reverse(xorIn) >>> (64 - degree);
 	}
 	
 	
@@ -82,22 +72,51 @@ final class CrcHasher extends AbstractHasher {
 	@Override
 	public void update(byte b) {
 		if (!reverseInputBits)
-			state = (state << 8) ^ xorTable[(int)(state >>> 56) ^ (b & 0xFF)];
+			state = (state << 8) ^ xorTables[(int)(state >>> 56) ^ (b & 0xFF)];
 		else
-			state = (state >>> 8) ^ xorTable[((int)state ^ b) & 0xFF];
+			state = (state >>> 8) ^ xorTables[((int)state ^ b) & 0xFF];
 	}
 	
 	
 	@Override
 	public void update(byte[] b, int off, int len) {
 		Assert.assertRangeInBounds(b.length, off, len);
+		long[] t = xorTables;
+		long s = state;
+		int i = off;
+		int end = off + len;
 		if (!reverseInputBits) {
-			for (int i = off, end = off + len; i < end; i++)
-				state = (state << 8) ^ xorTable[(int)(state >>> 56) ^ (b[i] & 0xFF)];
+			for (; end - i >= SLICES; i += SLICES) {
+				long x = s ^ (long)INT64_ARRAY_BIG.get(b, i);
+				long y = (long)INT64_ARRAY_BIG.get(b, i + 8);
+				s =   t[15 * 256 + (int)(x >>> 56)       ] ^ t[14 * 256 + ((int)(x >>> 48) & 0xFF)]
+				    ^ t[13 * 256 + ((int)(x >>> 40) & 0xFF)] ^ t[12 * 256 + ((int)(x >>> 32) & 0xFF)]
+				    ^ t[11 * 256 + ((int)(x >>> 24) & 0xFF)] ^ t[10 * 256 + ((int)(x >>> 16) & 0xFF)]
+				    ^ t[ 9 * 256 + ((int)(x >>>  8) & 0xFF)] ^ t[ 8 * 256 + ((int) x         & 0xFF)]
+				    ^ t[ 7 * 256 + (int)(y >>> 56)       ] ^ t[ 6 * 256 + ((int)(y >>> 48) & 0xFF)]
+				    ^ t[ 5 * 256 + ((int)(y >>> 40) & 0xFF)] ^ t[ 4 * 256 + ((int)(y >>> 32) & 0xFF)]
+				    ^ t[ 3 * 256 + ((int)(y >>> 24) & 0xFF)] ^ t[ 2 * 256 + ((int)(y >>> 16) & 0xFF)]
+				    ^ t[ 1 * 256 + ((int)(y >>>  8) & 0xFF)] ^ t[ 0 * 256 + ((int) y         & 0xFF)];
+			}
+			for (; i < end; i++)
+				s = (s << 8) ^ t[(int)(s >>> 56) ^ (b[i] & 0xFF)];
 		} else {
-			for (int i = off, end = off + len; i < end; i++)
-				state = (state >>> 8) ^ xorTable[((int)state ^ b[i]) & 0xFF];
+			for (; end - i >= SLICES; i += SLICES) {
+				long x = s ^ (long)INT64_ARRAY_LITTLE.get(b, i);
+				long y = (long)INT64_ARRAY_LITTLE.get(b, i + 8);
+				s =   t[15 * 256 + ((int) x         & 0xFF)] ^ t[14 * 256 + ((int)(x >>>  8) & 0xFF)]
+				    ^ t[13 * 256 + ((int)(x >>> 16) & 0xFF)] ^ t[12 * 256 + ((int)(x >>> 24) & 0xFF)]
+				    ^ t[11 * 256 + ((int)(x >>> 32) & 0xFF)] ^ t[10 * 256 + ((int)(x >>> 40) & 0xFF)]
+				    ^ t[ 9 * 256 + ((int)(x >>> 48) & 0xFF)] ^ t[ 8 * 256 + (int)(x >>> 56)       ]
+				    ^ t[ 7 * 256 + ((int) y         & 0xFF)] ^ t[ 6 * 256 + ((int)(y >>>  8) & 0xFF)]
+				    ^ t[ 5 * 256 + ((int)(y >>> 16) & 0xFF)] ^ t[ 4 * 256 + ((int)(y >>> 24) & 0xFF)]
+				    ^ t[ 3 * 256 + ((int)(y >>> 32) & 0xFF)] ^ t[ 2 * 256 + ((int)(y >>> 40) & 0xFF)]
+				    ^ t[ 1 * 256 + ((int)(y >>> 48) & 0xFF)] ^ t[ 0 * 256 + (int)(y >>> 56)       ];
+			}
+			for (; i < end; i++)
+				s = (s >>> 8) ^ t[((int)s ^ b[i]) & 0xFF];
 		}
+		state = s;
 	}
 	
 	
@@ -115,4 +134,47 @@ final class CrcHasher extends AbstractHasher {
 		return new HashValue(b);
 	}
 	
+	
+	
+	/**
+	 * Returns the slicing tables for the specified CRC parameters. Table 0 maps a byte to the register change of shifting it in; table k maps a byte to the register change of shifting it in followed by k zero bytes.
+	 * @param degree the degree of the polynomial, from 1 to 64
+	 * @param poly the polynomial, with the x<sup>degree</sup> term omitted if the degree is 64
+	 * @param revIn whether input bits are reversed, which selects the right-shift algorithm
+	 * @return a new array of {@link #SLICES} tables of 256 entries each
+	 */
+	static long[] newTables(int degree, long poly, boolean revIn) {
+		long[] result = new long[SLICES * 256];
+		poly <<= 64 - degree;
+		if (!revIn) {  // Left-shift algorithm
+			for (int i = 0; i < 256; i++) {
+				long reg = (long)i << 56;
+				for (int j = 0; j < 8; j++)
+					reg = (reg << 1) ^ (reg >>> 63) * poly;
+				result[i] = reg;
+			}
+			for (int k = 1; k < SLICES; k++) {
+				for (int i = 0; i < 256; i++) {
+					long reg = result[(k - 1) * 256 + i];
+					result[k * 256 + i] = (reg << 8) ^ result[(int)(reg >>> 56)];
+				}
+			}
+		} else {  // Right-shift algorithm
+			poly = Long.reverse(poly);
+			for (int i = 0; i < 256; i++) {
+				long reg = i;
+				for (int j = 0; j < 8; j++)
+					reg = (reg >>> 1) ^ (reg & 1) * poly;
+				result[i] = reg;
+			}
+			for (int k = 1; k < SLICES; k++) {
+				for (int i = 0; i < 256; i++) {
+					long reg = result[(k - 1) * 256 + i];
+					result[k * 256 + i] = (reg >>> 8) ^ result[(int)reg & 0xFF];
+				}
+			}
+		}
+		return result;
+	}
+	
 }
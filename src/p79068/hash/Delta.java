@@ -0,0 +1,300 @@
+package p79068.hash;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import p79068.Assert;
+
+
+/**
+ * Computes and applies deltas between basis data and new data with the rsync algorithm.
+ * <p>The basis data is described by a {@link BlockSignature}. A window of one block length slides over the new data, and its weak checksum is rolled forward one byte at a time. Where the signature's filter admits the checksum, the blocks with an equal weak checksum are looked up, and the strong hash value of the window is compared with theirs. A match is emitted as a copy of the block and the window jumps past it; the bytes that no window matched are emitted as literals. After a match, the next block of the basis is tried first, and copies of consecutive blocks are merged into one. The shorter last block of the basis can only match at the end of the new data.</p>
+ * <p>The new data is read into a buffer of at least {@value #BUFFER_LENGTH} bytes, so streams of any length can be diffed in bounded memory.</p>
+ * @see DeltaSink
+ */
+public final class Delta {
+	
+	/**
+	 * The minimum length of the buffer for new data read from a stream, in bytes. The buffer is also at least twice the block length.
+	 */
+	public final static int BUFFER_LENGTH = 1 << 20;
+	
+	
+	
+	/**
+	 * Computes the delta from the signature's basis data to the specified byte array range, and passes the script to the specified sink.
+	 * @param sig the signature of the basis data
+	 * @param b the byte array holding the new data
+	 * @param off the offset into {@code b}
+	 * @param len the length of the new data
+	 * @param sink the sink that receives the delta script
+	 * @throws IOException if the sink throws an I/O exception
+	 * @throws NullPointerException if any argument is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static void diff(BlockSignature sig, byte[] b, int off, int len, DeltaSink sink) throws IOException {
+		Assert.assertNotNull(sig, b, sink);
+		Assert.assertRangeInBounds(b.length, off, len);
+		new Searcher(sig, sink).run(null, b, off, off + len);
+	}
+	
+	
+	/**
+	 * Computes the delta from the signature's basis data to the remainder of the specified input stream, and passes the script to the specified sink. The stream is not closed.
+	 * @param sig the signature of the basis data
+	 * @param in the input stream of the new data
+	 * @param sink the sink that receives the delta script
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if any argument is {@code null}
+	 */
+	public static void diff(BlockSignature sig, InputStream in, DeltaSink sink) throws IOException {
+		Assert.assertNotNull(sig, in, sink);
+		int bufferLen = (int)Math.min(Math.max(BUFFER_LENGTH, sig.getBlockLength() * 2L), Integer.MAX_VALUE - 8);
+		new Searcher(sig, sink).run(in, new byte[bufferLen], 0, 0);
+	}
+	
+	
+	/**
+	 * Returns a sink that applies a delta script to the specified basis data, writing the new data to the specified output stream.
+	 * @param basis the basis data
+	 * @param out the output stream to write the new data to
+	 * @return a sink that applies a delta script
+	 * @throws NullPointerException if any argument is {@code null}
+	 */
+	public static DeltaSink newPatcher(byte[] basis, OutputStream out) {
+		Assert.assertNotNull(basis, out);
+		return new ArrayPatcher(basis, out);
+	}
+	
+	
+	/**
+	 * Returns a sink that applies a delta script to the basis data in the specified file channel, writing the new data to the specified output stream. The channel's position is not changed.
+	 * @param basis the file channel of the basis data
+	 * @param out the output stream to write the new data to
+	 * @return a sink that applies a delta script
+	 * @throws NullPointerException if any argument is {@code null}
+	 */
+	public static DeltaSink newPatcher(FileChannel basis, OutputStream out) {
+		Assert.assertNotNull(basis, out);
+		return new ChannelPatcher(basis, out);
+	}
+	
+	
+	
+	/**
+	 * Not instantiable.
+	 */
+	private Delta() {}
+	
+	
+	
+	private static final class Searcher {
+		
+		private final BlockSignature signature;
+		private final DeltaSink sink;
+		private final int blockLength;
+		
+		// The new data is buf[0 : filled]; the window starts at pos, and the bytes in [literalStart, pos) are not yet emitted
+		private InputStream input;
+		private byte[] buf;
+		private int pos;
+		private int filled;
+		private int literalStart;
+		private boolean eof;
+		
+		// The copy that is held back in case the next match continues it
+		private long copyOffset;
+		private long copyLength;
+		
+		
+		public Searcher(BlockSignature sig, DeltaSink sink) {
+			signature = sig;
+			this.sink = sink;
+			blockLength = sig.getBlockLength();
+			copyOffset = 0;
+			copyLength = 0;
+		}
+		
+		
+		// Searches buf[start : end], refilling the buffer from the stream if it is not null.
+		public void run(InputStream in, byte[] buf, int start, int end) throws IOException {
+			input = in;
+			this.buf = buf;
+			pos = start;
+			filled = end;
+			literalStart = start;
+			eof = in == null;
+			RollingChecksum rc = new RollingChecksum(signature.getVariant());
+			boolean rcValid = false;
+			int preferred = -1;  // The block after the last match
+			while (true) {
+				if (filled - pos < blockLength) {
+					if (eof)
+						break;
+					refill();
+					continue;
+				}
+				
+				// Each window is checked once
+				if (!rcValid) {
+					rc.reset(buf, pos, blockLength);
+					rcValid = true;
+				}
+				int weak = rc.getValue();
+				boolean afterMatch = pos == literalStart && preferred != -1;
+				int match = afterMatch || signature.mayContain(weak) ? signature.find(weak, buf, pos, blockLength, afterMatch ? preferred : -1) : -1;
+				if (match != -1) {
+					literal(buf, literalStart, pos - literalStart);
+					copy((long)match * blockLength, blockLength);
+					pos += blockLength;
+					literalStart = pos;
+					rcValid = false;
+					preferred = match + 1;
+					continue;
+				}
+				
+				// Slide the window by one byte, first reading the byte that enters it if needed
+				if (filled - pos == blockLength) {
+					if (eof)
+						break;
+					refill();
+					if (filled - pos == blockLength)  // The stream ended
+						break;
+				}
+				rc.roll(buf[pos], buf[pos + blockLength]);
+				pos++;
+			}
+			
+			// The last block of the basis, if it is shorter, can match the end of the new data
+			int count = signature.getBlockCount();
+			int tail = count > 0 ? signature.blockLength(count - 1) : 0;
+			if (tail > 0 && tail < blockLength && filled - literalStart >= tail) {
+				int tailStart = filled - tail;
+				int weak = RollingChecksum.checksum(signature.getVariant(), buf, tailStart, tail);
+				if (signature.find(weak, buf, tailStart, tail, count - 1) != -1) {
+					literal(buf, literalStart, tailStart - literalStart);
+					copy((long)(count - 1) * blockLength, tail);
+					literalStart = filled;
+				}
+			}
+			literal(buf, literalStart, filled - literalStart);
+			flushCopy();
+		}
+		
+		
+		// Emits the literal bytes before the window, moves the window to the start of the buffer, and reads until the buffer is full or the stream ends.
+		private void refill() throws IOException {
+			literal(buf, literalStart, pos - literalStart);
+			System.arraycopy(buf, pos, buf, 0, filled - pos);
+			filled -= pos;
+			pos = 0;
+			literalStart = 0;
+			while (!eof && filled < buf.length) {
+				int n = input.read(buf, filled, buf.length - filled);
+				if (n == -1)
+					eof = true;
+				else
+					filled += n;
+			}
+		}
+		
+		
+		private void literal(byte[] b, int off, int len) throws IOException {
+			if (len > 0) {
+				flushCopy();
+				sink.literal(b, off, len);
+			}
+		}
+		
+		
+		private void copy(long offset, long length) throws IOException {
+			if (copyLength > 0 && copyOffset + copyLength == offset)
+				copyLength += length;
+			else {
+				flushCopy();
+				copyOffset = offset;
+				copyLength = length;
+			}
+		}
+		
+		
+		private void flushCopy() throws IOException {
+			if (copyLength > 0) {
+				sink.copy(copyOffset, copyLength);
+				copyLength = 0;
+			}
+		}
+		
+	}
+	
+	
+	
+	private static final class ArrayPatcher implements DeltaSink {
+		
+		private final byte[] basis;
+		private final OutputStream output;
+		
+		
+		public ArrayPatcher(byte[] basis, OutputStream out) {
+			this.basis = basis;
+			output = out;
+		}
+		
+		
+		public void copy(long offset, long length) throws IOException {
+			if (offset < 0 || length < 0 || offset > basis.length || basis.length - offset < length)
+				throw new IllegalArgumentException("Range outside of basis data");
+			output.write(basis, (int)offset, (int)length);
+		}
+		
+		
+		public void literal(byte[] b, int off, int len) throws IOException {
+			output.write(b, off, len);
+		}
+		
+	}
+	
+	
+	
+	private static final class ChannelPatcher implements DeltaSink {
+		
+		private final FileChannel basis;
+		private final OutputStream output;
+		private final byte[] buffer;
+		
+		
+		public ChannelPatcher(FileChannel basis, OutputStream out) {
+			this.basis = basis;
+			output = out;
+			buffer = new byte[64 << 10];
+		}
+		
+		
+		public void copy(long offset, long length) throws IOException {
+			if (offset < 0 || length < 0)
+				throw new IllegalArgumentException("Negative offset or length");
+			ByteBuffer bb = ByteBuffer.wrap(buffer);
+			while (length > 0) {
+				bb.clear();
+				bb.limit((int)Math.min(length, buffer.length));
+				while (bb.hasRemaining()) {
+					if (basis.read(bb, offset + bb.position()) == -1)
+						throw new EOFException();
+				}
+				output.write(buffer, 0, bb.limit());
+				offset += bb.limit();
+				length -= bb.limit();
+			}
+		}
+		
+		
+		public void literal(byte[] b, int off, int len) throws IOException {
+			output.write(b, off, len);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,30 @@
+package p79068.hash;
+
+import java.io.IOException;
+
+
+/**
+ * Receives a delta script from {@link Delta}: a sequence of operations that rebuild the new data from the basis data. The operations arrive in the order of the new data.
+ * @see Delta
+ */
+public interface DeltaSink {
+	
+	/**
+	 * Appends a range of the basis data to the output.
+	 * @param offset the offset of the range in the basis data
+	 * @param length the length of the range, which is positive
+	 * @throws IOException if an I/O exception occurs
+	 */
+	public void copy(long offset, long length) throws IOException;
+	
+	
+	/**
+	 * Appends the specified bytes to the output. The array may be reused after this method returns.
+	 * @param b the byte array holding the bytes
+	 * @param off the offset into {@code b}
+	 * @param len the number of bytes, which is positive
+	 * @throws IOException if an I/O exception occurs
+	 */
+	public void literal(byte[] b, int off, int len) throws IOException;
+	
+}
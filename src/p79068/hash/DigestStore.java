@@ -0,0 +1,489 @@
+package p79068.hash;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import p79068.Assert;
+
+
+/**
+ * A set of fixed-length digests, optionally each with a {@code long} value, stored off the heap in a memory-mapped file. The digests are the bytes of {@link HashValue#toBytes()}, and lookups take a byte array range, so they create no objects.
+ * <p>The file holds the records sorted by digest in unsigned lexicographic order, without duplicates. A prefix index, with one entry per value of the leading bits of the digest, gives the range of records that share those bits; it is sized for about 16 records per range, so a lookup reads two index entries and binary searches a few records. For uniformly distributed digests, such as those of cryptographic hash functions, this takes constant time; in general, logarithmic time.</p>
+ * <p>Stores are built with {@link DigestStoreWriter} and combined with {@link #merge(Path, DigestStore...)}. The file's layout, with big-endian integers, is:</p>
+ * <ul>
+ *   <li>A header of {@value #HEADER_LENGTH} bytes: the magic number, the digest length (int), the value length of 0 or 8 (int), the record count (long) and the number of prefix bits <var>b</var> (int), then zeros.</li>
+ *   <li>The prefix index of 2<sup><var>b</var></sup> + 1 longs: entry <var>p</var> is the index of the first record whose leading <var>b</var> bits are at least <var>p</var>.</li>
+ *   <li>The records: each digest followed by its value, if any.</li>
+ * </ul>
+ * <p>The file is mapped until the store is garbage-collected, and must not be modified while it is open.</p>
+ * <p>Mutability: <em>Immutable</em>, thread-safe</p>
+ * @see DigestStoreWriter
+ */
+public final class DigestStore {
+	
+	/**
+	 * The length of the file header, in bytes.
+	 */
+	public final static int HEADER_LENGTH = 64;
+	
+	/**
+	 * The maximum length of a digest, in bytes.
+	 */
+	public final static int MAX_DIGEST_LENGTH = 1024;
+	
+	
+	static final long MAGIC = 0x5037394447535431L;  // "P79DGST1"
+	
+	private static final int MAX_PREFIX_BITS = 24;
+	
+	// The target size of each mapped segment of records
+	private static final int SEGMENT_SIZE = 1 << 30;
+	
+	private static final VarHandle INT64_ARRAY_BIG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	
+	
+	
+	/**
+	 * Opens the store in the specified file and maps it into memory.
+	 * @param file the file of the store
+	 * @return the store in the file
+	 * @throws IOException if an I/O exception occurs, or the file is not a valid store
+	 * @throws NullPointerException if {@code file} is {@code null}
+	 */
+	public static DigestStore open(Path file) throws IOException {
+		Assert.assertNotNull(file);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new DigestStore(file, channel);
+		}
+	}
+	
+	
+	/**
+	 * Merges the specified stores into a new store in the specified file, and opens it. If a digest is in more than one store, the value from the last of them is kept. The stores are read sequentially, and the target file is written sequentially.
+	 * @param target the file to write the merged store to, which is replaced if it exists
+	 * @param stores the stores to merge, which all have the same digest length and either all have values or none
+	 * @return the merged store
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if any argument or store is {@code null}
+	 * @throws IllegalArgumentException if there are no stores, their formats differ, or the target is the file of one of them
+	 */
+	public static DigestStore merge(Path target, DigestStore... stores) throws IOException {
+		Assert.assertNotNull(target, stores);
+		if (stores.length == 0)
+			throw new IllegalArgumentException("No stores to merge");
+		long maxCount = 0;
+		for (DigestStore s : stores) {
+			Assert.assertNotNull(s);
+			if (s.digestLength != stores[0].digestLength || s.valueLength != stores[0].valueLength)
+				throw new IllegalArgumentException("Stores have different formats");
+			if (Files.exists(target) && Files.isSameFile(target, s.file))
+				throw new IllegalArgumentException("Target is an input store");
+			maxCount += s.count;
+		}
+		
+		// Equal digests come out of the queue from the last store first, so the first of them is kept
+		PriorityQueue<Cursor> queue = new PriorityQueue<>(stores.length);
+		for (int i = 0; i < stores.length; i++) {
+			Cursor c = new Cursor(stores[i], i);
+			if (c.advance())
+				queue.add(c);
+		}
+		int digestLen = stores[0].digestLength;
+		byte[] last = new byte[digestLen];
+		boolean hasLast = false;
+		try (Output out = new Output(target, digestLen, stores[0].valueLength, maxCount)) {
+			while (!queue.isEmpty()) {
+				Cursor c = queue.poll();
+				if (!hasLast || !Arrays.equals(c.record, 0, digestLen, last, 0, digestLen)) {
+					out.append(c.record, 0);
+					System.arraycopy(c.record, 0, last, 0, digestLen);
+					hasLast = true;
+				}
+				if (c.advance())
+					queue.add(c);
+			}
+			out.finish();
+		}
+		return open(target);
+	}
+	
+	
+	
+	private final Path file;
+	
+	private final int digestLength;
+	
+	// 0 or 8
+	private final int valueLength;
+	
+	private final int recordLength;
+	
+	private final long count;
+	
+	private final int prefixBits;
+	
+	private final ByteBuffer index;
+	
+	// Segment i holds records [i * segmentRecords, (i + 1) * segmentRecords)
+	private final ByteBuffer[] segments;
+	private final int segmentRecords;
+	
+	
+	
+	private DigestStore(Path file, FileChannel channel) throws IOException {
+		this.file = file;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) == -1)
+				throw new IOException("Not a digest store");
+		}
+		header.flip();
+		if (header.getLong() != MAGIC)
+			throw new IOException("Not a digest store");
+		digestLength = header.getInt();
+		valueLength = header.getInt();
+		count = header.getLong();
+		prefixBits = header.getInt();
+		if (digestLength <= 0 || digestLength > MAX_DIGEST_LENGTH || (valueLength != 0 && valueLength != 8) || count < 0
+				|| prefixBits < 0 || prefixBits > prefixBitsLimit(digestLength))
+			throw new IOException("Invalid digest store header");
+		recordLength = digestLength + valueLength;
+		
+		long indexLength = ((1L << prefixBits) + 1) * 8;
+		long dataStart = HEADER_LENGTH + indexLength;
+		if (count > (Long.MAX_VALUE - dataStart) / recordLength || channel.size() != dataStart + count * recordLength)
+			throw new IOException("Digest store has wrong length");
+		index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, indexLength);
+		
+		segmentRecords = SEGMENT_SIZE / recordLength;
+		segments = new ByteBuffer[(int)((count + segmentRecords - 1) / segmentRecords)];
+		for (int i = 0; i < segments.length; i++) {
+			long first = (long)i * segmentRecords;
+			long n = Math.min(count - first, segmentRecords);
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + first * recordLength, n * recordLength);
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the length of each digest, in bytes.
+	 * @return the length of each digest
+	 */
+	public int getDigestLength() {
+		return digestLength;
+	}
+	
+	
+	/**
+	 * Tests whether each digest has a value.
+	 * @return whether each digest has a value
+	 */
+	public boolean hasValues() {
+		return valueLength != 0;
+	}
+	
+	
+	/**
+	 * Returns the number of digests.
+	 * @return the number of digests
+	 */
+	public long size() {
+		return count;
+	}
+	
+	
+	/**
+	 * Tests whether this store contains the digest in the specified byte array, which is read at the specified offset for the digest length.
+	 * @param digest the byte array holding the digest
+	 * @param off the offset of the digest in {@code digest}
+	 * @return whether this store contains the digest
+	 * @throws NullPointerException if {@code digest} is {@code null}
+	 * @throws IndexOutOfBoundsException if the digest extends outside of the array
+	 */
+	public boolean contains(byte[] digest, int off) {
+		return indexOf(digest, off) >= 0;
+	}
+	
+	
+	/**
+	 * Tests whether this store contains the specified hash value. A hash value of another length is not contained.
+	 * @param hash the hash value to test
+	 * @return whether this store contains the hash value
+	 * @throws NullPointerException if {@code hash} is {@code null}
+	 */
+	public boolean contains(HashValue hash) {
+		Assert.assertNotNull(hash);
+		return hash.getLength() == digestLength && contains(hash.toBytes(), 0);
+	}
+	
+	
+	/**
+	 * Returns the value of the digest in the specified byte array, or the specified default value if this store does not contain the digest.
+	 * @param digest the byte array holding the digest
+	 * @param off the offset of the digest in {@code digest}
+	 * @param defaultValue the value to return if the digest is absent
+	 * @return the value of the digest, or {@code defaultValue}
+	 * @throws NullPointerException if {@code digest} is {@code null}
+	 * @throws IndexOutOfBoundsException if the digest extends outside of the array
+	 * @throws IllegalStateException if this store has no values
+	 */
+	public long get(byte[] digest, int off, long defaultValue) {
+		if (valueLength == 0)
+			throw new IllegalStateException("Store has no values");
+		long i = indexOf(digest, off);
+		return i >= 0 ? getValue(i) : defaultValue;
+	}
+	
+	
+	/**
+	 * Returns the index of the digest in the specified byte array in the sorted order of this store. If it is absent, returns (&minus;(<var>insertion point</var>) &minus; 1), as {@link java.util.Arrays#binarySearch(long[], long)} does.
+	 * @param digest the byte array holding the digest
+	 * @param off the offset of the digest in {@code digest}
+	 * @return the index of the digest, or a negative number if it is absent
+	 * @throws NullPointerException if {@code digest} is {@code null}
+	 * @throws IndexOutOfBoundsException if the digest extends outside of the array
+	 */
+	public long indexOf(byte[] digest, int off) {
+		Assert.assertNotNull(digest);
+		Assert.assertRangeInBounds(digest.length, off, digestLength);
+		int p = prefix(digest, off, prefixBits);
+		long low = index.getLong(p * 8);
+		long high = index.getLong(p * 8 + 8) - 1;
+		while (low <= high) {
+			long mid = (low + high) >>> 1;
+			int cmp = compare(mid, digest, off);
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+	
+	
+	/**
+	 * Copies the digest at the specified index into the specified byte array.
+	 * @param index the index of the digest in the sorted order
+	 * @param dest the array to copy the digest to
+	 * @param off the offset in {@code dest}
+	 * @throws NullPointerException if {@code dest} is {@code null}
+	 * @throws IndexOutOfBoundsException if the index is out of range, or the digest does not fit in the array
+	 */
+	public void getDigest(long index, byte[] dest, int off) {
+		Assert.assertNotNull(dest);
+		Assert.assertRangeInBounds(dest.length, off, digestLength);
+		checkIndex(index);
+		segments[(int)(index / segmentRecords)].get((int)(index % segmentRecords) * recordLength, dest, off, digestLength);
+	}
+	
+	
+	/**
+	 * Returns the digest at the specified index as a hash value.
+	 * @param index the index of the digest in the sorted order
+	 * @return the digest at the index
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public HashValue getDigest(long index) {
+		byte[] b = new byte[digestLength];
+		getDigest(index, b, 0);
+		return new HashValue(b);
+	}
+	
+	
+	/**
+	 * Returns the value at the specified index.
+	 * @param index the index of the digest in the sorted order
+	 * @return the value of the digest at the index
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * @throws IllegalStateException if this store has no values
+	 */
+	public long getValue(long index) {
+		if (valueLength == 0)
+			throw new IllegalStateException("Store has no values");
+		checkIndex(index);
+		return segments[(int)(index / segmentRecords)].getLong((int)(index % segmentRecords) * recordLength + digestLength);
+	}
+	
+	
+	
+	private void checkIndex(long index) {
+		if (index < 0 || index >= count)
+			throw new IndexOutOfBoundsException();
+	}
+	
+	
+	// Compares the digest of the record at the index with the digest in the array, in unsigned lexicographic order.
+	private int compare(long index, byte[] digest, int off) {
+		ByteBuffer seg = segments[(int)(index / segmentRecords)];
+		int pos = (int)(index % segmentRecords) * recordLength;
+		int i = 0;
+		for (; i + 8 <= digestLength; i += 8) {
+			long x = seg.getLong(pos + i);
+			long y = (long)INT64_ARRAY_BIG.get(digest, off + i);
+			if (x != y)
+				return Long.compareUnsigned(x, y);
+		}
+		for (; i < digestLength; i++) {
+			int cmp = (seg.get(pos + i) & 0xFF) - (digest[off + i] & 0xFF);
+			if (cmp != 0)
+				return cmp;
+		}
+		return 0;
+	}
+	
+	
+	// Returns the leading bits of the digest, which has at least (bits / 8) bytes.
+	static int prefix(byte[] digest, int off, int bits) {
+		int result = 0;
+		for (int i = 0; i * 8 < bits; i++)
+			result = result << 8 | (digest[off + i] & 0xFF);
+		return result >>> (-bits & 7);
+	}
+	
+	
+	// Returns the number of prefix bits for a store of at most the specified number of digests.
+	static int prefixBits(long maxCount, int digestLength) {
+		int bits = 63 - Long.numberOfLeadingZeros(Math.max(maxCount >>> 4, 1));
+		return Math.min(bits, prefixBitsLimit(digestLength));
+	}
+	
+	
+	private static int prefixBitsLimit(int digestLength) {
+		return (int)Math.min(MAX_PREFIX_BITS, digestLength * 8L);
+	}
+	
+	
+	
+	// Reads the records of a store in order, for merging.
+	private static final class Cursor implements Comparable<Cursor> {
+		
+		private final DigestStore store;
+		private final int order;
+		private long next;
+		public final byte[] record;
+		
+		
+		public Cursor(DigestStore store, int order) {
+			this.store = store;
+			this.order = order;
+			next = 0;
+			record = new byte[store.recordLength];
+		}
+		
+		
+		// Reads the next record, returning false at the end.
+		public boolean advance() {
+			if (next == store.count)
+				return false;
+			ByteBuffer seg = store.segments[(int)(next / store.segmentRecords)];
+			seg.get((int)(next % store.segmentRecords) * store.recordLength, record);
+			next++;
+			return true;
+		}
+		
+		
+		public int compareTo(Cursor other) {
+			int cmp = Arrays.compareUnsigned(record, 0, store.digestLength, other.record, 0, store.digestLength);
+			return cmp != 0 ? cmp : Integer.compare(other.order, order);
+		}
+		
+	}
+	
+	
+	
+	/*
+	 * Writes a store file sequentially. The records must be appended in strictly increasing order of digest.
+	 * The index is sized for the maximum count, which may exceed the number of records appended.
+	 */
+	static final class Output implements AutoCloseable {
+		
+		private final FileChannel channel;
+		private final int digestLength;
+		private final int valueLength;
+		private final int prefixBits;
+		private final long[] index;
+		private final ByteBuffer buffer;
+		private long count;
+		private int lastPrefix;
+		
+		
+		public Output(Path file, int digestLength, int valueLength, long maxCount) throws IOException {
+			this.digestLength = digestLength;
+			this.valueLength = valueLength;
+			prefixBits = prefixBits(maxCount, digestLength);
+			index = new long[(1 << prefixBits) + 1];
+			int recordLength = digestLength + valueLength;
+			buffer = ByteBuffer.allocateDirect(Math.max(1 << 20, recordLength) / recordLength * recordLength);
+			count = 0;
+			lastPrefix = 0;
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			channel.position(HEADER_LENGTH + index.length * 8L);
+		}
+		
+		
+		// Appends the record (the digest, then the value if any) at the offset.
+		public void append(byte[] record, int off) throws IOException {
+			int p = prefix(record, off, prefixBits);
+			if (p < lastPrefix)
+				throw new IllegalStateException("Records out of order");
+			for (; lastPrefix < p; lastPrefix++)
+				index[lastPrefix + 1] = count;
+			if (buffer.remaining() < digestLength + valueLength)
+				flush();
+			buffer.put(record, off, digestLength + valueLength);
+			count++;
+		}
+		
+		
+		// Writes the buffered records, the index and the header.
+		public void finish() throws IOException {
+			flush();
+			for (; lastPrefix < index.length - 1; lastPrefix++)
+				index[lastPrefix + 1] = count;
+			
+			long pos = HEADER_LENGTH;
+			for (int i = 0; i < index.length; ) {
+				for (; i < index.length && buffer.remaining() >= 8; i++)
+					buffer.putLong(index[i]);
+				buffer.flip();
+				while (buffer.hasRemaining())
+					pos += channel.write(buffer, pos);
+				buffer.clear();
+			}
+			
+			buffer.putLong(MAGIC).putInt(digestLength).putInt(valueLength).putLong(count).putInt(prefixBits);
+			while (buffer.position() < HEADER_LENGTH)
+				buffer.put((byte)0);
+			buffer.flip();
+			for (pos = 0; buffer.hasRemaining(); )
+				pos += channel.write(buffer, pos);
+			buffer.clear();
+		}
+		
+		
+		public void close() throws IOException {
+			channel.close();
+		}
+		
+		
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,304 @@
+package p79068.hash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import p79068.Assert;
+
+
+/**
+ * Builds a {@link DigestStore} file from digests added in any order, in bounded memory.
+ * <p>Records are buffered in a primitive array of a fixed number of records. When it is full, it is sorted, its duplicates are removed, and it is written as a run, which is itself a store file next to the target. {@link #finish()} merges the runs into the target with {@link DigestStore#merge(Path, DigestStore...)}; if everything fits in one run, the target is written directly. If a digest is added more than once, the last value added is kept.</p>
+ * <p>Mutability: <em>Mutable</em>, not thread-safe</p>
+ * @see DigestStore
+ */
+public final class DigestStoreWriter implements Closeable {
+	
+	/**
+	 * The default number of records per run.
+	 */
+	public final static int DEFAULT_RUN_LENGTH = 1 << 22;
+	
+	
+	private static final VarHandle INT64_ARRAY_BIG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	
+	
+	
+	private final Path target;
+	
+	private final int digestLength;
+	
+	// 0 or 8
+	private final int valueLength;
+	
+	private final int recordLength;
+	
+	// Records in the order they were added
+	private byte[] buffer;
+	private int count;
+	
+	private final List<Path> runs;
+	
+	private boolean finished;
+	
+	
+	
+	/**
+	 * Constructs a writer of a store to the specified file, with the default run length.
+	 * @param target the file to write the store to, which is replaced if it exists
+	 * @param digestLength the length of each digest, in bytes
+	 * @param hasValues whether each digest has a {@code long} value
+	 * @throws NullPointerException if {@code target} is {@code null}
+	 * @throws IllegalArgumentException if the digest length is not in the range [1, {@link DigestStore#MAX_DIGEST_LENGTH}]
+	 */
+	public DigestStoreWriter(Path target, int digestLength, boolean hasValues) {
+		this(target, digestLength, hasValues, DEFAULT_RUN_LENGTH);
+	}
+	
+	
+	/**
+	 * Constructs a writer of a store to the specified file, which buffers the specified number of records per run.
+	 * @param target the file to write the store to, which is replaced if it exists
+	 * @param digestLength the length of each digest, in bytes
+	 * @param hasValues whether each digest has a {@code long} value
+	 * @param runLength the number of records per run
+	 * @throws NullPointerException if {@code target} is {@code null}
+	 * @throws IllegalArgumentException if the digest length is not in the range [1, {@link DigestStore#MAX_DIGEST_LENGTH}], or the run length is not positive or its records do not fit in an array
+	 */
+	public DigestStoreWriter(Path target, int digestLength, boolean hasValues, int runLength) {
+		Assert.assertNotNull(target);
+		if (digestLength <= 0 || digestLength > DigestStore.MAX_DIGEST_LENGTH)
+			throw new IllegalArgumentException("Invalid digest length");
+		this.target = target;
+		this.digestLength = digestLength;
+		valueLength = hasValues ? 8 : 0;
+		recordLength = digestLength + valueLength;
+		if (runLength <= 0 || runLength > (Integer.MAX_VALUE - 8) / recordLength)
+			throw new IllegalArgumentException("Invalid run length");
+		buffer = new byte[runLength * recordLength];
+		count = 0;
+		runs = new ArrayList<>();
+		finished = false;
+	}
+	
+	
+	
+	/**
+	 * Adds the digest in the specified byte array, which is read at the specified offset for the digest length.
+	 * @param digest the byte array holding the digest
+	 * @param off the offset of the digest in {@code digest}
+	 * @throws IOException if an I/O exception occurs while writing a run
+	 * @throws NullPointerException if {@code digest} is {@code null}
+	 * @throws IndexOutOfBoundsException if the digest extends outside of the array
+	 * @throws IllegalStateException if the store has values, or the writer is finished
+	 */
+	public void add(byte[] digest, int off) throws IOException {
+		if (valueLength != 0)
+			throw new IllegalStateException("Store has values");
+		addRecord(digest, off, 0);
+	}
+	
+	
+	/**
+	 * Adds the digest in the specified byte array with the specified value.
+	 * @param digest the byte array holding the digest
+	 * @param off the offset of the digest in {@code digest}
+	 * @param value the value of the digest
+	 * @throws IOException if an I/O exception occurs while writing a run
+	 * @throws NullPointerException if {@code digest} is {@code null}
+	 * @throws IndexOutOfBoundsException if the digest extends outside of the array
+	 * @throws IllegalStateException if the store has no values, or the writer is finished
+	 */
+	public void add(byte[] digest, int off, long value) throws IOException {
+		if (valueLength == 0)
+			throw new IllegalStateException("Store has no values");
+		addRecord(digest, off, value);
+	}
+	
+	
+	/**
+	 * Adds the specified hash value.
+	 * @param hash the hash value to add
+	 * @throws IOException if an I/O exception occurs while writing a run
+	 * @throws NullPointerException if {@code hash} is {@code null}
+	 * @throws IllegalArgumentException if the hash value's length is not the digest length
+	 * @throws IllegalStateException if the store has values, or the writer is finished
+	 */
+	public void add(HashValue hash) throws IOException {
+		add(toDigest(hash), 0);
+	}
+	
+	
+	/**
+	 * Adds the specified hash value with the specified value.
+	 * @param hash the hash value to add
+	 * @param value the value of the hash value
+	 * @throws IOException if an I/O exception occurs while writing a run
+	 * @throws NullPointerException if {@code hash} is {@code null}
+	 * @throws IllegalArgumentException if the hash value's length is not the digest length
+	 * @throws IllegalStateException if the store has no values, or the writer is finished
+	 */
+	public void add(HashValue hash, long value) throws IOException {
+		add(toDigest(hash), 0, value);
+	}
+	
+	
+	/**
+	 * Writes the store to the target file and opens it. The writer cannot be used afterward.
+	 * @return the store that was written
+	 * @throws IOException if an I/O exception occurs
+	 * @throws IllegalStateException if the writer is finished
+	 */
+	public DigestStore finish() throws IOException {
+		checkNotFinished();
+		finished = true;
+		try {
+			if (runs.isEmpty()) {
+				writeRun(target);
+				return DigestStore.open(target);
+			}
+			if (count > 0)
+				spill();
+			DigestStore[] stores = new DigestStore[runs.size()];
+			for (int i = 0; i < stores.length; i++)
+				stores[i] = DigestStore.open(runs.get(i));
+			return DigestStore.merge(target, stores);
+		} finally {
+			buffer = null;
+			deleteRuns();
+		}
+	}
+	
+	
+	/**
+	 * Deletes the runs written so far, without writing the store if it is not finished. The writer cannot be used afterward.
+	 * @throws IOException if an I/O exception occurs
+	 */
+	public void close() throws IOException {
+		finished = true;
+		buffer = null;
+		deleteRuns();
+	}
+	
+	
+	
+	private void addRecord(byte[] digest, int off, long value) throws IOException {
+		Assert.assertNotNull(digest);
+		Assert.assertRangeInBounds(digest.length, off, digestLength);
+		checkNotFinished();
+		if (count * recordLength == buffer.length)
+			spill();
+		int pos = count * recordLength;
+		System.arraycopy(digest, off, buffer, pos, digestLength);
+		if (valueLength != 0)
+			INT64_ARRAY_BIG.set(buffer, pos + digestLength, value);
+		count++;
+	}
+	
+	
+	private byte[] toDigest(HashValue hash) {
+		Assert.assertNotNull(hash);
+		if (hash.getLength() != digestLength)
+			throw new IllegalArgumentException("Hash value length differs from digest length");
+		return hash.toBytes();
+	}
+	
+	
+	private void checkNotFinished() {
+		if (finished)
+			throw new IllegalStateException("Writer is finished");
+	}
+	
+	
+	// Writes the buffered records as a run in a temporary file next to the target.
+	private void spill() throws IOException {
+		Path dir = target.toAbsolutePath().getParent();
+		Path run = Files.createTempFile(dir, target.getFileName() + ".", ".run");
+		runs.add(run);
+		writeRun(run);
+	}
+	
+	
+	// Sorts the buffered records, keeping the last of equal digests, writes them to the file, and empties the buffer.
+	private void writeRun(Path file) throws IOException {
+		int[] order = sortRecords();
+		try (DigestStore.Output out = new DigestStore.Output(file, digestLength, valueLength, order.length)) {
+			for (int i : order)
+				out.append(buffer, i * recordLength);
+			out.finish();
+		}
+		count = 0;
+	}
+	
+	
+	/*
+	 * Returns the indexes of the buffered records with distinct digests, in increasing order of digest.
+	 * Each key is the leading bits of a digest with the record's index in the low bits, so sorting the keys orders the records
+	 * by those bits and then by insertion. Only records whose leading bits collide, which is rare for hash values, are compared in full.
+	 */
+	private int[] sortRecords() {
+		int n = count;
+		int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 1));
+		long indexMask = (1L << indexBits) - 1;
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = (leadingBits(i) & ~indexMask | i) ^ Long.MIN_VALUE;  // Flip the sign for unsigned order
+		Arrays.sort(keys);
+		
+		boolean keyIsDigest = digestLength * 8 <= 64 - indexBits;
+		int[] order = new int[n];
+		int m = 0;
+		for (int i = 0; i < n; ) {
+			int j = i + 1;
+			while (j < n && (keys[j] ^ keys[i]) >>> indexBits == 0)
+				j++;
+			if (j - i == 1 || keyIsDigest)
+				order[m++] = (int)(keys[j - 1] & indexMask);  // The last added of equal digests
+			else {
+				// Stable sort by full digest, so equal digests stay in insertion order
+				Integer[] group = new Integer[j - i];
+				for (int k = i; k < j; k++)
+					group[k - i] = (int)(keys[k] & indexMask);
+				Arrays.sort(group, (x, y) -> Arrays.compareUnsigned(buffer, x * recordLength, x * recordLength + digestLength, buffer, y * recordLength, y * recordLength + digestLength));
+				for (int k = 0; k < group.length; k++) {
+					int x = group[k] * recordLength;
+					if (k + 1 < group.length) {
+						int y = group[k + 1] * recordLength;
+						if (Arrays.equals(buffer, x, x + digestLength, buffer, y, y + digestLength))
+							continue;
+					}
+					order[m++] = group[k];
+				}
+			}
+			i = j;
+		}
+		return Arrays.copyOf(order, m);
+	}
+	
+	
+	// Returns the first 8 bytes of the digest of the record at the index, padded with zeros, as a big-endian integer.
+	private long leadingBits(int index) {
+		int pos = index * recordLength;
+		if (digestLength >= 8)
+			return (long)INT64_ARRAY_BIG.get(buffer, pos);
+		long result = 0;
+		for (int i = 0; i < 8; i++)
+			result = result << 8 | (i < digestLength ? buffer[pos + i] & 0xFF : 0);
+		return result;
+	}
+	
+	
+	private void deleteRuns() throws IOException {
+		for (Path run : runs)
+			Files.deleteIfExists(run);
+		runs.clear();
+	}
+	
+}
@@ -0,0 +1,25 @@
+package p79068.hash;
+
+
+/**
+ * Selects how {@link HashFunction#getHash(java.nio.channels.FileChannel, long, long, FileReadMode)} reads file data.
+ * @see HashFunction
+ */
+public enum FileReadMode {
+	
+	/**
+	 * Reads small files with a single read and memory-maps large files. This is the default.
+	 */
+	AUTO,
+	
+	/**
+	 * Reads the file with a sequence of positional channel reads into a heap buffer.
+	 */
+	READ,
+	
+	/**
+	 * Memory-maps the file in read-only windows and hashes the mapped data directly.
+	 */
+	MEMORY_MAP;
+	
+}
@@ -0,0 +1,65 @@
+package p79068.hash;
+
+
+/**
+ * A content-defined chunker with the Gear rolling hash and FastCDC's normalized chunking (Xia et al., 2016).
+ * <p>The Gear hash shifts left by one bit and adds a random 64-bit value for each byte, so its top bits depend on about the last 64 bytes, at one shift and one addition per byte. No boundary is tested within the minimum length of a chunk. Up to the average length, the boundary condition tests one more top bit than the average length calls for, and after it one fewer, which concentrates the chunk lengths near the average. The table of random values is fixed, so the boundaries of given data never change.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class GearChunker extends Chunker {
+	
+	private static final long[] GEAR = new long[256];
+	
+	static {
+		long state = 0x6765617243444300L;  // SplitMix64, so that the table is reproducible
+		for (int i = 0; i < GEAR.length; i++) {
+			state += 0x9E3779B97F4A7C15L;
+			long z = state;
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			GEAR[i] = z ^ (z >>> 31);
+		}
+	}
+	
+	
+	
+	// Masks of the top bits of the hash, which must all be zero at a boundary
+	private final long maskBeforeAverage;
+	private final long maskAfterAverage;
+	
+	
+	
+	/**
+	 * Constructs a Gear chunker with the specified chunk lengths. FastCDC suggests a minimum of a quarter of the average and a maximum of 8 times the average.
+	 * @param minLen the minimum chunk length
+	 * @param avgLen the average chunk length, which is a power of 2 and at least 64
+	 * @param maxLen the maximum chunk length
+	 * @throws IllegalArgumentException if the lengths are not {@code 0 < minLen <= avgLen <= maxLen <= MAX_CHUNK_LENGTH}, or the average is not a power of 2 of at least 64
+	 */
+	public GearChunker(int minLen, int avgLen, int maxLen) {
+		super(minLen, avgLen, maxLen);
+		int bits = Integer.numberOfTrailingZeros(avgLen);
+		maskBeforeAverage = -1L << (64 - (bits + 1));
+		maskAfterAverage  = -1L << (64 - (bits - 1));
+	}
+	
+	
+	
+	@Override
+	protected int findBoundary(byte[] b, int off, int len) {
+		long hash = 0;
+		int i = minLength;
+		for (int end = Math.min(averageLength, len); i < end; i++) {
+			hash = (hash << 1) + GEAR[b[off + i] & 0xFF];
+			if ((hash & maskBeforeAverage) == 0)
+				return i + 1;
+		}
+		for (; i < len; i++) {
+			hash = (hash << 1) + GEAR[b[off + i] & 0xFF];
+			if ((hash & maskAfterAverage) == 0)
+				return i + 1;
+		}
+		return len;
+	}
+	
+}
@@ -1,7 +1,11 @@
 package p79068.hash;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 
 
 /**
@@ -71,6 +75,34 @@ public interface HashFunction {
 	 */
 	public HashValue getHash(byte[] b, int off, int len);
 	
+	/**
+	 * Computes and returns the hash value of the remaining bytes of the specified buffer, and advances the buffer's position to its limit.
+	 * @param b the buffer to hash
+	 * @return the hash value of the remaining bytes of the buffer
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 */
+	public HashValue getHash(ByteBuffer b);
+	
+	/**
+	 * Computes and returns the hash values of the specified byte arrays. Hash functions may compute the batch faster than separate calls to {@link #getHash(byte[])}.
+	 * @param messages the byte arrays to hash
+	 * @return a new array of the hash values, where element {@code i} is the hash of {@code messages[i]}
+	 * @throws NullPointerException if {@code messages} or any element is {@code null}
+	 */
+	public HashValue[] getHashes(byte[][] messages);
+	
+	/**
+	 * Computes and returns the hash values of the specified byte array ranges, where range {@code i} is {@code lengths[i]} bytes of {@code messages[i]} starting at {@code offsets[i]}. Hash functions may compute the batch faster than separate calls to {@link #getHash(byte[], int, int)}.
+	 * @param messages the byte arrays to hash
+	 * @param offsets the offset into each byte array
+	 * @param lengths the length of the subrange in each byte array
+	 * @return a new array of the hash values, where element {@code i} is the hash of range {@code i}
+	 * @throws NullPointerException if any array or any element of {@code messages} is {@code null}
+	 * @throws IllegalArgumentException if the three arrays differ in length
+	 * @throws IndexOutOfBoundsException if a range lies outside of its byte array
+	 */
+	public HashValue[] getHashes(byte[][] messages, int[] offsets, int[] lengths);
+	
 	/**
 	 * Computes and returns the hash value of the specified file.
 	 * @param file the file to hash
@@ -80,4 +112,50 @@ public interface HashFunction {
 	 */
 	public HashValue getHash(File file) throws IOException;
 	
+	/**
+	 * Computes and returns the hash value of the specified file. This uses {@link FileReadMode#AUTO}.
+	 * @param path the file to hash
+	 * @return the hash value of the specified file
+	 * @throws NullPointerException if {@code path} is {@code null}
+	 * @throws IOException if an I/O exception occurs
+	 */
+	public HashValue getHash(Path path) throws IOException;
+	
+	/**
+	 * Computes and returns the hash value of the specified file, reading it in the specified mode.
+	 * @param path the file to hash
+	 * @param mode the way to read the file
+	 * @return the hash value of the specified file
+	 * @throws NullPointerException if {@code path} or {@code mode} is {@code null}
+	 * @throws IOException if an I/O exception occurs
+	 */
+	public HashValue getHash(Path path, FileReadMode mode) throws IOException;
+	
+	/**
+	 * Computes and returns the hash value of the specified range of the specified file channel. This uses {@link FileReadMode#AUTO}. The channel's position is not changed.
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to hash
+	 * @return the hash value of the specified file range
+	 * @throws NullPointerException if {@code channel} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 * @throws EOFException if the file ends before {@code pos + len}
+	 * @throws IOException if an I/O exception occurs
+	 */
+	public HashValue getHash(FileChannel channel, long pos, long len) throws IOException;
+	
+	/**
+	 * Computes and returns the hash value of the specified range of the specified file channel, reading it in the specified mode. The channel's position is not changed.
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to hash
+	 * @param mode the way to read the file
+	 * @return the hash value of the specified file range
+	 * @throws NullPointerException if {@code channel} or {@code mode} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 * @throws EOFException if the file ends before {@code pos + len}
+	 * @throws IOException if an I/O exception occurs
+	 */
+	public HashValue getHash(FileChannel channel, long pos, long len, FileReadMode mode) throws IOException;
+	
 }
@@ -1,5 +1,7 @@
 package p79068.hash;
 
+import java.nio.ByteBuffer;
+
 
 /**
  * A hasher, which consumes bytes and produces hash values. This allows the hash value of a byte sequence to be computed incrementally.
@@ -37,6 +39,13 @@ public interface Hasher {
 	 */
 	public void update(byte[] b, int off, int len);
 	
+	/**
+	 * Updates the current state with the remaining bytes of the specified buffer, and advances the buffer's position to its limit. The buffer may be a heap or direct buffer.
+	 * @param b the buffer to update the state with
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 */
+	public void update(ByteBuffer b);
+	
 	
 	/**
 	 * Returns the current hash value. This method does not alter the hasher's internal state.
@@ -44,6 +53,15 @@ public interface Hasher {
 	 */
 	public HashValue getHash();
 	
+	/**
+	 * Writes the current hash value into the specified array. This method does not alter the hasher's internal state.
+	 * @param b the array to write the hash value into
+	 * @param off the offset into {@code b}
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if the hash value does not fit into {@code b} at offset {@code off}
+	 */
+	public void getHash(byte[] b, int off);
+	
 	
 	/**
 	 * Returns the hash function associated with this hasher.
@@ -0,0 +1,106 @@
+package p79068.hash;
+
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+import java.util.zip.Checksum;
+import p79068.Assert;
+import p79068.backend.Backend;
+import p79068.backend.Backends;
+
+
+/**
+ * A hasher backed by a {@link Checksum} of the Java platform ({@link java.util.zip.CRC32}, {@link java.util.zip.CRC32C} or {@link java.util.zip.Adler32}), which is the JDK backend of {@link Crc} and {@link Adler32}.
+ * <p>A {@code Checksum} cannot be copied, so a clone starts a new checksum object and remembers the hash value of the message before it. The hash value of the whole message is then computed with the hash function's combining function.</p>
+ * @see Backends
+ */
+final class JdkChecksumHasher extends AbstractHasher {
+	
+	/**
+	 * Returns the backend selected for the specified hash function.
+	 * @param hashFunc the hash function
+	 * @param library creates hashers of the library's implementation of {@code hashFunc}
+	 * @param jdk creates checksums of the JDK's implementation of {@code hashFunc}
+	 * @return the backend selected for {@code hashFunc}
+	 */
+	static Backend selectBackend(HashFunction hashFunc, Supplier<Hasher> library, Supplier<Checksum> jdk) {
+		return Backends.select(hashFunc.getName(), null,  // The JDK's checksums are native code when not intrinsified, so the calibration is fair
+			data -> library.get().update(data),
+			data -> jdk.get().update(data, 0, data.length));
+	}
+	
+	
+	
+	private final SegmentHashing.Combiner combiner;
+	
+	private final Supplier<Checksum> checksumFactory;
+	
+	private Checksum checksum;
+	
+	// The hash value of the message before the data in the checksum object, or null if there is none
+	private HashValue prefix;
+	
+	// The number of bytes in the checksum object
+	private long length;
+	
+	
+	
+	/**
+	 * Constructs a hasher of the specified hash function with the specified combining function and checksum factory.
+	 * @param hashFunc the hash function, whose hash values are 4 bytes long
+	 * @param combiner the combining function of {@code hashFunc}
+	 * @param checksumFactory creates new checksum objects of the JDK's implementation of {@code hashFunc}
+	 */
+	JdkChecksumHasher(HashFunction hashFunc, SegmentHashing.Combiner combiner, Supplier<Checksum> checksumFactory) {
+		super(hashFunc);
+		this.combiner = combiner;
+		this.checksumFactory = checksumFactory;
+		checksum = checksumFactory.get();
+		prefix = null;
+		length = 0;
+	}
+	
+	
+	
+	@Override
+	public void update(byte b) {
+		checksum.update(b);
+		length++;
+	}
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		checksum.update(b, off, len);
+		length += len;
+	}
+	
+	
+	@Override
+	public void update(ByteBuffer b) {
+		Assert.assertNotNull(b);
+		length += b.remaining();
+		checksum.update(b);
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		int value = (int)checksum.getValue();
+		HashValue result = new HashValue(new byte[]{(byte)(value >>> 24), (byte)(value >>> 16), (byte)(value >>> 8), (byte)value});
+		if (prefix != null)
+			result = combiner.combine(prefix, result, length);
+		return result;
+	}
+	
+	
+	@Override
+	public JdkChecksumHasher clone() {
+		JdkChecksumHasher result = (JdkChecksumHasher)super.clone();
+		result.prefix = getHash();
+		result.checksum = checksumFactory.get();
+		result.length = 0;
+		return result;
+	}
+	
+}
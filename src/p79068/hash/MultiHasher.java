@@ -0,0 +1,384 @@
+package p79068.hash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import p79068.Assert;
+
+
+/**
+ * Computes the hash values of several hash functions over one byte sequence, reading the input only once.
+ * <p>In sequential mode, each update is applied to every hasher on the caller's thread. In parallel mode, each hash function runs on its own worker thread: input is copied into a bounded ring of buffers, and each filled buffer is shared read-only by all workers and recycled after the slowest worker has consumed it. The wall time then approaches that of the slowest single hash function rather than the sum.</p>
+ * <p>Usage example:</p>
+ * <pre>try (MultiHasher mh = new MultiHasher(List.of(Md.MD5_FUNCTION, Sha.SHA256_FUNCTION, Crc.CRC32_FUNCTION), 8, 1 &lt;&lt; 16)) {
+ *    mh.update(inputStream);
+ *    Map&lt;HashFunction,HashValue&gt; hashes = mh.getHashes();
+ *}</pre>
+ * <p>Instances are not thread-safe; only the worker threads that an instance creates for itself run concurrently.</p>
+ * @see HashFunction
+ */
+public final class MultiHasher implements AutoCloseable {
+	
+	private final List<HashFunction> functions;
+	
+	private final Hasher[] hashers;
+	
+	
+	// Fields below are used only in parallel mode, and are null or zero otherwise
+	
+	// The buffers of the ring that are not in use
+	private final BlockingQueue<Slot> freeSlots;
+	
+	private final int ringLength;
+	
+	// One queue of filled buffers per worker thread, in the same order as hashers
+	private final List<BlockingQueue<Slot>> workQueues;
+	
+	private final Thread[] workers;
+	
+	// The buffer currently being filled by the caller, or null
+	private Slot current;
+	
+	private volatile Throwable failure;
+	
+	private boolean closed;
+	
+	
+	
+	/**
+	 * Constructs a sequential multi-hasher for the specified hash functions. All hashing happens on the caller's thread.
+	 * @param functions the hash functions to compute, which must be distinct
+	 * @throws NullPointerException if the list or any element is {@code null}
+	 * @throws IllegalArgumentException if the list is empty or has duplicate elements
+	 */
+	public MultiHasher(List<? extends HashFunction> functions) {
+		this.functions = checkFunctions(functions);
+		hashers = newHashers(this.functions);
+		freeSlots = null;
+		ringLength = 0;
+		workQueues = null;
+		workers = null;
+	}
+	
+	
+	/**
+	 * Constructs a parallel multi-hasher for the specified hash functions, which starts one worker thread per hash function. The ring holds {@code ringLength} buffers of {@code bufferLength} bytes each, which bounds the memory used for input that the workers have not consumed yet. Call {@link #close()} to stop the threads.
+	 * @param functions the hash functions to compute, which must be distinct
+	 * @param ringLength the number of shared buffers, at least 1
+	 * @param bufferLength the length of each shared buffer in bytes, at least 1
+	 * @throws NullPointerException if the list or any element is {@code null}
+	 * @throws IllegalArgumentException if the list is empty or has duplicate elements, or if a length is not positive
+	 */
+	public MultiHasher(List<? extends HashFunction> functions, int ringLength, int bufferLength) {
+		this.functions = checkFunctions(functions);
+		if (ringLength <= 0 || bufferLength <= 0)
+			throw new IllegalArgumentException("Ring length and buffer length must be positive");
+		hashers = newHashers(this.functions);
+		
+		this.ringLength = ringLength;
+		freeSlots = new ArrayBlockingQueue<>(ringLength);
+		for (int i = 0; i < ringLength; i++)
+			freeSlots.add(new Slot(bufferLength));
+		workQueues = new ArrayList<>();
+		workers = new Thread[hashers.length];
+		for (int i = 0; i < hashers.length; i++) {
+			BlockingQueue<Slot> queue = new ArrayBlockingQueue<>(ringLength + 1);  // Room for the stop marker
+			workQueues.add(queue);
+			Hasher hasher = hashers[i];
+			workers[i] = new Thread(() -> runWorker(hasher, queue), "MultiHasher-" + hasher.getHashFunction().getName());
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the hash functions computed by this multi-hasher, in construction order.
+	 * @return an unmodifiable list of the hash functions
+	 */
+	public List<HashFunction> getHashFunctions() {
+		return functions;
+	}
+	
+	
+	/**
+	 * Updates every hasher with the specified byte array.
+	 * @param b the byte array to update the state with
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IllegalStateException if this object has been closed or a worker thread failed
+	 */
+	public void update(byte[] b) {
+		Assert.assertNotNull(b);
+		update(b, 0, b.length);
+	}
+	
+	
+	/**
+	 * Updates every hasher with the specified byte array range.
+	 * @param b the byte array to update the state with
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 * @throws IllegalStateException if this object has been closed or a worker thread failed
+	 */
+	public void update(byte[] b, int off, int len) {
+		checkOpen();
+		Assert.assertRangeInBounds(b.length, off, len);
+		if (workers == null) {
+			for (Hasher h : hashers)
+				h.update(b, off, len);
+			return;
+		}
+		while (len > 0) {
+			Slot slot = currentSlot();
+			int n = Math.min(slot.data.length - slot.length, len);
+			System.arraycopy(b, off, slot.data, slot.length, n);
+			slot.length += n;
+			off += n;
+			len -= n;
+			if (slot.length == slot.data.length)
+				publishCurrent();
+		}
+	}
+	
+	
+	/**
+	 * Updates every hasher with the remaining bytes of the specified buffer, and advances the buffer's position to its limit.
+	 * @param b the buffer to update the state with
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IllegalStateException if this object has been closed or a worker thread failed
+	 */
+	public void update(ByteBuffer b) {
+		checkOpen();
+		Assert.assertNotNull(b);
+		if (workers == null) {
+			for (Hasher h : hashers)
+				h.update(b.duplicate());
+			b.position(b.limit());
+			return;
+		}
+		while (b.hasRemaining()) {
+			Slot slot = currentSlot();
+			int n = Math.min(slot.data.length - slot.length, b.remaining());
+			b.get(slot.data, slot.length, n);
+			slot.length += n;
+			if (slot.length == slot.data.length)
+				publishCurrent();
+		}
+	}
+	
+	
+	/**
+	 * Updates every hasher with all the bytes read from the specified stream until end of stream. The stream is not closed. In parallel mode, data is read straight into the shared buffers.
+	 * @param in the stream to read from
+	 * @throws NullPointerException if {@code in} is {@code null}
+	 * @throws IOException if an I/O exception occurs
+	 * @throws IllegalStateException if this object has been closed or a worker thread failed
+	 */
+	public void update(InputStream in) throws IOException {
+		checkOpen();
+		Assert.assertNotNull(in);
+		if (workers == null) {
+			byte[] buf = new byte[64 * 1024];
+			while (true) {
+				int n = in.read(buf);
+				if (n == -1)
+					break;
+				update(buf, 0, n);
+			}
+			return;
+		}
+		while (true) {
+			Slot slot = currentSlot();
+			int n = in.read(slot.data, slot.length, slot.data.length - slot.length);
+			if (n == -1)
+				break;
+			slot.length += n;
+			if (slot.length == slot.data.length)
+				publishCurrent();
+		}
+	}
+	
+	
+	/**
+	 * Returns the current hash value of every hash function, in construction order. This waits for the worker threads to consume all input so far, and does not alter any hasher's state.
+	 * @return a new map from each hash function to its current hash value, iterating in construction order
+	 * @throws IllegalStateException if this object has been closed or a worker thread failed
+	 */
+	public Map<HashFunction,HashValue> getHashes() {
+		checkOpen();
+		if (workers != null) {
+			if (current != null && current.length > 0)
+				publishCurrent();
+			awaitIdle();
+			checkOpen();
+		}
+		Map<HashFunction,HashValue> result = new LinkedHashMap<>();
+		for (Hasher h : hashers)
+			result.put(h.getHashFunction(), h.getHash());
+		return result;
+	}
+	
+	
+	/**
+	 * Stops the worker threads, if any. After this, the multi-hasher can no longer be used. This method is idempotent.
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (workers == null)
+			return;
+		boolean interrupted = false;
+		for (BlockingQueue<Slot> queue : workQueues)
+			queue.add(Slot.STOP);  // Never blocks, because every queue has room for one more element than the ring length
+		for (Thread t : workers) {
+			while (true) {
+				try {
+					t.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+	
+	
+	
+	private void checkOpen() {
+		if (closed)
+			throw new IllegalStateException("Already closed");
+		Throwable t = failure;
+		if (t != null)
+			throw new IllegalStateException("Worker thread failed", t);
+	}
+	
+	
+	// Returns the partially filled buffer, first taking a free buffer from the ring if necessary.
+	private Slot currentSlot() {
+		if (current == null)
+			current = takeFreeSlot();
+		return current;
+	}
+	
+	
+	// Waits for a free buffer. A failed worker never releases its buffers, so this keeps checking for failure.
+	private Slot takeFreeSlot() {
+		try {
+			while (true) {
+				Slot slot = freeSlots.poll(100, TimeUnit.MILLISECONDS);
+				if (slot != null)
+					return slot;
+				checkOpen();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", e);
+		}
+	}
+	
+	
+	// Hands the current buffer to every worker. Never blocks, because each work queue can hold every buffer of the ring.
+	private void publishCurrent() {
+		Slot slot = current;
+		current = null;
+		slot.pending.set(workers.length);
+		for (BlockingQueue<Slot> queue : workQueues)
+			queue.add(slot);
+	}
+	
+	
+	// Waits until every buffer of the ring is free again, which means every worker has consumed all published input.
+	private void awaitIdle() {
+		if (current != null) {  // Empty buffer held by the caller
+			freeSlots.add(current);
+			current = null;
+		}
+		List<Slot> slots = new ArrayList<>();
+		try {
+			while (slots.size() < ringLength)
+				slots.add(takeFreeSlot());
+		} finally {
+			freeSlots.addAll(slots);
+		}
+	}
+	
+	
+	private void runWorker(Hasher hasher, BlockingQueue<Slot> queue) {
+		try {
+			while (true) {
+				Slot slot = queue.take();
+				if (slot == Slot.STOP)
+					break;
+				hasher.update(slot.data, 0, slot.length);
+				if (slot.pending.decrementAndGet() == 0) {
+					slot.length = 0;
+					freeSlots.add(slot);
+				}
+			}
+		} catch (Throwable e) {
+			failure = e;
+		}
+	}
+	
+	
+	
+	private static List<HashFunction> checkFunctions(List<? extends HashFunction> functions) {
+		Assert.assertNotNull(functions);
+		if (functions.isEmpty())
+			throw new IllegalArgumentException("No hash functions");
+		List<HashFunction> result = new ArrayList<>(functions);
+		for (HashFunction hf : result)
+			Assert.assertNotNull(hf);
+		if (new HashSet<>(result).size() != result.size())
+			throw new IllegalArgumentException("Duplicate hash function");
+		return Collections.unmodifiableList(result);
+	}
+	
+	
+	private static Hasher[] newHashers(List<HashFunction> functions) {
+		Hasher[] result = new Hasher[functions.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = functions.get(i).newHasher();
+		return result;
+	}
+	
+	
+	
+	// A shared buffer of the ring.
+	private static final class Slot {
+		
+		public static final Slot STOP = new Slot(0);
+		
+		public final byte[] data;
+		
+		public int length;  // Written by the caller's thread before publication, and by the last worker before release
+		
+		public final AtomicInteger pending;  // Number of workers that have not consumed this buffer yet
+		
+		
+		public Slot(int capacity) {
+			data = new byte[capacity];
+			length = 0;
+			pending = new AtomicInteger();
+		}
+		
+	}
+	
+}
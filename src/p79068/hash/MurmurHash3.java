@@ -0,0 +1,169 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+/**
+ * The MurmurHash3 x64_128 non-cryptographic hash function, with a 32-bit seed. The hash value is the two 64-bit halves h1 and h2, each serialized in little endian, like the output of the reference implementation on a little-endian machine.
+ * <p>The static method {@link #hash64(byte[], int, int, int)} returns h1, the first 8 bytes of the hash value, without allocating any objects.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class MurmurHash3 extends AbstractHashFunction {
+	
+	/**
+	 * The MurmurHash3 x64_128 hash function with seed 0. {@code name = "MurmurHash3_x64_128"}, {@code hashLength = 16}.
+	 */
+	public final static MurmurHash3 FUNCTION = new MurmurHash3(0);
+	
+	
+	static final long C1 = 0x87C37B91114253D5L;
+	static final long C2 = 0x4CF5AD432745937FL;
+	
+	
+	
+	private final int seed;
+	
+	
+	
+	/**
+	 * Constructs a MurmurHash3 x64_128 hash function with the specified seed.
+	 * @param seed the seed, which is treated as unsigned
+	 */
+	public MurmurHash3(int seed) {
+		super("MurmurHash3_x64_128", 16);
+		this.seed = seed;
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		return new MurmurHash3Hasher(this, seed);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, without a hasher.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	@Override
+	public HashValue getHash(byte[] b, int off, int len) {
+		Assert.assertNotNull(b);
+		Assert.assertRangeInBounds(b.length, off, len);
+		long[] h = {seed & 0xFFFFFFFFL, seed & 0xFFFFFFFFL};
+		int end = off + len;
+		for (; end - off >= 16; off += 16)
+			mixBlock(h, b, off);
+		return finish(h, len, b, off, end);
+	}
+	
+	
+	
+	/**
+	 * Returns the first 64 bits (h1) of the MurmurHash3 x64_128 hash of the specified byte array range with the specified seed. This method does not allocate any objects.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param seed the seed, which is treated as unsigned
+	 * @return the first 64 bits of the hash of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static long hash64(byte[] b, int off, int len, int seed) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		long h1 = seed & 0xFFFFFFFFL;
+		long h2 = h1;
+		int end = off + len;
+		for (; end - off >= 16; off += 16) {
+			h1 ^= mixK1((long)XxHash64.INT64_ARRAY_LITTLE.get(b, off));
+			h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52DCE729;
+			h2 ^= mixK2((long)XxHash64.INT64_ARRAY_LITTLE.get(b, off + 8));
+			h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495AB5;
+		}
+		long k1 = 0;
+		long k2 = 0;
+		for (int i = end - off - 1; i >= 0; i--) {
+			if (i >= 8)
+				k2 = k2 << 8 | (b[off + i] & 0xFF);
+			else
+				k1 = k1 << 8 | (b[off + i] & 0xFF);
+		}
+		h1 ^= mixK1(k1) ^ len;
+		h2 ^= mixK2(k2) ^ len;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		return h1 + h2;
+	}
+	
+	
+	
+	// Mixes the 16-byte block at b[off] into the state {h1, h2}.
+	static void mixBlock(long[] h, byte[] b, int off) {
+		long h1 = h[0] ^ mixK1((long)XxHash64.INT64_ARRAY_LITTLE.get(b, off));
+		h1 = (Long.rotateLeft(h1, 27) + h[1]) * 5 + 0x52DCE729;
+		long h2 = h[1] ^ mixK2((long)XxHash64.INT64_ARRAY_LITTLE.get(b, off + 8));
+		h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495AB5;
+		h[0] = h1;
+		h[1] = h2;
+	}
+	
+	
+	// Mixes in the remaining 0 to 15 bytes in b[off : end] and the total length, and returns the serialized hash. The state array is not modified.
+	static HashValue finish(long[] h, long length, byte[] b, int off, int end) {
+		long k1 = 0;
+		long k2 = 0;
+		for (int i = end - off - 1; i >= 0; i--) {
+			if (i >= 8)
+				k2 = k2 << 8 | (b[off + i] & 0xFF);
+			else
+				k1 = k1 << 8 | (b[off + i] & 0xFF);
+		}
+		long h1 = h[0] ^ mixK1(k1) ^ length;
+		long h2 = h[1] ^ mixK2(k2) ^ length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+		byte[] result = new byte[16];
+		for (int i = 0; i < 8; i++) {
+			result[i] = (byte)(h1 >>> (i * 8));
+			result[i + 8] = (byte)(h2 >>> (i * 8));
+		}
+		return new HashValue(result);
+	}
+	
+	
+	// Zero contributes nothing, which handles a tail that does not reach this half
+	private static long mixK1(long k1) {
+		return Long.rotateLeft(k1 * C1, 31) * C2;
+	}
+	
+	
+	private static long mixK2(long k2) {
+		return Long.rotateLeft(k2 * C2, 33) * C1;
+	}
+	
+	
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xFF51AFD7ED558CCDL;
+		k ^= k >>> 33;
+		k *= 0xC4CEB9FE1A85EC53L;
+		k ^= k >>> 33;
+		return k;
+	}
+	
+}
@@ -0,0 +1,78 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+final class MurmurHash3Hasher extends AbstractHasher {
+	
+	// {h1, h2}
+	private long[] state;
+	
+	// The total number of bytes hashed
+	private long length;
+	
+	// The bytes of the current partial block
+	private byte[] buffer;
+	private int bufferFilled;
+	
+	
+	
+	MurmurHash3Hasher(MurmurHash3 hashFunc, int seed) {
+		super(hashFunc);
+		state = new long[]{seed & 0xFFFFFFFFL, seed & 0xFFFFFFFFL};
+		length = 0;
+		buffer = new byte[16];
+		bufferFilled = 0;
+	}
+	
+	
+	
+	@Override
+	public void update(byte b) {
+		buffer[bufferFilled] = b;
+		bufferFilled++;
+		length++;
+		if (bufferFilled == buffer.length) {
+			MurmurHash3.mixBlock(state, buffer, 0);
+			bufferFilled = 0;
+		}
+	}
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		length += len;
+		if (bufferFilled > 0) {
+			int n = Math.min(buffer.length - bufferFilled, len);
+			System.arraycopy(b, off, buffer, bufferFilled, n);
+			bufferFilled += n;
+			off += n;
+			len -= n;
+			if (bufferFilled < buffer.length)
+				return;
+			MurmurHash3.mixBlock(state, buffer, 0);
+			bufferFilled = 0;
+		}
+		for (; len >= 16; off += 16, len -= 16)
+			MurmurHash3.mixBlock(state, b, off);
+		System.arraycopy(b, off, buffer, 0, len);
+		bufferFilled = len;
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		return MurmurHash3.finish(state, length, buffer, 0, bufferFilled);
+	}
+	
+	
+	@Override
+	public MurmurHash3Hasher clone() {
+		MurmurHash3Hasher result = (MurmurHash3Hasher)super.clone();
+		result.state = state.clone();
+		result.buffer = buffer.clone();
+		return result;
+	}
+	
+}
@@ -0,0 +1,136 @@
+package p79068.hash;
+
+
+/**
+ * A content-defined chunker with a Rabin fingerprint of a sliding window of {@value #WINDOW_LENGTH} bytes, as in LBFS and restic.
+ * <p>The fingerprint is the window's bytes as a polynomial over GF(2), modulo an irreducible polynomial. Sliding the window by one byte appends the new byte and removes the oldest byte's term, with one lookup in each of two 256-entry tables. A boundary follows every window whose fingerprint has zeros in its low bits, as many as the base-2 logarithm of the average length. The window restarts at each chunk and is filled just before the minimum length, where the boundary test begins.</p>
+ * <p>A secret random polynomial makes the boundaries unpredictable to others, at the cost of deduplicating only against data chunked with the same polynomial.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class RabinChunker extends Chunker {
+	
+	/**
+	 * The default irreducible polynomial, of degree 53. It is the one that restic's tests use.
+	 */
+	public final static long DEFAULT_POLYNOMIAL = 0x3DA3358B4DC173L;
+	
+	/**
+	 * The length of the sliding window, in bytes.
+	 */
+	public final static int WINDOW_LENGTH = 64;
+	
+	
+	
+	private final long polynomial;
+	
+	// The degree of the polynomial minus 8, so that a fingerprint shifted right by this amount is the byte that leaves it when a byte is appended
+	private final int shift;
+	
+	// The reduction of each byte shifted above the fingerprint, plus that byte's bits to clear them
+	private final long[] appendTable;
+	
+	// The term of each byte at the oldest position of the window, multiplied by x^8 so that it can be removed after appending
+	private final long[] removeTable;
+	
+	private final long boundaryMask;
+	
+	
+	
+	/**
+	 * Constructs a Rabin chunker with the default polynomial and the specified chunk lengths.
+	 * @param minLen the minimum chunk length
+	 * @param avgLen the average chunk length, which is a power of 2 and at least 64
+	 * @param maxLen the maximum chunk length
+	 * @throws IllegalArgumentException if the lengths are not {@code 0 < minLen <= avgLen <= maxLen <= MAX_CHUNK_LENGTH}, or the average is not a power of 2 of at least 64
+	 */
+	public RabinChunker(int minLen, int avgLen, int maxLen) {
+		this(DEFAULT_POLYNOMIAL, minLen, avgLen, maxLen);
+	}
+	
+	
+	/**
+	 * Constructs a Rabin chunker with the specified polynomial and chunk lengths. The polynomial must be irreducible for the fingerprint to be well distributed, which this constructor does not check.
+	 * @param poly the polynomial, with bit <var>i</var> being the coefficient of <var>x</var><sup><var>i</var></sup>, of degree between 32 and 56
+	 * @param minLen the minimum chunk length
+	 * @param avgLen the average chunk length, which is a power of 2 and at least 64
+	 * @param maxLen the maximum chunk length
+	 * @throws IllegalArgumentException if the degree is out of range, the lengths are not {@code 0 < minLen <= avgLen <= maxLen <= MAX_CHUNK_LENGTH}, or the average is not a power of 2 of at least 64
+	 */
+	public RabinChunker(long poly, int minLen, int avgLen, int maxLen) {
+		super(minLen, avgLen, maxLen);
+		int degree = 63 - Long.numberOfLeadingZeros(poly);
+		if (degree < 32 || degree > 56)
+			throw new IllegalArgumentException("Polynomial degree out of range");
+		polynomial = poly;
+		shift = degree - 8;
+		boundaryMask = avgLen - 1;
+		
+		appendTable = new long[256];
+		for (int i = 0; i < 256; i++)
+			appendTable[i] = mod((long)i << degree) | (long)i << degree;
+		removeTable = new long[256];
+		for (int i = 0; i < 256; i++) {
+			long fp = append(0, i);
+			for (int j = 0; j < WINDOW_LENGTH; j++)
+				fp = append(fp, 0);
+			removeTable[i] = fp;
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the polynomial of this chunker.
+	 * @return the polynomial of this chunker
+	 */
+	public long getPolynomial() {
+		return polynomial;
+	}
+	
+	
+	
+	@Override
+	protected int findBoundary(byte[] b, int off, int len) {
+		// The window starts empty (all zeros, whose fingerprint is 0) and fills up to the minimum length
+		int start = Math.max(minLength - WINDOW_LENGTH, 0);
+		long fp = 0;
+		int i = start;
+		for (; i < minLength; i++)
+			fp = append(fp, b[off + i] & 0xFF);
+		for (int end = Math.min(start + WINDOW_LENGTH, len); i < end; i++) {  // Only when the minimum is shorter than the window
+			fp = append(fp, b[off + i] & 0xFF);
+			if ((fp & boundaryMask) == 0)
+				return i + 1;
+		}
+		for (; i < len; i++) {
+			fp = slide(fp, b[off + i - WINDOW_LENGTH] & 0xFF, b[off + i] & 0xFF);
+			if ((fp & boundaryMask) == 0)
+				return i + 1;
+		}
+		return len;
+	}
+	
+	
+	// Returns (fp * x^8 + b) mod polynomial.
+	long append(long fp, int b) {
+		return (fp << 8 | b) ^ appendTable[(int)(fp >>> shift)];
+	}
+	
+	
+	// Returns the fingerprint of the window after removing the oldest byte and appending the new byte. Removing after appending keeps the removal off the dependency chain from one byte to the next.
+	long slide(long fp, int oldest, int b) {
+		return append(fp, b) ^ removeTable[oldest];
+	}
+	
+	
+	// Returns x mod polynomial, by long division over GF(2).
+	private long mod(long x) {
+		int degree = 63 - Long.numberOfLeadingZeros(polynomial);
+		for (int i = 63 - Long.numberOfLeadingZeros(x); i >= degree; i--) {
+			if ((x >>> i & 1) != 0)
+				x ^= polynomial << (i - degree);
+		}
+		return x;
+	}
+	
+}
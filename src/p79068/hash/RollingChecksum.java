@@ -0,0 +1,222 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+/**
+ * A weak checksum of a window of bytes, which can slide along the data by one byte in constant time. It is used to find blocks of one file in another at every byte offset, as in rsync (see {@link Delta}).
+ * <p>The {@link Variant#ADLER32} variant has the value of {@link Adler32} for the window's bytes. The {@link Variant#RSYNC} variant is rsync's block checksum, whose sums are taken over the bytes as signed values modulo 2<sup>16</sup>, which needs no divisions.</p>
+ * <p>Mutability: <em>Mutable</em></p>
+ */
+public final class RollingChecksum {
+	
+	/**
+	 * The variants of the checksum.
+	 */
+	public enum Variant {
+		
+		/**
+		 * Adler-32, as in RFC 1950 and zlib.
+		 */
+		ADLER32,
+		
+		/**
+		 * rsync's {@code get_checksum1()}, with a character offset of 0.
+		 */
+		RSYNC;
+		
+	}
+	
+	
+	
+	/**
+	 * Computes and returns the checksum of the specified byte array range in the specified variant.
+	 * @param variant the variant of the checksum
+	 * @param b the byte array to checksum
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the checksum of the specified byte array range
+	 * @throws NullPointerException if {@code variant} or {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static int checksum(Variant variant, byte[] b, int off, int len) {
+		RollingChecksum rc = new RollingChecksum(variant);
+		rc.update(b, off, len);
+		return rc.getValue();
+	}
+	
+	
+	
+	private static final int MOD = 65521;
+	
+	// Bytes per reduction in update(), so that the sums cannot overflow a long
+	private static final int MAX_CHUNK = 1 << 20;
+	
+	
+	
+	private final Variant variant;
+	
+	// For ADLER32, both are in the range [0, 65521). For RSYNC, only the low 16 bits are significant.
+	private int s1;
+	private int s2;
+	
+	private int length;
+	
+	// For ADLER32, the window length times each byte value, modulo 65521; rebuilt when the length changes
+	private int[] removeTerms;
+	private int removeTermsLength;
+	
+	
+	
+	/**
+	 * Constructs a checksum of the specified variant over an empty window.
+	 * @param variant the variant of the checksum
+	 * @throws NullPointerException if the variant is {@code null}
+	 */
+	public RollingChecksum(Variant variant) {
+		Assert.assertNotNull(variant);
+		this.variant = variant;
+		removeTermsLength = -1;
+		reset();
+	}
+	
+	
+	
+	/**
+	 * Empties the window.
+	 */
+	public void reset() {
+		s1 = variant == Variant.ADLER32 ? 1 : 0;
+		s2 = 0;
+		length = 0;
+	}
+	
+	
+	/**
+	 * Sets the window to the specified byte array range.
+	 * @param b the byte array holding the window
+	 * @param off the offset of the window in {@code b}
+	 * @param len the length of the window
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public void reset(byte[] b, int off, int len) {
+		reset();
+		update(b, off, len);
+	}
+	
+	
+	/**
+	 * Appends the specified byte range to the end of the window, which lengthens it.
+	 * @param b the byte array holding the bytes to append
+	 * @param off the offset into {@code b}
+	 * @param len the number of bytes to append
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public void update(byte[] b, int off, int len) {
+		Assert.assertNotNull(b);
+		Assert.assertRangeInBounds(b.length, off, len);
+		length += len;
+		int end = off + len;
+		if (variant == Variant.ADLER32) {
+			long a = s1;
+			long c = s2;
+			while (off < end) {
+				for (int chunkEnd = off + Math.min(end - off, MAX_CHUNK); off < chunkEnd; off++) {
+					a += b[off] & 0xFF;
+					c += a;
+				}
+				a %= MOD;
+				c %= MOD;
+			}
+			s1 = (int)a;
+			s2 = (int)c;
+		} else {
+			int a = s1;
+			int c = s2;
+			for (; end - off >= 4; off += 4) {  // Like rsync, which sums 4 bytes at a time
+				c += 4 * a + 4 * b[off] + 3 * b[off + 1] + 2 * b[off + 2] + b[off + 3];
+				a += b[off] + b[off + 1] + b[off + 2] + b[off + 3];
+			}
+			for (; off < end; off++) {
+				a += b[off];
+				c += a;
+			}
+			s1 = a;
+			s2 = c;
+		}
+	}
+	
+	
+	/**
+	 * Slides the window forward by one byte: removes the first byte of the window and appends a byte. The window's length is unchanged, and the caller must pass the actual first byte.
+	 * @param out the first byte of the window, which leaves it
+	 * @param in the byte that enters the window at the end
+	 * @throws IllegalStateException if the window is empty
+	 */
+	public void roll(byte out, byte in) {
+		if (variant == Variant.ADLER32) {
+			if (removeTermsLength != length)
+				buildRemoveTerms();
+			int o = out & 0xFF;
+			int a = s1 - o + (in & 0xFF);
+			a += (a >> 31) & MOD;  // Each sum is restored to [0, MOD) without branching
+			a -= MOD;
+			a += (a >> 31) & MOD;
+			// With the first byte removed and another appended, s2 loses length * out and gains the new s1 - 1
+			int c = s2 - removeTerms[o] + a - 1;
+			c += (c >> 31) & MOD;
+			c -= MOD;
+			c += (c >> 31) & MOD;
+			s1 = a;
+			s2 = c;
+		} else {
+			if (length == 0)
+				throw new IllegalStateException("Empty window");
+			s1 += in - out;
+			s2 += s1 - length * out;
+		}
+	}
+	
+	
+	/**
+	 * Returns the checksum of the window, with the second sum in the high 16 bits and the first sum in the low 16 bits.
+	 * @return the checksum of the window
+	 */
+	public int getValue() {
+		return s2 << 16 | (s1 & 0xFFFF);
+	}
+	
+	
+	/**
+	 * Returns the length of the window.
+	 * @return the length of the window
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	
+	/**
+	 * Returns the variant of this checksum.
+	 * @return the variant of this checksum
+	 */
+	public Variant getVariant() {
+		return variant;
+	}
+	
+	
+	
+	private void buildRemoveTerms() {
+		if (length == 0)
+			throw new IllegalStateException("Empty window");
+		if (removeTerms == null)
+			removeTerms = new int[256];
+		int n = length % MOD;
+		for (int i = 0; i < removeTerms.length; i++)
+			removeTerms[i] = (int)((long)n * i % MOD);
+		removeTermsLength = length;
+	}
+	
+}
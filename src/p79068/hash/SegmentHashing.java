@@ -0,0 +1,162 @@
+package p79068.hash;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import p79068.Assert;
+
+
+/**
+ * Computes the hash value of a large input by hashing segments of it concurrently and merging the results, for hash functions whose value for a concatenation can be derived from the values of the parts (e.g. CRCs and Adler-32).
+ * <p>The input is split into segments of about 8 per worker thread, each between {@link #MIN_SEGMENT_LENGTH} and {@link #MAX_SEGMENT_LENGTH} bytes long. A fork-join task splits the segment range in half until single segments remain, hashes each segment with a new hasher, and merges the two halves' hash values with the combining function. File segments are memory-mapped individually.</p>
+ */
+final class SegmentHashing {
+	
+	/**
+	 * Returns the hash value of the concatenation of two messages, given the hash value of each message and the length of the second one.
+	 */
+	public interface Combiner {
+		
+		public HashValue combine(HashValue hashA, HashValue hashB, long lengthB);
+		
+	}
+	
+	
+	/**
+	 * The minimum segment length, so that the cost of combining is negligible next to hashing.
+	 */
+	static final int MIN_SEGMENT_LENGTH = 1 << 20;
+	
+	/**
+	 * The maximum segment length, so that each memory-mapped segment stays small.
+	 */
+	static final int MAX_SEGMENT_LENGTH = 1 << 26;
+	
+	
+	
+	/**
+	 * Computes the hash value of the specified byte array range in parallel.
+	 * @param hashFunc the hash function to use
+	 * @param combiner the combining function of {@code hashFunc}
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param pool the pool to hash the segments on
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} or {@code pool} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static HashValue getHash(HashFunction hashFunc, Combiner combiner, byte[] b, int off, int len, ForkJoinPool pool) {
+		Assert.assertNotNull(b, pool);
+		Assert.assertRangeInBounds(b.length, off, len);
+		try {
+			return getHash(hashFunc, combiner, len, pool, (hasher, pos, n) -> hasher.update(b, off + (int)pos, n));
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	
+	/**
+	 * Computes the hash value of the specified range of the specified file channel in parallel. The channel's position is not changed.
+	 * @param hashFunc the hash function to use
+	 * @param combiner the combining function of {@code hashFunc}
+	 * @param channel the file channel to read from
+	 * @param pos the starting position in the file
+	 * @param len the number of bytes to hash
+	 * @param pool the pool to hash the segments on
+	 * @return the hash value of the specified file range
+	 * @throws IOException if an I/O exception occurs
+	 * @throws NullPointerException if {@code channel} or {@code pool} is {@code null}
+	 * @throws IllegalArgumentException if {@code pos} or {@code len} is negative
+	 */
+	public static HashValue getHash(HashFunction hashFunc, Combiner combiner, FileChannel channel, long pos, long len, ForkJoinPool pool) throws IOException {
+		Assert.assertNotNull(channel, pool);
+		if (pos < 0 || len < 0)
+			throw new IllegalArgumentException("Negative position or length");
+		if (pos + len < 0 || pos + len > channel.size())
+			throw new EOFException();
+		return getHash(hashFunc, combiner, len, pool, (hasher, off, n) -> hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, pos + off, n)));
+	}
+	
+	
+	
+	private static HashValue getHash(HashFunction hashFunc, Combiner combiner, long len, ForkJoinPool pool, SegmentReader reader) throws IOException {
+		long segLen = Math.max(Math.min(len / (pool.getParallelism() * 8L), MAX_SEGMENT_LENGTH), MIN_SEGMENT_LENGTH);
+		try {
+			return pool.invoke(new SegmentTask(hashFunc, combiner, reader, 0, len, segLen));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	
+	
+	private SegmentHashing() {}  // Not instantiable
+	
+	
+	
+	// Feeds a range of the message, at most MAX_SEGMENT_LENGTH bytes long, to a hasher.
+	private interface SegmentReader {
+		
+		public void update(Hasher hasher, long off, int len) throws IOException;
+		
+	}
+	
+	
+	
+	// Computes the hash value of the message range [start, end), by splitting the range in half at a segment boundary until single segments remain.
+	@SuppressWarnings("serial")
+	private static final class SegmentTask extends RecursiveTask<HashValue> {
+		
+		private final HashFunction hashFunction;
+		
+		private final Combiner combiner;
+		
+		private final SegmentReader reader;
+		
+		private final long start;
+		
+		private final long end;
+		
+		private final long segmentLength;
+		
+		
+		
+		public SegmentTask(HashFunction hashFunc, Combiner combiner, SegmentReader reader, long start, long end, long segmentLength) {
+			hashFunction = hashFunc;
+			this.combiner = combiner;
+			this.reader = reader;
+			this.start = start;
+			this.end = end;
+			this.segmentLength = segmentLength;
+		}
+		
+		
+		
+		@Override
+		protected HashValue compute() {
+			long numSegments = (end - start + segmentLength - 1) / segmentLength;
+			if (numSegments > 1) {
+				long mid = start + numSegments / 2 * segmentLength;
+				SegmentTask right = new SegmentTask(hashFunction, combiner, reader, mid, end, segmentLength);
+				right.fork();
+				HashValue left = new SegmentTask(hashFunction, combiner, reader, start, mid, segmentLength).compute();
+				return combiner.combine(left, right.join(), end - mid);
+			} else {
+				Hasher hasher = hashFunction.newHasher();
+				try {
+					reader.update(hasher, start, (int)(end - start));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return hasher.getHash();
+			}
+		}
+		
+	}
+	
+}
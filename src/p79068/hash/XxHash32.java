@@ -0,0 +1,132 @@
+package p79068.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import p79068.Assert;
+
+
+/**
+ * The xxHash32 non-cryptographic hash function, with a 32-bit seed. The hash value is serialized in big endian, like the canonical form of the reference implementation.
+ * <p>The static method {@link #hash32(byte[], int, int, int)} hashes a byte array range without allocating any objects, for hash tables and similar uses.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class XxHash32 extends AbstractHashFunction {
+	
+	/**
+	 * The xxHash32 hash function with seed 0. {@code name = "xxHash32"}, {@code hashLength = 4}.
+	 */
+	public final static XxHash32 FUNCTION = new XxHash32(0);
+	
+	
+	static final int PRIME1 = 0x9E3779B1;
+	static final int PRIME2 = 0x85EBCA77;
+	static final int PRIME3 = 0xC2B2AE3D;
+	static final int PRIME4 = 0x27D4EB2F;
+	static final int PRIME5 = 0x165667B1;
+	
+	static final VarHandle INT32_ARRAY_LITTLE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	
+	private final int seed;
+	
+	
+	
+	/**
+	 * Constructs an xxHash32 hash function with the specified seed.
+	 * @param seed the seed
+	 */
+	public XxHash32(int seed) {
+		super("xxHash32", 4);
+		this.seed = seed;
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		return new XxHash32Hasher(this, seed);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, without a hasher.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	@Override
+	public HashValue getHash(byte[] b, int off, int len) {
+		Assert.assertNotNull(b);
+		int h = hash32(b, off, len, seed);
+		return new HashValue(new byte[]{(byte)(h >>> 24), (byte)(h >>> 16), (byte)(h >>> 8), (byte)h});
+	}
+	
+	
+	
+	/**
+	 * Returns the xxHash32 hash of the specified byte array range with the specified seed. This method does not allocate any objects.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param seed the seed
+	 * @return the hash of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static int hash32(byte[] b, int off, int len, int seed) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		int end = off + len;
+		int h;
+		if (len >= 16) {
+			int v1 = seed + PRIME1 + PRIME2;
+			int v2 = seed + PRIME2;
+			int v3 = seed;
+			int v4 = seed - PRIME1;
+			for (; end - off >= 16; off += 16) {
+				v1 = round(v1, (int)INT32_ARRAY_LITTLE.get(b, off +  0));
+				v2 = round(v2, (int)INT32_ARRAY_LITTLE.get(b, off +  4));
+				v3 = round(v3, (int)INT32_ARRAY_LITTLE.get(b, off +  8));
+				v4 = round(v4, (int)INT32_ARRAY_LITTLE.get(b, off + 12));
+			}
+			h = converge(v1, v2, v3, v4);
+		} else
+			h = seed + PRIME5;
+		return finish(h + len, b, off, end);
+	}
+	
+	
+	
+	static int round(int acc, int input) {
+		return Integer.rotateLeft(acc + input * PRIME2, 13) * PRIME1;
+	}
+	
+	
+	static int converge(int v1, int v2, int v3, int v4) {
+		return Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+	}
+	
+	
+	// Mixes in the remaining 0 to 15 bytes in b[off : end], then avalanches.
+	static int finish(int h, byte[] b, int off, int end) {
+		for (; end - off >= 4; off += 4)
+			h = Integer.rotateLeft(h + (int)INT32_ARRAY_LITTLE.get(b, off) * PRIME3, 17) * PRIME4;
+		for (; off < end; off++)
+			h = Integer.rotateLeft(h + (b[off] & 0xFF) * PRIME5, 11) * PRIME1;
+		h ^= h >>> 15;
+		h *= PRIME2;
+		h ^= h >>> 13;
+		h *= PRIME3;
+		h ^= h >>> 16;
+		return h;
+	}
+	
+}
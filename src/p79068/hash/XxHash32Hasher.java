@@ -0,0 +1,101 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+final class XxHash32Hasher extends AbstractHasher {
+	
+	// The four lane accumulators
+	private int v1;
+	private int v2;
+	private int v3;
+	private int v4;
+	
+	private final int seed;
+	
+	// The total number of bytes hashed, which enters the hash modulo 2^32
+	private long length;
+	
+	// The bytes of the current partial stripe
+	private byte[] buffer;
+	private int bufferFilled;
+	
+	
+	
+	XxHash32Hasher(XxHash32 hashFunc, int seed) {
+		super(hashFunc);
+		this.seed = seed;
+		v1 = seed + XxHash32.PRIME1 + XxHash32.PRIME2;
+		v2 = seed + XxHash32.PRIME2;
+		v3 = seed;
+		v4 = seed - XxHash32.PRIME1;
+		length = 0;
+		buffer = new byte[16];
+		bufferFilled = 0;
+	}
+	
+	
+	
+	@Override
+	public void update(byte b) {
+		buffer[bufferFilled] = b;
+		bufferFilled++;
+		length++;
+		if (bufferFilled == buffer.length) {
+			consume(buffer, 0);
+			bufferFilled = 0;
+		}
+	}
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		length += len;
+		if (bufferFilled > 0) {
+			int n = Math.min(buffer.length - bufferFilled, len);
+			System.arraycopy(b, off, buffer, bufferFilled, n);
+			bufferFilled += n;
+			off += n;
+			len -= n;
+			if (bufferFilled < buffer.length)
+				return;
+			consume(buffer, 0);
+			bufferFilled = 0;
+		}
+		for (; len >= 16; off += 16, len -= 16)
+			consume(b, off);
+		System.arraycopy(b, off, buffer, 0, len);
+		bufferFilled = len;
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		int h;
+		if (length >= 16)
+			h = XxHash32.converge(v1, v2, v3, v4);
+		else
+			h = seed + XxHash32.PRIME5;
+		h = XxHash32.finish(h + (int)length, buffer, 0, bufferFilled);
+		return new HashValue(new byte[]{(byte)(h >>> 24), (byte)(h >>> 16), (byte)(h >>> 8), (byte)h});
+	}
+	
+	
+	@Override
+	public XxHash32Hasher clone() {
+		XxHash32Hasher result = (XxHash32Hasher)super.clone();
+		result.buffer = buffer.clone();
+		return result;
+	}
+	
+	
+	
+	private void consume(byte[] b, int off) {
+		v1 = XxHash32.round(v1, (int)XxHash32.INT32_ARRAY_LITTLE.get(b, off +  0));
+		v2 = XxHash32.round(v2, (int)XxHash32.INT32_ARRAY_LITTLE.get(b, off +  4));
+		v3 = XxHash32.round(v3, (int)XxHash32.INT32_ARRAY_LITTLE.get(b, off +  8));
+		v4 = XxHash32.round(v4, (int)XxHash32.INT32_ARRAY_LITTLE.get(b, off + 12));
+	}
+	
+}
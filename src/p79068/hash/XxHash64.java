@@ -0,0 +1,153 @@
+package p79068.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import p79068.Assert;
+
+
+/**
+ * The xxHash64 non-cryptographic hash function, with a 64-bit seed. The hash value is serialized in big endian, like the canonical form of the reference implementation.
+ * <p>The static method {@link #hash64(byte[], int, int, long)} hashes a byte array range without allocating any objects, for hash tables, Bloom filters and similar uses.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class XxHash64 extends AbstractHashFunction {
+	
+	/**
+	 * The xxHash64 hash function with seed 0. {@code name = "xxHash64"}, {@code hashLength = 8}.
+	 */
+	public final static XxHash64 FUNCTION = new XxHash64(0);
+	
+	
+	static final long PRIME1 = 0x9E3779B185EBCA87L;
+	static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	static final long PRIME3 = 0x165667B19E3779F9L;
+	static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+	static final long PRIME5 = 0x27D4EB2F165667C5L;
+	
+	static final VarHandle INT64_ARRAY_LITTLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	
+	
+	private final long seed;
+	
+	
+	
+	/**
+	 * Constructs an xxHash64 hash function with the specified seed.
+	 * @param seed the seed
+	 */
+	public XxHash64(long seed) {
+		super("xxHash64", 8);
+		this.seed = seed;
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		return new XxHash64Hasher(this, seed);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, without a hasher.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	@Override
+	public HashValue getHash(byte[] b, int off, int len) {
+		Assert.assertNotNull(b);
+		return toHashValue(hash64(b, off, len, seed));
+	}
+	
+	
+	
+	/**
+	 * Returns the xxHash64 hash of the specified byte array range with the specified seed. This method does not allocate any objects.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param seed the seed
+	 * @return the hash of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static long hash64(byte[] b, int off, int len, long seed) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		int end = off + len;
+		long h;
+		if (len >= 32) {
+			long v1 = seed + PRIME1 + PRIME2;
+			long v2 = seed + PRIME2;
+			long v3 = seed;
+			long v4 = seed - PRIME1;
+			for (; end - off >= 32; off += 32) {
+				v1 = round(v1, (long)INT64_ARRAY_LITTLE.get(b, off +  0));
+				v2 = round(v2, (long)INT64_ARRAY_LITTLE.get(b, off +  8));
+				v3 = round(v3, (long)INT64_ARRAY_LITTLE.get(b, off + 16));
+				v4 = round(v4, (long)INT64_ARRAY_LITTLE.get(b, off + 24));
+			}
+			h = converge(v1, v2, v3, v4);
+		} else
+			h = seed + PRIME5;
+		return finish(h + len, b, off, end);
+	}
+	
+	
+	
+	static long round(long acc, long input) {
+		return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+	}
+	
+	
+	static long converge(long v1, long v2, long v3, long v4) {
+		long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+		h = (h ^ round(0, v1)) * PRIME1 + PRIME4;
+		h = (h ^ round(0, v2)) * PRIME1 + PRIME4;
+		h = (h ^ round(0, v3)) * PRIME1 + PRIME4;
+		h = (h ^ round(0, v4)) * PRIME1 + PRIME4;
+		return h;
+	}
+	
+	
+	// Mixes in the remaining 0 to 31 bytes in b[off : end], then avalanches.
+	static long finish(long h, byte[] b, int off, int end) {
+		for (; end - off >= 8; off += 8)
+			h = Long.rotateLeft(h ^ round(0, (long)INT64_ARRAY_LITTLE.get(b, off)), 27) * PRIME1 + PRIME4;
+		if (end - off >= 4) {
+			h = Long.rotateLeft(h ^ ((int)XxHash32.INT32_ARRAY_LITTLE.get(b, off) & 0xFFFFFFFFL) * PRIME1, 23) * PRIME2 + PRIME3;
+			off += 4;
+		}
+		for (; off < end; off++)
+			h = Long.rotateLeft(h ^ (b[off] & 0xFF) * PRIME5, 11) * PRIME1;
+		return avalanche(h);
+	}
+	
+	
+	static long avalanche(long h) {
+		h ^= h >>> 33;
+		h *= PRIME2;
+		h ^= h >>> 29;
+		h *= PRIME3;
+		h ^= h >>> 32;
+		return h;
+	}
+	
+	
+	static HashValue toHashValue(long h) {
+		byte[] b = new byte[8];
+		for (int i = 0; i < b.length; i++)
+			b[i] = (byte)(h >>> ((7 - i) * 8));
+		return new HashValue(b);
+	}
+	
+}
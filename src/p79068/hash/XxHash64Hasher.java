@@ -0,0 +1,100 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+final class XxHash64Hasher extends AbstractHasher {
+	
+	// The four lane accumulators
+	private long v1;
+	private long v2;
+	private long v3;
+	private long v4;
+	
+	private final long seed;
+	
+	// The total number of bytes hashed
+	private long length;
+	
+	// The bytes of the current partial stripe
+	private byte[] buffer;
+	private int bufferFilled;
+	
+	
+	
+	XxHash64Hasher(XxHash64 hashFunc, long seed) {
+		super(hashFunc);
+		this.seed = seed;
+		v1 = seed + XxHash64.PRIME1 + XxHash64.PRIME2;
+		v2 = seed + XxHash64.PRIME2;
+		v3 = seed;
+		v4 = seed - XxHash64.PRIME1;
+		length = 0;
+		buffer = new byte[32];
+		bufferFilled = 0;
+	}
+	
+	
+	
+	@Override
+	public void update(byte b) {
+		buffer[bufferFilled] = b;
+		bufferFilled++;
+		length++;
+		if (bufferFilled == buffer.length) {
+			consume(buffer, 0);
+			bufferFilled = 0;
+		}
+	}
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		length += len;
+		if (bufferFilled > 0) {
+			int n = Math.min(buffer.length - bufferFilled, len);
+			System.arraycopy(b, off, buffer, bufferFilled, n);
+			bufferFilled += n;
+			off += n;
+			len -= n;
+			if (bufferFilled < buffer.length)
+				return;
+			consume(buffer, 0);
+			bufferFilled = 0;
+		}
+		for (; len >= 32; off += 32, len -= 32)
+			consume(b, off);
+		System.arraycopy(b, off, buffer, 0, len);
+		bufferFilled = len;
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		long h;
+		if (length >= 32)
+			h = XxHash64.converge(v1, v2, v3, v4);
+		else
+			h = seed + XxHash64.PRIME5;
+		return XxHash64.toHashValue(XxHash64.finish(h + length, buffer, 0, bufferFilled));
+	}
+	
+	
+	@Override
+	public XxHash64Hasher clone() {
+		XxHash64Hasher result = (XxHash64Hasher)super.clone();
+		result.buffer = buffer.clone();
+		return result;
+	}
+	
+	
+	
+	private void consume(byte[] b, int off) {
+		v1 = XxHash64.round(v1, (long)XxHash64.INT64_ARRAY_LITTLE.get(b, off +  0));
+		v2 = XxHash64.round(v2, (long)XxHash64.INT64_ARRAY_LITTLE.get(b, off +  8));
+		v3 = XxHash64.round(v3, (long)XxHash64.INT64_ARRAY_LITTLE.get(b, off + 16));
+		v4 = XxHash64.round(v4, (long)XxHash64.INT64_ARRAY_LITTLE.get(b, off + 24));
+	}
+	
+}
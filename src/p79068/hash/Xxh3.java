@@ -0,0 +1,423 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+/**
+ * The XXH3 non-cryptographic hash function of the xxHash family, in its 64-bit and 128-bit variants, with a 64-bit seed and the default secret. The hash value is serialized in big endian, high half first for XXH3-128, like the canonical form of the reference implementation.
+ * <p>Inputs of at most 240 bytes are hashed with dedicated short-input routines. Longer inputs are hashed in 64-byte stripes by 8 accumulators, which are scrambled after every 1024-byte block. A nonzero seed is applied to the secret of the long-input routine arithmetically, so hashing never derives a custom secret.</p>
+ * <p>The static methods {@link #hash64(byte[], int, int, long)} and {@link #hash128(byte[], int, int, long, long[])} hash a byte array range without allocating any objects.</p>
+ * <p>Mutability: <em>Immutable</em></p>
+ */
+public final class Xxh3 extends AbstractHashFunction {
+	
+	/**
+	 * The XXH3 64-bit hash function with seed 0. {@code name = "XXH3-64"}, {@code hashLength = 8}.
+	 */
+	public final static Xxh3 XXH3_64_FUNCTION = new Xxh3(8, 0);
+	
+	/**
+	 * The XXH3 128-bit hash function with seed 0. {@code name = "XXH3-128"}, {@code hashLength = 16}.
+	 */
+	public final static Xxh3 XXH3_128_FUNCTION = new Xxh3(16, 0);
+	
+	
+	static final int STRIPE_LENGTH = 64;
+	
+	static final int STRIPES_PER_BLOCK = 16;
+	
+	// Inputs up to this length are hashed without the accumulators
+	static final int MID_SIZE_MAX = 240;
+	
+	private static final int SECRET_LENGTH = 192;
+	
+	private static final long PRIME32_1 = 0x9E3779B1L;
+	private static final long PRIME32_2 = 0x85EBCA77L;
+	private static final long PRIME32_3 = 0xC2B2AE3DL;
+	
+	// The initial accumulators, from the same primes as xxHash32 and xxHash64
+	static final long[] INIT_ACC = {PRIME32_3, XxHash64.PRIME1, XxHash64.PRIME2, XxHash64.PRIME3, XxHash64.PRIME4, PRIME32_2, XxHash64.PRIME5, PRIME32_1};
+	
+	// The default 192-byte secret
+	private static final byte[] SECRET = {
+		(byte)0xB8, (byte)0xFE, (byte)0x6C, (byte)0x39, (byte)0x23, (byte)0xA4, (byte)0x4B, (byte)0xBE, (byte)0x7C, (byte)0x01, (byte)0x81, (byte)0x2C, (byte)0xF7, (byte)0x21, (byte)0xAD, (byte)0x1C,
+		(byte)0xDE, (byte)0xD4, (byte)0x6D, (byte)0xE9, (byte)0x83, (byte)0x90, (byte)0x97, (byte)0xDB, (byte)0x72, (byte)0x40, (byte)0xA4, (byte)0xA4, (byte)0xB7, (byte)0xB3, (byte)0x67, (byte)0x1F,
+		(byte)0xCB, (byte)0x79, (byte)0xE6, (byte)0x4E, (byte)0xCC, (byte)0xC0, (byte)0xE5, (byte)0x78, (byte)0x82, (byte)0x5A, (byte)0xD0, (byte)0x7D, (byte)0xCC, (byte)0xFF, (byte)0x72, (byte)0x21,
+		(byte)0xB8, (byte)0x08, (byte)0x46, (byte)0x74, (byte)0xF7, (byte)0x43, (byte)0x24, (byte)0x8E, (byte)0xE0, (byte)0x35, (byte)0x90, (byte)0xE6, (byte)0x81, (byte)0x3A, (byte)0x26, (byte)0x4C,
+		(byte)0x3C, (byte)0x28, (byte)0x52, (byte)0xBB, (byte)0x91, (byte)0xC3, (byte)0x00, (byte)0xCB, (byte)0x88, (byte)0xD0, (byte)0x65, (byte)0x8B, (byte)0x1B, (byte)0x53, (byte)0x2E, (byte)0xA3,
+		(byte)0x71, (byte)0x64, (byte)0x48, (byte)0x97, (byte)0xA2, (byte)0x0D, (byte)0xF9, (byte)0x4E, (byte)0x38, (byte)0x19, (byte)0xEF, (byte)0x46, (byte)0xA9, (byte)0xDE, (byte)0xAC, (byte)0xD8,
+		(byte)0xA8, (byte)0xFA, (byte)0x76, (byte)0x3F, (byte)0xE3, (byte)0x9C, (byte)0x34, (byte)0x3F, (byte)0xF9, (byte)0xDC, (byte)0xBB, (byte)0xC7, (byte)0xC7, (byte)0x0B, (byte)0x4F, (byte)0x1D,
+		(byte)0x8A, (byte)0x51, (byte)0xE0, (byte)0x4B, (byte)0xCD, (byte)0xB4, (byte)0x59, (byte)0x31, (byte)0xC8, (byte)0x9F, (byte)0x7E, (byte)0xC9, (byte)0xD9, (byte)0x78, (byte)0x73, (byte)0x64,
+		(byte)0xEA, (byte)0xC5, (byte)0xAC, (byte)0x83, (byte)0x34, (byte)0xD3, (byte)0xEB, (byte)0xC3, (byte)0xC5, (byte)0x81, (byte)0xA0, (byte)0xFF, (byte)0xFA, (byte)0x13, (byte)0x63, (byte)0xEB,
+		(byte)0x17, (byte)0x0D, (byte)0xDD, (byte)0x51, (byte)0xB7, (byte)0xF0, (byte)0xDA, (byte)0x49, (byte)0xD3, (byte)0x16, (byte)0x55, (byte)0x26, (byte)0x29, (byte)0xD4, (byte)0x68, (byte)0x9E,
+		(byte)0x2B, (byte)0x16, (byte)0xBE, (byte)0x58, (byte)0x7D, (byte)0x47, (byte)0xA1, (byte)0xFC, (byte)0x8F, (byte)0xF8, (byte)0xB8, (byte)0xD1, (byte)0x7A, (byte)0xD0, (byte)0x31, (byte)0xCE,
+		(byte)0x45, (byte)0xCB, (byte)0x3A, (byte)0x8F, (byte)0x95, (byte)0x16, (byte)0x04, (byte)0x28, (byte)0xAF, (byte)0xD7, (byte)0xFB, (byte)0xCA, (byte)0xBB, (byte)0x4B, (byte)0x40, (byte)0x7E,
+	};
+	
+	// The secret as little-endian 64-bit words
+	private static final long[] SECRET_WORDS = new long[SECRET_LENGTH / 8];
+	
+	static {
+		for (int i = 0; i < SECRET_WORDS.length; i++)
+			SECRET_WORDS[i] = secret64(i * 8);
+	}
+	
+	
+	
+	private final long seed;
+	
+	
+	
+	/**
+	 * Constructs an XXH3 hash function with the specified hash length and seed.
+	 * @param hashLen the length of the hash value in bytes, which is 8 or 16
+	 * @param seed the seed
+	 * @throws IllegalArgumentException if the hash length is not 8 or 16
+	 */
+	public Xxh3(int hashLen, long seed) {
+		super("XXH3-" + hashLen * 8, hashLen);
+		if (hashLen != 8 && hashLen != 16)
+			throw new IllegalArgumentException("Hash length must be 8 or 16");
+		this.seed = seed;
+	}
+	
+	
+	
+	/**
+	 * Returns a new hasher of this hash function.
+	 * @return a new hasher of this hash function
+	 */
+	@Override
+	public Hasher newHasher() {
+		return new Xxh3Hasher(this, seed);
+	}
+	
+	
+	/**
+	 * Computes and returns the hash value of the specified byte array range, without a hasher.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @return the hash value of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	@Override
+	public HashValue getHash(byte[] b, int off, int len) {
+		Assert.assertNotNull(b);
+		if (getHashLength() == 8)
+			return XxHash64.toHashValue(hash64(b, off, len, seed));
+		long[] result = new long[2];
+		hash128(b, off, len, seed, result);
+		return toHashValue(result);
+	}
+	
+	
+	
+	/**
+	 * Returns the XXH3 64-bit hash of the specified byte array range with the specified seed. This method does not allocate any objects.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param seed the seed
+	 * @return the hash of the specified byte array range
+	 * @throws NullPointerException if {@code b} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}
+	 */
+	public static long hash64(byte[] b, int off, int len, long seed) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		if (len > MID_SIZE_MAX)
+			return hashLong(b, off, len, seed, null);
+		
+		else if (len > 128) {
+			long acc = len * XxHash64.PRIME1;
+			for (int i = 0; i < 8; i++)
+				acc += mix16(b, off + i * 16, i * 16, seed);
+			acc = avalanche(acc);
+			for (int i = 8; i < len / 16; i++)
+				acc += mix16(b, off + i * 16, (i - 8) * 16 + 3, seed);
+			acc += mix16(b, off + len - 16, 136 - 17, seed);
+			return avalanche(acc);
+			
+		} else if (len > 16) {
+			long acc = len * XxHash64.PRIME1;
+			if (len > 32) {
+				if (len > 64) {
+					if (len > 96) {
+						acc += mix16(b, off + 48, 96, seed);
+						acc += mix16(b, off + len - 64, 112, seed);
+					}
+					acc += mix16(b, off + 32, 64, seed);
+					acc += mix16(b, off + len - 48, 80, seed);
+				}
+				acc += mix16(b, off + 16, 32, seed);
+				acc += mix16(b, off + len - 32, 48, seed);
+			}
+			acc += mix16(b, off, 0, seed);
+			acc += mix16(b, off + len - 16, 16, seed);
+			return avalanche(acc);
+			
+		} else if (len > 8) {
+			long lo = read64(b, off) ^ ((SECRET_WORDS[3] ^ SECRET_WORDS[4]) + seed);
+			long hi = read64(b, off + len - 8) ^ ((SECRET_WORDS[5] ^ SECRET_WORDS[6]) - seed);
+			return avalanche(len + Long.reverseBytes(lo) + hi + multiplyFold(lo, hi));
+			
+		} else if (len >= 4) {
+			seed ^= (long)Integer.reverseBytes((int)seed) << 32;
+			long input = (read32(b, off + len - 4) & 0xFFFFFFFFL) + ((long)read32(b, off) << 32);
+			long h = input ^ ((SECRET_WORDS[1] ^ SECRET_WORDS[2]) - seed);
+			h ^= Long.rotateLeft(h, 49) ^ Long.rotateLeft(h, 24);
+			h *= 0x9FB21C651E98DF25L;
+			h ^= (h >>> 35) + len;
+			h *= 0x9FB21C651E98DF25L;
+			return h ^ (h >>> 28);
+			
+		} else if (len > 0) {
+			int combined = (b[off] & 0xFF) << 16 | (b[off + (len >>> 1)] & 0xFF) << 24 | (b[off + len - 1] & 0xFF) | len << 8;
+			long bitflip = ((SECRET_WORDS[0] ^ SECRET_WORDS[0] >>> 32) & 0xFFFFFFFFL) + seed;
+			return XxHash64.avalanche((combined & 0xFFFFFFFFL) ^ bitflip);
+			
+		} else
+			return XxHash64.avalanche(seed ^ SECRET_WORDS[7] ^ SECRET_WORDS[8]);
+	}
+	
+	
+	/**
+	 * Computes the XXH3 128-bit hash of the specified byte array range with the specified seed, and stores its low 64 bits in {@code result[0]} and its high 64 bits in {@code result[1]}. This method does not allocate any objects.
+	 * @param b the byte array to hash
+	 * @param off the offset into {@code b}
+	 * @param len the length of the subrange in {@code b}
+	 * @param seed the seed
+	 * @param result the array to store the two halves of the hash into
+	 * @throws NullPointerException if {@code b} or {@code result} is {@code null}
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} specify a range outside of {@code b}, or {@code result} is shorter than 2
+	 */
+	public static void hash128(byte[] b, int off, int len, long seed, long[] result) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		Assert.assertRangeInBounds(result.length, 0, 2);
+		long lo;
+		long hi;
+		if (len > MID_SIZE_MAX) {
+			hashLong(b, off, len, seed, result);
+			return;
+			
+		} else if (len > 16) {
+			long accLo = len * XxHash64.PRIME1;
+			long accHi = 0;
+			if (len > 128) {
+				for (int i = 0; i < 4; i++) {
+					int p = off + i * 32;
+					accLo = mix32Low (accLo, b, p, p + 16, i * 32, seed);
+					accHi = mix32High(accHi, b, p, p + 16, i * 32, seed);
+				}
+				accLo = avalanche(accLo);
+				accHi = avalanche(accHi);
+				for (int i = 4; i < len / 32; i++) {
+					int p = off + i * 32;
+					accLo = mix32Low (accLo, b, p, p + 16, (i - 4) * 32 + 3, seed);
+					accHi = mix32High(accHi, b, p, p + 16, (i - 4) * 32 + 3, seed);
+				}
+				accLo = mix32Low (accLo, b, off + len - 16, off + len - 32, 136 - 17 - 16, -seed);
+				accHi = mix32High(accHi, b, off + len - 16, off + len - 32, 136 - 17 - 16, -seed);
+			} else {
+				for (int i = (len - 1) / 32; i >= 0; i--) {  // The pairs of 16-byte blocks from the middle outward
+					accLo = mix32Low (accLo, b, off + i * 16, off + len - (i + 1) * 16, i * 32, seed);
+					accHi = mix32High(accHi, b, off + i * 16, off + len - (i + 1) * 16, i * 32, seed);
+				}
+			}
+			lo = avalanche(accLo + accHi);
+			hi = -avalanche(accLo * XxHash64.PRIME1 + accHi * XxHash64.PRIME4 + (len - seed) * XxHash64.PRIME2);
+			
+		} else if (len > 8) {
+			long inLo = read64(b, off);
+			long inHi = read64(b, off + len - 8);
+			long m = inLo ^ inHi ^ ((SECRET_WORDS[4] ^ SECRET_WORDS[5]) - seed);
+			long mLo = m * XxHash64.PRIME1 + ((long)(len - 1) << 54);
+			long mHi = unsignedMultiplyHigh(m, XxHash64.PRIME1);
+			inHi ^= (SECRET_WORDS[6] ^ SECRET_WORDS[7]) + seed;
+			mHi += inHi + (inHi & 0xFFFFFFFFL) * (PRIME32_2 - 1);
+			mLo ^= Long.reverseBytes(mHi);
+			lo = avalanche(mLo * XxHash64.PRIME2);
+			hi = avalanche(unsignedMultiplyHigh(mLo, XxHash64.PRIME2) + mHi * XxHash64.PRIME2);
+			
+		} else if (len >= 4) {
+			seed ^= (long)Integer.reverseBytes((int)seed) << 32;
+			long input = (read32(b, off) & 0xFFFFFFFFL) + ((long)read32(b, off + len - 4) << 32);
+			long keyed = input ^ ((SECRET_WORDS[2] ^ SECRET_WORDS[3]) + seed);
+			long mul = XxHash64.PRIME1 + ((long)len << 2);
+			long mLo = keyed * mul;
+			long mHi = unsignedMultiplyHigh(keyed, mul);
+			mHi += mLo << 1;
+			mLo ^= mHi >>> 3;
+			mLo ^= mLo >>> 35;
+			mLo *= 0x9FB21C651E98DF25L;
+			mLo ^= mLo >>> 28;
+			lo = mLo;
+			hi = avalanche(mHi);
+			
+		} else if (len > 0) {
+			int combinedLo = (b[off] & 0xFF) << 16 | (b[off + (len >>> 1)] & 0xFF) << 24 | (b[off + len - 1] & 0xFF) | len << 8;
+			int combinedHi = Integer.rotateLeft(Integer.reverseBytes(combinedLo), 13);
+			long bitflipLo = ((SECRET_WORDS[0] ^ SECRET_WORDS[0] >>> 32) & 0xFFFFFFFFL) + seed;
+			long bitflipHi = ((SECRET_WORDS[1] ^ SECRET_WORDS[1] >>> 32) & 0xFFFFFFFFL) - seed;
+			lo = XxHash64.avalanche((combinedLo & 0xFFFFFFFFL) ^ bitflipLo);
+			hi = XxHash64.avalanche((combinedHi & 0xFFFFFFFFL) ^ bitflipHi);
+			
+		} else {
+			lo = XxHash64.avalanche(seed ^ SECRET_WORDS[8] ^ SECRET_WORDS[9]);
+			hi = XxHash64.avalanche(seed ^ SECRET_WORDS[10] ^ SECRET_WORDS[11]);
+		}
+		result[0] = lo;
+		result[1] = hi;
+	}
+	
+	
+	
+	// Hashes an input longer than MID_SIZE_MAX. Returns the 64-bit hash if result128 is null, otherwise stores the low and high halves of the 128-bit hash in it.
+	private static long hashLong(byte[] b, int off, int len, long seed, long[] result128) {
+		long a0 = INIT_ACC[0], a1 = INIT_ACC[1], a2 = INIT_ACC[2], a3 = INIT_ACC[3];
+		long a4 = INIT_ACC[4], a5 = INIT_ACC[5], a6 = INIT_ACC[6], a7 = INIT_ACC[7];
+		int stripes = (len - 1) / STRIPE_LENGTH;  // Excluding the last stripe, which may overlap the previous one
+		for (int i = 0; i < stripes; i++) {
+			int p = off + i * STRIPE_LENGTH;
+			int s = (i % STRIPES_PER_BLOCK) * 8;
+			long d0 = read64(b, p +  0), d1 = read64(b, p +  8), d2 = read64(b, p + 16), d3 = read64(b, p + 24);
+			long d4 = read64(b, p + 32), d5 = read64(b, p + 40), d6 = read64(b, p + 48), d7 = read64(b, p + 56);
+			a0 = accumulate(a0, d1, d0, s +  0, seed);  a1 = accumulate(a1, d0, d1, s +  8, seed);
+			a2 = accumulate(a2, d3, d2, s + 16, seed);  a3 = accumulate(a3, d2, d3, s + 24, seed);
+			a4 = accumulate(a4, d5, d4, s + 32, seed);  a5 = accumulate(a5, d4, d5, s + 40, seed);
+			a6 = accumulate(a6, d7, d6, s + 48, seed);  a7 = accumulate(a7, d6, d7, s + 56, seed);
+			if (i % STRIPES_PER_BLOCK == STRIPES_PER_BLOCK - 1) {
+				a0 = scramble(a0, 0, seed);  a1 = scramble(a1, 1, seed);  a2 = scramble(a2, 2, seed);  a3 = scramble(a3, 3, seed);
+				a4 = scramble(a4, 4, seed);  a5 = scramble(a5, 5, seed);  a6 = scramble(a6, 6, seed);  a7 = scramble(a7, 7, seed);
+			}
+		}
+		
+		int p = off + len - STRIPE_LENGTH;
+		long d0 = read64(b, p +  0), d1 = read64(b, p +  8), d2 = read64(b, p + 16), d3 = read64(b, p + 24);
+		long d4 = read64(b, p + 32), d5 = read64(b, p + 40), d6 = read64(b, p + 48), d7 = read64(b, p + 56);
+		int s = LAST_STRIPE_SECRET;
+		a0 = accumulate(a0, d1, d0, s +  0, seed);  a1 = accumulate(a1, d0, d1, s +  8, seed);
+		a2 = accumulate(a2, d3, d2, s + 16, seed);  a3 = accumulate(a3, d2, d3, s + 24, seed);
+		a4 = accumulate(a4, d5, d4, s + 32, seed);  a5 = accumulate(a5, d4, d5, s + 40, seed);
+		a6 = accumulate(a6, d7, d6, s + 48, seed);  a7 = accumulate(a7, d6, d7, s + 56, seed);
+		
+		long lo = merge(a0, a1, a2, a3, a4, a5, a6, a7, MERGE_LOW_SECRET, len * XxHash64.PRIME1, seed);
+		if (result128 == null)
+			return lo;
+		result128[0] = lo;
+		result128[1] = merge(a0, a1, a2, a3, a4, a5, a6, a7, MERGE_HIGH_SECRET, ~(len * XxHash64.PRIME2), seed);
+		return 0;
+	}
+	
+	
+	
+	/*---- Long-input helpers, shared with Xxh3Hasher ----*/
+	
+	// The secret offsets of the last stripe and the two merges
+	static final int LAST_STRIPE_SECRET = SECRET_LENGTH - STRIPE_LENGTH - 7;
+	static final int MERGE_LOW_SECRET = 11;
+	static final int MERGE_HIGH_SECRET = SECRET_LENGTH - STRIPE_LENGTH - 11;
+	
+	
+	// Adds the neighbouring lane's data word and the product of the halves of the keyed data word to an accumulator.
+	static long accumulate(long acc, long neighbourData, long data, int secretOff, long seed) {
+		long keyed = data ^ secretWord(secretOff, seed);
+		return acc + neighbourData + (keyed & 0xFFFFFFFFL) * (keyed >>> 32);
+	}
+	
+	
+	// Scrambles accumulator i at the end of a block.
+	static long scramble(long acc, int i, long seed) {
+		acc ^= acc >>> 47;
+		acc ^= secretWord(SECRET_LENGTH - STRIPE_LENGTH + i * 8, seed);
+		return acc * PRIME32_1;
+	}
+	
+	
+	static long merge(long a0, long a1, long a2, long a3, long a4, long a5, long a6, long a7, int secretOff, long start, long seed) {
+		long result = start;
+		result += multiplyFold(a0 ^ secretWord(secretOff +  0, seed), a1 ^ secretWord(secretOff +  8, seed));
+		result += multiplyFold(a2 ^ secretWord(secretOff + 16, seed), a3 ^ secretWord(secretOff + 24, seed));
+		result += multiplyFold(a4 ^ secretWord(secretOff + 32, seed), a5 ^ secretWord(secretOff + 40, seed));
+		result += multiplyFold(a6 ^ secretWord(secretOff + 48, seed), a7 ^ secretWord(secretOff + 56, seed));
+		return avalanche(result);
+	}
+	
+	
+	// Returns the little-endian word at the specified byte offset of the secret derived from the seed, whose even words are increased by the seed and odd words decreased by it.
+	private static long secretWord(int off, long seed) {
+		int i = off >>> 3;
+		int shift = (off & 7) * 8;
+		long w = SECRET_WORDS[i] + ((i & 1) == 0 ? seed : -seed);
+		if (shift == 0)
+			return w;
+		long next = SECRET_WORDS[i + 1] + ((i & 1) == 0 ? -seed : seed);
+		return w >>> shift | next << (64 - shift);
+	}
+	
+	
+	
+	/*---- Other helpers ----*/
+	
+	private static long mix16(byte[] b, int off, int secretOff, long seed) {
+		return multiplyFold(
+			read64(b, off + 0) ^ (secret64(secretOff + 0) + seed),
+			read64(b, off + 8) ^ (secret64(secretOff + 8) - seed));
+	}
+	
+	
+	private static long mix32Low(long acc, byte[] b, int off0, int off1, int secretOff, long seed) {
+		return (acc + mix16(b, off0, secretOff, seed)) ^ (read64(b, off1) + read64(b, off1 + 8));
+	}
+	
+	
+	private static long mix32High(long acc, byte[] b, int off0, int off1, int secretOff, long seed) {
+		return (acc + mix16(b, off1, secretOff + 16, seed)) ^ (read64(b, off0) + read64(b, off0 + 8));
+	}
+	
+	
+	// Returns the XOR of the low and high halves of the 128-bit product.
+	private static long multiplyFold(long x, long y) {
+		return x * y ^ unsignedMultiplyHigh(x, y);
+	}
+	
+	
+	private static long unsignedMultiplyHigh(long x, long y) {
+		return Math.multiplyHigh(x, y) + (x >> 63 & y) + (y >> 63 & x);
+	}
+	
+	
+	private static long avalanche(long h) {
+		h ^= h >>> 37;
+		h *= 0x165667919E3779F9L;
+		h ^= h >>> 32;
+		return h;
+	}
+	
+	
+	private static long secret64(int off) {
+		return (long)XxHash64.INT64_ARRAY_LITTLE.get(SECRET, off);
+	}
+	
+	
+	private static long read64(byte[] b, int off) {
+		return (long)XxHash64.INT64_ARRAY_LITTLE.get(b, off);
+	}
+	
+	
+	private static int read32(byte[] b, int off) {
+		return (int)XxHash32.INT32_ARRAY_LITTLE.get(b, off);
+	}
+	
+	
+	static HashValue toHashValue(long[] h128) {
+		byte[] b = new byte[16];
+		for (int i = 0; i < 8; i++) {
+			b[i] = (byte)(h128[1] >>> ((7 - i) * 8));
+			b[i + 8] = (byte)(h128[0] >>> ((7 - i) * 8));
+		}
+		return new HashValue(b);
+	}
+	
+}
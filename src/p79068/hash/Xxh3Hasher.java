@@ -0,0 +1,157 @@
+package p79068.hash;
+
+import p79068.Assert;
+
+
+/*
+ * Like the reference implementation, the hasher keeps up to 256 bytes in its buffer, which holds the whole message while it is short enough for the
+ * short-input routines. Beyond that, stripes are accumulated as soon as input follows them, so at least one byte always stays buffered. The last stripe
+ * of a long message overlaps the previous one. If fewer than a stripe's bytes are buffered, the buffer was last emptied by consuming all of it, so its
+ * end still holds the preceding bytes; consuming stripes straight from the input leaves more than 192 bytes buffered.
+ */
+final class Xxh3Hasher extends AbstractHasher {
+	
+	private static final int BUFFER_LENGTH = 4 * Xxh3.STRIPE_LENGTH;
+	
+	
+	
+	private final long seed;
+	
+	// The accumulators of the long-input routine
+	private long a0, a1, a2, a3, a4, a5, a6, a7;
+	
+	// The total number of stripes accumulated
+	private long stripes;
+	
+	// The total number of bytes hashed
+	private long length;
+	
+	private byte[] buffer;
+	private int bufferFilled;
+	
+	
+	
+	Xxh3Hasher(Xxh3 hashFunc, long seed) {
+		super(hashFunc);
+		this.seed = seed;
+		a0 = Xxh3.INIT_ACC[0];  a1 = Xxh3.INIT_ACC[1];  a2 = Xxh3.INIT_ACC[2];  a3 = Xxh3.INIT_ACC[3];
+		a4 = Xxh3.INIT_ACC[4];  a5 = Xxh3.INIT_ACC[5];  a6 = Xxh3.INIT_ACC[6];  a7 = Xxh3.INIT_ACC[7];
+		stripes = 0;
+		length = 0;
+		buffer = new byte[BUFFER_LENGTH];
+		bufferFilled = 0;
+	}
+	
+	
+	
+	@Override
+	public void update(byte b) {
+		if (bufferFilled == BUFFER_LENGTH) {
+			accumulateStripes(buffer, 0, BUFFER_LENGTH / Xxh3.STRIPE_LENGTH);
+			bufferFilled = 0;
+		}
+		buffer[bufferFilled] = b;
+		bufferFilled++;
+		length++;
+	}
+	
+	
+	@Override
+	public void update(byte[] b, int off, int len) {
+		Assert.assertRangeInBounds(b.length, off, len);
+		length += len;
+		if (len <= BUFFER_LENGTH - bufferFilled) {
+			System.arraycopy(b, off, buffer, bufferFilled, len);
+			bufferFilled += len;
+			return;
+		}
+		
+		if (bufferFilled > 0) {  // Fill the buffer and consume it, because more input follows
+			int n = BUFFER_LENGTH - bufferFilled;
+			System.arraycopy(b, off, buffer, bufferFilled, n);
+			accumulateStripes(buffer, 0, BUFFER_LENGTH / Xxh3.STRIPE_LENGTH);
+			bufferFilled = 0;
+			off += n;
+			len -= n;
+		}
+		if (len > BUFFER_LENGTH) {  // Consume stripes straight from the input, leaving 193 to 256 bytes
+			int n = (len - BUFFER_LENGTH + Xxh3.STRIPE_LENGTH - 1) / Xxh3.STRIPE_LENGTH;
+			accumulateStripes(b, off, n);
+			off += n * Xxh3.STRIPE_LENGTH;
+			len -= n * Xxh3.STRIPE_LENGTH;
+		}
+		System.arraycopy(b, off, buffer, 0, len);
+		bufferFilled = len;
+	}
+	
+	
+	@Override
+	public HashValue getHash() {
+		Xxh3 hf = (Xxh3)hashFunction;
+		if (length <= Xxh3.MID_SIZE_MAX)
+			return hf.getHash(buffer, 0, bufferFilled);
+		
+		// Finish on a copy, so that this hasher can keep absorbing
+		Xxh3Hasher h = clone();
+		h.accumulateStripes(buffer, 0, (bufferFilled - 1) / Xxh3.STRIPE_LENGTH);
+		byte[] last;
+		int lastOff;
+		if (bufferFilled >= Xxh3.STRIPE_LENGTH) {
+			last = buffer;
+			lastOff = bufferFilled - Xxh3.STRIPE_LENGTH;
+		} else {  // The last stripe begins in the consumed bytes at the end of the buffer
+			last = new byte[Xxh3.STRIPE_LENGTH];
+			int n = Xxh3.STRIPE_LENGTH - bufferFilled;
+			System.arraycopy(buffer, BUFFER_LENGTH - n, last, 0, n);
+			System.arraycopy(buffer, 0, last, n, bufferFilled);
+			lastOff = 0;
+		}
+		h.accumulate(last, lastOff, Xxh3.LAST_STRIPE_SECRET);
+		
+		long lo = Xxh3.merge(h.a0, h.a1, h.a2, h.a3, h.a4, h.a5, h.a6, h.a7, Xxh3.MERGE_LOW_SECRET, length * XxHash64.PRIME1, seed);
+		if (hf.getHashLength() == 8)
+			return XxHash64.toHashValue(lo);
+		long hi = Xxh3.merge(h.a0, h.a1, h.a2, h.a3, h.a4, h.a5, h.a6, h.a7, Xxh3.MERGE_HIGH_SECRET, ~(length * XxHash64.PRIME2), seed);
+		return Xxh3.toHashValue(new long[]{lo, hi});
+	}
+	
+	
+	@Override
+	public Xxh3Hasher clone() {
+		Xxh3Hasher result = (Xxh3Hasher)super.clone();
+		result.buffer = buffer.clone();
+		return result;
+	}
+	
+	
+	
+	// Accumulates the specified number of consecutive stripes, scrambling at the end of each block.
+	private void accumulateStripes(byte[] b, int off, int count) {
+		for (int i = 0; i < count; i++, off += Xxh3.STRIPE_LENGTH) {
+			int blockStripe = (int)(stripes % Xxh3.STRIPES_PER_BLOCK);
+			accumulate(b, off, blockStripe * 8);
+			stripes++;
+			if (blockStripe == Xxh3.STRIPES_PER_BLOCK - 1) {
+				a0 = Xxh3.scramble(a0, 0, seed);  a1 = Xxh3.scramble(a1, 1, seed);  a2 = Xxh3.scramble(a2, 2, seed);  a3 = Xxh3.scramble(a3, 3, seed);
+				a4 = Xxh3.scramble(a4, 4, seed);  a5 = Xxh3.scramble(a5, 5, seed);  a6 = Xxh3.scramble(a6, 6, seed);  a7 = Xxh3.scramble(a7, 7, seed);
+			}
+		}
+	}
+	
+	
+	private void accumulate(byte[] b, int off, int secretOff) {
+		long d0 = read64(b, off +  0), d1 = read64(b, off +  8), d2 = read64(b, off + 16), d3 = read64(b, off + 24);
+		long d4 = read64(b, off + 32), d5 = read64(b, off + 40), d6 = read64(b, off + 48), d7 = read64(b, off + 56);
+		int s = secretOff;
+		a0 = Xxh3.accumulate(a0, d1, d0, s +  0, seed);  a1 = Xxh3.accumulate(a1, d0, d1, s +  8, seed);
+		a2 = Xxh3.accumulate(a2, d3, d2, s + 16, seed);  a3 = Xxh3.accumulate(a3, d2, d3, s + 24, seed);
+		a4 = Xxh3.accumulate(a4, d5, d4, s + 32, seed);  a5 = Xxh3.accumulate(a5, d4, d5, s + 40, seed);
+		a6 = Xxh3.accumulate(a6, d7, d6, s + 48, seed);  a7 = Xxh3.accumulate(a7, d6, d7, s + 56, seed);
+	}
+	
+	
+	private static long read64(byte[] b, int off) {
+		return (long)XxHash64.INT64_ARRAY_LITTLE.get(b, off);
+	}
+	
+}
@@ -0,0 +1,294 @@
+package p79068;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * A small microbenchmark harness for the benchmark programs in the test tree. Each measurement warms up the JIT compiler, then times a number of samples, and reports throughput, the mean and percentiles of the time per operation, and the bytes allocated per operation.
+ * <p>A sample is a batch of consecutive operations lasting about 1 ms, so the percentiles are over batch means; an operation that takes longer than 1 ms is timed on its own. Allocation is measured with {@code com.sun.management.ThreadMXBean}, like the {@code -prof gc} profiler of JMH.</p>
+ * <p>Settings are read from system properties:</p>
+ * <ul>
+ *   <li>{@code p79068.bench.filter}: a regular expression; only benchmarks whose full name contains a match are run (default: all)</li>
+ *   <li>{@code p79068.bench.warmup}: the warm-up time per benchmark in milliseconds (default: 300)</li>
+ *   <li>{@code p79068.bench.time}: the measurement time per benchmark in milliseconds (default: 700)</li>
+ *   <li>{@code p79068.bench.json}: the file to write the results to in JSON (default: none)</li>
+ * </ul>
+ * <p>The JSON output is an array with one object per benchmark, with these members: {@code suite}, {@code benchmark}, {@code params} (an object of strings), {@code samples}, {@code opsPerSecond}, {@code bytesPerSecond} (present if the operation processes data), {@code nsPerOp} (an object with {@code mean}, {@code p50}, {@code p90}, {@code p99}, {@code max}), and {@code allocatedBytesPerOp} (absent if the JVM cannot measure it).</p>
+ */
+public final class Benchmark {
+	
+	/**
+	 * An operation to measure.
+	 */
+	public interface Operation {
+		
+		/**
+		 * Runs the operation once. The result is consumed so that the JIT compiler cannot remove the work.
+		 * @return any value that depends on the work done
+		 * @throws Exception if the operation fails, which aborts the benchmark program
+		 */
+		public Object run() throws Exception;
+		
+	}
+	
+	
+	
+	private final String suite;
+	
+	private final Pattern filter;
+	
+	private final long warmupNanos;
+	
+	private final long measureNanos;
+	
+	private final List<String> jsonRecords;
+	
+	private final PrintStream out;
+	
+	// Receives every operation result, which makes the result escape so that the work cannot be optimized away
+	private Object sink;
+	
+	
+	
+	/**
+	 * Constructs a benchmark harness for the specified suite name, configured from the system properties.
+	 * @param suite the name of the suite, e.g. the benchmark program's class name
+	 */
+	public Benchmark(String suite) {
+		Assert.assertNotNull(suite);
+		this.suite = suite;
+		String regex = System.getProperty("p79068.bench.filter");
+		filter = regex != null ? Pattern.compile(regex) : null;
+		warmupNanos = Long.getLong("p79068.bench.warmup", 300) * 1000000;
+		measureNanos = Long.getLong("p79068.bench.time", 700) * 1000000;
+		jsonRecords = new ArrayList<>();
+		out = System.out;
+	}
+	
+	
+	
+	/**
+	 * Tests whether the benchmark with the specified name and parameters would be run under the current filter.
+	 * @param name the name of the benchmark
+	 * @param params the parameters of the benchmark
+	 * @return whether the benchmark is selected
+	 */
+	public boolean isSelected(String name, Map<String,String> params) {
+		return filter == null || filter.matcher(fullName(name, params)).find();
+	}
+	
+	
+	/**
+	 * Measures the specified operation, prints a one-line summary to standard output, and records the result for {@link #writeJson()}. Does nothing if the benchmark is not selected.
+	 * @param name the name of the benchmark
+	 * @param params the parameters of the benchmark, in display order
+	 * @param bytesPerOp the number of data bytes that one operation processes, or 0 if throughput in bytes is meaningless
+	 * @param op the operation to measure
+	 * @throws Exception if the operation throws an exception
+	 */
+	public void measure(String name, Map<String,String> params, long bytesPerOp, Operation op) throws Exception {
+		Assert.assertNotNull(name, params, op);
+		if (!isSelected(name, params))
+			return;
+		
+		// Warm up, and find how many operations make a sample of about 1 ms
+		int opsPerSample = 1;
+		long start = System.nanoTime();
+		while (true) {
+			long time = timeOps(op, opsPerSample);
+			if (time < 1000000 && opsPerSample < (1 << 24))
+				opsPerSample *= 2;
+			if (System.nanoTime() - start >= warmupNanos)
+				break;
+		}
+		
+		// Measure
+		com.sun.management.ThreadMXBean bean = allocationBean();
+		long threadId = Thread.currentThread().getId();
+		long allocStart = bean != null ? bean.getThreadAllocatedBytes(threadId) : 0;
+		double[] samples = new double[16];
+		int numSamples = 0;
+		long totalOps = 0;
+		long totalTime = 0;
+		do {
+			long time = timeOps(op, opsPerSample);
+			if (numSamples == samples.length)
+				samples = Arrays.copyOf(samples, numSamples * 2);
+			samples[numSamples] = (double)time / opsPerSample;
+			numSamples++;
+			totalOps += opsPerSample;
+			totalTime += time;
+		} while (totalTime < measureNanos);
+		long allocated = bean != null ? bean.getThreadAllocatedBytes(threadId) - allocStart : -1;
+		samples = Arrays.copyOf(samples, numSamples);
+		Arrays.sort(samples);
+		
+		double mean = (double)totalTime / totalOps;
+		double opsPerSecond = 1e9 / mean;
+		double allocPerOp = allocated >= 0 ? (double)allocated / totalOps : Double.NaN;
+		
+		// Report
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%s: %.1f ns/op (p50 %.1f, p99 %.1f)", fullName(name, params), mean, percentile(samples, 0.50), percentile(samples, 0.99)));
+		if (bytesPerOp > 0)
+			sb.append(String.format(", %.1f MiB/s", bytesPerOp * opsPerSecond / 1048576));
+		if (allocated >= 0)
+			sb.append(String.format(", %.1f B/op allocated", allocPerOp));
+		out.println(sb);
+		
+		StringBuilder json = new StringBuilder();
+		json.append("{\"suite\":").append(jsonString(suite));
+		json.append(",\"benchmark\":").append(jsonString(name));
+		json.append(",\"params\":{");
+		boolean first = true;
+		for (Map.Entry<String,String> e : params.entrySet()) {
+			if (!first)
+				json.append(",");
+			json.append(jsonString(e.getKey())).append(":").append(jsonString(e.getValue()));
+			first = false;
+		}
+		json.append("},\"samples\":").append(numSamples);
+		json.append(",\"opsPerSecond\":").append(jsonNumber(opsPerSecond));
+		if (bytesPerOp > 0)
+			json.append(",\"bytesPerSecond\":").append(jsonNumber(bytesPerOp * opsPerSecond));
+		json.append(",\"nsPerOp\":{\"mean\":").append(jsonNumber(mean));
+		json.append(",\"p50\":").append(jsonNumber(percentile(samples, 0.50)));
+		json.append(",\"p90\":").append(jsonNumber(percentile(samples, 0.90)));
+		json.append(",\"p99\":").append(jsonNumber(percentile(samples, 0.99)));
+		json.append(",\"max\":").append(jsonNumber(samples[numSamples - 1])).append("}");
+		if (allocated >= 0)
+			json.append(",\"allocatedBytesPerOp\":").append(jsonNumber(allocPerOp));
+		json.append("}");
+		jsonRecords.add(json.toString());
+	}
+	
+	
+	/**
+	 * Writes all recorded results as a JSON array to the file named by the system property {@code p79068.bench.json}, if it is set.
+	 * @throws IOException if an I/O exception occurs
+	 */
+	public void writeJson() throws IOException {
+		String file = System.getProperty("p79068.bench.json");
+		if (file == null)
+			return;
+		Path path = Paths.get(file);
+		try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			w.write("[\n");
+			for (int i = 0; i < jsonRecords.size(); i++) {
+				w.write(jsonRecords.get(i));
+				w.write(i + 1 < jsonRecords.size() ? ",\n" : "\n");
+			}
+			w.write("]\n");
+		}
+		out.println("Wrote " + jsonRecords.size() + " results to " + path);
+	}
+	
+	
+	/**
+	 * Returns a new parameter map with the specified keys and values, which alternate.
+	 * @param keysAndValues the keys and values, alternating
+	 * @return a new ordered map of the parameters
+	 */
+	public static Map<String,String> params(String... keysAndValues) {
+		if (keysAndValues.length % 2 != 0)
+			throw new IllegalArgumentException();
+		Map<String,String> result = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2)
+			result.put(keysAndValues[i], keysAndValues[i + 1]);
+		return result;
+	}
+	
+	
+	/**
+	 * Formats the specified byte count compactly, e.g. "0 B", "64 B", "16 KiB", "64 MiB".
+	 * @param n the number of bytes
+	 * @return a string for the byte count
+	 */
+	public static String formatSize(long n) {
+		if (n >= (1 << 20) && n % (1 << 20) == 0)
+			return (n >>> 20) + " MiB";
+		else if (n >= (1 << 10) && n % (1 << 10) == 0)
+			return (n >>> 10) + " KiB";
+		else
+			return n + " B";
+	}
+	
+	
+	
+	private long timeOps(Operation op, int count) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++)
+			sink = op.run();
+		return System.nanoTime() - start;
+	}
+	
+	
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return null;
+		com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean)bean;
+		if (!result.isThreadAllocatedMemorySupported() || !result.isThreadAllocatedMemoryEnabled())
+			return null;
+		return result;
+	}
+	
+	
+	// Samples must be sorted in ascending order.
+	private static double percentile(double[] samples, double p) {
+		int index = (int)Math.ceil(p * samples.length) - 1;
+		return samples[Math.max(Math.min(index, samples.length - 1), 0)];
+	}
+	
+	
+	private static String fullName(String name, Map<String,String> params) {
+		if (params.isEmpty())
+			return name;
+		StringBuilder sb = new StringBuilder(name).append(" [");
+		boolean first = true;
+		for (Map.Entry<String,String> e : params.entrySet()) {
+			if (!first)
+				sb.append(", ");
+			sb.append(e.getKey()).append("=").append(e.getValue());
+			first = false;
+		}
+		return sb.append("]").toString();
+	}
+	
+	
+	private static String jsonString(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int)c));
+			else
+				sb.append(c);
+		}
+		return sb.append("\"").toString();
+	}
+	
+	
+	private static String jsonNumber(double x) {
+		if (Double.isNaN(x) || Double.isInfinite(x))
+			return "null";
+		return String.format(Locale.ROOT, "%.3f", x);
+	}
+	
+}
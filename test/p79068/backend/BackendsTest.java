@@ -0,0 +1,85 @@
+package p79068.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.security.NoSuchAlgorithmException;
+import org.junit.Test;
+import p79068.crypto.cipher.Rijndael;
+import p79068.crypto.hash.Sha;
+import p79068.hash.Adler32;
+import p79068.hash.Crc;
+
+
+public final class BackendsTest {
+	
+	@Test public void testSelectionsReported() {
+		Sha.SHA256_FUNCTION.newHasher();
+		Rijndael.AES128_CIPHER.newCipherer(new byte[16]);
+		Crc.CRC32C_FUNCTION.newHasher();
+		Adler32.FUNCTION.newHasher();
+		for (String family : new String[]{"SHA-256", "AES-128", "CRC-32C", "Adler-32"}) {
+			Backends.Selection sel = Backends.getSelection(family);
+			assertNotNull(sel);
+			assertEquals(family, sel.getFamily());
+			assertNotNull(sel.getBackend());
+			assertFalse(sel.getReason().isEmpty());
+			assertTrue(Backends.getSelections().contains(sel));
+		}
+		assertNull(Backends.getSelection("No such family"));
+	}
+	
+	
+	@Test public void testSelectionIsKept() {
+		Backend first = Backends.select("Test kept", null, data -> {}, data -> {});
+		// The workloads are not run again, so a now-unavailable implementation does not change the selection
+		Backend second = Backends.select("Test kept", null, data -> {}, data -> { throw new NoSuchAlgorithmException(); });
+		assertSame(first, second);
+	}
+	
+	
+	@Test public void testUnavailable() {
+		Backend b = Backends.select("Test unavailable", null, data -> {}, data -> { throw new NoSuchAlgorithmException(); });
+		assertEquals(Backend.LIBRARY, b);
+		if (System.getProperty(Backends.PROPERTY) == null)
+			assertTrue(Backends.getSelection("Test unavailable").getReason().contains("unavailable"));
+	}
+	
+	
+	@Test public void testUnknownVmOption() {
+		if (System.getProperty(Backends.PROPERTY) != null)
+			return;  // The property overrides the calibration
+		Backends.select("Test VM option", "NoSuchOption", data -> {}, data -> {});
+		assertEquals("calibrated", Backends.getSelection("Test VM option").getReason());
+	}
+	
+	
+	@Test public void testCalibrationPicksFaster() {
+		if (System.getProperty(Backends.PROPERTY) != null)
+			return;  // The property overrides the calibration
+		Backend b = Backends.select("Test calibration", null,
+			data -> {
+				for (int i = 0; i < 100; i++)
+					data.clone();
+			},
+			data -> data[0]++);
+		assertEquals(Backend.JDK, b);
+		Backends.Selection sel = Backends.getSelection("Test calibration");
+		assertEquals("calibrated", sel.getReason());
+		assertTrue(sel.getJdkThroughput() > sel.getLibraryThroughput());
+	}
+	
+	
+	// Always passes. Prints result to standard output.
+	@Test public void testPrintSelections() {
+		Sha.SHA1_FUNCTION.newHasher();
+		Sha.SHA512_FUNCTION.newHasher();
+		Crc.CRC32_FUNCTION.newHasher();
+		for (Backends.Selection sel : Backends.getSelections())
+			System.out.println(sel);
+	}
+	
+}
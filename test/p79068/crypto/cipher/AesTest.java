@@ -1,6 +1,7 @@
 package p79068.crypto.cipher;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 import p79068.crypto.CryptoUtils;
 import p79068.crypto.cipher.mode.CbcModeCipher;
@@ -38,6 +39,39 @@ public final class AesTest extends CipherTest {
 	}
 	
 	
+	// Compares the JDK backend with this library's implementation, including clones and zeroization.
+	@Test public void testJdkVersusLibraryRandomly() throws Exception {
+		Random r = Random.DEFAULT;
+		for (Rijndael cipher : new Rijndael[]{Rijndael.AES128_CIPHER, Rijndael.AES192_CIPHER, Rijndael.AES256_CIPHER}) {
+			for (int i = 0; i < 100; i++) {
+				byte[] key = new byte[cipher.getKeyLength()];
+				r.uniformBytes(key);
+				byte[] msg = new byte[r.uniformInt(20) * 16 + 7];
+				r.uniformBytes(msg);
+				int off = r.uniformInt(8);
+				int len = (msg.length - off) / 16 * 16;
+				
+				Cipherer expect = new FastAesCipherer(cipher, key);
+				Cipherer actual = new JdkAesCipherer(cipher, key);
+				if (i % 2 == 0)
+					actual = actual.clone();
+				byte[] expectMsg = msg.clone();
+				expect.encrypt(expectMsg, off, len);
+				actual.encrypt(msg, off, len);
+				assertArrayEquals(expectMsg, msg);
+				expect.decrypt(expectMsg, off, len);
+				actual.decrypt(msg, off, len);
+				assertArrayEquals(expectMsg, msg);
+				actual.zeroize();
+				try {
+					actual.encrypt(msg, off, len);
+					fail();
+				} catch (IllegalStateException e) {}  // Pass
+			}
+		}
+	}
+	
+	
 	@Test public void testAesInvertibilityRandomly() {
 		for (int i = 0; i < 1000; i++) {
 			int keylength = (1 + Random.DEFAULT.uniformInt(16)) * 4;  // Random key length from 32 bits to 512 bits, at multiples of 32 bits
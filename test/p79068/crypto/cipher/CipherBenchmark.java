@@ -0,0 +1,170 @@
+package p79068.crypto.cipher;
+
+import java.util.Arrays;
+import java.util.List;
+import p79068.Benchmark;
+import p79068.backend.Backends;
+import p79068.crypto.cipher.mode.BcModeCipher;
+import p79068.crypto.cipher.mode.CbcModeCipher;
+import p79068.crypto.cipher.mode.CfbModeCipher;
+import p79068.crypto.cipher.mode.IgeModeCipher;
+import p79068.crypto.cipher.mode.OfbModeStreamCipher;
+import p79068.crypto.cipher.mode.PcbcModeCipher;
+import p79068.util.random.Random;
+
+
+/**
+ * Benchmarks every cipher of the library and every block cipher mode of operation. Run the main method; see {@link Benchmark} for the settings, e.g.
+ * {@code java -Dp79068.bench.filter="mode=(ECB|CBC)" p79068.crypto.cipher.CipherBenchmark}.
+ * <p>The benchmarks are:</p>
+ * <ul>
+ *   <li>{@code keySetup}: {@link Cipher#newCipherer(byte[])}, which runs the key schedule</li>
+ *   <li>{@code block}: encrypting or decrypting a single block in place with an existing cipherer (block ciphers only)</li>
+ *   <li>{@code bulk}: encrypting or decrypting a message of 16 B to 16 MiB in place, rounded down to a whole number of blocks. For each cipher and length, raw ECB comes first and is followed by every mode over the same cipher, so the overhead of a mode is its difference to the ECB line.</li>
+ *   <li>{@code aesImplementation}: key setup, a single block, and 64 KiB of AES with each implementation class ({@link FastAesCipherer}, which {@link Rijndael} uses for 128-bit blocks with the library backend, {@link JdkAesCipherer} for the JDK backend, {@link AesCipherer} and the generic {@link RijndaelCipherer})</li>
+ * </ul>
+ * <p>The other benchmarks use whichever backend {@link Backends} selects; set {@code -Dp79068.backend=library} or {@code jdk} to compare them. The selections are printed at the end.</p>
+ */
+public final class CipherBenchmark {
+	
+	private static final int[] MESSAGE_LENGTHS = {16, 256, 4 << 10, 64 << 10, 1 << 20, 16 << 20};
+	
+	private static final String[] MODES = {"CBC", "CFB", "OFB", "PCBC", "BC", "IGE"};
+	
+	private static final String[] DIRECTIONS = {"encrypt", "decrypt"};
+	
+	
+	public static void main(String[] args) throws Exception {
+		Benchmark bench = new Benchmark("Cipher");
+		byte[] data = new byte[MESSAGE_LENGTHS[MESSAGE_LENGTHS.length - 1]];
+		Random.DEFAULT.uniformBytes(data);
+		
+		for (Cipher c : getCiphers()) {
+			String name = c.getName();
+			byte[] key = randomBytes(c.getKeyLength());
+			bench.measure("keySetup", Benchmark.params("cipher", name), 0, () -> c.newCipherer(key));
+			
+			if (c instanceof BlockCipher) {
+				for (String dir : DIRECTIONS) {
+					Cipherer cipherer = c.newCipherer(key);
+					byte[] block = randomBytes(c.getBlockLength());
+					bench.measure("block", Benchmark.params("cipher", name, "direction", dir), block.length,
+						() -> run(cipherer, dir, block, block.length));
+				}
+			}
+			
+			for (int len : MESSAGE_LENGTHS) {
+				int n = len - len % c.getBlockLength();
+				if (n == 0)  // Block is longer than the message
+					continue;
+				for (String dir : DIRECTIONS) {
+					Cipherer ecb = c.newCipherer(key);
+					bench.measure("bulk", Benchmark.params("cipher", name, "length", Benchmark.formatSize(n), "direction", dir, "mode", "ECB"), n,
+						() -> run(ecb, dir, data, n));
+					if (!(c instanceof BlockCipher))
+						continue;
+					for (String mode : MODES) {
+						Cipherer cipherer = newModeCipherer((BlockCipher)c, mode, key);
+						bench.measure("bulk", Benchmark.params("cipher", name, "length", Benchmark.formatSize(n), "direction", dir, "mode", mode), n,
+							() -> run(cipherer, dir, data, n));
+					}
+				}
+			}
+		}
+		
+		benchmarkAesImplementations(bench, data);
+		for (Backends.Selection sel : Backends.getSelections())
+			System.out.println("Backend " + sel);
+		bench.writeJson();
+	}
+	
+	
+	private static void benchmarkAesImplementations(Benchmark bench, byte[] data) throws Exception {
+		int len = 64 << 10;
+		for (Rijndael c : new Rijndael[]{Rijndael.AES128_CIPHER, Rijndael.AES192_CIPHER, Rijndael.AES256_CIPHER}) {
+			byte[] key = randomBytes(c.getKeyLength());
+			for (String impl : new String[]{"FastAesCipherer", "JdkAesCipherer", "AesCipherer", "RijndaelCipherer"}) {
+				bench.measure("aesImplementation", Benchmark.params("cipher", c.getName(), "implementation", impl, "operation", "keySetup"), 0,
+					() -> newAesCipherer(c, impl, key));
+				for (String dir : DIRECTIONS) {
+					Cipherer cipherer = newAesCipherer(c, impl, key);
+					byte[] block = randomBytes(16);
+					bench.measure("aesImplementation", Benchmark.params("cipher", c.getName(), "implementation", impl, "operation", "block", "direction", dir), 16,
+						() -> run(cipherer, dir, block, 16));
+					bench.measure("aesImplementation", Benchmark.params("cipher", c.getName(), "implementation", impl, "operation", "bulk", "direction", dir), len,
+						() -> run(cipherer, dir, data, len));
+				}
+			}
+		}
+	}
+	
+	
+	private static Object run(Cipherer cipherer, String direction, byte[] b, int len) {
+		if (direction.equals("encrypt"))
+			cipherer.encrypt(b, 0, len);
+		else
+			cipherer.decrypt(b, 0, len);
+		return b;
+	}
+	
+	
+	private static Cipherer newModeCipherer(BlockCipher c, String mode, byte[] key) {
+		byte[] iv = randomBytes(c.getBlockLength());
+		if      (mode.equals("CBC" )) return new CbcModeCipher      (c, key).newCipherer(iv);
+		else if (mode.equals("CFB" )) return new CfbModeCipher      (c, key).newCipherer(iv);
+		else if (mode.equals("OFB" )) return new OfbModeStreamCipher(c, key).newCipherer(iv);
+		else if (mode.equals("PCBC")) return new PcbcModeCipher     (c, key).newCipherer(iv);
+		else if (mode.equals("BC"  )) return new BcModeCipher       (c, key).newCipherer(iv);
+		else if (mode.equals("IGE" )) return new IgeModeCipher      (c, key).newCipherer(iv);
+		else throw new IllegalArgumentException();
+	}
+	
+	
+	private static Cipherer newAesCipherer(Rijndael c, String impl, byte[] key) throws Exception {
+		if      (impl.equals("FastAesCipherer" )) return new FastAesCipherer (c, key);
+		else if (impl.equals("JdkAesCipherer"  )) return new JdkAesCipherer  (c, key);
+		else if (impl.equals("AesCipherer"     )) return new AesCipherer     (c, key);
+		else if (impl.equals("RijndaelCipherer")) return new RijndaelCipherer(c, key);
+		else throw new IllegalArgumentException();
+	}
+	
+	
+	private static byte[] randomBytes(int len) {
+		byte[] result = new byte[len];
+		Random.DEFAULT.uniformBytes(result);
+		return result;
+	}
+	
+	
+	private static List<Cipher> getCiphers() {
+		return Arrays.asList(
+			Rijndael.AES128_CIPHER,
+			Rijndael.AES192_CIPHER,
+			Rijndael.AES256_CIPHER,
+			new Rijndael(32, 32),
+			Des.DES56_CIPHER,
+			Des.DES64_CIPHER,
+			Idea.CIPHER,
+			new Rc2(128, 16),
+			Tea.TEA_CIPHER,
+			Tea.XTEA_CIPHER,
+			Simon.SIMON32_64_CIPHER,
+			Simon.SIMON48_72_CIPHER,
+			Simon.SIMON48_96_CIPHER,
+			Simon.SIMON64_96_CIPHER,
+			Simon.SIMON64_128_CIPHER,
+			Simon.SIMON96_96_CIPHER,
+			Simon.SIMON96_144_CIPHER,
+			Simon.SIMON128_128_CIPHER,
+			Simon.SIMON128_192_CIPHER,
+			Simon.SIMON128_256_CIPHER,
+			new Shacal(true, 64),
+			new Shacal(false, 64),
+			WhirlpoolCipher.WHIRLPOOL0_CIPHER,
+			WhirlpoolCipher.WHIRLPOOL_T_CIPHER,
+			WhirlpoolCipher.WHIRLPOOL_CIPHER,
+			new Rc4(16),
+			Chacha20.CIPHER);
+	}
+	
+}
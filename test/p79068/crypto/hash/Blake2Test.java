@@ -0,0 +1,154 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+import p79068.util.random.Random;
+
+
+public final class Blake2Test extends CryptoHashFunctionTest {
+	
+	protected HashFunction[] getHashFunctionsToTest() {
+		return new HashFunction[] {
+			Blake2b.BLAKE2B_256_FUNCTION,
+			Blake2b.BLAKE2B_512_FUNCTION,
+			Blake2s.BLAKE2S_128_FUNCTION,
+			Blake2s.BLAKE2S_256_FUNCTION,
+			new Blake2b(40, KEY, "salty".getBytes(), "me".getBytes()),
+			new Blake2s(20, KEY, "salt".getBytes(), "p".getBytes()),
+			Blake2bp.BLAKE2BP_512_FUNCTION,
+			Blake2sp.BLAKE2SP_256_FUNCTION,
+			new Blake2bp(48, KEY),
+			new Blake2sp(20, KEY),
+		};
+	}
+	
+	
+	private static final byte[] KEY = new byte[30];
+	
+	// Byte i is i mod 251
+	private static final byte[] MESSAGE = new byte[1000];
+	
+	static {
+		for (int i = 0; i < KEY.length; i++)
+			KEY[i] = (byte)i;
+		for (int i = 0; i < MESSAGE.length; i++)
+			MESSAGE[i] = (byte)(i % 251);
+	}
+	
+	
+	
+	// Samples from RFC 7693, appendices A and B.
+	@Test public void testRfcSamples() {
+		testAscii(Blake2b.BLAKE2B_512_FUNCTION, "abc", "BA80A53F981C4D0D6A2797B69F12F6E94C212F14685AC4B74B12BB6FDBFFA2D17D87C5392AAB792DC252D5DE4533CC9518D38AA8DBF1925AB92386EDD4009923");
+		testAscii(Blake2s.BLAKE2S_256_FUNCTION, "abc", "508C5E8C327C14E2E1A72BA34EEB452F37458B209ED63A294D999B4C86675982");
+	}
+	
+	
+	// Keyed, salted and personalized, around the block boundaries. The expected values were computed with another implementation.
+	@Test public void testParameters() {
+		testPrefixes(new Blake2b(40, KEY, "salty".getBytes(), "me".getBytes()), new String[][] {
+			{"0", "09C7D25DB5C53A4D712F1EE668B66D5B5204A131183208C500B1FAB95F5643ECF164BB67308BCE69"},
+			{"1", "9AEDCCC209EAE3B9AA8D6DCF18E17C92BF0F6BE862EE53D7D9D11F3DBCFA44C6DA377723A6965DB7"},
+			{"127", "99E2EACA45E0430AB9C1D0307C4185C20F2C5CBCA2C555EE597A072AE272EED8E29C64B531EEC204"},
+			{"128", "2C42A9712369B4D16D7DFC618659BD68506979068B7FABBC50D8FE82E6282D3D094E7099705B4A4F"},
+			{"129", "845783A6EADF671FAD1E21AD613A6E2B8F4854F692BF3B9FAB6A168F6F29EAE1C0EF0BC5C892F9E6"},
+			{"256", "9F4E60A6BCA8D382AFD1B9DF9518C01277C6117BADA39E1DA88E115550B803A933E74AD4F3101FC5"},
+			{"1000", "72FE405813BFA9B6CF461FBFC5C6493628B3F9B0796A3A838D1E67A698CFD8E1F67A5A698CC3DF2D"},
+		});
+		testPrefixes(new Blake2s(20, KEY, "salt".getBytes(), "p".getBytes()), new String[][] {
+			{"0", "AE5EE87645F7C40FB9B1652A128E0B834D593DE0"},
+			{"1", "0A8B76C9C64B030206171BEDA875325E1FC9AA8D"},
+			{"63", "2B9E81D9F040304973A5C5E2F24BC4B7C2564816"},
+			{"64", "49AD8AFADAD697B292707306B2C6EFC9DD470929"},
+			{"65", "FE9A8376D46E050ECE1E3991EB7BFB4C33ED99A1"},
+			{"128", "5D3A774F12B7217C8AA2D359A02181450A079BD2"},
+			{"1000", "ADD01A3A8818ABC74BB78F045843DCA7BD9235CA"},
+		});
+	}
+	
+	
+	// The expected values were computed from BLAKE2b and BLAKE2s nodes of another implementation, with the tree parameters of BLAKE2bp and BLAKE2sp.
+	@Test public void testParallelModes() {
+		testPrefixes(Blake2bp.BLAKE2BP_512_FUNCTION, new String[][] {
+			{"0", "B5EF811A8038F70B628FA8B294DAAE7492B1EBE343A80EAABBF1F6AE664DD67B9D90B0120791EAB81DC96985F28849F6A305186A85501B405114BFA678DF9380"},
+			{"1", "A139280E72757B723E6473D5BE59F36E9D50FC5CD7D4585CBC09804895A36C521242FB2789F85CB9E35491F31D4A6952F9D8E097AEF94FA1CA0B12525721F03D"},
+			{"128", "05AD0F271FAF7E361320518452813FF9FB9976AC378050B6EEFB05F7867B577B8F14475794CFF61B2BC062D346A7C65C6E0067C60A374AF7940F10AA449D5FB9"},
+			{"512", "61C4DABACDFB1352185AAE9DBC04B348AF681478B0C4AA7291C7BAB11783E8AFE05830D87B6E003BBD95A08D9DB6B053F12E75602FD5F1C1F49D39CD6C12B40B"},
+			{"513", "C62CF13185F8EB971737218C9AE187F6447DFD286D206C7D42F442C719527C59D4655CA5829BF3912D284B916F5BDAA36672363BDCA29B0ED2047BA98404A2AD"},
+			{"1000", "440C4C3A7A50159B43A3B80E63083FA88B7E644490061CE763E92426D1FA9F034D0A3A4F94D99042B98D068DA35C5AF694EA9E7F51B8551AF5C99C2EEF95024D"},
+		});
+		testPrefixes(Blake2sp.BLAKE2SP_256_FUNCTION, new String[][] {
+			{"0", "DD0E891776933F43C7D032B08A917E25741F8AA9A12C12E1CAC8801500F2CA4F"},
+			{"1", "A6B9EECC25227AD788C99D3F236DEBC8DA408849E9A5178978727A81457F7239"},
+			{"64", "52603B6CBFAD4966CB044CB267568385CF35F21E6C45CF30AED19832CB51E9F5"},
+			{"512", "8D9E357863298DD8364B7CAF4234317F8A49F180D788B7ABFFB521925F1E1FF1"},
+			{"513", "8A4BC3330497E681F15DAF24FC496044A1C32BF0A837A210399E1AE4AF7E92BE"},
+			{"1000", "611F1AF6610CDAF674EC2C9178F6376EBE234EF50998A3BE3F1FA698FB779274"},
+		});
+	}
+	
+	
+	// Hashing in small random pieces, in one call and on a pool must agree.
+	@Test public void testParallelEquivalence() {
+		Random r = Random.DEFAULT;
+		byte[] b = new byte[100000];
+		r.uniformBytes(b);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int i = 0; i < 40; i++) {
+				byte[] key = new byte[r.uniformInt(33)];
+				r.uniformBytes(key);
+				int len = r.uniformInt(b.length + 1);
+				int off = r.uniformInt(b.length - len + 1);
+				HashValue expect;
+				HashValue actual;
+				if (r.uniformInt(2) == 0) {
+					Blake2bp hf = new Blake2bp(r.uniformInt(64) + 1, key);
+					expect = hashInPieces(hf, b, off, len, r);
+					assertEquals(expect, hf.getHash(b, off, len));
+					actual = hf.getHash(b, off, len, pool);
+				} else {
+					Blake2sp hf = new Blake2sp(r.uniformInt(32) + 1, key);
+					expect = hashInPieces(hf, b, off, len, r);
+					assertEquals(expect, hf.getHash(b, off, len));
+					actual = hf.getHash(b, off, len, pool);
+				}
+				assertEquals(expect, actual);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testKeyTooLong() {
+		new Blake2s(32, new byte[33]);
+	}
+	
+	
+	
+	private static void testPrefixes(HashFunction hf, String[][] testCases) {
+		for (String[] tc : testCases) {
+			byte[] msg = Arrays.copyOf(MESSAGE, Integer.parseInt(tc[0]));
+			assertEquals(hf.toString(), new HashValue(tc[1]), hf.getHash(msg));
+		}
+	}
+	
+	
+	private static HashValue hashInPieces(HashFunction hf, byte[] b, int off, int len, Random r) {
+		Hasher hasher = hf.newHasher();
+		for (int pos = 0; pos < len; ) {
+			int n = Math.min(r.uniformInt(3000), len - pos);
+			hasher.update(b, off + pos, n);
+			pos += n;
+		}
+		return hasher.getHash();
+	}
+	
+}
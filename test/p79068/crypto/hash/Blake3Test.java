@@ -0,0 +1,180 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+import p79068.util.random.Random;
+
+
+public final class Blake3Test extends CryptoHashFunctionTest {
+	
+	protected HashFunction[] getHashFunctionsToTest() {
+		return new HashFunction[] {
+			Blake3.FUNCTION,
+			new Blake3(131),
+			new Blake3(32, KEY),
+			new Blake3(20, CONTEXT),
+		};
+	}
+	
+	
+	private static final byte[] KEY = new byte[32];
+	
+	private static final String CONTEXT = "BLAKE3 2019-12-27 16:29:52 test vectors context";
+	
+	static {
+		for (int i = 0; i < KEY.length; i++)
+			KEY[i] = (byte)i;
+	}
+	
+	
+	
+	// The hash and key derivation values are from the official BLAKE3 test vectors. The keyed hash values were computed with another implementation, with the key 00 01 ... 1F.
+	@Test public void testModes() {
+		String[][] testCases = {
+			{"0", "AF1349B9F5F9A1A6A0404DEA36DCC9499BCB25C9ADC112B7CC9A93CAE41F3262", "73492B19995D71CDB1E9D74DECC09809EB732F1B00BC95C27CB15F9DD4D6478F", "2CC39783C223154FEA8DFB7C1B1660F2AC2DCBD1C1DE8277B0B0DD39B7E50D7D"},
+			{"1", "2D3ADEDFF11B61F14C886E35AFA036736DCD87A74D27B5C1510225D0F592E213", "D08B45C6B127EE94F3F8527A0B82A5F80BE1695A0EAEC6022E772C0EB95A7E8B", "B3E2E340A117A499C6CF2398A19EE0D29CCA2BB7404C73063382693BF66CB06C"},
+			{"1023", "10108970EEDA3EB932BAAC1428C7A2163B0E924C9A9E25B35BBA72B28F70BD11", "DA1F18069871512AF22AF9F13DC005800DFD52C55F42753B5AE718086FE2EE44", "74A16C1C3D44368A86E1CA6DF64BE6A2F64CCE8F09220787450722D85725DEA5"},
+			{"1024", "42214739F095A406F3FC83DEB889744AC00DF831C10DAA55189B5D121C855AF7", "F45A9249A627FDF1FCF13C0E6376F6A9A9B2056D6E1B5693A4B119A3453665F9", "7356CD7720D5B66B6D0697EB3177D9F8D73A4A5C5E968896EB6A689684302706"},
+			{"1025", "D00278AE47EB27B34FAECF67B4FE263F82D5412916C1FFD97C8CB7FB814B8444", "82223147A9B804A0C3F9A921B8D8AEE250D1A51BB76BE72152E6D5E8F27349B3", "EFFAA245F065FBF82AC186839A249707C3BDDF6D3FDDA22D1B95A3C970379BCB"},
+			{"2048", "E776B6028C7CD22A4D0BA182A8BF62205D2EF576467E838ED6F2529B85FBA24A", "636BFA717D4F9FC3E59DA9B2E5CCE6A2B78EB70469C0FCE49DA38B5419892423", "7B2945CB4FEF70885CC5D78A87BF6F6207DD901FF239201351FFAC04E1088A23"},
+			{"2049", "5F4D72F40D7A5F82B15CA2B2E44B1DE3C2EF86C426C95C1AF0B6879522563030", "5442EEC85E3FD173DCFF07C39CD8CFF9689F17224471E655618ED728CF03B056", "2EA477C5515CC3DD606512EE72BB3E0E758CFAE7232826F35FB98CA1BCBDF273"},
+			{"3073", "7124B49501012F81CC7F11CA069EC9226CECB8A2C850CFE644E327D22D3E1CD3", "66EABF3A0A1A262221EE9EED633621A5065E4E73D098277C7DE4162559EDB9B4", "72613C9EC9FF7E40F8F5C173784C532AD852E827DBA2BF85B2AB4B76F7079081"},
+			{"8193", "BAB6C09CB8CE8CF459261398D2E7AEF35700BF488116CEB94A36D0F5F1B7BC3B", "C666CCF5FA240C07A9D0A6B8AE92C67668B482E7C2751FB5E1D9D7078FA9637E", "AF1E0346E389B17C23200270A64AA4E1EAD98C61695D917DE7D5B00491C9B0F1"},
+			{"16384", "F875D6646DE28985646F34EE13BE9A576FD515F76B5B0A26BB324735041DDDE4", "8880CE020AB0459420EEE7E95F173D8A0D55C9B499D857880B0C661EB4162BAE", "160E18B5878CD0DF1C3AF85EB25A0DB5344D43A6FBD7A8EF4ED98D0714C3F7E1"},
+			{"31744", "62B6960E1A44BCC1EB1A611A8D6235B6B4B78F32E7ABC4FB4C6CDCCE94895C47", "55253F057BCE59E7811FEA47AC0E72751CA12C40C4A5B8F3C42E54DAA5073272", "39772AEF80E0EBE60596361E45B061E8F417429D529171B6764468C22928E28E"},
+			{"102400", "BC3E3D41A1146B069ABFFAD3C0D44860CF664390AFCE4D9661F7902E7943E085", "AB2ECF0478E816065BA6039D8EC583CBCE8A2335EFE903E2D7313C04BA5330D2", "4652CFF7A3F385A6103B5C260FC1593E13C778DBE608EFB092FE7EE69DF6E9C6"},
+		};
+		for (String[] tc : testCases) {
+			byte[] msg = pattern(Integer.parseInt(tc[0]));
+			assertEquals(new HashValue(tc[1]), Blake3.FUNCTION.getHash(msg));
+			assertEquals(new HashValue(tc[2]), new Blake3(32, KEY).getHash(msg));
+			assertEquals(new HashValue(tc[3]), new Blake3(32, CONTEXT).getHash(msg));
+		}
+	}
+	
+	
+	@Test public void testExtendedOutput() {
+		byte[] msg = pattern(31744);
+		String[][] testCases = {
+			{"62B6960E1A44BCC1EB1A611A8D6235B6B4B78F32E7ABC4FB4C6CDCCE94895C47860CC51F2B0C28A7B77304BD55FE73AF663C02D3F52EA053BA43431CA5BAB7BFEA2F5E9D7121770D88F70AE9649EA713087D1914F7F312147E247F87EB2D4FFEF0AC978BF7B6579D57D533355AA20B8B77B13FD09748728A5CC327A8EC470F4013226F"},
+			{"55253F057BCE59E7811FEA47AC0E72751CA12C40C4A5B8F3C42E54DAA50732726B711ACE0FF2D557BD49EFFE3180E190A6775DB357330AA32D9B2501810979052BB74A4EE6991A8D5BC3B2BCE814A6EB9138B03F6E85ADDEE430DCE1DD721042017CC9D838A22F4E11815945127EDBC6063ED6D1AE4617039059B333A427859DEA32FD"},
+			{"39772AEF80E0EBE60596361E45B061E8F417429D529171B6764468C22928E28E9759ADEB797A3FBF771B1BCEA30150A020E317982BF0D6E7D14DD9F064BC11025C25F31E81BD78A921DB0174F03DD481D30E93FD8E90F8B2FEE209F849F2D2A52F31719A490FB0BA7AEA1E09814EE912EBA111A9FDE9D5C274185F7BAE8BA85D300A2B"},
+		};
+		Blake3[] functions = {new Blake3(131), new Blake3(131, KEY), new Blake3(131, CONTEXT)};
+		for (int i = 0; i < functions.length; i++) {
+			HashValue expect = new HashValue(testCases[i][0]);
+			assertEquals(expect, functions[i].getHash(msg));
+			
+			// Squeezing in pieces of every size from 0 to 20 bytes
+			XofHasher hasher = functions[i].newHasher();
+			hasher.update(msg);
+			byte[] out = new byte[131];
+			for (int off = 0, n = 0; off < out.length; off += n, n = (n + 1) % 21) {
+				n = Math.min(n, out.length - off);
+				hasher.squeeze(out, off, n);
+			}
+			assertArrayEquals(expect.toBytes(), out);
+		}
+	}
+	
+	
+	// Hashing in small random pieces, in one call, from a direct buffer and on a pool must agree, for lengths around the chunk boundaries.
+	@Test public void testChunkHashingEquivalence() {
+		Random r = Random.DEFAULT;
+		byte[] b = new byte[600 * Blake3.CHUNK_LENGTH + 100];
+		r.uniformBytes(b);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int i = 0; i < 30; i++) {
+				int chunks = r.uniformInt(2) == 0 ? r.uniformInt(40) : r.uniformInt(600);
+				int len = Math.max(chunks * Blake3.CHUNK_LENGTH + r.uniformInt(5) - 2, 0);
+				int off = r.uniformInt(b.length - len + 1);
+				Blake3 hf = r.uniformInt(2) == 0 ? Blake3.FUNCTION : new Blake3(32, KEY);
+				
+				XofHasher hasher = hf.newHasher();
+				for (int pos = 0; pos < len; ) {
+					int n = Math.min(r.uniformInt(3000), len - pos);
+					hasher.update(b, off + pos, n);
+					pos += n;
+				}
+				HashValue expect = hasher.getHash();
+				assertEquals(expect, hf.getHash(b, off, len));
+				assertEquals(expect, hf.getHash(b, off, len, pool));
+				
+				hasher = hf.newHasher();
+				ByteBuffer direct = ByteBuffer.allocateDirect(len);
+				direct.put(b, off, len).flip();
+				hasher.update(direct);
+				assertEquals(expect, hasher.getHash());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	@Test public void testParallelFile() throws IOException {
+		byte[] b = new byte[300 * Blake3.CHUNK_LENGTH + 100];
+		Random.DEFAULT.uniformBytes(b);
+		Path file = Files.createTempFile("blake3", null);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Files.write(file, b);
+			assertEquals(Blake3.FUNCTION.getHash(b), Blake3.FUNCTION.getHash(file, pool));
+		} finally {
+			pool.shutdown();
+			Files.delete(file);
+		}
+	}
+	
+	
+	// The interleaved chunk hasher (the Vector API one, if available) must agree with the scalar one, including for partially filled lane groups and counters above 2^32.
+	@Test public void testChunkHasherVersusScalar() {
+		Random r = Random.DEFAULT;
+		int[] key = Blake2sCore.IV.clone();
+		for (int i = 0; i < 10; i++) {
+			int count = r.uniformInt(40) + 1;
+			long counter = r.uniformLong() >>> 20;
+			byte[] b = new byte[count * Blake3.CHUNK_LENGTH + 3];
+			r.uniformBytes(b);
+			int[] expect = new int[count * 8];
+			int[] actual = new int[count * 8];
+			new Blake3ChunkHasher(key, 0).hashChunks(ByteBuffer.wrap(b), 3, count, counter, expect, 0);
+			Blake3ChunkHasher.newInstance(key, 0).hashChunks(ByteBuffer.wrap(b), 3, count, counter, actual, 0);
+			assertArrayEquals(expect, actual);
+		}
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testKeyWrongLength() {
+		new Blake3(32, new byte[31]);
+	}
+	
+	
+	@Test(expected=IllegalStateException.class)
+	public void testUpdateAfterSqueeze() {
+		XofHasher hasher = Blake3.FUNCTION.newHasher();
+		hasher.squeeze(new byte[1], 0, 1);
+		hasher.update((byte)0);
+	}
+	
+	
+	
+	private static byte[] pattern(int len) {
+		byte[] result = new byte[len];
+		for (int i = 0; i < len; i++)
+			result[i] = (byte)(i % 251);
+		return result;
+	}
+	
+}
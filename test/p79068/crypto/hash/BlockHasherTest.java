@@ -0,0 +1,124 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+import p79068.hash.Hasher;
+import p79068.util.random.Random;
+
+
+public final class BlockHasherTest {
+	
+	private static final BlockHashFunction[] FUNCTIONS = {
+		Md.MD2_FUNCTION,
+		Md.MD4_FUNCTION,
+		Md.MD5_FUNCTION,
+		Sha.SHA_FUNCTION,
+		Sha.SHA1_FUNCTION,
+		Sha.SHA224_FUNCTION,
+		Sha.SHA256_FUNCTION,
+		Sha.SHA384_FUNCTION,
+		Sha.SHA512_FUNCTION,
+		Sha.SHA512_224_FUNCTION,
+		Sha.SHA512_256_FUNCTION,
+		Ripemd.RIPEMD_FUNCTION,
+		Ripemd.RIPEMD128_FUNCTION,
+		Ripemd.RIPEMD160_FUNCTION,
+		Ripemd.RIPEMD256_FUNCTION,
+		Ripemd.RIPEMD320_FUNCTION,
+		Tiger.TIGER_FUNCTION,
+		Tiger.TIGER2_FUNCTION,
+		Whirlpool.WHIRLPOOL0_FUNCTION,
+		Whirlpool.WHIRLPOOL_T_FUNCTION,
+		Whirlpool.WHIRLPOOL_FUNCTION,
+		Blake2b.BLAKE2B_512_FUNCTION,
+		Blake2s.BLAKE2S_256_FUNCTION,
+		new Blake2b(32, new byte[16]),
+	};
+	
+	
+	@Test public void testGetHashIntoArray() {
+		Random r = Random.DEFAULT;
+		for (BlockHashFunction hf : FUNCTIONS) {
+			for (int i = 0; i < 100; i++) {
+				byte[] msg = new byte[r.uniformInt(300)];
+				r.uniformBytes(msg);
+				Hasher h = hf.newHasher();
+				h.update(msg);
+				
+				int off = r.uniformInt(10);
+				byte[] out = new byte[off + hf.getHashLength() + r.uniformInt(10)];
+				h.getHash(out, off);
+				byte[] expect = new byte[out.length];
+				System.arraycopy(hf.getHash(msg).toBytes(), 0, expect, off, hf.getHashLength());
+				assertArrayEquals(expect, out);
+			}
+		}
+	}
+	
+	
+	@Test public void testGetHashPreservesState() {
+		Random r = Random.DEFAULT;
+		for (BlockHashFunction hf : FUNCTIONS) {
+			for (int i = 0; i < 100; i++) {
+				byte[] msg = new byte[r.uniformInt(500)];
+				r.uniformBytes(msg);
+				int split = r.uniformInt(msg.length + 1);
+				
+				Hasher h = hf.newHasher();
+				h.update(msg, 0, split);
+				h.getHash();
+				h.getHash();
+				h.update(msg, split, msg.length - split);
+				assertArrayEquals(hf.getHash(msg).toBytes(), h.getHash().toBytes());
+			}
+		}
+	}
+	
+	
+	// Prints the steady-state allocation rate to standard output. Fails if update() plus getHash(byte[], int) allocates. Uses the library's hashers, because the JDK backend allocates when getting the hash.
+	@Test public void testSteadyStateAllocation() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return;  // Measurement not supported on this JVM
+		com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean)bean;
+		if (!mx.isThreadAllocatedMemorySupported() || !mx.isThreadAllocatedMemoryEnabled())
+			return;
+		long threadId = Thread.currentThread().getId();
+		
+		byte[] msg = new byte[1000];
+		Random.DEFAULT.uniformBytes(msg);
+		byte[] out = new byte[64];
+		for (BlockHashFunction hf : FUNCTIONS) {
+			Hasher h = newLibraryHasher(hf);
+			final int ops = 20000;
+			runHasher(h, msg, out, ops);  // Warm up the JIT compiler
+			long overhead = -mx.getThreadAllocatedBytes(threadId);
+			overhead += mx.getThreadAllocatedBytes(threadId);
+			long bytes = -mx.getThreadAllocatedBytes(threadId);
+			runHasher(h, msg, out, ops);
+			bytes += mx.getThreadAllocatedBytes(threadId) - overhead;
+			double perOp = (double)bytes / ops;
+			System.out.printf("%s: %.3f bytes allocated per update+getHash%n", hf.getName(), perOp);
+			assertTrue(hf.getName(), perOp < 1);
+		}
+	}
+	
+	
+	private static Hasher newLibraryHasher(BlockHashFunction hf) {
+		if      (hf instanceof Sha) return ((Sha)hf).newLibraryHasher();
+		else if (hf instanceof Md ) return ((Md )hf).newLibraryHasher();
+		else return hf.newHasher();
+	}
+	
+	
+	private static void runHasher(Hasher h, byte[] msg, byte[] out, int ops) {
+		for (int i = 0; i < ops; i++) {
+			h.update(msg[i % msg.length]);
+			h.update(msg, i % 7, i % (msg.length - 7));
+			h.getHash(out, 0);
+		}
+	}
+	
+}
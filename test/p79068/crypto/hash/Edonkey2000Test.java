@@ -1,11 +1,19 @@
 package p79068.crypto.hash;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Test;
 import p79068.crypto.CryptoUtils;
 import p79068.hash.HashFunction;
 import p79068.hash.HashValue;
 import p79068.hash.Hasher;
+import p79068.util.random.Random;
 
 
 public final class Edonkey2000Test extends CryptoHashFunctionTest {
@@ -47,6 +55,45 @@ public final class Edonkey2000Test extends CryptoHashFunctionTest {
 	}
 	
 	
+	@Test public void testParallelArray() {
+		int[] lengths = {0, 89, BLOCK_LENGTH - 1, BLOCK_LENGTH, BLOCK_LENGTH + 1, 2 * BLOCK_LENGTH - 31, 2 * BLOCK_LENGTH, 2 * BLOCK_LENGTH + 25, 3 * BLOCK_LENGTH + 7};
+		byte[] b = new byte[lengths[lengths.length - 1] + 10];
+		Random.DEFAULT.uniformBytes(b);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (Edonkey2000 hf : new Edonkey2000[]{Edonkey2000.ED2K_FUNCTION, Edonkey2000.NEW_ED2K_FUNCTION}) {
+				for (int len : lengths) {
+					assertEquals(hf.getHash(b, 0, len), hf.getHash(b, 0, len, pool));
+					assertEquals(hf.getHash(b, 10, len), hf.getHash(b, 10, len, pool));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	@Test public void testParallelFile() throws IOException {
+		byte[] b = new byte[2 * BLOCK_LENGTH + 100];
+		Random.DEFAULT.uniformBytes(b);
+		Path file = Files.createTempFile("ed2k", null);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Files.write(file, b);
+			for (Edonkey2000 hf : new Edonkey2000[]{Edonkey2000.ED2K_FUNCTION, Edonkey2000.NEW_ED2K_FUNCTION}) {
+				assertEquals(hf.getHash(b), hf.getHash(file, pool));
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					assertEquals(hf.getHash(b, 100, 2 * BLOCK_LENGTH), hf.getHash(channel, 100, 2 * BLOCK_LENGTH, pool));
+					assertEquals(hf.getHash(b, 3, BLOCK_LENGTH), hf.getHash(channel, 3, BLOCK_LENGTH, pool));
+				}
+			}
+		} finally {
+			pool.shutdown();
+			Files.delete(file);
+		}
+	}
+	
+	
 	
 	private static void test(HashFunction hf, int len, String expectedHash) {
 		byte[] actualHash = getHashOfZeros(hf, len).toBytes();
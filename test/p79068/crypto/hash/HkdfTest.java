@@ -0,0 +1,66 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import java.util.Arrays;
+import org.junit.Test;
+import p79068.crypto.CryptoUtils;
+
+
+public final class HkdfTest {
+	
+	// From RFC 5869
+	@Test public void testSha256() {
+		test(Sha.SHA256_FUNCTION,
+			"000102030405060708090a0b0c",
+			"0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b",
+			"f0f1f2f3f4f5f6f7f8f9",
+			"077709362c2e32df0ddc3f0dc47bba6390b6c73bb50f9c3122ec844ad7c2b3e5",
+			"3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865");
+		test(Sha.SHA256_FUNCTION,
+			"",
+			"0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b",
+			"",
+			"19ef24a32c717b167f33a91d6f648bdf96596776afdb6377ac434c1c293ccb04",
+			"8da4e775a563c18f715f802a063c5a31b8a11f5c5ee1879ec3454e5f3c738d2d9d201395faa4b61a96c8");
+	}
+	
+	
+	// From RFC 5869
+	@Test public void testSha1() {
+		test(Sha.SHA1_FUNCTION,
+			"000102030405060708090a0b0c",
+			"0b0b0b0b0b0b0b0b0b0b0b",
+			"f0f1f2f3f4f5f6f7f8f9",
+			"9b6c18c432a7bf8f0e71c8eb88f4b30baa2ba243",
+			"085a01ea1b10f36933068b56efa5ad81a4f14b822f5b091568a9cdd4f155fda2c22e422478d305f3f896");
+	}
+	
+	
+	@Test public void testPrefix() {
+		byte[] prk = new byte[32];
+		byte[] info = CryptoUtils.asciiToBytes("info");
+		byte[] longKey = Hkdf.expand(Sha.SHA256_FUNCTION, prk, info, 255 * 32);
+		for (int len = 0; len < 100; len++)
+			assertArrayEquals(Arrays.copyOf(longKey, len), Hkdf.expand(Sha.SHA256_FUNCTION, prk, info, len));
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testKeyTooLong() {
+		Hkdf.expand(Sha.SHA256_FUNCTION, new byte[32], new byte[0], 255 * 32 + 1);
+	}
+	
+	
+	
+	private static void test(BlockHashFunction hashFunc, String salt, String ikm, String info, String expectedPrk, String expectedOkm) {
+		byte[] slt = CryptoUtils.hexToBytes(salt);
+		byte[] key = CryptoUtils.hexToBytes(ikm);
+		byte[] inf = CryptoUtils.hexToBytes(info);
+		byte[] prk = CryptoUtils.hexToBytes(expectedPrk);
+		byte[] okm = CryptoUtils.hexToBytes(expectedOkm);
+		assertArrayEquals(prk, Hkdf.extract(hashFunc, slt, key));
+		assertArrayEquals(okm, Hkdf.expand(hashFunc, prk, inf, okm.length));
+		assertArrayEquals(okm, Hkdf.deriveKey(hashFunc, slt, key, inf, okm.length));
+	}
+	
+}
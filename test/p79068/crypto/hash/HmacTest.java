@@ -1,9 +1,19 @@
 package p79068.crypto.hash;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import p79068.crypto.CryptoUtils;
 import p79068.hash.HashFunction;
+import p79068.hash.Hasher;
+import p79068.util.random.Random;
 
 
 public final class HmacTest extends CryptoHashFunctionTest {
@@ -133,10 +143,92 @@ public final class HmacTest extends CryptoHashFunctionTest {
 	
 	
 	
+	// The one-shot methods must agree with a hasher, for message lengths around the block boundaries and for hash functions with and without precomputed cores.
+	@Test public void testOneShotVsHasher() {
+		Random r = Random.DEFAULT;
+		BlockHashFunction[] functions = {Md.MD2_FUNCTION, Md.MD5_FUNCTION, Sha.SHA_FUNCTION, Sha.SHA1_FUNCTION, Sha.SHA256_FUNCTION, Sha.SHA512_FUNCTION, Ripemd.RIPEMD160_FUNCTION, Blake2b.BLAKE2B_512_FUNCTION};
+		for (BlockHashFunction hf : functions) {
+			byte[] key = new byte[r.uniformInt(200)];
+			r.uniformBytes(key);
+			Hmac mac = new Hmac(hf, key);
+			for (int len = 0; len < 3 * hf.getBlockLength() + 2; len += 1 + r.uniformInt(9)) {
+				byte[] msg = new byte[len + 5];
+				r.uniformBytes(msg);
+				Hasher hasher = mac.newHasher();
+				hasher.update(msg, 3, len);
+				byte[] expect = hasher.getHash().toBytes();
+				
+				byte[] out = new byte[expect.length + 7];
+				mac.mac(msg, 3, len, out, 7);
+				assertArrayEquals(expect, Arrays.copyOfRange(out, 7, out.length));
+				assertTrue(mac.verify(msg, 3, len, out, 7));
+				out[7 + r.uniformInt(expect.length)] ^= 1 << r.uniformInt(8);
+				assertFalse(mac.verify(msg, 3, len, out, 7));
+			}
+		}
+	}
+	
+	
+	@Test public void testKeyCache() {
+		HmacKeyCache cache = new HmacKeyCache(Sha.SHA256_FUNCTION, 8);
+		byte[][] keys = new byte[50][];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = CryptoUtils.asciiToBytes("key " + i);
+		byte[] msg = CryptoUtils.asciiToBytes("message");
+		byte[] out = new byte[32];
+		for (int i = 0; i < 1000; i++) {
+			byte[] key = keys[i * 7 % keys.length];
+			cache.mac(key, msg, 0, msg.length, out, 0);
+			assertArrayEquals(new Hmac(Sha.SHA256_FUNCTION, key).getHash(msg).toBytes(), out);
+			assertTrue(cache.verify(key, msg, 0, msg.length, out, 0));
+			assertFalse(cache.verify(keys[(i * 7 + 1) % keys.length], msg, 0, msg.length, out, 0));
+		}
+		
+		Hmac mac = cache.get(keys[0]);
+		assertSame(mac, cache.get(keys[0].clone()));  // Hit by contents
+		cache.clear();
+		assertTrue(mac != cache.get(keys[0]));
+	}
+	
+	
+	@Test public void testConcurrentMac() throws Exception {
+		HmacKeyCache cache = new HmacKeyCache(Sha.SHA1_FUNCTION, 4);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int seed = t;
+				futures.add(pool.submit(() -> {
+					byte[] out = new byte[20];
+					for (int i = 0; i < 2000; i++) {
+						byte[] key = {(byte)((seed + i) % 6)};
+						byte[] msg = new byte[(seed * 31 + i) % 150];
+						cache.mac(key, msg, 0, msg.length, out, 0);
+						assertArrayEquals(new Hmac(Sha.SHA1_FUNCTION, key).getHash(msg).toBytes(), out);
+					}
+				}));
+			}
+			for (Future<?> f : futures)
+				f.get();
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	
 	private static void test(BlockHashFunction hashFunc, byte[] key, byte[] message, String expectedHash) {
-		byte[] hash0 = new Hmac(hashFunc, key).getHash(message).toBytes();
+		Hmac mac = new Hmac(hashFunc, key);
+		byte[] hash0 = mac.getHash(message).toBytes();
 		byte[] hash1 = CryptoUtils.hexToBytes(expectedHash);
 		assertArrayEquals(hash1, hash0);
+		
+		// Streaming, and verifying a possibly truncated tag
+		Hasher hasher = mac.newHasher();
+		hasher.update(message);
+		assertArrayEquals(hash1, hasher.getHash().toBytes());
+		if (hash1.length == hashFunc.getHashLength())
+			assertTrue(mac.verify(message, 0, message.length, hash1, 0));
 	}
 	
 }
@@ -0,0 +1,115 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+import p79068.backend.Backend;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+import p79068.util.random.Random;
+
+
+public final class JdkDigestHasherTest {
+	
+	private static final BlockHashFunction[] FUNCTIONS = {
+		Md.MD2_FUNCTION,
+		Md.MD5_FUNCTION,
+		Sha.SHA1_FUNCTION,
+		Sha.SHA224_FUNCTION,
+		Sha.SHA256_FUNCTION,
+		Sha.SHA384_FUNCTION,
+		Sha.SHA512_FUNCTION,
+		Sha.SHA512_224_FUNCTION,
+		Sha.SHA512_256_FUNCTION,
+	};
+	
+	
+	// Compares the JDK backend with this library's implementation, updating both in random pieces and cloning along the way.
+	@Test public void testVersusLibraryRandomly() {
+		Random r = Random.DEFAULT;
+		for (BlockHashFunction hf : FUNCTIONS) {
+			for (int i = 0; i < 30; i++) {
+				Hasher expect = newLibraryHasher(hf);
+				Hasher actual = JdkDigestHasher.newInstance(hf);
+				for (int j = r.uniformInt(6); j > 0; j--) {
+					byte[] b = new byte[r.uniformInt(300)];
+					r.uniformBytes(b);
+					int off = r.uniformInt(b.length + 1);
+					int len = r.uniformInt(b.length - off + 1);
+					switch (r.uniformInt(3)) {
+						case 0:
+							expect.update(b, off, len);
+							actual.update(b, off, len);
+							break;
+						case 1:
+							expect.update(b, off, len);
+							ByteBuffer buf = ByteBuffer.allocateDirect(len);
+							buf.put(b, off, len).flip();
+							actual.update(buf);
+							assertEquals(len, buf.position());
+							break;
+						case 2:
+							expect = expect.clone();
+							actual = actual.clone();
+							expect.update((byte)j);
+							actual.update((byte)j);
+							break;
+						default:
+							throw new AssertionError();
+					}
+				}
+				assertEquals(expect.getHash(), actual.getHash());
+				byte[] out = new byte[hf.getHashLength() + 3];
+				actual.getHash(out, 3);
+				assertEquals(expect.getHash(), new HashValue(Arrays.copyOfRange(out, 3, out.length)));
+			}
+		}
+	}
+	
+	
+	@Test public void testCloneIndependence() {
+		for (BlockHashFunction hf : FUNCTIONS) {
+			Hasher h = JdkDigestHasher.newInstance(hf);
+			h.update(new byte[100]);
+			Hasher c = h.clone();
+			c.update((byte)1);
+			h.update((byte)2);
+			Hasher expect = newLibraryHasher(hf);
+			expect.update(new byte[100]);
+			Hasher expectClone = expect.clone();
+			expectClone.update((byte)1);
+			expect.update((byte)2);
+			assertEquals(expect.getHash(), h.getHash());
+			assertEquals(expectClone.getHash(), c.getHash());
+		}
+	}
+	
+	
+	@Test public void testZeroization() {
+		JdkDigestHasher h = JdkDigestHasher.newInstance(Sha.SHA256_FUNCTION);
+		h.update(new byte[200]);
+		h.zeroize();
+		try {
+			h.update((byte)0);
+			fail();
+		} catch (IllegalStateException e) {}  // Pass
+		try {
+			h.zeroize();
+			fail();
+		} catch (IllegalStateException e) {}  // Pass
+	}
+	
+	
+	@Test public void testMd4Unavailable() {
+		// The standard providers have no MD4, so the selection must fall back whatever the calibration would say
+		assertEquals(Backend.LIBRARY, JdkDigestHasher.selectBackend(Md.MD4_FUNCTION, null, Md.MD4_FUNCTION::newLibraryHasher));
+	}
+	
+	
+	private static Hasher newLibraryHasher(BlockHashFunction hf) {
+		return hf instanceof Sha ? ((Sha)hf).newLibraryHasher() : ((Md)hf).newLibraryHasher();
+	}
+	
+}
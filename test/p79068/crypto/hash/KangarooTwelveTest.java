@@ -0,0 +1,118 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+import p79068.util.random.Random;
+
+
+public final class KangarooTwelveTest extends CryptoHashFunctionTest {
+	
+	protected HashFunction[] getHashFunctionsToTest() {
+		return new HashFunction[] {
+			KangarooTwelve.FUNCTION,
+			new KangarooTwelve(64, "Custom".getBytes()),
+		};
+	}
+	
+	
+	
+	// Test vectors from RFC 9861, with messages of 17^i bytes of the repeating pattern 00 01 ... FA.
+	@Test public void testPatternMessages() {
+		test(0, "1AC2D450FC3B4205D19DA7BFCA1B37513C0803577AC7167F06FE2CE1F0EF39E5");
+		test(17, "6BF75FA2239198DB4772E36478F8E19B0F371205F6A9A93A273F51DF37122888");
+		test(17 * 17, "0C315EBCDEDBF61426DE7DCF8FB725D1E74675D7F5327A5067F367B108ECB67C");
+		test(17 * 17 * 17, "CB552E2EC77D9910701D578B457DDF772C12E322E4EE7FE417F92C758F0D59D0");
+		test(17 * 17 * 17 * 17, "8701045E22205345FF4DDA05555CBB5C3AF1A771C2B89BAEF37DB43D9998B9FE");
+		test(17 * 17 * 17 * 17 * 17, "844D610933B1B9963CBDEB5AE3B6B05CC7CBD67CEEDF883EB678A0A8E0371682");
+		test(17 * 17 * 17 * 17 * 17 * 17, "3C390782A8A4E89FA6367F72FEAAF13255C8D95878481D3CD8CE85F58E880AF8");
+	}
+	
+	
+	@Test public void testCustomization() {
+		assertEquals(new HashValue("FAB658DB63E94A246188BF7AF69A133045F46EE984C56E3C3328CAAF1AA1A583"),
+			new KangarooTwelve(32, pattern(1)).getHash(new byte[0]));
+		assertEquals(new HashValue("D848C5068CED736F4462159B9867FD4C20B808ACC3D5BC48E0B06BA0A3762EC4"),
+			new KangarooTwelve(32, pattern(41)).getHash(new byte[]{(byte)0xFF}));
+	}
+	
+	
+	@Test public void testLongOutput() {
+		XofHasher hasher = KangarooTwelve.FUNCTION.newHasher();
+		byte[] out = new byte[10032];
+		hasher.squeeze(out, 0, out.length);
+		assertEquals(new HashValue("E8DC563642F7228C84684C898405D3A834799158C079B12880277A1D28E2FF6D"), new HashValue(Arrays.copyOfRange(out, 10000, 10032)));
+		assertArrayEquals(Arrays.copyOf(out, 32), KangarooTwelve.FUNCTION.getHash(new byte[0]).toBytes());
+	}
+	
+	
+	// Hashing in small random pieces (one leaf at a time), in one call (several leaves at a time), and on a pool must agree, for lengths around the chunk boundaries.
+	@Test public void testLeafHashingEquivalence() {
+		Random r = Random.DEFAULT;
+		byte[] b = new byte[20 * KangarooTwelve.CHUNK_LENGTH + 100];
+		r.uniformBytes(b);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int i = 0; i < 40; i++) {
+				int chunks = r.uniformInt(20);
+				int len = Math.max(chunks * KangarooTwelve.CHUNK_LENGTH + r.uniformInt(5) - 2, 0);
+				int off = r.uniformInt(b.length - len + 1);
+				
+				XofHasher hasher = KangarooTwelve.FUNCTION.newHasher();
+				for (int pos = 0; pos < len; ) {
+					int n = Math.min(r.uniformInt(3000), len - pos);
+					hasher.update(b, off + pos, n);
+					pos += n;
+				}
+				HashValue expect = hasher.getHash();
+				assertEquals(expect, KangarooTwelve.FUNCTION.getHash(b, off, len));
+				assertEquals(expect, KangarooTwelve.FUNCTION.getHash(b, off, len, pool));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	// The interleaved leaf hasher (the Vector API one, if available) must agree with the scalar one, including for partially filled lane groups.
+	@Test public void testLeafHasherVersusScalar() {
+		Random r = Random.DEFAULT;
+		int[][] params = {{168, 12, 8192, 32}, {168, 24, 8, 32}, {136, 24, 1000, 64}, {168, 24, 168, 32}};
+		for (int[] p : params) {
+			int count = r.uniformInt(20) + 1;
+			byte[] b = new byte[count * p[2] + 3];
+			r.uniformBytes(b);
+			byte[] expect = new byte[count * p[3]];
+			byte[] actual = new byte[count * p[3]];
+			new KeccakLeafHasher(p[0], (byte)0x0B, p[1], p[2], p[3]).hashLeaves(b, 3, count, expect, 0);
+			KeccakLeafHasher.newInstance(p[0], (byte)0x0B, p[1], p[2], p[3]).hashLeaves(b, 3, count, actual, 0);
+			assertArrayEquals(expect, actual);
+			
+			Hasher hasher = new KeccakHasher(Shake.SHAKE128_FUNCTION, p[0], (byte)0x0B, p[1]);
+			hasher.update(b, 3 + (count - 1) * p[2], p[2]);
+			byte[] last = new byte[p[3]];
+			((XofHasher)hasher).squeeze(last, 0, last.length);
+			assertArrayEquals(last, Arrays.copyOfRange(expect, (count - 1) * p[3], count * p[3]));
+		}
+	}
+	
+	
+	
+	private static void test(int len, String expectedHash) {
+		assertEquals(new HashValue(expectedHash), KangarooTwelve.FUNCTION.getHash(pattern(len)));
+	}
+	
+	
+	private static byte[] pattern(int len) {
+		byte[] result = new byte[len];
+		for (int i = 0; i < len; i++)
+			result[i] = (byte)(i % 251);
+		return result;
+	}
+	
+}
@@ -1,8 +1,12 @@
 package p79068.crypto.hash;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import org.junit.Test;
 import p79068.hash.HashFunction;
+import p79068.util.random.Random;
 
 
 public final class KeccakTest extends CryptoHashFunctionTest {
@@ -13,6 +17,10 @@ public final class KeccakTest extends CryptoHashFunctionTest {
 			Keccak.KECCAK_256_FUNCTION,
 			Keccak.KECCAK_384_FUNCTION,
 			Keccak.KECCAK_512_FUNCTION,
+			Keccak.SHA3_224_FUNCTION,
+			Keccak.SHA3_256_FUNCTION,
+			Keccak.SHA3_384_FUNCTION,
+			Keccak.SHA3_512_FUNCTION,
 		};
 	}
 	
@@ -120,6 +128,41 @@ public final class KeccakTest extends CryptoHashFunctionTest {
 	}
 	
 	
+	@Test public void testSha3() {
+		testAscii(Keccak.SHA3_224_FUNCTION, new String[][] {
+			{"", "6B4E03423667DBB73B6E15454F0EB1ABD4597F9A1B078E3F5B5A6BC7"},
+			{"The quick brown fox jumps over the lazy dog", "D15DADCEAA4D5D7BB3B48F446421D542E08AD8887305E28D58335795"},
+		});
+		testAscii(Keccak.SHA3_256_FUNCTION, new String[][] {
+			{"", "A7FFC6F8BF1ED76651C14756A061D662F580FF4DE43B49FA82D80A4B80F8434A"},
+			{"The quick brown fox jumps over the lazy dog", "69070DDA01975C8C120C3AADA1B282394E7F032FA9CF32F4CB2259A0897DFC04"},
+		});
+		testAscii(Keccak.SHA3_384_FUNCTION, new String[][] {
+			{"", "0C63A75B845E4F7D01107D852E4C2485C51A50AAAA94FC61995E71BBEE983A2AC3713831264ADB47FB6BD1E058D5F004"},
+			{"The quick brown fox jumps over the lazy dog", "7063465E08A93BCE31CD89D2E3CA8F602498696E253592ED26F07BF7E703CF328581E1471A7BA7AB119B1A9EBDF8BE41"},
+		});
+		testAscii(Keccak.SHA3_512_FUNCTION, new String[][] {
+			{"", "A69F73CCA23A9AC5C8B567DC185A756E97C982164FE25859E0D1DCC1475C80A615B2123AF1F5F94C11E3E9402C3AC558F500199D95B6D3E301758586281DCD26"},
+			{"The quick brown fox jumps over the lazy dog", "01DEDD5DE4EF14642445BA5F5B97C15E47B9AD931326E4B0727CD94CEFC44FFF23F07BF543139939B49128CAF436DC1BDEE54FCB24023A08D9403F9B4BF0D450"},
+		});
+	}
+	
+	
+	// Compares with the JDK's SHA-3 on random messages, whose lengths cross the rate boundaries of all four functions.
+	@Test public void testSha3VersusJdkRandomly() throws NoSuchAlgorithmException {
+		Random r = Random.DEFAULT;
+		Keccak[] funcs = {Keccak.SHA3_224_FUNCTION, Keccak.SHA3_256_FUNCTION, Keccak.SHA3_384_FUNCTION, Keccak.SHA3_512_FUNCTION};
+		for (Keccak hf : funcs) {
+			MessageDigest md = MessageDigest.getInstance(hf.getName());
+			for (int i = 0; i < 100; i++) {
+				byte[] msg = new byte[r.uniformInt(500)];
+				r.uniformBytes(msg);
+				assertArrayEquals(md.digest(msg), hf.getHash(msg).toBytes());
+			}
+		}
+	}
+	
+	
 	
 	private static void testHashFunction(HashFunction func, String[] asciiAnswers, String[] hexAnswers) {
 		assertEquals(ASCII_MESSAGES.length, asciiAnswers.length);
@@ -0,0 +1,86 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+import p79068.util.random.Random;
+
+
+public final class MultiBufferHasherTest {
+	
+	private static final BlockHashFunction[] FUNCTIONS = {Sha.SHA1_FUNCTION, Sha.SHA256_FUNCTION, Md.MD5_FUNCTION};
+	
+	
+	@Test public void testScalarLanes() {
+		testEquivalence(new MultiBufferSha1(), Sha.SHA1_FUNCTION);
+		testEquivalence(new MultiBufferSha256(), Sha.SHA256_FUNCTION);
+		testEquivalence(new MultiBufferMd5(), Md.MD5_FUNCTION);
+	}
+	
+	
+	@Test public void testVectorLanes() {
+		for (BlockHashFunction hf : FUNCTIONS) {
+			MultiBufferHasher mb = MultiBufferHasher.newVectorHasher(hf);
+			if (mb == null)
+				return;  // Vector API unavailable; the scalar fallback is covered by testScalarLanes()
+			testEquivalence(mb, hf);
+		}
+	}
+	
+	
+	// Always passes. Prints result to standard output.
+	@Test public void testLaneSpeed() {
+		System.out.println("Vector API available: " + MultiBufferHasher.isVectorAvailable());
+		byte[][] msgs = new byte[1024][64];
+		for (BlockHashFunction hf : FUNCTIONS) {
+			printSpeed(hf, "one at a time", msgs, null);
+			printSpeed(hf, "scalar lanes", msgs, hf == Md.MD5_FUNCTION ? new MultiBufferMd5() : hf == Sha.SHA1_FUNCTION ? new MultiBufferSha1() : new MultiBufferSha256());
+			MultiBufferHasher mb = MultiBufferHasher.newVectorHasher(hf);
+			if (mb != null)
+				printSpeed(hf, "vector lanes", msgs, mb);
+		}
+	}
+	
+	
+	private static void testEquivalence(MultiBufferHasher mb, HashFunction hf) {
+		Random r = Random.DEFAULT;
+		int n = 100;
+		byte[][] msgs = new byte[n][];
+		int[] offs = new int[n];
+		int[] lens = new int[n];
+		for (int i = 0; i < n; i++) {
+			msgs[i] = new byte[r.uniformInt(300)];
+			r.uniformBytes(msgs[i]);
+			offs[i] = r.uniformInt(msgs[i].length + 1);
+			lens[i] = r.uniformInt(msgs[i].length - offs[i] + 1);
+		}
+		HashValue[] hashes = mb.getHashes(msgs, offs, lens);
+		for (int i = 0; i < n; i++)
+			assertEquals(hf.getHash(msgs[i], offs[i], lens[i]), hashes[i]);
+	}
+	
+	
+	// A null multi-buffer hasher means hashing each message separately. The first passes warm up the JIT compiler, which takes a while for the Vector API.
+	private static void printSpeed(HashFunction hf, String mode, byte[][] msgs, MultiBufferHasher mb) {
+		long time = 0;
+		long bytes = 0;
+		for (int pass = 0; pass < 4; pass++) {
+			time = 0;
+			bytes = 0;
+			do {
+				time -= System.nanoTime();
+				if (mb != null)
+					mb.getHashes(msgs, null, null);
+				else {
+					for (byte[] b : msgs)
+						hf.getHash(b);
+				}
+				time += System.nanoTime();
+				bytes += msgs.length * 64;
+			} while (time < 300000000);
+		}
+		System.out.printf("%s (%s, 64-byte messages): %.1f MiB/s%n", hf.getName(), mode, bytes / (time / 1.0e9) / 1048576);
+	}
+	
+}
@@ -0,0 +1,64 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertEquals;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+import p79068.util.random.Random;
+
+
+public final class ParallelHashTest extends CryptoHashFunctionTest {
+	
+	protected HashFunction[] getHashFunctionsToTest() {
+		return new HashFunction[] {
+			new ParallelHash(Shake.SHAKE128_FUNCTION, 8, 32, new byte[0]),
+			new ParallelHash(Shake.SHAKE256_FUNCTION, 1000, 64, "Custom".getBytes()),
+		};
+	}
+	
+	
+	
+	// Samples from NIST SP 800-185.
+	@Test public void testSamples() {
+		byte[] msg = new HashValue("000102030405060710111213141516172021222324252627").toBytes();
+		assertEquals(new HashValue("BA8DC1D1D979331D3F813603C67F72609AB5E44B94A0B8F9AF46514454A2B4F5"),
+			new ParallelHash(Shake.SHAKE128_FUNCTION, 8, 32, new byte[0]).getHash(msg));
+		assertEquals(new HashValue("FC484DCB3F84DCEEDC353438151BEE58157D6EFED0445A81F165E495795B7206"),
+			new ParallelHash(Shake.SHAKE128_FUNCTION, 8, 32, "Parallel Data".getBytes()).getHash(msg));
+		assertEquals(new HashValue("BC1EF124DA34495E948EAD207DD9842235DA432D2BBC54B4C110E64C451105531B7F2A3E0CE055C02805E7C2DE1FB746AF97A1DD01F43B824E31B87612410429"),
+			new ParallelHash(Shake.SHAKE256_FUNCTION, 8, 64, new byte[0]).getHash(msg));
+		assertEquals(new HashValue("CDF15289B54F6212B4BC270528B49526006DD9B54E2B6ADD1EF6900DDA3963BB33A72491F236969CA8AFAEA29C682D47A393C065B38E29FAE651A2091C833110"),
+			new ParallelHash(Shake.SHAKE256_FUNCTION, 8, 64, "Parallel Data".getBytes()).getHash(msg));
+	}
+	
+	
+	// Hashing in small random pieces, in one call and on a pool must agree.
+	@Test public void testBlockHashingEquivalence() {
+		Random r = Random.DEFAULT;
+		byte[] b = new byte[100000];
+		r.uniformBytes(b);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int i = 0; i < 40; i++) {
+				ParallelHash hf = new ParallelHash(r.uniformInt(2) == 0 ? Shake.SHAKE128_FUNCTION : Shake.SHAKE256_FUNCTION, r.uniformInt(3000) + 1, r.uniformInt(300) + 1, new byte[r.uniformInt(3)]);
+				int len = r.uniformInt(b.length + 1);
+				int off = r.uniformInt(b.length - len + 1);
+				
+				Hasher hasher = hf.newHasher();
+				for (int pos = 0; pos < len; ) {
+					int n = Math.min(r.uniformInt(5000), len - pos);
+					hasher.update(b, off + pos, n);
+					pos += n;
+				}
+				HashValue expect = hasher.getHash();
+				assertEquals(expect, hf.getHash(b, off, len));
+				assertEquals(expect, hf.getHash(b, off, len, pool));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+}
@@ -0,0 +1,65 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import p79068.crypto.CryptoUtils;
+
+
+public final class Pbkdf2Test {
+	
+	@Test public void testSha1() {
+		// From RFC 6070
+		test(Sha.SHA1_FUNCTION, "password", "salt", 1, "0c60c80f961f0e71f3a9b524af6012062fe037a6");
+		test(Sha.SHA1_FUNCTION, "password", "salt", 2, "ea6c014dc72d6f8ccd1ed92ace1d41f0d8de8957");
+		test(Sha.SHA1_FUNCTION, "password", "salt", 4096, "4b007901b765489abead49d926f721d065a429c1");
+		test(Sha.SHA1_FUNCTION, "passwordPASSWORDpassword", "saltSALTsaltSALTsaltSALTsaltSALTsalt", 4096, "3d2eec4fe41c849b80c8d83662c0e44a8b291a964cf2f07038");
+		test(Sha.SHA1_FUNCTION, "pass\0word", "sa\0lt", 4096, "56fa6aa75548099dcc37d7f03425e0c3");
+	}
+	
+	
+	@Test public void testSha256() {
+		// From RFC 7914
+		test(Sha.SHA256_FUNCTION, "passwd", "salt", 1, "55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783");
+		test(Sha.SHA256_FUNCTION, "Password", "NaCl", 80000, "4ddcd8f60b98be21830cee5ef22701f9641a4418d04c0414aeff08876b34ab56a1d425a1225833549adb841b51c9b3176a272bdebba1d078478f62b397f33c8d");
+	}
+	
+	
+	@Test public void testOtherHashFunctions() {
+		test(Sha.SHA512_FUNCTION, "password", "salt", 1000, "afe6c5530785b6cc6b1c6453384731bd5ee432ee549fd42fb6695779ad8a1c5bf59de69c48f774efc4007d5298f9033c0241d5ab69305e7b64eceeb8d834cfec6afdec3c1c23982a121f2d4be008889378a49a0dfb104f0d2856e38f44271cdaf6de4341");
+		test(Md.MD5_FUNCTION, "password", "salt", 1000, "8d189946a32d883622a16ae18af0632f5791d5e7b1abb0ab1757d28ce34056140335105994495f91");
+	}
+	
+	
+	@Test public void testEmptyKey() {
+		assertArrayEquals(new byte[0], Pbkdf2.deriveKey(Sha.SHA256_FUNCTION, new byte[0], new byte[0], 1, 0));
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testZeroIterations() {
+		Pbkdf2.deriveKey(Sha.SHA256_FUNCTION, new byte[0], new byte[0], 0, 32);
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeKeyLength() {
+		Pbkdf2.deriveKey(Sha.SHA256_FUNCTION, new byte[0], new byte[0], 1, -1);
+	}
+	
+	
+	
+	private static void test(BlockHashFunction hashFunc, String password, String salt, int iterations, String expectedKey) {
+		byte[] pass = CryptoUtils.asciiToBytes(password);
+		byte[] slt = CryptoUtils.asciiToBytes(salt);
+		byte[] expected = CryptoUtils.hexToBytes(expectedKey);
+		assertArrayEquals(expected, Pbkdf2.deriveKey(hashFunc, pass, slt, iterations, expected.length));
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertArrayEquals(expected, Pbkdf2.deriveKey(hashFunc, pass, slt, iterations, expected.length, pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+}
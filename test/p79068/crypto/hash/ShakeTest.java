@@ -0,0 +1,112 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import java.util.Arrays;
+import org.junit.Test;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+import p79068.util.random.Random;
+
+
+public final class ShakeTest extends CryptoHashFunctionTest {
+	
+	protected HashFunction[] getHashFunctionsToTest() {
+		return new HashFunction[] {
+			Shake.SHAKE128_FUNCTION,
+			Shake.SHAKE256_FUNCTION,
+		};
+	}
+	
+	
+	
+	@Test public void testShake128() {
+		testAscii(Shake.SHAKE128_FUNCTION, new String[][] {
+			{"", "7F9C2BA4E88F827D616045507605853ED73B8093F6EFBC88EB1A6EACFA66EF26"},
+			{"The quick brown fox jumps over the lazy dog", "F4202E3C5852F9182A0430FD8144F0A74B95E7417ECAE17DB0F8CFEED0E3E66E"},
+		});
+	}
+	
+	
+	@Test public void testShake256() {
+		testAscii(Shake.SHAKE256_FUNCTION, new String[][] {
+			{"", "46B9DD2B0BA88D13233B3FEB743EEB243FCD52EA62B81B82B50C27646ED5762FD75DC4DDD8C0F200CB05019D67B592F6FC821C49479AB48640292EACB3B7C4BE"},
+			{"The quick brown fox jumps over the lazy dog", "2F671343D9B2E1604DC9DCF0753E5FE15C7C64A0D283CBBF722D411A0E36F6CA1D01D1369A23539CD80F7C054B6E5DAF9C962CAD5B8ED5BD11998B40D5734442"},
+		});
+	}
+	
+	
+	// Checks 32 bytes far into the output stream, after dozens of squeezing permutations.
+	@Test public void testLongOutput() {
+		testLongOutput(Shake.SHAKE128_FUNCTION, "4591EC013C3A057A3EB400E3E9B681429F30BCC2867B1EA1DE78FB115B4B6B95");
+		testLongOutput(Shake.SHAKE256_FUNCTION, "F783C3BA6CF27153CCA33A4A4EAAD5D95CD1A242E7DD723BE5264CD1235FB877");
+	}
+	
+	
+	private static void testLongOutput(Shake func, String expectedHex) {
+		XofHasher hasher = func.newHasher();
+		hasher.update("abc".getBytes());
+		byte[] out = new byte[8032];
+		hasher.squeeze(out, 0, out.length);
+		assertEquals(new HashValue(expectedHex), new HashValue(Arrays.copyOfRange(out, 8000, 8032)));
+	}
+	
+	
+	// The hash value is the prefix of the output stream.
+	@Test public void testHashIsOutputPrefix() {
+		Random r = Random.DEFAULT;
+		for (Shake hf : new Shake[]{Shake.SHAKE128_FUNCTION, Shake.SHAKE256_FUNCTION}) {
+			byte[] msg = new byte[r.uniformInt(1000)];
+			r.uniformBytes(msg);
+			XofHasher hasher = hf.newHasher();
+			hasher.update(msg);
+			byte[] out = new byte[hf.getHashLength()];
+			hasher.squeeze(out, 0, out.length);
+			assertArrayEquals(hf.getHash(msg).toBytes(), out);
+		}
+	}
+	
+	
+	// Squeezing in random pieces, with clones along the way, gives the same stream as squeezing at once.
+	@Test public void testSqueezeSplittingEquivalence() {
+		Random r = Random.DEFAULT;
+		for (Shake hf : new Shake[]{Shake.SHAKE128_FUNCTION, Shake.SHAKE256_FUNCTION}) {
+			for (int i = 0; i < 30; i++) {
+				byte[] msg = new byte[r.uniformInt(400)];
+				r.uniformBytes(msg);
+				byte[] expect = new byte[r.uniformInt(1000)];
+				XofHasher hasher = hf.newHasher();
+				hasher.update(msg);
+				hasher.squeeze(expect, 0, expect.length);
+				
+				byte[] actual = new byte[expect.length];
+				hasher = hf.newHasher();
+				hasher.update(msg);
+				for (int off = 0; off < actual.length; ) {
+					int len = r.uniformInt(Math.min(actual.length - off, 200) + 1);
+					hasher.squeeze(actual, off, len);
+					off += len;
+					if (r.uniformInt(4) == 0)
+						hasher = hasher.clone();
+				}
+				assertArrayEquals(expect, actual);
+			}
+		}
+	}
+	
+	
+	@Test public void testUpdateAfterSqueeze() {
+		XofHasher hasher = Shake.SHAKE128_FUNCTION.newHasher();
+		hasher.squeeze(new byte[1], 0, 1);
+		try {
+			hasher.update(new byte[1]);
+			fail();
+		} catch (IllegalStateException e) {}  // Pass
+		try {
+			hasher.getHash();
+			fail();
+		} catch (IllegalStateException e) {}  // Pass
+	}
+	
+}
@@ -0,0 +1,120 @@
+package p79068.crypto.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import p79068.crypto.Zeroizable;
+import p79068.hash.HashFunction;
+import p79068.hash.HashValue;
+import p79068.hash.Hasher;
+
+
+public final class SipHashTest extends CryptoHashFunctionTest {
+	
+	protected HashFunction[] getHashFunctionsToTest() {
+		return new HashFunction[] {
+			new SipHash(KEY),
+			new SipHash(2, 4, 16, KEY),
+			new SipHash(1, 3, 8, KEY),
+			new SipHash(1, 3, 16, KEY),
+		};
+	}
+	
+	
+	private static final byte[] KEY = new byte[16];
+	
+	static {
+		for (int i = 0; i < KEY.length; i++)
+			KEY[i] = (byte)i;
+	}
+	
+	
+	
+	// Each test case is {length, SipHash-2-4, SipHash128-2-4, SipHash-1-3, SipHash128-1-3}, with the key 00 01 ... 0F and the message 00 01 02 ....
+	// The SipHash-2-4 values are from the reference implementation's test vectors. The SipHash-1-3 values were computed with another implementation.
+	@Test public void testVectors() {
+		String[][] testCases = {
+			{"0", "310E0EDD47DB6F72", "A3817F04BA25A8E66DF67214C7550293", "DCC40F055801ACAB", "E77EBCB22788A5BEFD62DB6ADD303001"},
+			{"1", "FD67DC93C539F874", "DA87C1D86B99AF44347659119B22FC45", "93CA577DF39BF4C9", "FC6F370460D3EDA85E0573CC2B2FF063"},
+			{"2", "5A4FA9D909806C0D", "8177228DA4A45DC7FCA38BDEF60AFFE4", "4DD4C74D029BCB82", "75787F090569839B855BC9548C6AEA95"},
+			{"7", "37D1018BF50002AB", "A1F1EBBED8DBC153C0B84AA61FF08239", "4011B19B987D92D3", "1084B923F2AAE0C3A62F2EC80848AB77"},
+			{"8", "6224939A79F5F593", "3B62A9BA6258F5610F83E264F31497B4", "8E9A298D11959036", "AA12FEE1D5E3DAB4724F16AB35F9C799"},
+			{"9", "B0E4A90BDF82009E", "264499060AD9BAABC47F8B02BB6D71ED", "E43D066CB38EA425", "81DDB8042CF33994F4720E0094137C42"},
+			{"15", "E545BE4961CA29A1", "5493E99933B0A8117E08EC0F97CFC3D9", "5699512A6DD820D3", "C17E5505B2BD526C2921CDEC1E7E0109"},
+			{"16", "DB9BC2577FCC2A3F", "6EE2A4CA67B054BBFD3315BF85230577", "668B907D1ADD4FCC", "D0A8D95715518EEBB513B0F83D9E1793"},
+			{"17", "9447BE2CF5E99A69", "473D06E8738DB89854C066C47AE47740", "0CD8DB639068F29C", "234126F93FBB668D975112E8FEBDF7EC"},
+			{"31", "42C341D8FA92D832", "2939B0183223FAFC1723DE4F52C43D35", "BCD1218C1FDD7023", "42EA961C5B3C858B17C3E550DFA79010"},
+			{"32", "CE7CF2722F512771", "7C3956CA5EEAFC3E363E9D556546EB68", "0DB6A7166C7B1581", "406C44DEE67857B2943160F30C7417D3"},
+			{"33", "E37859F94623F3A7", "77C6077146F01C32B6B69D5F4EA9FFCF", "BFF98F7AE5B9544D", "C5F57BAE1320FCF4B4E868E71D56C66B"},
+			{"47", "EB75095CCD986CD0", "E61C432B720B19D18EC8D84BDC63151B", "FD14518B9C16FB49", "6F1490F540699A3CD4974420ECC92737"},
+			{"63", "724506EB4C328A95", "5150D1772F50834A503E069A973FBD7C", "A8B3BBB76290199D", "4C5800E34EFE426F079F6B0AA75260AD"},
+		};
+		SipHash[] functions = {new SipHash(KEY), new SipHash(2, 4, 16, KEY), new SipHash(1, 3, 8, KEY), new SipHash(1, 3, 16, KEY)};
+		long k0 = 0x0706050403020100L;
+		long k1 = 0x0F0E0D0C0B0A0908L;
+		long[] h128 = new long[2];
+		for (String[] tc : testCases) {
+			byte[] msg = new byte[Integer.parseInt(tc[0])];
+			for (int i = 0; i < msg.length; i++)
+				msg[i] = (byte)i;
+			for (int i = 0; i < functions.length; i++) {
+				HashValue expect = new HashValue(tc[i + 1]);
+				assertEquals(expect, functions[i].getHash(msg));
+				if (functions[i].getHashLength() == 8) {
+					assertEquals(Long.reverseBytes(Long.parseUnsignedLong(tc[i + 1], 16)), functions[i].hash64(msg, 0, msg.length));
+				} else {
+					functions[i].hash128(msg, 0, msg.length, h128);
+					assertArrayEquals(expect.toBytes(), SipHash.toHashValue(h128, 16).toBytes());
+				}
+			}
+			assertEquals(Long.reverseBytes(Long.parseUnsignedLong(tc[1], 16)), SipHash.sipHash24(k0, k1, msg, 0, msg.length));
+			assertEquals(Long.reverseBytes(Long.parseUnsignedLong(tc[3], 16)), SipHash.sipHash13(k0, k1, msg, 0, msg.length));
+		}
+	}
+	
+	
+	@Test public void testOtherRounds() {
+		byte[] msg = new byte[100];
+		SipHash hf = new SipHash(4, 8, 8, KEY);
+		assertEquals("SipHash-4-8", hf.getName());
+		Hasher hasher = hf.newHasher();
+		hasher.update(msg);
+		assertEquals(hf.getHash(msg), hasher.getHash());
+		assertEquals(hf.getHash(msg), SipHash.toHashValue(new long[]{hf.hash64(msg, 0, msg.length)}, 8));
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidKeyLength() {
+		new SipHash(new byte[32]);
+	}
+	
+	
+	@Test(expected=IllegalStateException.class)
+	public void testHash64Of128BitFunction() {
+		new SipHash(2, 4, 16, KEY).hash64(new byte[8], 0, 8);
+	}
+	
+	
+	@Test public void testZeroization() {
+		Hasher h = new SipHash(KEY).newHasher();
+		h.update(new byte[20]);
+		((Zeroizable)h).zeroize();
+		assertNull(h.getHashFunction());
+		try {
+			h.getHash();
+			fail();
+		} catch (IllegalStateException e) {}  // Pass
+		try {
+			h.update(new byte[8], 0, 8);
+			fail();
+		} catch (IllegalStateException e) {}  // Pass
+		try {
+			((Zeroizable)h).zeroize();
+			fail();
+		} catch (IllegalStateException e) {}  // Pass
+	}
+	
+}
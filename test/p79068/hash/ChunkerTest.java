@@ -0,0 +1,250 @@
+package p79068.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import p79068.crypto.hash.Sha;
+import p79068.util.random.Random;
+
+
+public final class ChunkerTest {
+	
+	private static Chunker[] getChunkersToTest() {
+		return new Chunker[] {
+			new GearChunker(2048, 8192, 65536),
+			new RabinChunker(2048, 8192, 65536),
+			new GearChunker(1, 64, 1024),
+			new RabinChunker(1, 64, 1024),
+		};
+	}
+	
+	
+	@Test public void testChunkLengths() {
+		byte[] data = new byte[4 << 20];
+		Random.DEFAULT.uniformBytes(data);
+		for (Chunker ch : getChunkersToTest()) {
+			int[] lengths = chunk(ch, data);
+			long sum = 0;
+			for (int i = 0; i < lengths.length; i++) {
+				if (i < lengths.length - 1)
+					assertTrue(lengths[i] > ch.getMinLength());
+				assertTrue(lengths[i] > 0 && lengths[i] <= ch.getMaxLength());
+				sum += lengths[i];
+			}
+			assertEquals(data.length, sum);
+			double average = (double)data.length / lengths.length;
+			assertTrue(average > ch.getAverageLength() / 2 && average < ch.getAverageLength() * 2);
+		}
+	}
+	
+	
+	@Test public void testConstantData() {
+		byte[] data = new byte[1 << 20];
+		for (Chunker ch : getChunkersToTest()) {
+			int[] lengths = chunk(ch, data);
+			long sum = 0;
+			for (int len : lengths) {
+				assertTrue(len <= ch.getMaxLength());
+				sum += len;
+			}
+			assertEquals(data.length, sum);
+		}
+	}
+	
+	
+	// Inserting bytes changes only the chunks near the insertion
+	@Test public void testResynchronization() {
+		Random r = Random.DEFAULT;
+		byte[] data = new byte[2 << 20];
+		r.uniformBytes(data);
+		byte[] edited = new byte[data.length + 100];
+		int pos = data.length / 2;
+		System.arraycopy(data, 0, edited, 0, pos);
+		for (int i = pos; i < pos + 100; i++)
+			edited[i] = (byte)r.uniformInt(256);
+		System.arraycopy(data, pos, edited, pos + 100, data.length - pos);
+		
+		for (Chunker ch : getChunkersToTest()) {
+			Set<HashValue> original = new HashSet<>(chunkHashes(ch, data));
+			long changed = 0;
+			for (Chunk c : chunkSequentially(ch, Sha.SHA256_FUNCTION, edited, 0, edited.length, 0)) {
+				if (!original.contains(c.getHash()))
+					changed += c.getLength();
+			}
+			// The boundaries resynchronize within about one chunk after the insertion, and no chunk exceeds the maximum length
+			assertTrue(changed <= 100 + 2L * ch.getMaxLength());
+		}
+	}
+	
+	
+	// The rolling fingerprint equals the remainder of the window's polynomial
+	@Test public void testRabinFingerprint() {
+		Random r = Random.DEFAULT;
+		RabinChunker ch = new RabinChunker(64, 64, 64);
+		long poly = ch.getPolynomial();
+		byte[] data = new byte[1000];
+		r.uniformBytes(data);
+		long fp = 0;
+		for (int i = 0; i < data.length; i++) {
+			if (i < RabinChunker.WINDOW_LENGTH)
+				fp = ch.append(fp, data[i] & 0xFF);
+			else
+				fp = ch.slide(fp, data[i - RabinChunker.WINDOW_LENGTH] & 0xFF, data[i] & 0xFF);
+			
+			long expect = 0;
+			for (int j = Math.max(i + 1 - RabinChunker.WINDOW_LENGTH, 0); j <= i; j++) {
+				for (int k = 7; k >= 0; k--) {
+					expect = expect << 1 | (data[j] >>> k & 1);
+					if ((expect >>> 53 & 1) != 0)
+						expect ^= poly;
+				}
+			}
+			assertEquals(expect, fp);
+		}
+	}
+	
+	
+	@Test public void testPipelineInputStream() throws IOException {
+		byte[] data = new byte[ChunkPipeline.BUFFER_LENGTH * 2 + 12345];
+		Random.DEFAULT.uniformBytes(data);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (Chunker ch : getChunkersToTest()) {
+				List<Chunk> expect = chunkSequentially(ch, Sha.SHA256_FUNCTION, data, 0, data.length, 0);
+				List<Chunk> actual = new ArrayList<>();
+				new ChunkPipeline(ch, Sha.SHA256_FUNCTION, pool).process(new ShortReadInputStream(data), actual::add);
+				assertEquals(expect, actual);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	@Test public void testPipelineFile() throws IOException {
+		byte[] data = new byte[(1 << 20) + 777];
+		Random.DEFAULT.uniformBytes(data);
+		Path file = Files.createTempFile("chunker", ".bin");
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Files.write(file, data);
+			for (Chunker ch : getChunkersToTest()) {
+				ChunkPipeline pipeline = new ChunkPipeline(ch, Crc.CRC32_FUNCTION, pool);
+				List<Chunk> actual = new ArrayList<>();
+				pipeline.process(file, actual::add);
+				assertEquals(chunkSequentially(ch, Crc.CRC32_FUNCTION, data, 0, data.length, 0), actual);
+				
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					actual.clear();
+					pipeline.process(channel, 1000, 500000, actual::add);
+					assertEquals(chunkSequentially(ch, Crc.CRC32_FUNCTION, data, 1000, 500000, 1000), actual);
+					assertEquals(0, channel.position());
+				}
+			}
+		} finally {
+			pool.shutdown();
+			Files.delete(file);
+		}
+	}
+	
+	
+	@Test public void testPipelineEmpty() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			List<Chunk> actual = new ArrayList<>();
+			new ChunkPipeline(new GearChunker(2048, 8192, 65536), Crc.CRC32_FUNCTION, pool).process(new ByteArrayInputStream(new byte[0]), actual::add);
+			assertEquals(0, actual.size());
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testAverageNotPowerOf2() {
+		new GearChunker(1000, 3000, 10000);
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testMinAboveAverage() {
+		new RabinChunker(10000, 8192, 65536);
+	}
+	
+	
+	
+	private static int[] chunk(Chunker ch, byte[] data) {
+		List<Integer> result = new ArrayList<>();
+		for (int off = 0; off < data.length; ) {
+			int n = ch.nextChunkLength(data, off, data.length - off);
+			result.add(n);
+			off += n;
+		}
+		return result.stream().mapToInt(Integer::intValue).toArray();
+	}
+	
+	
+	private static List<HashValue> chunkHashes(Chunker ch, byte[] data) {
+		List<HashValue> result = new ArrayList<>();
+		for (Chunk c : chunkSequentially(ch, Sha.SHA256_FUNCTION, data, 0, data.length, 0))
+			result.add(c.getHash());
+		return result;
+	}
+	
+	
+	private static List<Chunk> chunkSequentially(Chunker ch, HashFunction hf, byte[] data, int off, int len, long offset) {
+		List<Chunk> result = new ArrayList<>();
+		for (int i = off, end = off + len; i < end; ) {
+			int n = ch.nextChunkLength(data, i, end - i);
+			result.add(new Chunk(offset + i - off, n, hf.getHash(data, i, n)));
+			i += n;
+		}
+		return result;
+	}
+	
+	
+	
+	// Returns at most a random length below 100000 bytes on each read.
+	private static final class ShortReadInputStream extends InputStream {
+		
+		private final byte[] data;
+		private int position;
+		
+		
+		public ShortReadInputStream(byte[] data) {
+			this.data = data;
+			position = 0;
+		}
+		
+		
+		@Override
+		public int read() {
+			return position < data.length ? data[position++] & 0xFF : -1;
+		}
+		
+		
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (position == data.length)
+				return -1;
+			int n = Math.min(Math.min(len, data.length - position), Random.DEFAULT.uniformInt(100000) + 1);
+			System.arraycopy(data, position, b, off, n);
+			position += n;
+			return n;
+		}
+		
+	}
+	
+}
@@ -2,6 +2,12 @@ package p79068.hash;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Test;
 import p79068.util.random.Random;
 
@@ -9,7 +15,16 @@ import p79068.util.random.Random;
 public final class CrcTest extends HashFunctionTest {
 	
 	protected HashFunction[] getHashFunctionsToTest() {
-		return new HashFunction[] { Crc.CRC32_FUNCTION };
+		return new HashFunction[] {
+			Crc.CRC32_FUNCTION,
+			Crc.CRC32C_FUNCTION,
+			Crc.CRC64_ECMA_FUNCTION,
+			Crc.CRC64_XZ_FUNCTION,
+			Crc.CRC16_CCITT_FUNCTION,
+			Crc.CRC24_OPENPGP_FUNCTION,
+			new Crc("CRC-5/USB", 5, 0x25L, true, true, 0x1F, 0x1F),
+			new Crc("CRC-7/MMC", 7, 0x89L, false, false, 0, 0),
+		};
 	}
 	
 	
@@ -25,6 +40,120 @@ public final class CrcTest extends HashFunctionTest {
 	}
 	
 	
+	@Test public void testCatalogue() {
+		testAscii(Crc.CRC32C_FUNCTION, "123456789", "E3069283");
+		testAscii(Crc.CRC64_ECMA_FUNCTION, "123456789", "6C40DF5F0B497347");
+		testAscii(Crc.CRC64_XZ_FUNCTION, "123456789", "995DC9BBDF1939FA");
+		testAscii(Crc.CRC16_CCITT_FUNCTION, "123456789", "2189");
+		testAscii(Crc.CRC24_OPENPGP_FUNCTION, "123456789", "21CF02");
+		testAscii(new Crc("CRC-16/RIELLO", 16, 0x11021L, true, true, 0xB2AA, 0), "123456789", "63D0");
+		testAscii(new Crc("CRC-32/BZIP2", 32, 0x104C11DB7L, false, false, 0xFFFFFFFFL, 0xFFFFFFFFL), "123456789", "FC891918");
+		testAscii(new Crc("CRC-40/GSM", 40, 0x10004820009L, false, false, 0, 0xFFFFFFFFFFL), "123456789", "D4164FC646");
+		testAscii(Crc.CRC32C_FUNCTION, "The quick brown fox jumps over the lazy dog", "22620404");
+	}
+	
+	
+	// Compares the table-driven engine with bit-at-a-time polynomial division for random parameters of every degree
+	@Test public void testVersusBitwiseRandomly() {
+		Random r = Random.DEFAULT;
+		for (int deg = 1; deg <= 64; deg++) {
+			long mask = deg < 64 ? (1L << deg) - 1 : -1;
+			for (int i = 0; i < 20; i++) {
+				long poly = (r.uniformLong() & mask) | 1;
+				if (deg < 64)
+					poly |= 1L << deg;
+				boolean revIn = r.uniformInt(2) != 0;
+				boolean revOut = r.uniformInt(2) != 0;
+				long xorIn = r.uniformLong() & mask;
+				long xorOut = r.uniformLong() & mask;
+				Crc hf = new Crc("CRC", deg, poly, revIn, revOut, xorIn, xorOut);
+				byte[] msg = new byte[r.uniformInt(100)];
+				r.uniformBytes(msg);
+				int off = r.uniformInt(msg.length + 1);
+				
+				long reg = xorIn;
+				for (int j = off; j < msg.length; j++) {
+					for (int k = 0; k < 8; k++) {
+						int bit = revIn ? (msg[j] >>> k) & 1 : (msg[j] >>> (7 - k)) & 1;
+						long top = (reg >>> (deg - 1)) & 1;
+						reg = (reg << 1) & mask;
+						if ((top ^ bit) != 0)
+							reg ^= poly & mask;
+					}
+				}
+				reg ^= xorOut;
+				if (revOut)
+					reg = Long.reverse(reg) >>> (64 - deg);
+				byte[] expect = new byte[(deg + 7) / 8];
+				for (int j = 0; j < expect.length; j++)
+					expect[expect.length - 1 - j] = (byte)(reg >>> (j * 8));
+				assertEquals(new HashValue(expect), hf.getHash(msg, off, msg.length - off));
+			}
+		}
+	}
+	
+	
+	@Test public void testCombineRandomly() {
+		Random r = Random.DEFAULT;
+		for (int deg = 1; deg <= 64; deg++) {
+			long mask = deg < 64 ? (1L << deg) - 1 : -1;
+			for (int i = 0; i < 10; i++) {
+				long poly = (r.uniformLong() & mask) | 1;
+				if (deg < 64)
+					poly |= 1L << deg;
+				Crc hf = new Crc("CRC", deg, poly, r.uniformInt(2) != 0, r.uniformInt(2) != 0, r.uniformLong() & mask, r.uniformLong() & mask);
+				byte[] msg = new byte[r.uniformInt(3000)];
+				r.uniformBytes(msg);
+				int split = r.uniformInt(msg.length + 1);
+				HashValue a = hf.getHash(msg, 0, split);
+				HashValue b = hf.getHash(msg, split, msg.length - split);
+				assertEquals(hf.getHash(msg), hf.combine(a, b, msg.length - split));
+			}
+		}
+	}
+	
+	
+	@Test public void testParallelArray() {
+		Crc[] hfs = {Crc.CRC32_FUNCTION, Crc.CRC64_ECMA_FUNCTION, Crc.CRC24_OPENPGP_FUNCTION, new Crc("CRC-5/USB", 5, 0x25L, true, true, 0x1F, 0x1F)};
+		Random r = Random.DEFAULT;
+		byte[] msg = new byte[20 << 20];
+		r.uniformBytes(msg);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (Crc hf : hfs) {
+				for (int i = 0; i < 5; i++) {
+					int off = r.uniformInt(1000);
+					int len = r.uniformInt(msg.length - off + 1);
+					assertEquals(hf.getHash(msg, off, len), hf.getHash(msg, off, len, pool));
+				}
+				assertEquals(hf.getHash(msg, 0, 0), hf.getHash(msg, 0, 0, pool));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	@Test public void testParallelFile() throws IOException {
+		byte[] msg = new byte[(3 << 20) + 77];
+		Random.DEFAULT.uniformBytes(msg);
+		Path file = Files.createTempFile("crc", null);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Files.write(file, msg);
+			for (Crc hf : new Crc[]{Crc.CRC32_FUNCTION, Crc.CRC32C_FUNCTION}) {
+				assertEquals(hf.getHash(msg), hf.getHash(file, pool));
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					assertEquals(hf.getHash(msg, 5, msg.length - 10), hf.getHash(channel, 5, msg.length - 10, pool));
+				}
+			}
+		} finally {
+			pool.shutdown();
+			Files.delete(file);
+		}
+	}
+	
+	
 	// Using the prefix 0xFFFFFFFF creates a zero register. Any number of zeros appended directly after this has no effect on the CRC.
 	@Test public void testCrc32ZeroPadding() {
 		HashFunction hf = Crc.CRC32_FUNCTION;
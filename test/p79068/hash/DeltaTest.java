@@ -0,0 +1,276 @@
+package p79068.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import p79068.crypto.hash.Md;
+import p79068.crypto.hash.Sha;
+import p79068.util.random.Random;
+
+
+public final class DeltaTest {
+	
+	private static final HashFunction[] STRONG_FUNCTIONS = {Md.MD4_FUNCTION, Md.MD5_FUNCTION, Sha.SHA256_FUNCTION};
+	
+	
+	@Test public void testRollingAdler32() {
+		byte[] data = new byte[3000];
+		Random.DEFAULT.uniformBytes(data);
+		for (int n : new int[]{1, 5, 64, 1000}) {
+			RollingChecksum rc = new RollingChecksum(RollingChecksum.Variant.ADLER32);
+			rc.reset(data, 0, n);
+			for (int i = 0; ; i++) {
+				assertEquals(toInt(Adler32.FUNCTION.getHash(data, i, n)), rc.getValue());
+				if (i + n == data.length)
+					break;
+				rc.roll(data[i], data[i + n]);
+			}
+		}
+	}
+	
+	
+	@Test public void testRollingRsync() {
+		byte[] data = new byte[3000];
+		Random.DEFAULT.uniformBytes(data);
+		for (int n : new int[]{1, 5, 64, 1000}) {
+			RollingChecksum rc = new RollingChecksum(RollingChecksum.Variant.RSYNC);
+			rc.reset(data, 0, n);
+			for (int i = 0; ; i++) {
+				assertEquals(rsyncChecksum1(data, i, n), rc.getValue());
+				assertEquals(rsyncChecksum1(data, i, n), RollingChecksum.checksum(RollingChecksum.Variant.RSYNC, data, i, n));
+				if (i + n == data.length)
+					break;
+				rc.roll(data[i], data[i + n]);
+			}
+		}
+	}
+	
+	
+	@Test public void testRoundTrip() throws IOException {
+		Random r = Random.DEFAULT;
+		for (RollingChecksum.Variant variant : RollingChecksum.Variant.values()) {
+			for (HashFunction strong : STRONG_FUNCTIONS) {
+				for (int trial = 0; trial < 10; trial++) {
+					byte[] basis = new byte[r.uniformInt(200000)];
+					r.uniformBytes(basis);
+					byte[] target = edit(basis, r);
+					int blockLen = r.uniformInt(2000) + 1;
+					BlockSignature sig = new BlockSignature(basis, 0, basis.length, blockLen, strong, variant);
+					assertEquals(basis.length, sig.getLength());
+					assertEquals((basis.length + blockLen - 1) / blockLen, sig.getBlockCount());
+					
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					Delta.diff(sig, target, 0, target.length, Delta.newPatcher(basis, out));
+					assertArrayEquals(target, out.toByteArray());
+				}
+			}
+		}
+	}
+	
+	
+	@Test public void testIdentical() throws IOException {
+		byte[] data = new byte[100000];
+		Random.DEFAULT.uniformBytes(data);
+		for (int blockLen : new int[]{700, 1000, 100000, 200000}) {
+			BlockSignature sig = new BlockSignature(data, 0, data.length, blockLen, Md.MD5_FUNCTION, RollingChecksum.Variant.RSYNC);
+			List<String> script = new ArrayList<>();
+			Delta.diff(sig, data, 0, data.length, new ScriptRecorder(script));
+			assertEquals(Arrays.asList("copy 0 100000"), script);
+		}
+	}
+	
+	
+	@Test public void testSmallEdit() throws IOException {
+		byte[] basis = new byte[1 << 20];
+		Random.DEFAULT.uniformBytes(basis);
+		byte[] target = basis.clone();
+		target[500000] ^= 1;
+		BlockSignature sig = new BlockSignature(basis, 0, basis.length, 1024, Sha.SHA256_FUNCTION, RollingChecksum.Variant.ADLER32);
+		List<String> script = new ArrayList<>();
+		Delta.diff(sig, target, 0, target.length, new ScriptRecorder(script));
+		assertEquals(Arrays.asList("copy 0 499712", "literal 1024", "copy 500736 547840"), script);
+	}
+	
+	
+	@Test public void testRepeatedBlocks() throws IOException {
+		byte[] basis = new byte[10000];  // All zeros, so every block has the same checksums
+		byte[] target = new byte[20000];
+		BlockSignature sig = new BlockSignature(basis, 0, basis.length, 1000, Md.MD5_FUNCTION, RollingChecksum.Variant.RSYNC);
+		List<String> script = new ArrayList<>();
+		Delta.diff(sig, target, 0, target.length, new ScriptRecorder(script));
+		assertEquals(Arrays.asList("copy 0 10000", "copy 0 10000"), script);
+	}
+	
+	
+	@Test(timeout=20000) public void testLargeZeroBasis() throws IOException {
+		// Every block has the same checksums, which must not make the signature quadratic in the block count
+		byte[] basis = new byte[128 << 20];
+		BlockSignature sig = new BlockSignature(basis, 0, basis.length, 1024, Md.MD5_FUNCTION, RollingChecksum.Variant.ADLER32);
+		assertEquals(128 << 10, sig.getBlockCount());
+		byte[] target = new byte[1 << 20];
+		target[300000] = 1;
+		List<String> script = new ArrayList<>();
+		Delta.diff(sig, target, 0, target.length, new ScriptRecorder(script));
+		assertEquals(Arrays.asList("copy 0 299008", "literal 993", "copy 0 748544", "literal 31"), script);
+	}
+	
+	
+	@Test public void testStreamMatchesArray() throws IOException {
+		Random r = Random.DEFAULT;
+		byte[] basis = new byte[3 << 20];
+		r.uniformBytes(basis);
+		byte[] target = edit(basis, r);
+		for (int blockLen : new int[]{700, 4096}) {
+			BlockSignature sig = new BlockSignature(basis, 0, basis.length, blockLen, Md.MD4_FUNCTION, RollingChecksum.Variant.ADLER32);
+			BlockSignature streamSig = new BlockSignature(new ByteArrayInputStream(basis), blockLen, Md.MD4_FUNCTION, RollingChecksum.Variant.ADLER32);
+			assertEquals(sig.getBlockCount(), streamSig.getBlockCount());
+			for (int i = 0; i < sig.getBlockCount(); i++) {
+				assertEquals(sig.getWeakSum(i), streamSig.getWeakSum(i));
+				assertEquals(sig.getStrongSum(i), streamSig.getStrongSum(i));
+			}
+			
+			List<String> expect = new ArrayList<>();
+			Delta.diff(sig, target, 0, target.length, new ScriptRecorder(expect));
+			List<String> actual = new ArrayList<>();
+			Delta.diff(streamSig, new ByteArrayInputStream(target), new ScriptRecorder(actual));
+			assertEquals(merge(expect), merge(actual));
+		}
+	}
+	
+	
+	@Test public void testChannelPatcher() throws IOException {
+		Random r = Random.DEFAULT;
+		byte[] basis = new byte[300000];
+		r.uniformBytes(basis);
+		byte[] target = edit(basis, r);
+		Path file = Files.createTempFile("delta", ".bin");
+		try {
+			Files.write(file, basis);
+			BlockSignature sig = new BlockSignature(basis, 0, basis.length, 512, Md.MD5_FUNCTION, RollingChecksum.Variant.RSYNC);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				Delta.diff(sig, new ByteArrayInputStream(target), Delta.newPatcher(channel, out));
+			}
+			assertArrayEquals(target, out.toByteArray());
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	
+	@Test public void testEmptyBasis() throws IOException {
+		byte[] target = new byte[5000];
+		Random.DEFAULT.uniformBytes(target);
+		BlockSignature sig = new BlockSignature(new byte[0], 0, 0, 1000, Md.MD5_FUNCTION, RollingChecksum.Variant.ADLER32);
+		assertEquals(0, sig.getBlockCount());
+		List<String> script = new ArrayList<>();
+		Delta.diff(sig, target, 0, target.length, new ScriptRecorder(script));
+		assertEquals(Arrays.asList("literal 5000"), script);
+	}
+	
+	
+	
+	// Returns a copy of the data with a few random insertions, deletions and replacements.
+	private static byte[] edit(byte[] data, Random r) {
+		byte[] result = data.clone();
+		for (int i = 0; i < 5; i++) {
+			int pos = r.uniformInt(result.length + 1);
+			int n = r.uniformInt(3000);
+			byte[] next;
+			switch (r.uniformInt(3)) {
+				case 0:  // Insert
+					next = new byte[result.length + n];
+					System.arraycopy(result, 0, next, 0, pos);
+					for (int j = pos; j < pos + n; j++)
+						next[j] = (byte)r.uniformInt(256);
+					System.arraycopy(result, pos, next, pos + n, result.length - pos);
+					break;
+				case 1:  // Delete
+					n = Math.min(n, result.length - pos);
+					next = new byte[result.length - n];
+					System.arraycopy(result, 0, next, 0, pos);
+					System.arraycopy(result, pos + n, next, pos, result.length - pos - n);
+					break;
+				default:  // Replace
+					next = result;
+					for (int j = pos; j < Math.min(pos + n, result.length); j++)
+						next[j] = (byte)r.uniformInt(256);
+					break;
+			}
+			result = next;
+		}
+		return result;
+	}
+	
+	
+	// Concatenates adjacent literals, because stream diffs split literals at buffer boundaries.
+	private static List<String> merge(List<String> script) {
+		List<String> result = new ArrayList<>();
+		for (String op : script) {
+			int last = result.size() - 1;
+			if (op.startsWith("literal ") && last >= 0 && result.get(last).startsWith("literal ")) {
+				long n = Long.parseLong(result.get(last).substring(8)) + Long.parseLong(op.substring(8));
+				result.set(last, "literal " + n);
+			} else
+				result.add(op);
+		}
+		return result;
+	}
+	
+	
+	private static int toInt(HashValue hash) {
+		byte[] b = hash.toBytes();
+		return (b[0] & 0xFF) << 24 | (b[1] & 0xFF) << 16 | (b[2] & 0xFF) << 8 | (b[3] & 0xFF);
+	}
+	
+	
+	// A direct port of rsync's get_checksum1() with CHAR_OFFSET 0.
+	private static int rsyncChecksum1(byte[] buf, int off, int len) {
+		int s1 = 0;
+		int s2 = 0;
+		int i;
+		for (i = 0; i < len - 4; i += 4) {
+			s2 += 4 * (s1 + buf[off + i]) + 3 * buf[off + i + 1] + 2 * buf[off + i + 2] + buf[off + i + 3];
+			s1 += buf[off + i] + buf[off + i + 1] + buf[off + i + 2] + buf[off + i + 3];
+		}
+		for (; i < len; i++) {
+			s1 += buf[off + i];
+			s2 += s1;
+		}
+		return (s1 & 0xFFFF) + (s2 << 16);
+	}
+	
+	
+	
+	private static final class ScriptRecorder implements DeltaSink {
+		
+		private final List<String> script;
+		
+		
+		public ScriptRecorder(List<String> script) {
+			this.script = script;
+		}
+		
+		
+		public void copy(long offset, long length) {
+			script.add("copy " + offset + " " + length);
+		}
+		
+		
+		public void literal(byte[] b, int off, int len) {
+			script.add("literal " + len);
+		}
+		
+	}
+	
+}
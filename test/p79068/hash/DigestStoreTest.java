@@ -0,0 +1,229 @@
+package p79068.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.junit.Test;
+import p79068.util.random.Random;
+
+
+public final class DigestStoreTest {
+	
+	@Test public void testSetRoundTrip() throws IOException {
+		for (int runLength : new int[]{100, 1000, 100000}) {
+			Path dir = Files.createTempDirectory("digeststore");
+			try {
+				List<byte[]> digests = randomDigests(5000, 32);
+				for (int i = 0; i < 500; i++)  // Duplicates
+					digests.add(digests.get(Random.DEFAULT.uniformInt(digests.size())).clone());
+				TreeMap<HashValue,Long> expect = new TreeMap<>();
+				DigestStore store;
+				try (DigestStoreWriter writer = new DigestStoreWriter(dir.resolve("set"), 32, false, runLength)) {
+					for (byte[] d : digests) {
+						writer.add(d, 0);
+						expect.put(new HashValue(d), 0L);
+					}
+					store = writer.finish();
+				}
+				assertEquals(expect, contents(store));
+				for (byte[] d : digests)
+					assertTrue(store.contains(d, 0));
+				for (byte[] d : randomDigests(1000, 32))
+					assertEquals(expect.containsKey(new HashValue(d)), store.contains(new HashValue(d)));
+				assertFalse(store.contains(new HashValue(new byte[20])));
+				try (Stream<Path> files = Files.list(dir)) {
+					assertEquals(1, files.count());  // The runs are deleted
+				}
+			} finally {
+				deleteTree(dir);
+			}
+		}
+	}
+	
+	
+	@Test public void testMapLastValueWins() throws IOException {
+		Path dir = Files.createTempDirectory("digeststore");
+		try {
+			List<byte[]> digests = randomDigests(300, 20);
+			TreeMap<HashValue,Long> expect = new TreeMap<>();
+			DigestStore store;
+			try (DigestStoreWriter writer = new DigestStoreWriter(dir.resolve("map"), 20, true, 100)) {
+				for (int i = 0; i < 2000; i++) {
+					byte[] d = digests.get(Random.DEFAULT.uniformInt(digests.size()));
+					writer.add(new HashValue(d), i);
+					expect.put(new HashValue(d), (long)i);
+				}
+				store = writer.finish();
+			}
+			assertTrue(store.hasValues());
+			assertEquals(expect, contents(store));
+			for (Map.Entry<HashValue,Long> e : expect.entrySet())
+				assertEquals((long)e.getValue(), store.get(e.getKey().toBytes(), 0, -1));
+			assertEquals(-1, store.get(new byte[20], 0, -1));
+		} finally {
+			deleteTree(dir);
+		}
+	}
+	
+	
+	@Test public void testCollidingPrefixes() throws IOException {
+		// Digests that share their leading bytes, and short digests, exercise the full comparisons
+		for (int len : new int[]{1, 3, 8, 12}) {
+			Path dir = Files.createTempDirectory("digeststore");
+			try {
+				List<byte[]> digests = randomDigests(3000, len);
+				for (int i = 0; i < digests.size(); i += 2)
+					Arrays.fill(digests.get(i), 0, len / 2, (byte)0x80);
+				TreeMap<HashValue,Long> expect = new TreeMap<>();
+				DigestStore store;
+				try (DigestStoreWriter writer = new DigestStoreWriter(dir.resolve("store"), len, true, 700)) {
+					for (int i = 0; i < digests.size(); i++) {
+						writer.add(digests.get(i), 0, i);
+						expect.put(new HashValue(digests.get(i)), (long)i);
+					}
+					store = writer.finish();
+				}
+				assertEquals(expect, contents(store));
+				for (HashValue h : expect.keySet())
+					assertTrue(store.contains(h));
+			} finally {
+				deleteTree(dir);
+			}
+		}
+	}
+	
+	
+	@Test public void testIndexOf() throws IOException {
+		Path dir = Files.createTempDirectory("digeststore");
+		try {
+			DigestStore store;
+			try (DigestStoreWriter writer = new DigestStoreWriter(dir.resolve("store"), 2, false)) {
+				for (int x : new int[]{0x5000, 0x1000, 0x3000})
+					writer.add(new byte[]{(byte)(x >>> 8), (byte)x}, 0);
+				store = writer.finish();
+			}
+			assertEquals(3, store.size());
+			assertEquals(0, store.indexOf(new byte[]{0x10, 0}, 0));
+			assertEquals(2, store.indexOf(new byte[]{9, 0x50, 0}, 1));
+			assertEquals(-1, store.indexOf(new byte[]{0, 0}, 0));
+			assertEquals(-3, store.indexOf(new byte[]{0x40, 0}, 0));
+			assertEquals(-4, store.indexOf(new byte[]{(byte)0xFF, 0}, 0));
+			assertEquals(new HashValue("3000"), store.getDigest(1));
+			try {
+				store.getDigest(3);
+				fail();
+			} catch (IndexOutOfBoundsException e) {}  // Pass
+			try {
+				store.getValue(0);
+				fail();
+			} catch (IllegalStateException e) {}  // Pass
+		} finally {
+			deleteTree(dir);
+		}
+	}
+	
+	
+	@Test public void testMerge() throws IOException {
+		Path dir = Files.createTempDirectory("digeststore");
+		try {
+			List<byte[]> digests = randomDigests(1000, 32);
+			TreeMap<HashValue,Long> expect = new TreeMap<>();
+			DigestStore[] stores = new DigestStore[3];
+			for (int i = 0; i < stores.length; i++) {
+				try (DigestStoreWriter writer = new DigestStoreWriter(dir.resolve("part" + i), 32, true)) {
+					for (int j = 0; j < 500; j++) {
+						byte[] d = digests.get(Random.DEFAULT.uniformInt(digests.size()));
+						writer.add(d, 0, i * 1000 + j);
+						expect.put(new HashValue(d), (long)(i * 1000 + j));
+					}
+					stores[i] = writer.finish();
+				}
+			}
+			DigestStore merged = DigestStore.merge(dir.resolve("merged"), stores);
+			assertEquals(expect, contents(merged));
+			
+			try {
+				DigestStore.merge(dir.resolve("part0"), stores);
+				fail();
+			} catch (IllegalArgumentException e) {}  // Pass
+			DigestStore other;
+			try (DigestStoreWriter writer = new DigestStoreWriter(dir.resolve("other"), 32, false)) {
+				other = writer.finish();
+			}
+			assertEquals(0, other.size());
+			assertFalse(other.contains(digests.get(0), 0));
+			try {
+				DigestStore.merge(dir.resolve("bad"), stores[0], other);
+				fail();
+			} catch (IllegalArgumentException e) {}  // Pass
+		} finally {
+			deleteTree(dir);
+		}
+	}
+	
+	
+	@Test public void testInvalidFile() throws IOException {
+		Path file = Files.createTempFile("digeststore", ".bin");
+		try {
+			for (int len : new int[]{0, 10, 100}) {
+				Files.write(file, new byte[len]);
+				try {
+					DigestStore.open(file);
+					fail();
+				} catch (IOException e) {}  // Pass
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	
+	
+	private static List<byte[]> randomDigests(int count, int len) {
+		List<byte[]> result = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			byte[] b = new byte[len];
+			Random.DEFAULT.uniformBytes(b);
+			result.add(b);
+		}
+		return result;
+	}
+	
+	
+	// Returns the store's digests and values, checking that they are in increasing order.
+	private static TreeMap<HashValue,Long> contents(DigestStore store) {
+		TreeMap<HashValue,Long> result = new TreeMap<>();
+		byte[] prev = null;
+		for (long i = 0; i < store.size(); i++) {
+			byte[] d = new byte[store.getDigestLength()];
+			store.getDigest(i, d, 0);
+			if (prev != null)
+				assertTrue(Arrays.compareUnsigned(prev, d) < 0);
+			prev = d;
+			assertEquals(i, store.indexOf(d, 0));
+			result.put(new HashValue(d), store.hasValues() ? store.getValue(i) : 0L);
+		}
+		assertEquals(store.size(), result.size());
+		return result;
+	}
+	
+	
+	private static void deleteTree(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path p : (Iterable<Path>)files::iterator)
+				Files.delete(p);
+		}
+		Files.delete(dir);
+	}
+	
+}
@@ -0,0 +1,204 @@
+package p79068.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import p79068.util.random.Random;
+
+
+public final class FastHashTest extends HashFunctionTest {
+	
+	protected HashFunction[] getHashFunctionsToTest() {
+		return new HashFunction[] {
+			XxHash32.FUNCTION,
+			XxHash64.FUNCTION,
+			Xxh3.XXH3_64_FUNCTION,
+			Xxh3.XXH3_128_FUNCTION,
+			new Xxh3(8, SEED64),
+			MurmurHash3.FUNCTION,
+		};
+	}
+	
+	
+	private static final int SEED32 = 0x9E3779B1;
+	
+	private static final long SEED64 = 0x9E3779B185EBCA8DL;
+	
+	// The buffer of the sanity test in the xxHash reference implementation
+	private static final byte[] SANITY = new byte[4096];
+	
+	static {
+		long gen = SEED32 & 0xFFFFFFFFL;
+		for (int i = 0; i < SANITY.length; i++) {
+			SANITY[i] = (byte)(gen >>> 56);
+			gen *= SEED64;
+		}
+	}
+	
+	
+	
+	// Each test case is {length, hash with seed 0, hash with SEED32}. The values from the reference implementation's sanity test were extended with an independent implementation.
+	@Test public void testXxHash32() {
+		String[][] testCases = {
+			{"0", "02CC5D05", "36B78AE7"},
+			{"1", "CF65B03E", "B4545AA4"},
+			{"4", "A9DE7CE9", "2BAAFE83"},
+			{"14", "1208E7E2", "6AF1D1FE"},
+			{"16", "93BA3759", "A94FC1E1"},
+			{"17", "89FDC23E", "C9910739"},
+			{"222", "5BD11DBD", "58803C5F"},
+			{"1024", "C08E0A35", "1D62EA25"},
+			{"4096", "20FC444F", "102AD417"},
+		};
+		for (String[] tc : testCases) {
+			int len = Integer.parseInt(tc[0]);
+			assertEquals(new HashValue(tc[1]), XxHash32.FUNCTION.getHash(SANITY, 0, len));
+			assertEquals(new HashValue(tc[2]), new XxHash32(SEED32).getHash(SANITY, 0, len));
+			assertEquals((int)Long.parseLong(tc[2], 16), XxHash32.hash32(SANITY, 0, len, SEED32));
+		}
+		testAscii(XxHash32.FUNCTION, "abc", "32D153FF");
+		testAscii(XxHash32.FUNCTION, "Nobody inspects the spammish repetition", "E2293B2F");
+	}
+	
+	
+	// Each test case is {length, hash with seed 0, hash with SEED32}.
+	@Test public void testXxHash64() {
+		String[][] testCases = {
+			{"0", "EF46DB3751D8E999", "AC75FDA2929B17EF"},
+			{"1", "E934A84ADB052768", "5014607643A9B4C3"},
+			{"4", "9136A0DCA57457EE", "CAAB286BD8E9FDB5"},
+			{"8", "CDBCF538E71D1348", "FE0C047A5353CDAC"},
+			{"14", "8282DCC4994E35C8", "C3BD6BF63DEB6DF0"},
+			{"32", "18B216492BB44B70", "B3F33BDF93ADE409"},
+			{"33", "55C8DC3E578F5B59", "E92C292F64BC3071"},
+			{"222", "B641AE8CB691C174", "20CB8AB7AE10C14A"},
+			{"1024", "4775BF7CACE4D177", "238CF9296898B465"},
+			{"4096", "AB77F4AF85F4E70B", "CB8B60CBA513125D"},
+		};
+		for (String[] tc : testCases) {
+			int len = Integer.parseInt(tc[0]);
+			assertEquals(new HashValue(tc[1]), XxHash64.FUNCTION.getHash(SANITY, 0, len));
+			assertEquals(new HashValue(tc[2]), new XxHash64(SEED32 & 0xFFFFFFFFL).getHash(SANITY, 0, len));
+			assertEquals(Long.parseUnsignedLong(tc[2], 16), XxHash64.hash64(SANITY, 0, len, SEED32 & 0xFFFFFFFFL));
+		}
+		testAscii(XxHash64.FUNCTION, "abc", "44BC2CF5AD770999");
+		testAscii(XxHash64.FUNCTION, "Nobody inspects the spammish repetition", "FBCEA83C8A378BF1");
+	}
+	
+	
+	// Each test case is {length, 64-bit hash with seed 0, 64-bit hash with SEED64, 128-bit hash with seed 0, 128-bit hash with SEED64}. The lengths cover every input size class.
+	@Test public void testXxh3() {
+		String[][] testCases = {
+			{"0", "2D06800538D394C2", "A8A6B918B2F0364A", "99AA06D3014798D86001C324468D497F", "00FEAA732A3CE25EA986DFC5D7605BFE"},
+			{"1", "C44BDFF4074EECDB", "032BE332DD766EF8", "A6CD5E9392000F6AC44BDFF4074EECDB", "20E49ABCC53B3842032BE332DD766EF8"},
+			{"3", "54247382A8D6B94D", "634B8990B4976373", "20EFC49FF02422EA54247382A8D6B94D", "1C7ECF6A308CF00E634B8990B4976373"},
+			{"4", "E5DC74BC51848A51", "AA2E7ECCB0C8F747", "970D585AC632BF8E2E7D8D6876A39FE9", "3D53E5DFD837D927BFAF51F1E67E0B0F"},
+			{"6", "27B56A84CD2D7325", "84589C116AB59AB9", "082AFE0B8162D12A3E7039BDDA43CFC6", "014BD95A51CA5DDBC5B54D56038E4E40"},
+			{"8", "24CCC9ACAA9F65E4", "8F973410999B8F6B", "47A7F080D82BB45664C69CAB4BB21DC5", "F50CEC145BCD5C5A7B29471DC729B5FF"},
+			{"9", "14D5001C15DD3F2B", "B3AE7333D9013F60", "564EF6078950D457ED7CCBC501EB7501", "6B380B43FFA61042AEF5DFC0AC9F9044"},
+			{"12", "A713DAF0DFBB77E7", "E7303E1B2336DE0E", "6E3EFD8FC7802B18061A192713F69AD9", "FF0D60ACD02ED4015D92B5D7190B12D1"},
+			{"14", "1AC0BBDA2B9FCF03", "A7F68521581B173F", "B2623398AA0BDA1E352B80797CDA6247", "D335DBFEB5CF45210194C9941B36FDAA"},
+			{"16", "981B17D36C7498C9", "663F29333B4DB6B1", "C68C368ECF8A9C05562980258A998629", "6FFCB80CD33085C80346D13A7A5498C7"},
+			{"17", "796F5ACD3A60F862", "F3EC5067F4306DB3", "955FA78643ED3669ABBC12D11973D7DB", "D77681219E464828980A14119985A7DF"},
+			{"24", "A3FE70BF9D3510EB", "850E80FC35BDD690", "0CE966E4678D37611E7044D28B1B901D", "D7895DED1F62559DC6CBF92A70680B19"},
+			{"32", "9FEADDBDBF57EED3", "2199FAB1534893D9", "98FC6458710DC2E8278410A17595E3F9", "CC587E4FCDB86BC50054E82631CEF166"},
+			{"33", "ABFB2D081B400A10", "AD56348DA574BB6D", "3103C192CEAA2DEDE593BC4E5914C9D1", "21273C8190C645CDC361D36CEA597C31"},
+			{"48", "397DA259ECBA1F11", "ADC2CBAA44ACC616", "A002AC4E5478227EF942219AED80F67B", "BC689F4C0152FB443A94D91333ED395A"},
+			{"64", "9CB48487720EC49D", "4FE8895DB9B8C077", "6D90E81A9B0FD622EFDB6A44690721A9", "37B738968D40BDA59405BA2AFFA95CEB"},
+			{"80", "BCDEFBBB2C47C90A", "C6DD0CB699532E73", "FDF2CEFDE9EAAC8A454AE6BF7A8A532D", "19BF02D69BC56833A5EAC764D1FF1166"},
+			{"81", "7BC96F2EE88DF87D", "BDC37ED9F6EF4B8E", "4952F58181AB00425E8BAFB9F95FB803", "941E9469C46EDD08DC50FEB227515233"},
+			{"96", "935A769A7F94776F", "70CF51937E500540", "D9D0B885F56C93F1E9324473EA9AFEBE", "6F9ED3C2008CB388D61F3AB58705C405"},
+			{"97", "CA4CA268FD3C3A6C", "EE461D3ADD7EE6C9", "09DFF37FAA6B284C7C87228AE9671BA7", "14E68F850B481ADA49EA87F2AFE44F66"},
+			{"128", "FCFF24126754D861", "73FDE75280646649", "39992220E045260AEBB15E34A7FB5AB1", "A0F7CCB68EE02ADD8394F5C51F1D8246"},
+			{"129", "98F1B0A679A2CA29", "21FFFDBCA099C844", "03815FC91F1B30B686C9E3BC8F0A3B5C", "AD559266067C0BF3D4AAE26FCEC7DC03"},
+			{"195", "CD94217EE362EC3A", "BA68003D370CB3D9", "7729543A26B207EE3FB593C086A66075", "0326104C4D4849E7CF9D9EC2C8C9913F"},
+			{"222", "B9163B558664D356", "CD627E7CA214EBFD", "337E09641B948717F1AEBD597CEC6B3A", "4740AF1AE0618B49C5871B3BE4506A30"},
+			{"240", "81C3C2B67F568CCF", "CC0F58C27EF3D8EE", "AA4202DAA2769DC85C9AAE94C8EBE5A0", "29D2133D6EA58C5B604E98DB085C1864"},
+			{"241", "C5A639ECD2030E5E", "DDA9B0A161D4829A", "99A80ECF0ECFC647C5A639ECD2030E5E", "EC64AFAE6A137582DDA9B0A161D4829A"},
+			{"256", "55DE574AD89D0AC5", "4D30234B7A3AA61C", "8B1C66091423D28855DE574AD89D0AC5", "AAA57235B92D5E7C4D30234B7A3AA61C"},
+			{"257", "B17FD5A8AE75BB0B", "802A6FBF3CACD97C", "F15FEE7F9F457599B17FD5A8AE75BB0B", "15C1F9C667C815BA802A6FBF3CACD97C"},
+			{"403", "CDEB804D65C6DEA4", "6259F6ECFD6443FD", "1B6DE21E332DD73DCDEB804D65C6DEA4", "BED311971E0BE8F26259F6ECFD6443FD"},
+			{"512", "617E49599013CB6B", "3CE457DE14C27708", "18D2D110DCC9BCA1617E49599013CB6B", "925D06B8EC5B80403CE457DE14C27708"},
+			{"1024", "DD85C9B5C1109C5C", "EF368A8A2EBABAEF", "0D30D24071C64C57DD85C9B5C1109C5C", "17600EFE2B493A18EF368A8A2EBABAEF"},
+			{"1025", "D870C0FA13211C6A", "96792BCF9AF88519", "FD3EE4FE7F2954C6D870C0FA13211C6A", "2C383949F57BF7E196792BCF9AF88519"},
+			{"2048", "DD59E2C3A5F038E0", "66F81670669ABABC", "F736557FD47073A5DD59E2C3A5F038E0", "23CC3A2E75EBAAEA66F81670669ABABC"},
+			{"2240", "6E73A90539CF2948", "757BA8487D1B5247", "CCB134FBFA7CE49D6E73A90539CF2948", "E40842F585875BA9757BA8487D1B5247"},
+			{"2367", "CB37AEB9E5D361ED", "D2DB3415B942B42A", "E89C0F6FF369B427CB37AEB9E5D361ED", "CCB7A94CCA1A6496D2DB3415B942B42A"},
+			{"4096", "E91206429D1F48F9", "2A3BBB20A5439DCD", "B9CFAEA2CA5626A4E91206429D1F48F9", "8FBC8FD4D526D1BD2A3BBB20A5439DCD"},
+		};
+		long[] h128 = new long[2];
+		for (String[] tc : testCases) {
+			int len = Integer.parseInt(tc[0]);
+			assertEquals(new HashValue(tc[1]), Xxh3.XXH3_64_FUNCTION.getHash(SANITY, 0, len));
+			assertEquals(new HashValue(tc[2]), new Xxh3(8, SEED64).getHash(SANITY, 0, len));
+			assertEquals(new HashValue(tc[3]), Xxh3.XXH3_128_FUNCTION.getHash(SANITY, 0, len));
+			assertEquals(new HashValue(tc[4]), new Xxh3(16, SEED64).getHash(SANITY, 0, len));
+			assertEquals(Long.parseUnsignedLong(tc[2], 16), Xxh3.hash64(SANITY, 0, len, SEED64));
+			Xxh3.hash128(SANITY, 0, len, SEED64, h128);
+			assertEquals(Long.parseUnsignedLong(tc[4].substring(16), 16), h128[0]);
+			assertEquals(Long.parseUnsignedLong(tc[4].substring(0, 16), 16), h128[1]);
+		}
+	}
+	
+	
+	// Each test case is {length, hash with seed 0, hash with seed 0x9747B28C}.
+	@Test public void testMurmurHash3() {
+		String[][] testCases = {
+			{"0", "00000000000000000000000000000000", "B3BBAA1D8A202B397A9502E38F60B093"},
+			{"1", "B55CFF6EE5AB10468335F878AA2D6251", "C030D77D9AF6C902C8946F4E340371F6"},
+			{"8", "7A2CB972C9034F4393E3B15CEEB1EFD9", "E319654837CB26DF39D10B2CC2DA3C46"},
+			{"15", "E6791E86BAF2B5E98639C11233BC874C", "2F3B93B51158887D7736970330098794"},
+			{"16", "F87D3C969A038E48BF198FE33133CE97", "09981F4AF5A1B80DAE32F596D8E851E6"},
+			{"17", "F4550DD50D20A372510481287E97C7A9", "C8978DE3220EAFEB8DCD16995973F0A0"},
+			{"31", "E5E3EFA3AA20C51146697F708212FFD1", "8AB23D1CABCCCFEFC2E7BE72EBF358C2"},
+			{"32", "8545D11ACB2526C585D0FD0805AF4282", "13EEA78B117CDFAD6865E18508AA3B8D"},
+			{"100", "B83303C6AF21C6E6C9FC79F4FB9A7AAC", "AB543825DA6FFC6E42E2BB6EB116B531"},
+			{"1000", "8080B96D460010FAD561A7EA24A074C4", "6D33F916B3683894408BA54BE9D33D07"},
+		};
+		for (String[] tc : testCases) {
+			int len = Integer.parseInt(tc[0]);
+			assertEquals(new HashValue(tc[1]), MurmurHash3.FUNCTION.getHash(SANITY, 0, len));
+			HashValue expect = new HashValue(tc[2]);
+			assertEquals(expect, new MurmurHash3(0x9747B28C).getHash(SANITY, 0, len));
+			assertEquals(Long.reverseBytes(Long.parseUnsignedLong(tc[2].substring(0, 16), 16)), MurmurHash3.hash64(SANITY, 0, len, 0x9747B28C));
+		}
+		testAscii(MurmurHash3.FUNCTION, "The quick brown fox jumps over the lazy dog", "6C1B07BC7BBC4BE347939AC4A93C437A");
+	}
+	
+	
+	// Streaming in random pieces, including single bytes, and hashing a clone must agree with the one-shot methods, especially around the XXH3 buffer boundaries.
+	@Test public void testStreamingEquivalence() {
+		Random r = Random.DEFAULT;
+		HashFunction[] functions = {XxHash32.FUNCTION, XxHash64.FUNCTION, new Xxh3(8, SEED64), new Xxh3(16, SEED64), new MurmurHash3(SEED32)};
+		for (int i = 0; i < 300; i++) {
+			HashFunction hf = functions[i % functions.length];
+			int len = r.uniformInt(i < 150 ? 600 : SANITY.length + 1);
+			HashValue expect = hf.getHash(SANITY, 0, len);
+			Hasher hasher = hf.newHasher();
+			Hasher copy = null;
+			for (int pos = 0; pos < len; ) {
+				if (copy == null && r.uniformInt(4) == 0)
+					copy = hasher.clone();
+				if (r.uniformInt(3) == 0) {
+					hasher.update(SANITY[pos]);
+					pos++;
+				} else {
+					int n = Math.min(r.uniformInt(300), len - pos);
+					hasher.update(SANITY, pos, n);
+					pos += n;
+				}
+			}
+			assertEquals(expect, hasher.getHash());
+			assertEquals(expect, hasher.getHash());  // Getting the hash does not alter the state
+			if (copy != null)
+				assertArrayEquals(copy.clone().getHash().toBytes(), copy.getHash().toBytes());
+		}
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testXxh3InvalidLength() {
+		new Xxh3(4, 0);
+	}
+	
+}
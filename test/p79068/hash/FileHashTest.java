@@ -0,0 +1,113 @@
+package p79068.hash;
+
+import static org.junit.Assert.assertEquals;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Test;
+import p79068.crypto.hash.Sha;
+import p79068.util.random.Random;
+
+
+public final class FileHashTest {
+	
+	private static final HashFunction[] FUNCTIONS = {Crc.CRC32_FUNCTION, Sha.SHA256_FUNCTION};
+	
+	
+	@Test public void testAllModesMatchArray() throws IOException {
+		Random r = Random.DEFAULT;
+		Path file = Files.createTempFile("filehash", ".bin");
+		try {
+			int[] lengths = {0, 1, 63, 64, 65, 4096, 100000, (1 << 20) + 3};
+			for (int len : lengths) {
+				byte[] data = new byte[len];
+				r.uniformBytes(data);
+				Files.write(file, data);
+				for (HashFunction hf : FUNCTIONS) {
+					HashValue expect = hf.getHash(data);
+					assertEquals(expect, hf.getHash(file.toFile()));
+					assertEquals(expect, hf.getHash(file));
+					for (FileReadMode mode : FileReadMode.values())
+						assertEquals(expect, hf.getHash(file, mode));
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	
+	@Test public void testChannelSubrange() throws IOException {
+		Random r = Random.DEFAULT;
+		Path file = Files.createTempFile("filehash", ".bin");
+		try {
+			byte[] data = new byte[10000];
+			r.uniformBytes(data);
+			Files.write(file, data);
+			try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+				for (int i = 0; i < 100; i++) {
+					int off = r.uniformInt(data.length + 1);
+					int len = r.uniformInt(data.length - off + 1);
+					for (HashFunction hf : FUNCTIONS) {
+						HashValue expect = hf.getHash(data, off, len);
+						for (FileReadMode mode : FileReadMode.values())
+							assertEquals(expect, hf.getHash(ch, off, len, mode));
+					}
+				}
+				assertEquals(0, ch.position());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	
+	@Test(expected=EOFException.class)
+	public void testChannelPastEnd() throws IOException {
+		Path file = Files.createTempFile("filehash", ".bin");
+		try {
+			Files.write(file, new byte[100]);
+			try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+				Crc.CRC32_FUNCTION.getHash(ch, 50, 51);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	
+	// Always passes. Prints result to standard output. The first pass of each mode reads a freshly written file,
+	// so the page cache is normally warm; for cold-cache numbers, drop the OS page cache before each pass.
+	@Test public void testFileHashSpeed() throws IOException {
+		Path file = Files.createTempFile("filehash", ".bin");
+		try {
+			byte[] data = new byte[64 << 20];
+			Random.DEFAULT.uniformBytes(data);
+			Files.write(file, data);
+			data = null;
+			HashFunction hf = Crc.CRC32_FUNCTION;
+			for (int pass = 0; pass < 2; pass++) {
+				long time = System.nanoTime();
+				hf.getHash(file.toFile());
+				printSpeed(hf, "stream", System.nanoTime() - time);
+				for (FileReadMode mode : FileReadMode.values()) {
+					time = System.nanoTime();
+					hf.getHash(file, mode);
+					printSpeed(hf, mode.toString(), System.nanoTime() - time);
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	
+	private static void printSpeed(HashFunction hf, String mode, long nanos) {
+		System.out.printf("%s (%s): %.1f MiB/s%n", hf.getName(), mode, 64 / (nanos / 1.0e9));
+	}
+	
+}
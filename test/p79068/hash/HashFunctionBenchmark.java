@@ -0,0 +1,271 @@
+package p79068.hash;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import p79068.Benchmark;
+import p79068.backend.Backends;
+import p79068.crypto.hash.Blake2b;
+import p79068.crypto.hash.Blake2bp;
+import p79068.crypto.hash.Blake2s;
+import p79068.crypto.hash.Blake2sp;
+import p79068.crypto.hash.Blake3;
+import p79068.crypto.hash.BlockHashFunction;
+import p79068.crypto.hash.Edonkey2000;
+import p79068.crypto.hash.Hmac;
+import p79068.crypto.hash.KangarooTwelve;
+import p79068.crypto.hash.Keccak;
+import p79068.crypto.hash.Md;
+import p79068.crypto.hash.ParallelHash;
+import p79068.crypto.hash.Ripemd;
+import p79068.crypto.hash.Sha;
+import p79068.crypto.hash.Shake;
+import p79068.crypto.hash.SipHash;
+import p79068.crypto.hash.Tiger;
+import p79068.crypto.hash.Whirlpool;
+import p79068.crypto.hash.XofHasher;
+import p79068.util.random.Random;
+
+
+/**
+ * Benchmarks every hash function of the library. Run the main method; see {@link Benchmark} for the settings, e.g.
+ * {@code java -Dp79068.bench.filter=SHA-256 -Dp79068.bench.json=hash.json p79068.hash.HashFunctionBenchmark}.
+ * <p>The benchmarks are:</p>
+ * <ul>
+ *   <li>{@code getHash}: one-shot {@link HashFunction#getHash(byte[], int, int)} of a message</li>
+ *   <li>{@code update}: {@link HashFunction#newHasher()}, then {@link Hasher#update(byte[], int, int)} in chunks of {@value #CHUNK_LENGTH} bytes, then {@link Hasher#getHash()}</li>
+ *   <li>{@code newHasher}: the setup cost of a hasher</li>
+ *   <li>{@code clone}: copying a hasher that has absorbed some data</li>
+ *   <li>{@code finalize}: {@link Hasher#getHash()} on a hasher that has absorbed some data</li>
+ *   <li>{@code squeeze}: the output stream of SHAKE, in {@value #CHUNK_LENGTH}-byte pieces into a reused buffer</li>
+ *   <li>{@code hash32}, {@code hash64}, {@code hash128}: the allocation-free static methods of xxHash, XXH3 and MurmurHash3 by result width, which skip the {@link HashValue}</li>
+ *   <li>{@code shortInput}: keyed functions on messages shorter than 64 bytes, comparing SipHash, both its {@link HashValue} and its allocation-free {@code long} paths, with HMAC-SHA-256 through its one-shot {@code mac} and through a hasher</li>
+ *   <li>{@code getHashParallel}: eDonkey2000, KangarooTwelve, ParallelHash, BLAKE2bp, BLAKE2sp, BLAKE3, CRCs and Adler-32 hashing segments concurrently on the common fork-join pool</li>
+ * </ul>
+ * <p>Hash functions with a JDK backend use whichever backend {@link Backends} selects; set {@code -Dp79068.backend=library} or {@code jdk} to compare them. The selections are printed at the end.</p>
+ */
+public final class HashFunctionBenchmark {
+	
+	private static final int[] MESSAGE_LENGTHS = {0, 64, 1 << 10, 64 << 10, 1 << 20, 64 << 20};
+	
+	private static final int CHUNK_LENGTH = 4096;
+	
+	
+	public static void main(String[] args) throws Exception {
+		Benchmark bench = new Benchmark("HashFunction");
+		byte[] data = new byte[MESSAGE_LENGTHS[MESSAGE_LENGTHS.length - 1]];
+		Random.DEFAULT.uniformBytes(data);
+		
+		for (HashFunction hf : getHashFunctions()) {
+			String name = hf.getName();
+			for (int len : MESSAGE_LENGTHS) {
+				bench.measure("getHash", Benchmark.params("function", name, "length", Benchmark.formatSize(len)), len,
+					() -> hf.getHash(data, 0, len));
+				bench.measure("update", Benchmark.params("function", name, "length", Benchmark.formatSize(len)), len,
+					() -> {
+						Hasher h = hf.newHasher();
+						for (int off = 0; off < len; off += CHUNK_LENGTH)
+							h.update(data, off, Math.min(len - off, CHUNK_LENGTH));
+						return h.getHash();
+					});
+			}
+			
+			bench.measure("newHasher", Benchmark.params("function", name), 0, hf::newHasher);
+			Hasher h = hf.newHasher();
+			h.update(data, 0, 100);  // Leaves a partial block in every block hash function
+			bench.measure("clone", Benchmark.params("function", name), 0, h::clone);
+			bench.measure("finalize", Benchmark.params("function", name), 0, h::getHash);  // Does not alter the hasher's state
+		}
+		
+		byte[] output = new byte[CHUNK_LENGTH];
+		for (Shake hf : new Shake[]{Shake.SHAKE128_FUNCTION, Shake.SHAKE256_FUNCTION}) {
+			int len = 1 << 20;
+			bench.measure("squeeze", Benchmark.params("function", hf.getName(), "length", Benchmark.formatSize(len)), len,
+				() -> {
+					XofHasher h = hf.newHasher();
+					for (int off = 0; off < len; off += output.length)
+						h.squeeze(output, 0, output.length);
+					return output;
+				});
+		}
+		
+		long[] h128 = new long[2];
+		for (int len : new int[]{8, 64, 1 << 10, 1 << 20}) {
+			bench.measure("hash32", Benchmark.params("function", XxHash32.FUNCTION.getName(), "length", Benchmark.formatSize(len)), len,
+				() -> XxHash32.hash32(data, 0, len, 0));
+			bench.measure("hash64", Benchmark.params("function", XxHash64.FUNCTION.getName(), "length", Benchmark.formatSize(len)), len,
+				() -> XxHash64.hash64(data, 0, len, 0));
+			bench.measure("hash64", Benchmark.params("function", Xxh3.XXH3_64_FUNCTION.getName(), "length", Benchmark.formatSize(len)), len,
+				() -> Xxh3.hash64(data, 0, len, 0));
+			bench.measure("hash128", Benchmark.params("function", Xxh3.XXH3_128_FUNCTION.getName(), "length", Benchmark.formatSize(len)), len,
+				() -> {
+					Xxh3.hash128(data, 0, len, 0, h128);
+					return h128;
+				});
+			bench.measure("hash64", Benchmark.params("function", MurmurHash3.FUNCTION.getName(), "length", Benchmark.formatSize(len)), len,
+				() -> MurmurHash3.hash64(data, 0, len, 0));
+		}
+		
+		byte[] key = new byte[16];
+		SipHash[] sipHashes = {new SipHash(2, 4, 8, key), new SipHash(1, 3, 8, key), new SipHash(2, 4, 16, key)};
+		Hmac hmac = new Hmac(Sha.SHA256_FUNCTION, key);
+		for (int len : new int[]{8, 16, 32, 63}) {
+			for (SipHash hf : sipHashes) {
+				bench.measure("shortInput", Benchmark.params("function", hf.getName(), "method", "getHash", "length", Benchmark.formatSize(len)), len,
+					() -> hf.getHash(data, 0, len));
+				if (hf.getHashLength() == 8) {
+					bench.measure("shortInput", Benchmark.params("function", hf.getName(), "method", "hash64", "length", Benchmark.formatSize(len)), len,
+						() -> hf.hash64(data, 0, len));
+				} else {
+					bench.measure("shortInput", Benchmark.params("function", hf.getName(), "method", "hash128", "length", Benchmark.formatSize(len)), len,
+						() -> {
+							hf.hash128(data, 0, len, h128);
+							return h128;
+						});
+				}
+			}
+			bench.measure("shortInput", Benchmark.params("function", hmac.getName(), "method", "getHash", "length", Benchmark.formatSize(len)), len,
+				() -> hmac.getHash(data, 0, len));
+			bench.measure("shortInput", Benchmark.params("function", hmac.getName(), "method", "mac", "length", Benchmark.formatSize(len)), len,
+				() -> {
+					hmac.mac(data, 0, len, output, 0);
+					return output;
+				});
+			bench.measure("shortInput", Benchmark.params("function", hmac.getName(), "method", "newHasher", "length", Benchmark.formatSize(len)), len,
+				() -> {
+					Hasher h = hmac.newHasher();
+					h.update(data, 0, len);
+					return h.getHash();
+				});
+		}
+		
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		for (Edonkey2000 hf : new Edonkey2000[]{Edonkey2000.ED2K_FUNCTION, Edonkey2000.NEW_ED2K_FUNCTION}) {
+			bench.measure("getHashParallel", Benchmark.params("function", hf.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+				() -> hf.getHash(data, 0, data.length, pool));
+		}
+		bench.measure("getHashParallel", Benchmark.params("function", KangarooTwelve.FUNCTION.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+			() -> KangarooTwelve.FUNCTION.getHash(data, 0, data.length, pool));
+		for (ParallelHash hf : new ParallelHash[]{new ParallelHash(Shake.SHAKE128_FUNCTION, 8192, 32, new byte[0]), new ParallelHash(Shake.SHAKE256_FUNCTION, 8192, 64, new byte[0])}) {
+			bench.measure("getHashParallel", Benchmark.params("function", hf.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+				() -> hf.getHash(data, 0, data.length, pool));
+		}
+		bench.measure("getHashParallel", Benchmark.params("function", Blake2bp.BLAKE2BP_512_FUNCTION.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+			() -> Blake2bp.BLAKE2BP_512_FUNCTION.getHash(data, 0, data.length, pool));
+		bench.measure("getHashParallel", Benchmark.params("function", Blake2sp.BLAKE2SP_256_FUNCTION.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+			() -> Blake2sp.BLAKE2SP_256_FUNCTION.getHash(data, 0, data.length, pool));
+		bench.measure("getHashParallel", Benchmark.params("function", Blake3.FUNCTION.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+			() -> Blake3.FUNCTION.getHash(data, 0, data.length, pool));
+		for (Crc hf : new Crc[]{Crc.CRC32_FUNCTION, Crc.CRC32C_FUNCTION, Crc.CRC64_XZ_FUNCTION}) {
+			bench.measure("getHashParallel", Benchmark.params("function", hf.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+				() -> hf.getHash(data, 0, data.length, pool));
+		}
+		bench.measure("getHashParallel", Benchmark.params("function", Adler32.FUNCTION.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+			() -> Adler32.FUNCTION.getHash(data, 0, data.length, pool));
+		for (Chunker ch : new Chunker[]{new GearChunker(2 << 10, 8 << 10, 64 << 10), new RabinChunker(2 << 10, 8 << 10, 64 << 10)}) {
+			bench.measure("chunk", Benchmark.params("chunker", ch.getClass().getSimpleName(), "length", Benchmark.formatSize(data.length)), data.length,
+				() -> {
+					int count = 0;
+					for (int off = 0; off < data.length; count++)
+						off += ch.nextChunkLength(data, off, data.length - off);
+					return count;
+				});
+			ChunkPipeline pipeline = new ChunkPipeline(ch, Sha.SHA256_FUNCTION, pool);
+			bench.measure("chunkPipeline", Benchmark.params("chunker", ch.getClass().getSimpleName(), "function", Sha.SHA256_FUNCTION.getName(), "length", Benchmark.formatSize(data.length), "threads", Integer.toString(pool.getParallelism())), data.length,
+				() -> {
+					List<Chunk> chunks = new ArrayList<>();
+					pipeline.process(new ByteArrayInputStream(data), chunks::add);
+					return chunks;
+				});
+		}
+		byte[] edited = data.clone();
+		for (int i = 0; i < edited.length; i += 1 << 20)
+			edited[i] ^= 1;
+		for (RollingChecksum.Variant variant : RollingChecksum.Variant.values()) {
+			BlockSignature sig = new BlockSignature(data, 0, data.length, 2048, Md.MD5_FUNCTION, variant);
+			bench.measure("delta", Benchmark.params("variant", variant.name(), "function", Md.MD5_FUNCTION.getName(), "length", Benchmark.formatSize(data.length)), data.length,
+				() -> {
+					long[] literalBytes = {0};
+					Delta.diff(sig, edited, 0, edited.length, new DeltaSink() {
+						public void copy(long offset, long length) {}
+						public void literal(byte[] b, int off, int len) {
+							literalBytes[0] += len;
+						}
+					});
+					return literalBytes[0];
+				});
+		}
+		for (Backends.Selection sel : Backends.getSelections())
+			System.out.println("Backend " + sel);
+		bench.writeJson();
+	}
+	
+	
+	private static List<HashFunction> getHashFunctions() {
+		List<HashFunction> result = new ArrayList<>(Arrays.asList(
+			Md.MD2_FUNCTION,
+			Md.MD4_FUNCTION,
+			Md.MD5_FUNCTION,
+			Sha.SHA_FUNCTION,
+			Sha.SHA1_FUNCTION,
+			Sha.SHA224_FUNCTION,
+			Sha.SHA256_FUNCTION,
+			Sha.SHA384_FUNCTION,
+			Sha.SHA512_FUNCTION,
+			Sha.SHA512_224_FUNCTION,
+			Sha.SHA512_256_FUNCTION,
+			Ripemd.RIPEMD_FUNCTION,
+			Ripemd.RIPEMD128_FUNCTION,
+			Ripemd.RIPEMD160_FUNCTION,
+			Ripemd.RIPEMD256_FUNCTION,
+			Ripemd.RIPEMD320_FUNCTION,
+			Tiger.TIGER_FUNCTION,
+			Tiger.TIGER2_FUNCTION,
+			Whirlpool.WHIRLPOOL0_FUNCTION,
+			Whirlpool.WHIRLPOOL_T_FUNCTION,
+			Whirlpool.WHIRLPOOL_FUNCTION,
+			Keccak.KECCAK_224_FUNCTION,
+			Keccak.KECCAK_256_FUNCTION,
+			Keccak.KECCAK_384_FUNCTION,
+			Keccak.KECCAK_512_FUNCTION,
+			Keccak.SHA3_224_FUNCTION,
+			Keccak.SHA3_256_FUNCTION,
+			Keccak.SHA3_384_FUNCTION,
+			Keccak.SHA3_512_FUNCTION,
+			Shake.SHAKE128_FUNCTION,
+			Shake.SHAKE256_FUNCTION,
+			KangarooTwelve.FUNCTION,
+			new ParallelHash(Shake.SHAKE128_FUNCTION, 8192, 32, new byte[0]),
+			new ParallelHash(Shake.SHAKE256_FUNCTION, 8192, 64, new byte[0]),
+			Blake2b.BLAKE2B_256_FUNCTION,
+			Blake2b.BLAKE2B_512_FUNCTION,
+			Blake2s.BLAKE2S_256_FUNCTION,
+			Blake2bp.BLAKE2BP_512_FUNCTION,
+			Blake2sp.BLAKE2SP_256_FUNCTION,
+			Blake3.FUNCTION,
+			Edonkey2000.ED2K_FUNCTION,
+			Edonkey2000.NEW_ED2K_FUNCTION,
+			Crc.CRC32_FUNCTION,
+			Crc.CRC32C_FUNCTION,
+			Crc.CRC64_ECMA_FUNCTION,
+			Crc.CRC64_XZ_FUNCTION,
+			Crc.CRC16_CCITT_FUNCTION,
+			Crc.CRC24_OPENPGP_FUNCTION,
+			Adler32.FUNCTION,
+			XxHash32.FUNCTION,
+			XxHash64.FUNCTION,
+			Xxh3.XXH3_64_FUNCTION,
+			Xxh3.XXH3_128_FUNCTION,
+			MurmurHash3.FUNCTION,
+			new SipHash(new byte[16]),
+			new SipHash(1, 3, 8, new byte[16]),
+			Sum32.FUNCTION,
+			Xor8.FUNCTION));
+		for (BlockHashFunction hf : new BlockHashFunction[]{Md.MD5_FUNCTION, Sha.SHA1_FUNCTION, Sha.SHA256_FUNCTION, Sha.SHA512_FUNCTION})
+			result.add(new Hmac(hf, new byte[32]));
+		return result;
+	}
+	
+}
@@ -2,6 +2,7 @@ package p79068.hash;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import java.nio.ByteBuffer;
 import org.junit.Test;
 import p79068.crypto.CryptoUtils;
 import p79068.util.random.Random;
@@ -58,6 +59,65 @@ public abstract class HashFunctionTest {
 	}
 	
 	
+	@Test public void testByteBufferEquivalence() {
+		Random r = Random.DEFAULT;
+		for (HashFunction hf : getHashFunctionsToTest()) {
+			for (int i = 0; i < 300; i++) {
+				byte[] b = new byte[r.uniformInt(1000) + 1];
+				r.uniformBytes(b);
+				int off = r.uniformInt(b.length);
+				HashValue expect = hf.getHash(b, off, b.length - off);
+				
+				ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+				direct.put(b).position(off);
+				ByteBuffer[] bufs = {ByteBuffer.wrap(b, off, b.length - off), direct, direct.duplicate(), direct.asReadOnlyBuffer()};
+				for (ByteBuffer buf : bufs) {
+					buf.position(off);
+					Hasher h = hf.newHasher();
+					h.update(b, 0, 0);
+					for (int end = buf.limit(); buf.position() < end; ) {
+						buf.limit(Math.min(buf.position() + r.uniformInt(300) + 1, end));
+						h.update(buf);
+						assertEquals(buf.limit(), buf.position());
+						buf.limit(end);
+					}
+					assertEquals(expect, h.getHash());
+					buf.position(off);
+					assertEquals(expect, hf.getHash(buf));
+					assertEquals(buf.limit(), buf.position());
+				}
+			}
+		}
+	}
+	
+	
+	@Test public void testGetHashesEquivalence() {
+		Random r = Random.DEFAULT;
+		for (HashFunction hf : getHashFunctionsToTest()) {
+			for (int i = 0; i < 30; i++) {
+				int n = r.uniformInt(20);
+				byte[][] msgs = new byte[n][];
+				int[] offs = new int[n];
+				int[] lens = new int[n];
+				for (int j = 0; j < n; j++) {
+					msgs[j] = new byte[r.uniformInt(300)];
+					r.uniformBytes(msgs[j]);
+					offs[j] = r.uniformInt(msgs[j].length + 1);
+					lens[j] = r.uniformInt(msgs[j].length - offs[j] + 1);
+				}
+				HashValue[] whole = hf.getHashes(msgs);
+				HashValue[] ranges = hf.getHashes(msgs, offs, lens);
+				assertEquals(n, whole.length);
+				assertEquals(n, ranges.length);
+				for (int j = 0; j < n; j++) {
+					assertEquals(hf.getHash(msgs[j]), whole[j]);
+					assertEquals(hf.getHash(msgs[j], offs[j], lens[j]), ranges[j]);
+				}
+			}
+		}
+	}
+	
+	
 	// Always passes. Prints result to standard output.
 	@Test public void testHashSpeed() {
 		for (HashFunction hf : getHashFunctionsToTest()) {
@@ -74,6 +134,42 @@ public abstract class HashFunctionTest {
 	}
 	
 	
+	// Always passes. Prints result to standard output.
+	@Test public void testDirectBufferHashSpeed() {
+		for (HashFunction hf : getHashFunctionsToTest()) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 18);
+			Hasher h = hf.newHasher();
+			long time = 0;
+			int iters = 0;
+			do {
+				buf.clear();
+				time -= System.nanoTime();
+				h.update(buf);
+				time += System.nanoTime();
+				iters++;
+			} while (time < 100000000);
+			System.out.printf("%s (direct buffer): %.1f MiB/s%n", hf.getName(), (double)iters * buf.capacity() / (time / 1.0e9) / 1048576);
+		}
+	}
+	
+	
+	// Always passes. Prints result to standard output.
+	@Test public void testBatchHashSpeed() {
+		byte[][] msgs = new byte[1000][64];
+		for (HashFunction hf : getHashFunctionsToTest()) {
+			long time = 0;
+			long bytes = 0;
+			do {
+				time -= System.nanoTime();
+				hf.getHashes(msgs);
+				time += System.nanoTime();
+				bytes += msgs.length * 64;
+			} while (time < 100000000);
+			System.out.printf("%s (batches of 64-byte messages): %.1f MiB/s%n", hf.getName(), bytes / (time / 1.0e9) / 1048576);
+		}
+	}
+	
+	
 	private static long testHashSpeed(HashFunction hf, int len) {
 		long time = 0;
 		Hasher h = hf.newHasher();
@@ -0,0 +1,68 @@
+package p79068.hash;
+
+import static org.junit.Assert.assertEquals;
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+import org.junit.Test;
+import p79068.util.random.Random;
+
+
+public final class JdkChecksumHasherTest {
+	
+	@Test public void testCrc32() {
+		// A Crc object equal to but not the same as CRC32_FUNCTION always uses this library's implementation
+		testVersusLibrary(Crc.CRC32_FUNCTION, Crc.CRC32_FUNCTION::combine, CRC32::new,
+			new Crc("CRC-32", 32, 0x104C11DB7L, true, true, 0xFFFFFFFFL, 0xFFFFFFFFL)::newHasher);
+	}
+	
+	
+	@Test public void testCrc32c() {
+		testVersusLibrary(Crc.CRC32C_FUNCTION, Crc.CRC32C_FUNCTION::combine, CRC32C::new,
+			new Crc("CRC-32C", 32, 0x11EDC6F41L, true, true, 0xFFFFFFFFL, 0xFFFFFFFFL)::newHasher);
+	}
+	
+	
+	@Test public void testAdler32() {
+		testVersusLibrary(Adler32.FUNCTION, Adler32.FUNCTION::combine, java.util.zip.Adler32::new,
+			() -> new Adler32Hasher(Adler32.FUNCTION));
+	}
+	
+	
+	// Updates both hashers in random pieces, cloning along the way, which exercises the combining of a clone's prefix with its new checksum.
+	private static void testVersusLibrary(HashFunction hf, SegmentHashing.Combiner combiner, Supplier<Checksum> jdk, Supplier<Hasher> library) {
+		Random r = Random.DEFAULT;
+		for (int i = 0; i < 300; i++) {
+			Hasher expect = library.get();
+			Hasher actual = new JdkChecksumHasher(hf, combiner, jdk);
+			for (int j = r.uniformInt(8); j > 0; j--) {
+				byte[] b = new byte[r.uniformInt(1000)];
+				r.uniformBytes(b);
+				switch (r.uniformInt(3)) {
+					case 0:
+						expect.update(b);
+						actual.update(b);
+						break;
+					case 1:
+						expect.update(b);
+						ByteBuffer buf = ByteBuffer.allocateDirect(b.length);
+						buf.put(b).flip();
+						actual.update(buf);
+						break;
+					case 2:
+						Hasher temp = actual.clone();
+						actual.update((byte)j);  // Must not affect the clone
+						actual = temp;
+						expect = expect.clone();
+						break;
+					default:
+						throw new AssertionError();
+				}
+				assertEquals(expect.getHash(), actual.getHash());
+			}
+		}
+	}
+	
+}
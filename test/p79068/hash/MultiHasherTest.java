@@ -0,0 +1,123 @@
+package p79068.hash;
+
+import static org.junit.Assert.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import p79068.crypto.hash.Md;
+import p79068.crypto.hash.Sha;
+import p79068.util.random.Random;
+
+
+public final class MultiHasherTest {
+	
+	private static final List<HashFunction> FUNCTIONS = Arrays.asList(Md.MD5_FUNCTION, Sha.SHA1_FUNCTION, Sha.SHA256_FUNCTION, Crc.CRC32_FUNCTION);
+	
+	
+	@Test public void testSequential() {
+		try (MultiHasher mh = new MultiHasher(FUNCTIONS)) {
+			testRandomUpdates(mh);
+		}
+	}
+	
+	
+	@Test public void testParallel() {
+		try (MultiHasher mh = new MultiHasher(FUNCTIONS, 3, 100)) {
+			testRandomUpdates(mh);
+		}
+	}
+	
+	
+	@Test public void testInputStream() throws IOException {
+		byte[] b = new byte[100000];
+		Random.DEFAULT.uniformBytes(b);
+		try (MultiHasher seq = new MultiHasher(FUNCTIONS); MultiHasher par = new MultiHasher(FUNCTIONS, 4, 4096)) {
+			seq.update(new ByteArrayInputStream(b));
+			par.update(new ByteArrayInputStream(b));
+			checkHashes(b, b.length, seq.getHashes());
+			checkHashes(b, b.length, par.getHashes());
+		}
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testDuplicateFunction() {
+		new MultiHasher(Arrays.asList(Md.MD5_FUNCTION, Md.MD5_FUNCTION));
+	}
+	
+	
+	@Test(expected=IllegalStateException.class)
+	public void testUseAfterClose() {
+		MultiHasher mh = new MultiHasher(FUNCTIONS, 2, 16);
+		mh.close();
+		mh.update(new byte[1]);
+	}
+	
+	
+	// Always passes. Prints result to standard output.
+	@Test public void testMultiHashSpeed() {
+		byte[] buf = new byte[1 << 16];
+		int count = 1024;  // 64 MiB in total
+		
+		long sum = 0;
+		for (HashFunction hf : FUNCTIONS) {
+			Hasher h = hf.newHasher();
+			long time = System.nanoTime();
+			for (int i = 0; i < count; i++)
+				h.update(buf);
+			h.getHash();
+			sum += System.nanoTime() - time;
+		}
+		System.out.printf("Separate passes: %.1f MiB/s%n", 64 / (sum / 1.0e9));
+		
+		try (MultiHasher mh = new MultiHasher(FUNCTIONS, 8, buf.length)) {
+			long time = System.nanoTime();
+			for (int i = 0; i < count; i++)
+				mh.update(buf);
+			mh.getHashes();
+			System.out.printf("MultiHasher (parallel): %.1f MiB/s%n", 64 / ((System.nanoTime() - time) / 1.0e9));
+		}
+	}
+	
+	
+	private static void testRandomUpdates(MultiHasher mh) {
+		Random r = Random.DEFAULT;
+		byte[] b = new byte[20000];
+		r.uniformBytes(b);
+		int off = 0;
+		while (off < b.length) {
+			int n = Math.min(r.uniformInt(1000), b.length - off);
+			switch (r.uniformInt(3)) {
+				case 0:
+					mh.update(b, off, n);
+					break;
+				case 1:
+					mh.update(ByteBuffer.wrap(b, off, n));
+					break;
+				case 2:
+					ByteBuffer buf = ByteBuffer.allocateDirect(n);
+					buf.put(b, off, n).flip();
+					mh.update(buf);
+					break;
+				default:
+					throw new AssertionError();
+			}
+			off += n;
+			if (r.uniformInt(10) == 0)
+				checkHashes(b, off, mh.getHashes());
+		}
+		checkHashes(b, off, mh.getHashes());
+	}
+	
+	
+	private static void checkHashes(byte[] b, int len, Map<HashFunction,HashValue> hashes) {
+		assertEquals(FUNCTIONS, Arrays.asList(hashes.keySet().toArray()));
+		for (HashFunction hf : FUNCTIONS)
+			assertEquals(hf.getHash(b, 0, len), hashes.get(hf));
+	}
+	
+}
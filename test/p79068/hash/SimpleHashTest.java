@@ -1,7 +1,10 @@
 package p79068.hash;
 
+import static org.junit.Assert.assertEquals;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Test;
+import p79068.util.random.Random;
 
 
 public final class SimpleHashTest extends HashFunctionTest {
@@ -31,6 +34,58 @@ public final class SimpleHashTest extends HashFunctionTest {
 	}
 	
 	
+	// Compares the bulk update with the definition, including long runs of 0xFF that maximize the intermediate sums
+	@Test public void testAdler32VersusDefinition() {
+		Random r = Random.DEFAULT;
+		for (int i = 0; i < 30; i++) {
+			byte[] msg = new byte[i < 3 ? (3 << 20) + r.uniformInt(100) : r.uniformInt(5000)];
+			if (i % 2 == 0)
+				Arrays.fill(msg, (byte)0xFF);
+			else
+				r.uniformBytes(msg);
+			int off = r.uniformInt(Math.min(msg.length, 100) + 1);
+			int s1 = 1;
+			int s2 = 0;
+			for (int j = off; j < msg.length; j++) {
+				s1 = (s1 + (msg[j] & 0xFF)) % 65521;
+				s2 = (s2 + s1) % 65521;
+			}
+			byte[] expect = {(byte)(s2 >>> 8), (byte)s2, (byte)(s1 >>> 8), (byte)s1};
+			assertEquals(new HashValue(expect), Adler32.FUNCTION.getHash(msg, off, msg.length - off));
+		}
+	}
+	
+	
+	@Test public void testAdler32Combine() {
+		Random r = Random.DEFAULT;
+		for (int i = 0; i < 1000; i++) {
+			byte[] msg = new byte[r.uniformInt(i < 10 ? 200000 : 1000)];
+			r.uniformBytes(msg);
+			int split = r.uniformInt(msg.length + 1);
+			HashValue a = Adler32.FUNCTION.getHash(msg, 0, split);
+			HashValue b = Adler32.FUNCTION.getHash(msg, split, msg.length - split);
+			assertEquals(Adler32.FUNCTION.getHash(msg), Adler32.FUNCTION.combine(a, b, msg.length - split));
+		}
+	}
+	
+	
+	@Test public void testAdler32Parallel() {
+		Random r = Random.DEFAULT;
+		byte[] msg = new byte[20 << 20];
+		r.uniformBytes(msg);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int i = 0; i < 5; i++) {
+				int off = r.uniformInt(1000);
+				int len = r.uniformInt(msg.length - off + 1);
+				assertEquals(Adler32.FUNCTION.getHash(msg, off, len), Adler32.FUNCTION.getHash(msg, off, len, pool));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	
 	@Test public void testSum32() {
 		HashFunction hf = Sum32.FUNCTION;
 		testAscii(hf, ""            , "00000000");